@@ -0,0 +1,97 @@
+/*
+ *
+ *  * Copyright 2021 UBICUA.
+ *  *
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  *
+ *  *      http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ *
+ */
+
+package jssi.crypto.bench;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import jssi.crypto.CryptoException;
+import jssi.crypto.CryptoService;
+import jssi.crypto.KeyHandle;
+import jssi.crypto.KeyInfo;
+import jssi.crypto.Keys;
+import org.libsodium.jni.NaCl;
+import org.libsodium.jni.SodiumException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Detached signatures of each registered crypto type through CryptoService, so a
+ * new ICrypto can be compared with ed25519 on the same path.
+ *
+ * @author UBICUA
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AlgorithmBenchmark {
+
+    @Param({"ed25519", "secp256k1"})
+    public String type;
+
+    @Param({"64", "1024"})
+    public int size;
+
+    private CryptoService service;
+    private KeyHandle handle;
+    private KeyHandle publicHandle;
+    private byte[] data;
+    private byte[] sign;
+
+    @Setup(Level.Trial)
+    public void setup() throws SodiumException, CryptoException {
+        NaCl.sodium();
+        service = new CryptoService();
+
+        Keys keys = service.createKeys(new KeyInfo(null, type));
+        handle = service.keyHandle(keys);
+        publicHandle = service.keyHandle(keys.verkey);
+
+        data = new byte[size];
+        new Random(size).nextBytes(data);
+        sign = service.signDetached(data, handle);
+    }
+
+    @Benchmark
+    public Keys createKeys() throws SodiumException {
+        return service.createKeys(new KeyInfo(null, type));
+    }
+
+    @Benchmark
+    public byte[] signDetached() throws SodiumException, CryptoException {
+        return service.signDetached(data, handle);
+    }
+
+    @Benchmark
+    public boolean verifyDetached() throws SodiumException {
+        return service.verifyDetached(data, sign, publicHandle);
+    }
+}
@@ -0,0 +1,168 @@
+/*
+ *
+ *  * Copyright 2021 UBICUA.
+ *  *
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  *
+ *  *      http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ *
+ */
+
+package jssi.crypto.bench;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import jssi.crypto.CryptoBox;
+import jssi.crypto.CryptoException;
+import jssi.crypto.CryptoService;
+import jssi.crypto.KeyHandle;
+import jssi.crypto.Keys;
+import org.libsodium.jni.NaCl;
+import org.libsodium.jni.SodiumException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * CryptoService sign, verify, cryptoBox and seal as the wallet calls them, with
+ * the key caches in three states:
+ *
+ *   handle  KeyHandle overloads, keys parsed and converted once
+ *   keys    Keys overloads, handles and shared keys found in the caches
+ *   cold    Keys overloads with both caches cleared before every call
+ *
+ * The service logs through android.util.Log, a no-op here, but the messages are
+ * still formatted as on a device.
+ *
+ * @author UBICUA
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CryptoServiceBenchmark {
+
+    @Param({"handle", "keys", "cold"})
+    public String cache;
+
+    @Param({"64", "1024", "16384"})
+    public int size;
+
+    private CryptoService service;
+    private boolean handles;
+    private boolean cold;
+
+    /* `mine` boxes for `theirs`, which opens */
+    private Keys mine;
+    private Keys theirs;
+    private Keys minePublic;
+    private KeyHandle myHandle;
+    private KeyHandle theirHandle;
+    private KeyHandle myPublicHandle;
+    private KeyHandle theirPublicHandle;
+
+    private byte[] data;
+    private byte[] opened;
+    private byte[] signed;
+    private byte[] sign;
+    private CryptoBox box;
+    private byte[] sealed;
+
+    @Setup(Level.Trial)
+    public void setup() throws SodiumException, CryptoException {
+        NaCl.sodium();
+        service = new CryptoService();
+        handles = "handle".equals(cache);
+        cold = "cold".equals(cache);
+
+        mine = service.createKeys(null);
+        theirs = service.createKeys(null);
+        minePublic = new Keys(mine.verkey, null);
+        myHandle = service.keyHandle(mine);
+        theirHandle = service.keyHandle(theirs);
+        myPublicHandle = service.keyHandle(mine.verkey);
+        theirPublicHandle = service.keyHandle(theirs.verkey);
+
+        data = new byte[size];
+        new Random(size).nextBytes(data);
+        opened = new byte[size];
+        signed = service.sign(data, myHandle);
+        sign = service.signDetached(data, myHandle);
+        box = service.cryptoBox(data, theirPublicHandle, myHandle);
+        sealed = service.cryptoBoxSeal(theirPublicHandle, data);
+    }
+
+    @Setup(Level.Invocation)
+    public void invalidate() {
+        if (cold) {
+            service.clearKeyHandles();
+            service.clearSharedKeys();
+        }
+    }
+
+    @Benchmark
+    public byte[] sign() throws SodiumException, CryptoException {
+        return handles ? service.sign(data, myHandle) : service.sign(data, mine);
+    }
+
+    @Benchmark
+    public boolean verify() throws SodiumException, CryptoException {
+        return handles ? service.verify(opened, signed, myPublicHandle) : service.verify(opened, signed, minePublic);
+    }
+
+    @Benchmark
+    public byte[] signDetached() throws SodiumException, CryptoException {
+        return handles ? service.signDetached(data, myHandle) : service.signDetached(data, mine);
+    }
+
+    @Benchmark
+    public boolean verifyDetached() throws SodiumException, CryptoException {
+        return handles ? service.verifyDetached(data, sign, myPublicHandle) : service.verifyDetached(data, sign, minePublic);
+    }
+
+    /* Keys mode resolves the handles as the Keys overloads do */
+    @Benchmark
+    public CryptoBox cryptoBox() throws SodiumException, CryptoException {
+        if (handles) {
+            return service.cryptoBox(data, theirPublicHandle, myHandle);
+        }
+        return service.cryptoBox(data, service.keyHandle(theirs.verkey), service.keyHandle(mine));
+    }
+
+    @Benchmark
+    public byte[] cryptoBoxOpen() throws SodiumException, CryptoException {
+        if (handles) {
+            return service.cryptoBoxOpen(box.cipher, box.nonce, myPublicHandle, theirHandle);
+        }
+        return service.cryptoBoxOpen(box.cipher, box.nonce, minePublic, theirs);
+    }
+
+    @Benchmark
+    public byte[] cryptoBoxSeal() throws SodiumException, CryptoException {
+        return handles ? service.cryptoBoxSeal(theirPublicHandle, data) : service.cryptoBoxSeal(theirs, data);
+    }
+
+    @Benchmark
+    public byte[] cryptoBoxSealOpen() throws SodiumException, CryptoException {
+        return handles ? service.cryptoBoxSealOpen(theirHandle, sealed) : service.cryptoBoxSealOpen(theirs, sealed);
+    }
+}
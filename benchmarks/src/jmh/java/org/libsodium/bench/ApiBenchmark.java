@@ -0,0 +1,280 @@
+/*
+ *
+ *  * Copyright 2021 UBICUA.
+ *  *
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  *
+ *  *      http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ *
+ */
+
+package org.libsodium.bench;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.libsodium.api.Crypto_aead_chacha20poly1305;
+import org.libsodium.api.Crypto_aead_chacha20poly1305_ietf;
+import org.libsodium.api.Crypto_aead_xchacha20poly1305_ietf;
+import org.libsodium.api.Crypto_auth;
+import org.libsodium.api.Crypto_auth_hmacsha256;
+import org.libsodium.api.Crypto_box;
+import org.libsodium.api.Crypto_box_curve25519xchacha20poly1305;
+import org.libsodium.api.Crypto_generichash;
+import org.libsodium.api.Crypto_hash_sha256;
+import org.libsodium.api.Crypto_hash_sha512;
+import org.libsodium.api.Crypto_randombytes;
+import org.libsodium.api.Crypto_secretbox;
+import org.libsodium.api.Crypto_secretstream_xchacha20poly1305;
+import org.libsodium.api.Crypto_sign;
+import org.libsodium.api.Crypto_sign_ed25519;
+import org.libsodium.api.KeyPair;
+import org.libsodium.jni.NaCl;
+import org.libsodium.jni.SodiumException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import static org.libsodium.jni.SodiumConstants.CRYPTO_AEAD_CHACHA20POLY1305_IETF_NONCEBYTES;
+import static org.libsodium.jni.SodiumConstants.CRYPTO_AEAD_CHACHA20POLY1305_IETF_TAGBYTES;
+import static org.libsodium.jni.SodiumConstants.CRYPTO_AEAD_CHACHA20POLY1305_KEYBYTES;
+import static org.libsodium.jni.SodiumConstants.CRYPTO_AEAD_CHACHA20POLY1305_NONCEBYTES;
+import static org.libsodium.jni.SodiumConstants.CRYPTO_AEAD_XCHACHA20POLY1305_IETF_NONCEBYTES;
+import static org.libsodium.jni.SodiumConstants.CRYPTO_AUTH_KEYBYTES;
+import static org.libsodium.jni.SodiumConstants.CRYPTO_BOX_NONCEBYTES;
+import static org.libsodium.jni.SodiumConstants.CRYPTO_SECRETBOX_KEYBYTES;
+import static org.libsodium.jni.SodiumConstants.CRYPTO_SECRETBOX_NONCEBYTES;
+import static org.libsodium.jni.SodiumConstants.CRYPTO_SECRETSTREAM_XCHACHA20POLY1305_TAG_MESSAGE;
+
+/**
+ * The org.libsodium.api wrappers as callers use them, output arrays allocated per
+ * call, from tag values to large records. Fixed cost calls are in {@link KeyBenchmark}.
+ *
+ * @author UBICUA
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ApiBenchmark {
+
+    @Param({"16", "64", "256", "1024", "16384"})
+    public int size;
+
+    private final byte[] add = new byte[0];
+    private final byte[] key = new byte[CRYPTO_AEAD_CHACHA20POLY1305_KEYBYTES];
+    private final byte[] aeadNonce = new byte[CRYPTO_AEAD_CHACHA20POLY1305_NONCEBYTES];
+    private final byte[] ietfNonce = new byte[CRYPTO_AEAD_CHACHA20POLY1305_IETF_NONCEBYTES];
+    private final byte[] xchachaNonce = new byte[CRYPTO_AEAD_XCHACHA20POLY1305_IETF_NONCEBYTES];
+    private final byte[] boxNonce = new byte[CRYPTO_BOX_NONCEBYTES];
+    private final byte[] secretboxNonce = new byte[CRYPTO_SECRETBOX_NONCEBYTES];
+    private final byte[] secretboxKey = new byte[CRYPTO_SECRETBOX_KEYBYTES];
+    private final byte[] authKey = new byte[CRYPTO_AUTH_KEYBYTES];
+
+    private byte[] data;
+    private ByteBuffer direct;
+    private ByteBuffer directCipher;
+    private byte[] random;
+
+    private byte[] aeadCipher;
+    private byte[] ietfCipher;
+    private byte[] xchachaCipher;
+    private byte[] boxCipher;
+    private byte[] sealCipher;
+    private byte[] secretboxCipher;
+    private byte[] sign;
+
+    private KeyPair box;
+    private KeyPair signer;
+    private byte[] shared;
+    private byte[] stream;
+
+    @Setup(Level.Trial)
+    public void setup() throws SodiumException {
+        NaCl.sodium();
+
+        Random generator = new Random(size);
+        data = new byte[size];
+        generator.nextBytes(data);
+        generator.nextBytes(key);
+        generator.nextBytes(secretboxKey);
+        generator.nextBytes(authKey);
+        random = new byte[size];
+
+        direct = ByteBuffer.allocateDirect(size);
+        direct.put(data).flip();
+        directCipher = ByteBuffer.allocateDirect(size + CRYPTO_AEAD_CHACHA20POLY1305_IETF_TAGBYTES);
+
+        box = Crypto_box.generate_keypair();
+        signer = Crypto_sign_ed25519.generate_keypair();
+        shared = Crypto_box.beforenm(box.getPk(), box.getSk());
+
+        aeadCipher = Crypto_aead_chacha20poly1305.encrypt(data, add, aeadNonce, key);
+        ietfCipher = Crypto_aead_chacha20poly1305_ietf.encrypt(data, add, ietfNonce, key);
+        xchachaCipher = Crypto_aead_xchacha20poly1305_ietf.encrypt(data, add, xchachaNonce, key);
+        boxCipher = Crypto_box.easy(data, boxNonce, box.getPk(), box.getSk());
+        sealCipher = Crypto_box.seal(data, box.getPk());
+        secretboxCipher = Crypto_secretbox.easy(data, secretboxNonce, secretboxKey);
+        sign = Crypto_sign_ed25519.detached(data, signer.getSk());
+
+        stream = Crypto_secretstream_xchacha20poly1305.state();
+        Crypto_secretstream_xchacha20poly1305.init_push(stream, key);
+    }
+
+    @Benchmark
+    public byte[] aeadChacha20poly1305Encrypt() throws SodiumException {
+        return Crypto_aead_chacha20poly1305.encrypt(data, add, aeadNonce, key);
+    }
+
+    @Benchmark
+    public byte[] aeadChacha20poly1305Decrypt() throws SodiumException {
+        return Crypto_aead_chacha20poly1305.decrypt(aeadCipher, add, aeadNonce, key);
+    }
+
+    @Benchmark
+    public byte[] aeadIetfEncrypt() throws SodiumException {
+        return Crypto_aead_chacha20poly1305_ietf.encrypt(data, add, ietfNonce, key);
+    }
+
+    @Benchmark
+    public byte[] aeadIetfDecrypt() throws SodiumException {
+        return Crypto_aead_chacha20poly1305_ietf.decrypt(ietfCipher, add, ietfNonce, key);
+    }
+
+    @Benchmark
+    public int aeadIetfEncryptDirect() throws SodiumException {
+        direct.rewind();
+        directCipher.clear();
+        return Crypto_aead_chacha20poly1305_ietf.encrypt(directCipher, direct, add, ietfNonce, key);
+    }
+
+    @Benchmark
+    public byte[] aeadXchacha20poly1305Encrypt() throws SodiumException {
+        return Crypto_aead_xchacha20poly1305_ietf.encrypt(data, add, xchachaNonce, key);
+    }
+
+    @Benchmark
+    public byte[] aeadXchacha20poly1305Decrypt() throws SodiumException {
+        return Crypto_aead_xchacha20poly1305_ietf.decrypt(xchachaCipher, add, xchachaNonce, key);
+    }
+
+    @Benchmark
+    public byte[] auth() throws SodiumException {
+        return Crypto_auth.authenticate(data, authKey);
+    }
+
+    @Benchmark
+    public byte[] hmacsha256() throws SodiumException {
+        return Crypto_auth_hmacsha256.hmacsha256(data, authKey);
+    }
+
+    @Benchmark
+    public byte[] boxEasy() throws SodiumException {
+        return Crypto_box.easy(data, boxNonce, box.getPk(), box.getSk());
+    }
+
+    @Benchmark
+    public byte[] boxOpenEasy() throws SodiumException {
+        return Crypto_box.open_easy(boxCipher, boxNonce, box.getPk(), box.getSk());
+    }
+
+    @Benchmark
+    public byte[] boxEasyAfternm() throws SodiumException {
+        return Crypto_box.easy_afternm(data, boxNonce, shared);
+    }
+
+    @Benchmark
+    public byte[] boxOpenEasyAfternm() throws SodiumException {
+        return Crypto_box.open_easy_afternm(boxCipher, boxNonce, shared);
+    }
+
+    @Benchmark
+    public byte[] boxSeal() throws SodiumException {
+        return Crypto_box.seal(data, box.getPk());
+    }
+
+    @Benchmark
+    public byte[] boxSealOpen() throws SodiumException {
+        return Crypto_box.seal_open(sealCipher, box.getPk(), box.getSk());
+    }
+
+    @Benchmark
+    public byte[] boxXchacha20poly1305Easy() throws SodiumException {
+        return Crypto_box_curve25519xchacha20poly1305.easy(data, boxNonce, box.getPk(), box.getSk());
+    }
+
+    @Benchmark
+    public byte[] generichash() throws SodiumException {
+        return Crypto_generichash.generichash(data);
+    }
+
+    @Benchmark
+    public byte[] sha256() throws SodiumException {
+        return Crypto_hash_sha256.sha256(data);
+    }
+
+    @Benchmark
+    public byte[] sha256Direct() throws SodiumException {
+        direct.rewind();
+        return Crypto_hash_sha256.sha256(direct);
+    }
+
+    @Benchmark
+    public byte[] sha512() throws SodiumException {
+        return Crypto_hash_sha512.sha512(data);
+    }
+
+    @Benchmark
+    public byte[] randombytes() throws SodiumException {
+        return Crypto_randombytes.buf(random);
+    }
+
+    @Benchmark
+    public byte[] secretboxEasy() throws SodiumException {
+        return Crypto_secretbox.easy(data, secretboxNonce, secretboxKey);
+    }
+
+    @Benchmark
+    public byte[] secretboxOpenEasy() throws SodiumException {
+        return Crypto_secretbox.open_easy(secretboxCipher, secretboxNonce, secretboxKey);
+    }
+
+    @Benchmark
+    public byte[] secretstreamPush() throws SodiumException {
+        return Crypto_secretstream_xchacha20poly1305.push(stream, data, add, CRYPTO_SECRETSTREAM_XCHACHA20POLY1305_TAG_MESSAGE);
+    }
+
+    @Benchmark
+    public byte[] signDetached() throws SodiumException {
+        return Crypto_sign_ed25519.detached(data, signer.getSk());
+    }
+
+    @Benchmark
+    public boolean verifyDetached() throws SodiumException {
+        return Crypto_sign_ed25519.verify_detached(data, sign, signer.getPk());
+    }
+
+    /* Ed25519ph through SignState, needs libsodiumext */
+    @Benchmark
+    public byte[] signPrehashed() throws SodiumException {
+        return Crypto_sign.init().update(data).create(signer.getSk());
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ *
+ *  * Copyright 2021 UBICUA.
+ *  *
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  *
+ *  *      http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ *
+ */
+
+package org.libsodium.bench;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.libsodium.jni.NaCl;
+import org.libsodium.jni.Sodium;
+import org.libsodium.jni.SodiumExt;
+import org.libsodium.spi.JavaSodiumProvider;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import static org.libsodium.jni.SodiumConstants.CRYPTO_HASH_SHA256;
+
+/**
+ * Cost of crossing into native code, one SHA-256 per call so only the transition and
+ * the argument handling differ: the SWIG wrapper (array copies), libsodiumext on heap
+ * arrays (critical sections) and on a direct buffer, against the pure Java provider.
+ * At size 0 the difference is the per call overhead; the constant getter is the floor.
+ *
+ * @author UBICUA
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JniBenchmark {
+
+    @Param({"0", "64", "1024", "16384"})
+    public int size;
+
+    private final byte[] hash = new byte[CRYPTO_HASH_SHA256];
+    private final JavaSodiumProvider java = new JavaSodiumProvider();
+    private byte[] data;
+    private ByteBuffer direct;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        NaCl.sodium();
+        if (!SodiumExt.isAvailable()) {
+            throw new IllegalStateException("libsodiumext not available");
+        }
+
+        data = new byte[size];
+        new Random(size).nextBytes(data);
+        direct = ByteBuffer.allocateDirect(size);
+        direct.put(data).flip();
+    }
+
+    @Benchmark
+    public int swigConstant() {
+        return Sodium.crypto_sign_bytes();
+    }
+
+    @Benchmark
+    public byte[] swigSha256() {
+        Sodium.crypto_hash_sha256(hash, data, size);
+        return hash;
+    }
+
+    @Benchmark
+    public byte[] extSha256() {
+        SodiumExt.hash_sha256(hash, 0, data, 0, size);
+        return hash;
+    }
+
+    @Benchmark
+    public byte[] extSha256Direct() {
+        SodiumExt.hash_sha256_direct(hash, 0, direct, 0, size);
+        return hash;
+    }
+
+    @Benchmark
+    public byte[] javaSha256() {
+        java.hash_sha256(hash, 0, data, 0, size);
+        return hash;
+    }
+}
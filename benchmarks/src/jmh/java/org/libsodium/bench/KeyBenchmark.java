@@ -0,0 +1,104 @@
+/*
+ *
+ *  * Copyright 2021 UBICUA.
+ *  *
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  *
+ *  *      http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ *
+ */
+
+package org.libsodium.bench;
+
+import java.util.concurrent.TimeUnit;
+import org.libsodium.api.Crypto_box;
+import org.libsodium.api.Crypto_pwhash;
+import org.libsodium.api.Crypto_sign_ed25519;
+import org.libsodium.api.KeyPair;
+import org.libsodium.jni.NaCl;
+import org.libsodium.jni.SodiumException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import static org.libsodium.jni.SodiumConstants.CRYPTO_PWHASH_ALG_ARGON2ID13;
+import static org.libsodium.jni.SodiumConstants.CRYPTO_PWHASH_ARGON2I_SALTBYTES;
+import static org.libsodium.jni.SodiumConstants.CRYPTO_PWHASH_MEMLIMIT_INTERACTIVE;
+import static org.libsodium.jni.SodiumConstants.CRYPTO_PWHASH_OPSLIMIT_INTERACTIVE;
+
+/**
+ * Wrappers whose cost does not depend on the input size: key generation, key
+ * conversion, crypto_box_beforenm and the interactive password hash.
+ *
+ * @author UBICUA
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class KeyBenchmark {
+
+    private final byte[] credentials = "correct horse battery staple".getBytes();
+    private final byte[] salt = new byte[CRYPTO_PWHASH_ARGON2I_SALTBYTES];
+
+    private KeyPair box;
+    private KeyPair signer;
+
+    @Setup(Level.Trial)
+    public void setup() throws SodiumException {
+        NaCl.sodium();
+        box = Crypto_box.generate_keypair();
+        signer = Crypto_sign_ed25519.generate_keypair();
+    }
+
+    @Benchmark
+    public KeyPair boxKeypair() throws SodiumException {
+        return Crypto_box.generate_keypair();
+    }
+
+    @Benchmark
+    public KeyPair signKeypair() throws SodiumException {
+        return Crypto_sign_ed25519.generate_keypair();
+    }
+
+    @Benchmark
+    public byte[] boxBeforenm() throws SodiumException {
+        return Crypto_box.beforenm(box.getPk(), box.getSk());
+    }
+
+    @Benchmark
+    public byte[] pkToCurve25519() throws SodiumException {
+        return Crypto_sign_ed25519.pk_to_curve25519(signer.getPk());
+    }
+
+    @Benchmark
+    public byte[] skToCurve25519() throws SodiumException {
+        return Crypto_sign_ed25519.sk_to_curve25519(signer.getSk());
+    }
+
+    /* Wallet key derivation, tens of milliseconds and 32 MiB per call */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 2)
+    @Measurement(iterations = 3)
+    public byte[] pwhashInteractive() throws SodiumException {
+        return Crypto_pwhash.pwhash(credentials, salt, CRYPTO_PWHASH_OPSLIMIT_INTERACTIVE, CRYPTO_PWHASH_MEMLIMIT_INTERACTIVE, CRYPTO_PWHASH_ALG_ARGON2ID13);
+    }
+}
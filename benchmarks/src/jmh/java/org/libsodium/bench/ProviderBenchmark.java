@@ -0,0 +1,117 @@
+/*
+ *
+ *  * Copyright 2021 UBICUA.
+ *  *
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  *
+ *  *      http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ *
+ */
+
+package org.libsodium.bench;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.libsodium.spi.SodiumProvider;
+import org.libsodium.spi.SodiumProviders;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import static org.libsodium.jni.SodiumConstants.CRYPTO_AEAD_CHACHA20POLY1305_IETF_ABYTES;
+import static org.libsodium.jni.SodiumConstants.CRYPTO_AEAD_CHACHA20POLY1305_IETF_KEYBYTES;
+import static org.libsodium.jni.SodiumConstants.CRYPTO_AEAD_CHACHA20POLY1305_IETF_NONCEBYTES;
+import static org.libsodium.jni.SodiumConstants.CRYPTO_AUTH_HMACSHA256_BYTES;
+import static org.libsodium.jni.SodiumConstants.CRYPTO_AUTH_HMACSHA256_KEYBYTES;
+import static org.libsodium.jni.SodiumConstants.CRYPTO_HASH_SHA256;
+
+/**
+ * JNI against pure Java providers over wallet sized inputs, from tag values to records.
+ *
+ * @author UBICUA
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProviderBenchmark {
+
+    @Param({"native", "java"})
+    public String provider;
+
+    @Param({"16", "64", "256", "1024", "16384"})
+    public int size;
+
+    private SodiumProvider implementation;
+    private byte[] data;
+    private byte[] cipher;
+    private byte[] plain;
+    private byte[] hash;
+    private final byte[] nonce = new byte[CRYPTO_AEAD_CHACHA20POLY1305_IETF_NONCEBYTES];
+    private final byte[] key = new byte[CRYPTO_AEAD_CHACHA20POLY1305_IETF_KEYBYTES];
+    private final byte[] hmacKey = new byte[CRYPTO_AUTH_HMACSHA256_KEYBYTES];
+
+    @Setup(Level.Trial)
+    public void setup() {
+        for (SodiumProvider candidate : SodiumProviders.providers()) {
+            if (candidate.getName().equals(provider)) {
+                implementation = candidate;
+            }
+        }
+        if (implementation == null || !implementation.isAvailable()) {
+            throw new IllegalStateException(String.format("Provider %s not available", provider));
+        }
+
+        Random random = new Random(size);
+        data = new byte[size];
+        random.nextBytes(data);
+        random.nextBytes(nonce);
+        random.nextBytes(key);
+        random.nextBytes(hmacKey);
+        cipher = new byte[size + CRYPTO_AEAD_CHACHA20POLY1305_IETF_ABYTES];
+        plain = new byte[size];
+        hash = new byte[Math.max(CRYPTO_HASH_SHA256, CRYPTO_AUTH_HMACSHA256_BYTES)];
+        implementation.aead_chacha20poly1305_ietf_encrypt(cipher, 0, data, 0, size, null, 0, 0, nonce, 0, key);
+    }
+
+    @Benchmark
+    public byte[] aeadEncrypt() {
+        implementation.aead_chacha20poly1305_ietf_encrypt(cipher, 0, data, 0, size, null, 0, 0, nonce, 0, key);
+        return cipher;
+    }
+
+    @Benchmark
+    public int aeadDecrypt() {
+        return implementation.aead_chacha20poly1305_ietf_decrypt(plain, 0, cipher, 0, cipher.length, null, 0, 0, nonce, 0, key);
+    }
+
+    @Benchmark
+    public byte[] sha256() {
+        implementation.hash_sha256(hash, 0, data, 0, size);
+        return hash;
+    }
+
+    @Benchmark
+    public byte[] hmacsha256() {
+        implementation.auth_hmacsha256(hash, 0, data, 0, size, hmacKey);
+        return hash;
+    }
+}
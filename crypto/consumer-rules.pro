@@ -0,0 +1,4 @@
+# ICrypto implementations are instantiated by ServiceLoader, see CryptoRegistry
+-keep class * implements jssi.crypto.algorithm.ICrypto {
+    public <init>();
+}
@@ -23,10 +23,15 @@ import android.util.Log;
 import androidx.core.util.Pair;
 import androidx.annotation.Nullable;
 
-import java.util.Map;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
 import org.bitcoinj.core.AddressFormatException;
 import org.bitcoinj.core.Base58;
 import jssi.crypto.algorithm.CryptoFactory;
+import jssi.crypto.algorithm.CryptoRegistry;
 import jssi.crypto.algorithm.ICrypto;
 import jssi.did.Did;
 import jssi.did.MyDidInfo;
@@ -34,10 +39,14 @@ import jssi.did.TheirDid;
 import jssi.did.TheirDidInfo;
 import jssi.crypto.algorithm.ICrypto.CryptoType;
 import jssi.crypto.util.Utils;
+import jssi.resolver.DidDocument;
+import jssi.resolver.DidResolver;
+import jssi.resolver.ResolverException;
 import org.libsodium.api.Crypto_aead_chacha20poly1305_ietf;
 import org.libsodium.api.Crypto_randombytes;
 import org.libsodium.jni.SodiumConstants;
 import static org.libsodium.jni.SodiumConstants.CRYPTO_AEAD_CHACHA20POLY1305_IETF_NONCEBYTES;
+import static org.libsodium.jni.SodiumConstants.CRYPTO_AEAD_CHACHA20POLY1305_IETF_TAGBYTES;
 import org.libsodium.jni.SodiumException;
 
 /**
@@ -48,6 +57,32 @@ public class CryptoService {
     
     private static final String TAG = CryptoService.class.getName();
     
+    private final SharedKeyCache sharedKeys;
+    private final KeyHandleCache keyHandles;
+    
+    public CryptoService() {
+        this(new SharedKeyCache(), new KeyHandleCache());
+    }
+    
+    public CryptoService(SharedKeyCache sharedKeys) {
+        this(sharedKeys, new KeyHandleCache());
+    }
+    
+    public CryptoService(SharedKeyCache sharedKeys, KeyHandleCache keyHandles) {
+        this.sharedKeys = sharedKeys;
+        this.keyHandles = keyHandles;
+    }
+    
+    /* Interned public handle of `verkey`, parsed on first use */
+    public KeyHandle keyHandle(String verkey) throws CryptoException, AddressFormatException{
+        return keyHandles.get(verkey);
+    }
+    
+    /* Interned handle of `keys` including the signkey */
+    public KeyHandle keyHandle(Keys keys) throws CryptoException, AddressFormatException{
+        return keyHandles.get(keys);
+    }
+    
     public Keys createKeys(@Nullable KeyInfo info) throws SodiumException{
         Log.d(TAG, String.format("Create key: %s", info == null ? "no info" : info));
         
@@ -62,7 +97,7 @@ public class CryptoService {
             byte[] seed = convertSeed(info.seed);
             keys = crypto.createKeys(seed);
         }
-        keys.verkey = String.format("%s:%s", keys.verkey, crypto.getType().getName());
+        keys.verkey = String.format("%s:%s", keys.verkey, crypto.getName());
         return keys;
     }
     
@@ -85,8 +120,8 @@ public class CryptoService {
             did = Base58.encode(abridged);
         }
 
-        if(!info.cryptoType.equals(CryptoType.DEFAULT_CRYPTO_TYPE.getName())) {
-            keys.verkey = String.format("%s:%s", keys.verkey, crypto.getType().getName());
+        if(crypto != CryptoFactory.getCrypto()) {
+            keys.verkey = String.format("%s:%s", keys.verkey, crypto.getName());
         }
         return Pair.create(new Did(did, keys.verkey), keys);
     }
@@ -99,13 +134,42 @@ public class CryptoService {
         return new TheirDid(info.did, verkey);
     }
     
+    /*
+     * Their DID with the verkey of its DID document, or with the given verkey once
+     * checked against the document. Unqualified DIDs are resolved as did:sov.
+     */
+    public TheirDid createTheirDid(TheirDidInfo info, DidResolver resolver) throws CryptoException, ResolverException{
+        Log.d(TAG, String.format("Create their did %s with resolver", info));
+        
+        String did = info.did.startsWith("did:") ? info.did : String.format("did:%s:%s", DidResolver.DEFAULT_METHOD, info.did);
+        DidDocument document = resolver.resolve(did);
+        String resolved = document == null ? null : document.getVerkey();
+        if(resolved == null){
+            throw new CryptoException(String.format("Unable to resolve the verkey of %s", did));
+        }
+        
+        if(info.verkey == null){
+            return createTheirDid(new TheirDidInfo(info.did, resolved));
+        }
+        
+        TheirDid their = createTheirDid(info);
+        if(!their.verkey.split(":")[0].equals(resolved)){
+            throw new CryptoException(String.format("Verkey of %s does not match its DID document", did));
+        }
+        return their;
+    }
+    
     public ComboBox comboBox(Keys sender, Keys receiver, byte[] data) throws CryptoException, SodiumException{
-        Log.d(TAG, String.format("Combobox encrypt: my pk: &s their pk: %s", sender.verkey, receiver.verkey));
+        return comboBox(keyHandles.get(sender.verkey), keyHandles.get(receiver), data);
+    }
+    
+    public ComboBox comboBox(KeyHandle sender, KeyHandle receiver, byte[] data) throws CryptoException, SodiumException{
+        Log.d(TAG, String.format("Combobox encrypt: my pk: %s their pk: %s", sender.getVerkey(), receiver.getVerkey()));
         
         CryptoBox box = cryptoBox(data, sender, receiver);
         ComboBox result = new ComboBox(
                 Base64.encodeToString(box.cipher, android.util.Base64.NO_PADDING),
-                sender.verkey,
+                sender.getVerkey(),
                 Base64.encodeToString(box.nonce, android.util.Base64.NO_PADDING));
         
         return result;
@@ -152,170 +216,170 @@ public class CryptoService {
      * described in subsequent `NaCl` documentation.
      */
     private CryptoBox cryptoBox(byte[] data, Keys sender, Keys receiver) throws CryptoException, SodiumException{
-        Log.d(TAG, String.format("Cryptobox encrypt: my pk: %s their pk: %s", sender.verkey, receiver.verkey));
-        
-        String verkey;
-        String type1, type2;
-        
-        if(receiver.verkey.contains(":")){
-            String[] splits = receiver.verkey.split(":");
-            type2 = splits[1];
-        } else {
-            type2 = CryptoType.DEFAULT_CRYPTO_TYPE.getName();
-        }
-        
-        if(CryptoType.toType(type2) == null){
-            throw new CryptoException(String.format("Trying to use key with unknown crypto: %s", type2));
-        }
-        
-        if(sender.verkey.contains(":")){
-            String[] splits = sender.verkey.split(":");
-            verkey = splits[0];
-            type1 = splits[1];
-        } else {
-            verkey = sender.verkey;
-            type1 = CryptoType.DEFAULT_CRYPTO_TYPE.getName();
-        }
+        return cryptoBox(data, keyHandles.get(sender.verkey), keyHandles.get(receiver));
+    }
+    
+    public CryptoBox cryptoBox(byte[] data, KeyHandle sender, KeyHandle receiver) throws CryptoException, SodiumException{
+        Log.d(TAG, String.format("Cryptobox encrypt: my pk: %s their pk: %s", sender.getVerkey(), receiver.getVerkey()));
         
-        if(!type1.equals(type2)){
-            Log.d(TAG, String.format("My key crypto type is incompatible with their key crypto type: %s %s", type1, type2));
+        if(sender.crypto() != receiver.crypto()){
+            Log.d(TAG, String.format("My key crypto type is incompatible with their key crypto type: %s %s", sender.getType(), receiver.getType()));
             return null;
         }
+        keyAgreement(receiver);
         
-        ICrypto crypto = CryptoFactory.getCrypto(type2);
-        byte[] sk = Base58.decode(receiver.signkey);
-        byte[] pk = Base58.decode(verkey);
+        ICrypto crypto = receiver.crypto();
+        byte[] key = sharedKey(receiver, sender);
         byte[] nonce = crypto.genNonce();
-        byte[] cipher = crypto.cryptoBox(data, nonce, pk, sk);
-        return new CryptoBox(cipher, nonce);
+        try {
+            byte[] cipher = crypto.cryptoBoxAfternm(data, nonce, key);
+            return new CryptoBox(cipher, nonce);
+        } finally {
+            Arrays.fill(key, (byte) 0);
+        }
     }
     
     public byte[] cryptoBoxOpen(byte[] cipher, byte[] nonce, Keys sender, Keys receiver) throws CryptoException, SodiumException{
-        Log.d(TAG, String.format("Cryptobox decrypt: my pk: %s their pk: %s", sender.verkey, receiver.verkey));
-        
-        String  verkey;
-        String type1, type2;
+        return cryptoBoxOpen(cipher, nonce, keyHandles.get(sender.verkey), keyHandles.get(receiver));
+    }
+    
+    public byte[] cryptoBoxOpen(byte[] cipher, byte[] nonce, KeyHandle sender, KeyHandle receiver) throws CryptoException, SodiumException{
+        Log.d(TAG, String.format("Cryptobox decrypt: my pk: %s their pk: %s", sender.getVerkey(), receiver.getVerkey()));
         
-        if(receiver.verkey.contains(":")){
-            String[] splits = receiver.verkey.split(":");
-            type2 = splits[1];
-        } else {
-            type2 = CryptoType.DEFAULT_CRYPTO_TYPE.getName();
+        if(sender.crypto() != receiver.crypto()){
+            throw new CryptoException(String.format("My key crypto type is incompatible with their key crypto type: %s must be %s", sender.getType(), receiver.getType()));
         }
+        keyAgreement(receiver);
         
-        if(CryptoType.toType(type2) == null){
-            throw new CryptoException(String.format("Trying to use key with unknown crypto: %s", type2));
+        byte[] key = sharedKey(receiver, sender);
+        try {
+            return receiver.crypto().cryptoBoxOpenAfternm(cipher, nonce, key);
+        } finally {
+            Arrays.fill(key, (byte) 0);
         }
+    }
+    
+    /*
+     * Shared crypto_box key of `mine` and `theirs`, precomputed on first use and then
+     * served from the cache. The returned copy is owned, and zeroized, by the caller.
+     */
+    private byte[] sharedKey(KeyHandle mine, KeyHandle theirs) throws CryptoException, SodiumException{
+        byte[] key = sharedKeys.get(mine.getKey(), theirs.getKey());
         
-        if(sender.verkey.contains(":")){
-            String[] splits = sender.verkey.split(":");
-            verkey = splits[0];
-            type1 = splits[1];
-        } else {
-            verkey = sender.verkey;
-            type1 = CryptoType.DEFAULT_CRYPTO_TYPE.getName();
+        if(key == null){
+            key = mine.crypto().precomputeConverted(theirs.boxPk(), mine.boxSk());
+            sharedKeys.put(mine.getKey(), theirs.getKey(), key);
         }
-        
-        if(!type2.equals(type1)){
-            throw new CryptoException(String.format("My key crypto type is incompatible with their key crypto type: %s must be %s", type1, type2));
+        return key;
+    }
+    
+    /* Box operations need key agreement, which some key types (secp256k1) do not define */
+    private static void keyAgreement(KeyHandle handle) throws CryptoException{
+        if(!handle.crypto().supportsKeyAgreement()){
+            throw new CryptoException(String.format("No key agreement for %s keys", handle.getType()));
         }
-        
-        ICrypto crypto = CryptoFactory.getCrypto(type2);
-        byte[] sk = Base58.decode(receiver.signkey);
-        byte[] pk = Base58.decode(verkey);
-        return crypto.cryptoBoxOpen(cipher, nonce, pk, sk);
+    }
+    
+    /* Forgets the shared keys computed with `verkey`, to be called when it is rotated or removed */
+    public void invalidateSharedKeys(String verkey){
+        String key = verkey.split(":")[0];
+        sharedKeys.invalidate(key);
+        keyHandles.invalidate(key);
+    }
+    
+    public void clearSharedKeys(){
+        sharedKeys.clear();
+    }
+    
+    public void clearKeyHandles(){
+        keyHandles.clear();
     }
     
     public byte[] cryptoBoxSeal(Keys keys, byte[] data) throws CryptoException, SodiumException{
-        Log.d(TAG, String.format("Cryptobox seal encrypt pk: %s (sk: %s)", keys.verkey, keys.signkey));
-
-        String verkey;
-        String type;
-        
-        if(keys.verkey.contains(":")){
-            String[] splits = keys.verkey.split(":");
-            verkey = splits[0];
-            type = splits[1];
-        } else {
-            verkey = keys.verkey;
-            type = CryptoType.DEFAULT_CRYPTO_TYPE.getName();
-        }
-        
-        if(CryptoType.toType(type) == null){
-            throw new CryptoException(String.format("Trying to use key with unknown crypto: %s", type));
-        }
+        return cryptoBoxSeal(keyHandles.get(keys.verkey), data);
+    }
+    
+    public byte[] cryptoBoxSeal(KeyHandle handle, byte[] data) throws CryptoException, SodiumException{
+        Log.d(TAG, String.format("Cryptobox seal encrypt pk: %s", handle.getVerkey()));
+        keyAgreement(handle);
         
-        ICrypto crypto = CryptoFactory.getCrypto(type);
-        byte[] pk = Base58.decode(verkey);
-        return crypto.cryptoBoxSeal(data, pk);
+        return handle.crypto().cryptoBoxSealConverted(data, handle.boxPk());
     }
     
     public byte[] cryptoBoxSealOpen(Keys keys, byte[] cipher) throws CryptoException, SodiumException{
-        Log.d(TAG, String.format("Cryptobox seal decrypt pk: %s (sk: %s)", keys.verkey, keys.signkey));
-
-        String verkey;
-        String type;
+        return cryptoBoxSealOpen(keyHandles.get(keys), cipher);
+    }
+    
+    public byte[] cryptoBoxSealOpen(KeyHandle handle, byte[] cipher) throws CryptoException, SodiumException{
+        Log.d(TAG, String.format("Cryptobox seal decrypt pk: %s", handle.getVerkey()));
+        keyAgreement(handle);
         
-        if(keys.verkey.contains(":")){
-            String[] splits = keys.verkey.split(":");
-            verkey = splits[0];
-            type = splits[1];
-        } else {
-            verkey = keys.verkey;
-            type = CryptoType.DEFAULT_CRYPTO_TYPE.getName();
-        }
+        return handle.crypto().cryptoBoxSealOpenConverted(cipher, handle.boxPk(), handle.boxSk());
+    }
+    
+    public byte[] sign(byte[] data, Keys keys) throws SodiumException, CryptoException {
+        return sign(data, keyHandles.get(keys));
+    }
+    
+    public byte[] sign(byte[] data, KeyHandle handle) throws SodiumException, CryptoException {
+        Log.d(TAG, String.format("Sign pk: %s", handle.getVerkey()));
         
-        if(CryptoType.toType(type) == null){
-            throw new CryptoException(String.format("Trying to use key with unknown crypto: %s", type));
-        }
+        return handle.crypto().sign(data, handle.sk());
+    }
+    
+    public boolean verify(byte[] data, byte[] sign, Keys keys) throws SodiumException, CryptoException {
+        return verify(data, sign, keyHandles.get(keys.verkey));
+    }
+    
+    public boolean verify(byte[] data, byte[] sign, KeyHandle handle) throws SodiumException {
+        Log.d(TAG, String.format("Verify pk: %s", handle.getVerkey()));
         
-        ICrypto crypto = CryptoFactory.getCrypto(type);
-        byte[] pk = Base58.decode(verkey);
-        byte[] sk = Base58.decode(keys.signkey);
-        return crypto.cryptoBoxSealOpen(cipher, pk, sk);
+        return handle.crypto().verify(data, sign, handle.pk());
     }
     
-    public byte[] sign(byte[] data, Keys keys) throws SodiumException, CryptoException {
-        Log.d(TAG, String.format("pk: %s (sk: %s)", keys.verkey, keys.signkey));
-
-        String type;
+    public byte[] signDetached(byte[] data, Keys keys) throws SodiumException, CryptoException {
+        return signDetached(data, keyHandles.get(keys));
+    }
+    
+    public byte[] signDetached(byte[] data, KeyHandle handle) throws SodiumException, CryptoException {
+        Log.d(TAG, String.format("Sign detached pk: %s", handle.getVerkey()));
         
-        if(keys.verkey.contains(":")){
-            String[] splits = keys.verkey.split(":");
-            type = splits[1];
-        } else {
-            type = CryptoType.DEFAULT_CRYPTO_TYPE.getName();
-        }
+        return handle.crypto().signDetached(data, handle.sk());
+    }
+    
+    public byte[] signDetached(ByteBuffer data, KeyHandle handle) throws SodiumException, CryptoException {
+        Log.d(TAG, String.format("Sign detached pk: %s", handle.getVerkey()));
         
-        if(CryptoType.toType(type) == null){
-            throw new CryptoException(String.format("Trying to use key with unknown crypto: %s", type));
-        }
+        return handle.crypto().signDetached(data, handle.sk());
+    }
+    
+    public boolean verifyDetached(byte[] data, byte[] sign, Keys keys) throws SodiumException, CryptoException {
+        return verifyDetached(data, sign, keyHandles.get(keys.verkey));
+    }
+    
+    public boolean verifyDetached(byte[] data, byte[] sign, KeyHandle handle) throws SodiumException {
+        Log.d(TAG, String.format("Verify detached pk: %s", handle.getVerkey()));
         
-        ICrypto crypto = CryptoFactory.getCrypto(type);
-        return crypto.sign(data, Base58.decode(keys.signkey));
+        return handle.crypto().verifyDetached(data, sign, handle.pk());
     }
     
-    public boolean verify(byte[] data, byte[] sign, Keys keys) throws SodiumException, CryptoException {
-        Log.d(TAG, String.format("pk: %s (sk: %s)", keys.verkey, keys.signkey));
-
-        String verkey;
-        String type;
+    public boolean verifyDetached(ByteBuffer data, byte[] sign, KeyHandle handle) throws SodiumException {
+        Log.d(TAG, String.format("Verify detached pk: %s", handle.getVerkey()));
         
-        if(keys.verkey.contains(":")){
-            String[] splits = keys.verkey.split(":");
-            verkey = splits[0];
-            type = splits[1];
-        } else {
-            verkey = keys.verkey;
-            type = CryptoType.DEFAULT_CRYPTO_TYPE.getName();
-        }
+        return handle.crypto().verifyDetached(data, sign, handle.pk());
+    }
+    
+    /* Prehashed signature of `data`, read to its end in constant memory, see ICrypto#signStream */
+    public byte[] signStream(InputStream data, KeyHandle handle) throws SodiumException, CryptoException, IOException {
+        Log.d(TAG, String.format("Sign stream pk: %s", handle.getVerkey()));
         
-        if(CryptoType.toType(type) == null){
-            throw new CryptoException(String.format("Trying to use key with unknown crypto: %s", type));
-        }
+        return handle.crypto().signStream(data, handle.sk());
+    }
+    
+    public boolean verifyStream(InputStream data, byte[] sign, KeyHandle handle) throws SodiumException, IOException {
+        Log.d(TAG, String.format("Verify stream pk: %s", handle.getVerkey()));
         
-        ICrypto crypto = CryptoFactory.getCrypto(type);
-        return crypto.verify(data, sign, Base58.decode(verkey));
+        return handle.crypto().verifyStream(data, sign, handle.pk());
     }
     
     public byte[] convertSeed(String seed) throws IllegalArgumentException{
@@ -364,10 +428,9 @@ public class CryptoService {
         byte[] nonce = new byte[CRYPTO_AEAD_CHACHA20POLY1305_IETF_NONCEBYTES];
         Crypto_randombytes.increment(nonce);
         
-        Map<String, byte[]> result = Crypto_aead_chacha20poly1305_ietf.encrypt_detached(data, add, nonce, signkey);
-        
-        byte[] cipher = result.get("cipher");
-        byte[] tag = result.get("tag");
+        byte[] cipher = new byte[data.length];
+        byte[] tag = new byte[CRYPTO_AEAD_CHACHA20POLY1305_IETF_TAGBYTES];
+        Crypto_aead_chacha20poly1305_ietf.encrypt_detached(cipher, tag, data, add, nonce, signkey);
         
         CryptoDetached box = new CryptoDetached(
                 Base64.encodeToString(cipher, Base64.NO_PADDING),
@@ -396,6 +459,12 @@ public class CryptoService {
     public void validateKey(String verkey) throws CryptoException, AddressFormatException{
         Log.d(TAG, String.format("Validate did %s", verkey));
         
+        if(!verkey.startsWith("~")){
+            KeyHandle handle = keyHandles.get(verkey);
+            handle.crypto().validateKeys(handle.getKey());
+            return;
+        }
+        
         String key;
         String type;
         
@@ -408,15 +477,10 @@ public class CryptoService {
             type = CryptoType.DEFAULT_CRYPTO_TYPE.getName();
         }
         
-        if(CryptoType.toType(type) == null){
+        if(!CryptoRegistry.contains(type)){
             throw new CryptoException(String.format("Trying to use key with unknown crypto: %s", type));
         }
         
-        ICrypto crypto = CryptoFactory.getCrypto(type);
-        if(key.startsWith("~")){
-            Base58.decode(key.substring(1));
-        } else {
-            crypto.validateKeys(key);
-        }
+        Base58.decode(key.substring(1));
     }
 }
@@ -0,0 +1,170 @@
+/*
+ *
+ *  * Copyright 2021 UBICUA.
+ *  *
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  *
+ *  *      http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ *
+ */
+
+package jssi.crypto;
+
+import org.bitcoinj.core.AddressFormatException;
+import org.bitcoinj.core.Base58;
+import jssi.crypto.algorithm.CryptoRegistry;
+import jssi.crypto.algorithm.ICrypto;
+import jssi.crypto.algorithm.ICrypto.CryptoType;
+import org.libsodium.jni.SodiumException;
+
+/**
+ * Parsed form of a "verkey[:type]" string: the decoded public key, the secret
+ * key when built from {@link Keys}, the crypto type and its implementation.
+ * The key exchange forms are converted on first use and kept, so a handle
+ * taken from {@link KeyHandleCache} leaves only the primitive to repeated
+ * sign, verify and box calls.
+ *
+ * Handles are immutable and may be shared between threads. The byte arrays are
+ * handed out only inside the package; the public accessors return copies.
+ *
+ * @author UBICUA
+ */
+public final class KeyHandle {
+
+    private final String verkey;
+    private final String key;
+    private final ICrypto crypto;
+    private final byte[] pk;
+    private final byte[] sk;
+    private final String signkey;
+
+    /* Benign race, at worst two threads convert the same key */
+    private volatile byte[] boxPk;
+    private volatile byte[] boxSk;
+
+    private KeyHandle(String verkey, String key, ICrypto crypto, byte[] pk, String signkey, byte[] sk) {
+        this.verkey = verkey;
+        this.key = key;
+        this.crypto = crypto;
+        this.pk = pk;
+        this.signkey = signkey;
+        this.sk = sk;
+    }
+
+    /* Public handle of `verkey`, abbreviated "~" keys cannot be used for crypto */
+    public static KeyHandle of(String verkey) throws CryptoException, AddressFormatException {
+        return parse(verkey, null);
+    }
+
+    /* Handle of `keys` holding the decoded signkey as well */
+    public static KeyHandle of(Keys keys) throws CryptoException, AddressFormatException {
+        if (keys.signkey == null) {
+            throw new CryptoException(String.format("Missing signkey of %s", keys.verkey));
+        }
+        return parse(keys.verkey, keys.signkey);
+    }
+
+    private static KeyHandle parse(String verkey, String signkey) throws CryptoException, AddressFormatException {
+        if (verkey == null) {
+            throw new CryptoException("Missing verkey");
+        }
+
+        String key;
+        String name;
+        int index = verkey.indexOf(':');
+
+        if (index < 0) {
+            key = verkey;
+            name = CryptoType.DEFAULT_CRYPTO_TYPE.getName();
+        } else {
+            key = verkey.substring(0, index);
+            name = verkey.substring(index + 1);
+        }
+
+        ICrypto crypto = CryptoRegistry.get(name);
+        if (crypto == null) {
+            throw new CryptoException(String.format("Trying to use key with unknown crypto: %s", name));
+        }
+        if (key.startsWith("~")) {
+            throw new CryptoException(String.format("Trying to use abbreviated key: %s", verkey));
+        }
+
+        byte[] pk = Base58.decode(key);
+        byte[] sk = signkey == null ? null : Base58.decode(signkey);
+        return new KeyHandle(verkey, key, crypto, pk, signkey, sk);
+    }
+
+    /* Verkey as given, with the type suffix if it had one */
+    public String getVerkey() {
+        return verkey;
+    }
+
+    /* Base58 public key without the type suffix */
+    public String getKey() {
+        return key;
+    }
+
+    /* Registered crypto name, lower case for the built-in ones */
+    public String getType() {
+        return crypto.getName();
+    }
+
+    public boolean hasSecret() {
+        return sk != null;
+    }
+
+    public byte[] getPk() {
+        return pk.clone();
+    }
+
+    ICrypto crypto() {
+        return crypto;
+    }
+
+    byte[] pk() {
+        return pk;
+    }
+
+    byte[] sk() throws CryptoException {
+        if (sk == null) {
+            throw new CryptoException(String.format("No signkey for %s", verkey));
+        }
+        return sk;
+    }
+
+    byte[] boxPk() throws SodiumException {
+        byte[] converted = boxPk;
+        if (converted == null) {
+            converted = crypto.toBoxPk(pk);
+            boxPk = converted;
+        }
+        return converted;
+    }
+
+    byte[] boxSk() throws SodiumException, CryptoException {
+        byte[] converted = boxSk;
+        if (converted == null) {
+            converted = crypto.toBoxSk(sk());
+            boxSk = converted;
+        }
+        return converted;
+    }
+
+    /* Whether this handle was built from `signkey`, so a cached handle is not reused for another secret */
+    boolean matches(String signkey) {
+        return this.signkey != null && this.signkey.equals(signkey);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("KeyHandle: { verkey: %s, type: %s, secret: %b}", verkey, crypto.getName(), sk != null);
+    }
+}
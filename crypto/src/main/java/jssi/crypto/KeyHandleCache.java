@@ -0,0 +1,113 @@
+/*
+ *
+ *  * Copyright 2021 UBICUA.
+ *  *
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  *
+ *  *      http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ *
+ */
+
+package jssi.crypto;
+
+import android.util.Log;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.bitcoinj.core.AddressFormatException;
+
+/**
+ * Bounded LRU interning {@link KeyHandle}s by their verkey string, so each
+ * verkey is split, looked up and Base58 decoded once. Handles may still be in
+ * use when evicted, so unlike {@link SharedKeyCache} their keys are not
+ * zeroized here, they are simply dropped.
+ *
+ * @author UBICUA
+ */
+public class KeyHandleCache {
+
+    private static final String TAG = KeyHandleCache.class.getName();
+
+    public static final int DEFAULT_CAPACITY = 128;
+
+    private final Map<String, KeyHandle> handles;
+
+    public KeyHandleCache() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public KeyHandleCache(final int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException(String.format("Invalid capacity %d", capacity));
+        }
+        this.handles = new LinkedHashMap<String, KeyHandle>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, KeyHandle> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /* Handle of `verkey`, any cached handle will do since only the public key is needed */
+    public KeyHandle get(String verkey) throws CryptoException, AddressFormatException {
+        synchronized (this) {
+            KeyHandle handle = handles.get(verkey);
+            if (handle != null) {
+                return handle;
+            }
+        }
+        KeyHandle handle = KeyHandle.of(verkey);
+        synchronized (this) {
+            KeyHandle previous = handles.get(verkey);
+            if (previous != null) {
+                return previous;
+            }
+            handles.put(verkey, handle);
+        }
+        return handle;
+    }
+
+    /* Handle of `keys` with its signkey, replacing a public or stale one */
+    public KeyHandle get(Keys keys) throws CryptoException, AddressFormatException {
+        synchronized (this) {
+            KeyHandle handle = handles.get(keys.verkey);
+            if (handle != null && handle.matches(keys.signkey)) {
+                return handle;
+            }
+        }
+        KeyHandle handle = KeyHandle.of(keys);
+        synchronized (this) {
+            handles.put(keys.verkey, handle);
+        }
+        return handle;
+    }
+
+    /* Drops the handles of `key`, with or without type suffix, e.g. after a key rotation */
+    public synchronized void invalidate(String key) {
+        Iterator<KeyHandle> iterator = handles.values().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().getKey().equals(key)) {
+                iterator.remove();
+            }
+        }
+    }
+
+    public synchronized int size() {
+        return handles.size();
+    }
+
+    public synchronized void clear() {
+        Log.d(TAG, String.format("Clear %d key handles", handles.size()));
+        handles.clear();
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ *
+ *  * Copyright 2021 UBICUA.
+ *  *
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  *
+ *  *      http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ *
+ */
+package jssi.crypto;
+
+import android.util.Log;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded LRU of precomputed crypto_box shared keys, keyed by the pair of
+ * verkeys. Repeated pairwise messages then skip the Ed25519 to Curve25519
+ * conversions and the X25519 scalar multiplication. Evicted and cleared keys
+ * are zeroized; {@link #get(String, String)} hands out copies so eviction
+ * never races with a caller still using the key.
+ *
+ * @author UBICUA
+ */
+public class SharedKeyCache {
+
+    private static final String TAG = SharedKeyCache.class.getName();
+
+    public static final int DEFAULT_CAPACITY = 64;
+
+    private final Map<String, byte[]> keys;
+
+    public SharedKeyCache() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public SharedKeyCache(final int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException(String.format("Invalid capacity %d", capacity));
+        }
+        this.keys = new LinkedHashMap<String, byte[]>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, byte[]> eldest) {
+                if (size() > capacity) {
+                    Arrays.fill(eldest.getValue(), (byte) 0);
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /* Copy of the shared key for (mine, theirs), null when absent */
+    public synchronized byte[] get(String mine, String theirs) {
+        byte[] key = keys.get(key(mine, theirs));
+        return key == null ? null : key.clone();
+    }
+
+    /* Stores a copy, the caller keeps ownership of `key` */
+    public synchronized void put(String mine, String theirs, byte[] key) {
+        byte[] previous = keys.put(key(mine, theirs), key.clone());
+        if (previous != null) {
+            Arrays.fill(previous, (byte) 0);
+        }
+    }
+
+    /* Drops every entry involving `verkey`, e.g. after a key rotation */
+    public synchronized void invalidate(String verkey) {
+        Iterator<Map.Entry<String, byte[]>> iterator = keys.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, byte[]> entry = iterator.next();
+            String[] pair = entry.getKey().split("\\|", -1);
+            if (pair[0].equals(verkey) || pair[1].equals(verkey)) {
+                Arrays.fill(entry.getValue(), (byte) 0);
+                iterator.remove();
+            }
+        }
+    }
+
+    public synchronized int size() {
+        return keys.size();
+    }
+
+    public synchronized void clear() {
+        Log.d(TAG, String.format("Clear %d shared keys", keys.size()));
+        for (byte[] key : keys.values()) {
+            Arrays.fill(key, (byte) 0);
+        }
+        keys.clear();
+    }
+
+    /* Base58 verkeys never contain '|' */
+    private static String key(String mine, String theirs) {
+        return mine + "|" + theirs;
+    }
+}
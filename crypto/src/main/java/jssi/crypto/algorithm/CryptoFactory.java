@@ -15,6 +15,7 @@
  *  * limitations under the License.
  *
  */
+
 package jssi.crypto.algorithm;
 
 import jssi.crypto.algorithm.ICrypto.CryptoType;
@@ -25,16 +26,20 @@ import jssi.crypto.algorithm.ICrypto.CryptoType;
  */
 public class CryptoFactory {
 
+    /* Implementations are stateless, see CryptoRegistry */
     public static ICrypto getCrypto(String type){
-        
-        switch(CryptoType.toType(type)){
-            default:{
-                return new Ed25519();
-            }
+        ICrypto crypto = CryptoRegistry.get(type);
+        if(crypto == null){
+            throw new IllegalArgumentException(String.format("Unknown crypto type: %s", type));
         }
+        return crypto;
+    }
+    
+    public static ICrypto getCrypto(CryptoType type){
+        return getCrypto(type.getName());
     }
    
     public static ICrypto getCrypto() {
-        return new Ed25519();
+        return getCrypto(CryptoType.DEFAULT_CRYPTO_TYPE);
     }
 }
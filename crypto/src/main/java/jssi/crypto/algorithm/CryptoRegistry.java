@@ -0,0 +1,99 @@
+/*
+ *
+ *  * Copyright 2021 UBICUA.
+ *  *
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  *
+ *  *      http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ *
+ */
+
+package jssi.crypto.algorithm;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+
+/**
+ * Shared {@link ICrypto} instance per crypto name, looked up without regard to case.
+ * Ed25519 and secp256k1 are always registered, other algorithms come from
+ * {@link ServiceLoader} ({@code META-INF/services/jssi.crypto.algorithm.ICrypto}) and
+ * cannot replace a name registered before them. Implementations must be stateless
+ * and thread safe, a single instance serves every key of its type.
+ *
+ * @author UBICUA
+ */
+public final class CryptoRegistry {
+
+    private static final class RegistryHolder {
+        private static final Map<String, ICrypto> CRYPTOS;
+
+        static {
+            Map<String, ICrypto> cryptos = new HashMap<>();
+            for (ICrypto crypto : cryptos()) {
+                String name = key(crypto.getName());
+                if (!cryptos.containsKey(name)) {
+                    cryptos.put(name, crypto);
+                }
+            }
+            CRYPTOS = Collections.unmodifiableMap(cryptos);
+        }
+    }
+
+    private CryptoRegistry() {
+    }
+
+    /* Implementation registered as `name`, null if there is none */
+    public static ICrypto get(String name) {
+        return name == null ? null : RegistryHolder.CRYPTOS.get(key(name));
+    }
+
+    public static boolean contains(String name) {
+        return get(name) != null;
+    }
+
+    /* Lower case names of the registered implementations */
+    public static List<String> names() {
+        List<String> names = new ArrayList<>(RegistryHolder.CRYPTOS.keySet());
+        Collections.sort(names);
+        return names;
+    }
+
+    /* Built-in implementations first, then the discovered ones */
+    private static List<ICrypto> cryptos() {
+        List<ICrypto> cryptos = new ArrayList<>();
+        cryptos.add(new Ed25519());
+        cryptos.add(new Secp256k1());
+
+        Iterator<ICrypto> iterator = ServiceLoader.load(ICrypto.class, CryptoRegistry.class.getClassLoader()).iterator();
+        while (true) {
+            try {
+                if (!iterator.hasNext()) {
+                    break;
+                }
+                cryptos.add(iterator.next());
+            } catch (ServiceConfigurationError e) {
+                /* A broken registration does not hide the others */
+            }
+        }
+        return cryptos;
+    }
+
+    private static String key(String name) {
+        return name.toLowerCase(Locale.ROOT);
+    }
+}
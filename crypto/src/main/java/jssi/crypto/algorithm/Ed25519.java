@@ -17,14 +17,18 @@
  */
 package jssi.crypto.algorithm;
 
-import java.util.Map;
-
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
 import org.bitcoinj.core.Base58;
 import jssi.crypto.CryptoException;
 import jssi.crypto.Keys;
 import org.libsodium.api.Crypto_box;
-import org.libsodium.api.Crypto_randombytes;
+import org.libsodium.api.RandomSource;
+import org.libsodium.api.Crypto_sign;
 import org.libsodium.api.Crypto_sign_ed25519;
+import org.libsodium.api.KeyPair;
 import org.libsodium.jni.SodiumConstants;
 import static org.libsodium.jni.SodiumConstants.CRYPTO_BOX_CURVE25519XCHACHA20POLY1305_NONCEBYTES;
 import static org.libsodium.jni.SodiumConstants.CRYPTO_SIGN_ED25519_SECRETKEYBYTES;
@@ -38,18 +42,17 @@ public class Ed25519 implements ICrypto{
 
     @Override
     public Keys createKeys(byte[] seed) throws SodiumException {
-;
-        Map<String, byte[]> result;
+
+        KeyPair pair;
         
         if(seed == null){
-            result = Crypto_sign_ed25519.keypair();
+            pair = Crypto_sign_ed25519.generate_keypair();
         } else { 
-            result = Crypto_sign_ed25519.seed_keypair(seed);
+            pair = Crypto_sign_ed25519.generate_keypair(seed);
         }
-        byte[] pk = result.get("pk");
-        byte[] sk = result.get("sk");
         
-        Keys keys = new Keys(Base58.encode(pk), Base58.encode(sk));
+        Keys keys = new Keys(Base58.encode(pair.getPk()), Base58.encode(pair.getSk()));
+        pair.clear();
         return keys;
     }
     
@@ -66,11 +69,48 @@ public class Ed25519 implements ICrypto{
         return Crypto_sign_ed25519.verify(data, sign, pk);
     }
     
+    @Override
+    public byte[] signDetached(byte[] data, byte[] sk) throws SodiumException, CryptoException {
+        checkSignkey(sk);
+        return Crypto_sign_ed25519.detached(data, sk);
+    }
+    
+    @Override
+    public boolean verifyDetached(byte[] data, byte[] sign, byte[] pk) throws SodiumException {
+        return Crypto_sign_ed25519.verify_detached(data, sign, pk);
+    }
+    
+    @Override
+    public byte[] signDetached(ByteBuffer data, byte[] sk) throws SodiumException, CryptoException {
+        checkSignkey(sk);
+        return Crypto_sign_ed25519.detached(data, sk);
+    }
+    
+    @Override
+    public boolean verifyDetached(ByteBuffer data, byte[] sign, byte[] pk) throws SodiumException {
+        return Crypto_sign_ed25519.verify_detached(data, sign, pk);
+    }
+    
+    @Override
+    public byte[] signStream(InputStream data, byte[] sk) throws SodiumException, CryptoException, IOException {
+        checkSignkey(sk);
+        return Crypto_sign.init().update(data).create(sk);
+    }
+    
+    @Override
+    public boolean verifyStream(InputStream data, byte[] sign, byte[] pk) throws SodiumException, IOException {
+        return Crypto_sign.init().update(data).verify(sign, pk);
+    }
+    
+    private static void checkSignkey(byte[] sk) throws CryptoException {
+        if(sk.length != CRYPTO_SIGN_ED25519_SECRETKEYBYTES){
+            throw new CryptoException(String.format("Invalid signkey length %d, expected %d", sk.length, CRYPTO_SIGN_ED25519_SECRETKEYBYTES));
+        }
+    }
+    
     @Override
     public byte[] genNonce() throws SodiumException {
-        byte[] nonce = new byte[CRYPTO_BOX_CURVE25519XCHACHA20POLY1305_NONCEBYTES];
-        Crypto_randombytes.randombytes(nonce);
-        return nonce;
+        return RandomSource.nonce(CRYPTO_BOX_CURVE25519XCHACHA20POLY1305_NONCEBYTES);
     }
     
     /*
@@ -99,6 +139,33 @@ public class Ed25519 implements ICrypto{
     }
     
     
+    /*
+     * crypto_box_beforenm computes the shared key of the senders secret key `sk` and the
+     * receivers public key `pk` once, so the afternm calls skip the key conversions and
+     * the scalar multiplication. The converted secret key is zeroized.
+     */
+    @Override
+    public byte[] precompute(byte[] verkey, byte[] signkey) throws SodiumException {
+        
+        byte[] sk = Crypto_sign_ed25519.sk_to_curve25519(signkey);
+        byte[] pk = Crypto_sign_ed25519.pk_to_curve25519(verkey);
+        try {
+            return Crypto_box.beforenm(pk, sk);
+        } finally {
+            Arrays.fill(sk, (byte) 0);
+        }
+    }
+    
+    @Override
+    public byte[] cryptoBoxAfternm(byte[] data, byte[] nonce, byte[] key) throws SodiumException {
+        return Crypto_box.easy_afternm(data, nonce, key);
+    }
+    
+    @Override
+    public byte[] cryptoBoxOpenAfternm(byte[] cipher, byte[] nonce, byte[] key) throws SodiumException {
+        return Crypto_box.open_easy_afternm(cipher, nonce, key);
+    }
+    
     @Override
     public byte[] cryptoBoxSeal(byte[] data, byte[] verkey) throws SodiumException {
         
@@ -115,8 +182,38 @@ public class Ed25519 implements ICrypto{
     }
 
     @Override
-    public CryptoType getType() {
-        return CryptoType.DEFAULT_CRYPTO_TYPE;
+    public byte[] toBoxPk(byte[] verkey) throws SodiumException {
+        return Crypto_sign_ed25519.pk_to_curve25519(verkey);
+    }
+    
+    @Override
+    public byte[] toBoxSk(byte[] signkey) throws SodiumException {
+        return Crypto_sign_ed25519.sk_to_curve25519(signkey);
+    }
+    
+    @Override
+    public byte[] precomputeConverted(byte[] pk, byte[] sk) throws SodiumException {
+        return Crypto_box.beforenm(pk, sk);
+    }
+    
+    @Override
+    public byte[] cryptoBoxSealConverted(byte[] data, byte[] pk) throws SodiumException {
+        return Crypto_box.seal(data, pk);
+    }
+    
+    @Override
+    public byte[] cryptoBoxSealOpenConverted(byte[] cipher, byte[] pk, byte[] sk) throws SodiumException {
+        return Crypto_box.seal_open(cipher, pk, sk);
+    }
+
+    @Override
+    public boolean supportsKeyAgreement() {
+        return true;
+    }
+
+    @Override
+    public String getName() {
+        return CryptoType.DEFAULT_CRYPTO_TYPE.getName();
     }
 
     @Override
@@ -17,6 +17,12 @@
  */
 package jssi.crypto.algorithm;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
 import jssi.crypto.CryptoException;
 import jssi.crypto.Keys;
 import org.libsodium.jni.SodiumException;
@@ -27,8 +33,18 @@ import org.libsodium.jni.SodiumException;
  */
 public interface ICrypto {
     
+    /* Built-in crypto names, any other registered one is looked up by name, see CryptoRegistry */
     public static enum CryptoType {
-        DEFAULT_CRYPTO_TYPE("ed25519");
+        DEFAULT_CRYPTO_TYPE("ed25519"),
+        SECP256K1("secp256k1");
+        
+        private static final Map<String, CryptoType> TYPES = new HashMap<>();
+        
+        static {
+            for (CryptoType item : CryptoType.values()) {
+                TYPES.put(item.type.toLowerCase(Locale.ROOT), item);
+            }
+        }
                 
         private final String type;
         CryptoType(String type){
@@ -40,24 +56,52 @@ public interface ICrypto {
         }
         
         public static CryptoType toType(String type) {
-            for (CryptoType item : CryptoType.values()) {
-                if (item.type.equalsIgnoreCase(type)) {
-                    return item;
-                }
-            }
-            return null;
+            return type == null ? null : TYPES.get(type.toLowerCase(Locale.ROOT));
         }
     }
     
     public Keys createKeys(byte[] seed) throws SodiumException;
     public byte[] sign(byte[] data, byte[] sk) throws SodiumException, CryptoException;
     public boolean verify(byte[] data, byte[] signature, byte[] pk) throws SodiumException;
+    
+    /* Signature alone, sign returns it followed by the message */
+    public byte[] signDetached(byte[] data, byte[] sk) throws SodiumException, CryptoException;
+    public boolean verifyDetached(byte[] data, byte[] signature, byte[] pk) throws SodiumException;
+    /* Same signatures over the remaining bytes of `data`, which is consumed */
+    public byte[] signDetached(ByteBuffer data, byte[] sk) throws SodiumException, CryptoException;
+    public boolean verifyDetached(ByteBuffer data, byte[] signature, byte[] pk) throws SodiumException;
+    
+    /*
+     * Prehashed (Ed25519ph for ed25519) signature of the stream, read in chunks so large
+     * documents sign in constant memory. It does not verify with verifyDetached.
+     */
+    public byte[] signStream(InputStream data, byte[] sk) throws SodiumException, CryptoException, IOException;
+    public boolean verifyStream(InputStream data, byte[] signature, byte[] pk) throws SodiumException, IOException;
     public byte[] cryptoBox(byte[] data, byte[] nonce, byte[] pk, byte[] sk) throws SodiumException;
     public byte[] cryptoBoxOpen(byte[] cipher, byte[] nonce, byte[] pk, byte[] sk) throws SodiumException;
     public byte[] cryptoBoxSeal(byte[] data, byte[] pk) throws SodiumException;
     public byte[] cryptoBoxSealOpen(byte[] cipher, byte[] verkey, byte[] sk) throws SodiumException;
     public byte[] genNonce() throws SodiumException;
     
+    /* Shared key of crypto_box_beforenm for the pair, reusable with the afternm calls */
+    public byte[] precompute(byte[] pk, byte[] sk) throws SodiumException;
+    public byte[] cryptoBoxAfternm(byte[] data, byte[] nonce, byte[] key) throws SodiumException;
+    public byte[] cryptoBoxOpenAfternm(byte[] cipher, byte[] nonce, byte[] key) throws SodiumException;
+    
+    /* Key exchange (Curve25519 for ed25519) forms of the signing keys, see KeyHandle */
+    public byte[] toBoxPk(byte[] verkey) throws SodiumException;
+    public byte[] toBoxSk(byte[] signkey) throws SodiumException;
+    
+    /* Same as precompute and cryptoBoxSeal* but with keys already converted by toBoxPk/toBoxSk */
+    public byte[] precomputeConverted(byte[] pk, byte[] sk) throws SodiumException;
+    public byte[] cryptoBoxSealConverted(byte[] data, byte[] pk) throws SodiumException;
+    public byte[] cryptoBoxSealOpenConverted(byte[] cipher, byte[] pk, byte[] sk) throws SodiumException;
+    
+    /* Whether the box operations are defined for these keys, CryptoService checks it first */
+    public boolean supportsKeyAgreement();
+    
     public void validateKeys(String verkey);
-    public CryptoType getType();
+    
+    /* Name of the "verkey:name" suffix, unique among the registered implementations */
+    public String getName();
 }
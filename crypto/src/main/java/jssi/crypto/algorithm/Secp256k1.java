@@ -0,0 +1,298 @@
+/*
+ *
+ *  * Copyright 2021 UBICUA.
+ *  *
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  *
+ *  *      http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ *
+ */
+
+package jssi.crypto.algorithm;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import jssi.crypto.CryptoException;
+import jssi.crypto.Keys;
+import org.bitcoinj.core.Base58;
+import org.bitcoinj.core.ECKey;
+import org.bitcoinj.core.Utils;
+import org.bouncycastle.crypto.digests.SHA256Digest;
+import org.bouncycastle.crypto.params.ECPrivateKeyParameters;
+import org.bouncycastle.crypto.params.ECPublicKeyParameters;
+import org.bouncycastle.crypto.signers.ECDSASigner;
+import org.bouncycastle.crypto.signers.HMacDSAKCalculator;
+import org.libsodium.api.Crypto_hash_sha256;
+import org.libsodium.api.HashState;
+import org.libsodium.api.RandomSource;
+import static org.libsodium.jni.SodiumConstants.CRYPTO_BOX_CURVE25519XCHACHA20POLY1305_NONCEBYTES;
+import org.libsodium.jni.SodiumException;
+
+/**
+ * ECDSA over secp256k1 (ES256K), as used by did:key and did:ethr keys.
+ *
+ * The verkey is the Base58 compressed point (33 bytes), the signkey the Base58
+ * private scalar (32 bytes). Signatures are the 64 byte r || s of the SHA-256
+ * digest with a deterministic (RFC 6979) nonce and low S; verification accepts
+ * compressed and uncompressed public keys. Since ECDSA always prehashes,
+ * signStream gives the same signature as signDetached over the whole content.
+ *
+ * Verification throws SodiumException on a bad signature, as Ed25519 does.
+ * Key agreement is not defined for these keys (see supportsKeyAgreement), the
+ * box operations throw SodiumException; such DIDs publish a separate X25519 key.
+ *
+ * @author UBICUA
+ */
+public class Secp256k1 implements ICrypto {
+
+    public static final int PUBLICKEYBYTES = 33;
+    public static final int SECRETKEYBYTES = 32;
+    public static final int SIGNATUREBYTES = 64;
+    private static final int UNCOMPRESSED_PUBLICKEYBYTES = 65;
+
+    private static final int CHUNK_SIZE = 0x2000;
+    private static final BigInteger N = ECKey.CURVE.getN();
+    private static final String VERIFY = "ecdsa_secp256k1_verify";
+
+    @Override
+    public Keys createKeys(byte[] seed) throws SodiumException {
+
+        BigInteger priv;
+
+        if (seed == null) {
+            /* Out of range scalars are rare enough (~2^-128) to simply draw again */
+            do {
+                priv = new BigInteger(1, RandomSource.key(SECRETKEYBYTES));
+            } while (!isScalar(priv));
+        } else {
+            if (seed.length != SECRETKEYBYTES) {
+                throw new IllegalArgumentException(String.format("Invalid seed length %d, expected %d", seed.length, SECRETKEYBYTES));
+            }
+            priv = new BigInteger(1, seed);
+            if (!isScalar(priv)) {
+                throw new IllegalArgumentException("Seed is not a valid secp256k1 private key");
+            }
+        }
+
+        byte[] pk = ECKey.publicKeyFromPrivate(priv, true);
+        byte[] sk = Utils.bigIntegerToBytes(priv, SECRETKEYBYTES);
+        Keys keys = new Keys(Base58.encode(pk), Base58.encode(sk));
+        Arrays.fill(sk, (byte) 0);
+        return keys;
+    }
+
+    /* Signature followed by the message, like crypto_sign */
+    @Override
+    public byte[] sign(byte[] data, byte[] sk) throws SodiumException, CryptoException {
+        byte[] sign = signDetached(data, sk);
+        byte[] signed = new byte[SIGNATUREBYTES + data.length];
+        System.arraycopy(sign, 0, signed, 0, SIGNATUREBYTES);
+        System.arraycopy(data, 0, signed, SIGNATUREBYTES, data.length);
+        return signed;
+    }
+
+    /* Opens a message made by sign into `data`, like crypto_sign_open */
+    @Override
+    public boolean verify(byte[] data, byte[] sign, byte[] pk) throws SodiumException {
+        if (sign.length < SIGNATUREBYTES || data.length < sign.length - SIGNATUREBYTES) {
+            throw new SodiumException(VERIFY);
+        }
+        byte[] message = Arrays.copyOfRange(sign, SIGNATUREBYTES, sign.length);
+        verifyDigest(Crypto_hash_sha256.sha256(message), Arrays.copyOf(sign, SIGNATUREBYTES), pk);
+        System.arraycopy(message, 0, data, 0, message.length);
+        return true;
+    }
+
+    @Override
+    public byte[] signDetached(byte[] data, byte[] sk) throws SodiumException, CryptoException {
+        return signDigest(Crypto_hash_sha256.sha256(data), sk);
+    }
+
+    @Override
+    public boolean verifyDetached(byte[] data, byte[] sign, byte[] pk) throws SodiumException {
+        return verifyDigest(Crypto_hash_sha256.sha256(data), sign, pk);
+    }
+
+    @Override
+    public byte[] signDetached(ByteBuffer data, byte[] sk) throws SodiumException, CryptoException {
+        return signDigest(Crypto_hash_sha256.sha256(data), sk);
+    }
+
+    @Override
+    public boolean verifyDetached(ByteBuffer data, byte[] sign, byte[] pk) throws SodiumException {
+        return verifyDigest(Crypto_hash_sha256.sha256(data), sign, pk);
+    }
+
+    @Override
+    public byte[] signStream(InputStream data, byte[] sk) throws SodiumException, CryptoException, IOException {
+        return signDigest(digest(data), sk);
+    }
+
+    @Override
+    public boolean verifyStream(InputStream data, byte[] sign, byte[] pk) throws SodiumException, IOException {
+        return verifyDigest(digest(data), sign, pk);
+    }
+
+    private static byte[] digest(InputStream data) throws SodiumException, IOException {
+        HashState state = Crypto_hash_sha256.init();
+        byte[] chunk = new byte[CHUNK_SIZE];
+        int count;
+        while ((count = data.read(chunk)) != -1) {
+            state.update(chunk, 0, count);
+        }
+        return state.digest();
+    }
+
+    /*
+     * The signer is built straight from the scalar, ECKey.fromPrivate would derive
+     * the public point (a full scalar multiplication) on every call.
+     */
+    private static byte[] signDigest(byte[] hash, byte[] sk) throws CryptoException {
+        if (sk.length != SECRETKEYBYTES) {
+            throw new CryptoException(String.format("Invalid signkey length %d, expected %d", sk.length, SECRETKEYBYTES));
+        }
+        BigInteger priv = new BigInteger(1, sk);
+        if (!isScalar(priv)) {
+            throw new CryptoException("Invalid secp256k1 signkey");
+        }
+
+        ECDSASigner signer = new ECDSASigner(new HMacDSAKCalculator(new SHA256Digest()));
+        signer.init(true, new ECPrivateKeyParameters(priv, ECKey.CURVE));
+        BigInteger[] rs = signer.generateSignature(hash);
+        BigInteger s = rs[1].compareTo(ECKey.HALF_CURVE_ORDER) > 0 ? N.subtract(rs[1]) : rs[1];
+
+        byte[] sign = new byte[SIGNATUREBYTES];
+        System.arraycopy(Utils.bigIntegerToBytes(rs[0], 32), 0, sign, 0, 32);
+        System.arraycopy(Utils.bigIntegerToBytes(s, 32), 0, sign, 32, 32);
+        return sign;
+    }
+
+    /* Throws SodiumException when `sign` does not match, as the Ed25519 verify calls */
+    private static boolean verifyDigest(byte[] hash, byte[] sign, byte[] pk) throws SodiumException {
+        if (sign.length != SIGNATUREBYTES) {
+            throw new SodiumException(VERIFY);
+        }
+        ECPublicKeyParameters key;
+        try {
+            /* the constructor rejects the point at infinity, which decodePoint accepts */
+            key = new ECPublicKeyParameters(ECKey.CURVE.getCurve().decodePoint(pk), ECKey.CURVE);
+        } catch (IllegalArgumentException e) {
+            throw new SodiumException(VERIFY);
+        }
+
+        BigInteger r = new BigInteger(1, Arrays.copyOfRange(sign, 0, 32));
+        BigInteger s = new BigInteger(1, Arrays.copyOfRange(sign, 32, SIGNATUREBYTES));
+
+        ECDSASigner signer = new ECDSASigner();
+        signer.init(false, key);
+        if (!signer.verifySignature(hash, r, s)) {
+            throw new SodiumException(VERIFY);
+        }
+        return true;
+    }
+
+    private static boolean isScalar(BigInteger value) {
+        return value.signum() > 0 && value.compareTo(N) < 0;
+    }
+
+    @Override
+    public byte[] genNonce() throws SodiumException {
+        return RandomSource.nonce(CRYPTO_BOX_CURVE25519XCHACHA20POLY1305_NONCEBYTES);
+    }
+
+    @Override
+    public byte[] cryptoBox(byte[] data, byte[] nonce, byte[] pk, byte[] sk) throws SodiumException {
+        throw noKeyAgreement();
+    }
+
+    @Override
+    public byte[] cryptoBoxOpen(byte[] cipher, byte[] nonce, byte[] pk, byte[] sk) throws SodiumException {
+        throw noKeyAgreement();
+    }
+
+    @Override
+    public byte[] cryptoBoxSeal(byte[] data, byte[] pk) throws SodiumException {
+        throw noKeyAgreement();
+    }
+
+    @Override
+    public byte[] cryptoBoxSealOpen(byte[] cipher, byte[] verkey, byte[] sk) throws SodiumException {
+        throw noKeyAgreement();
+    }
+
+    @Override
+    public byte[] precompute(byte[] pk, byte[] sk) throws SodiumException {
+        throw noKeyAgreement();
+    }
+
+    @Override
+    public byte[] cryptoBoxAfternm(byte[] data, byte[] nonce, byte[] key) throws SodiumException {
+        throw noKeyAgreement();
+    }
+
+    @Override
+    public byte[] cryptoBoxOpenAfternm(byte[] cipher, byte[] nonce, byte[] key) throws SodiumException {
+        throw noKeyAgreement();
+    }
+
+    @Override
+    public byte[] toBoxPk(byte[] verkey) throws SodiumException {
+        throw noKeyAgreement();
+    }
+
+    @Override
+    public byte[] toBoxSk(byte[] signkey) throws SodiumException {
+        throw noKeyAgreement();
+    }
+
+    @Override
+    public byte[] precomputeConverted(byte[] pk, byte[] sk) throws SodiumException {
+        throw noKeyAgreement();
+    }
+
+    @Override
+    public byte[] cryptoBoxSealConverted(byte[] data, byte[] pk) throws SodiumException {
+        throw noKeyAgreement();
+    }
+
+    @Override
+    public byte[] cryptoBoxSealOpenConverted(byte[] cipher, byte[] pk, byte[] sk) throws SodiumException {
+        throw noKeyAgreement();
+    }
+
+    @Override
+    public boolean supportsKeyAgreement() {
+        return false;
+    }
+
+    private SodiumException noKeyAgreement() {
+        return new SodiumException(String.format("No key agreement for %s keys", getName()));
+    }
+
+    @Override
+    public String getName() {
+        return CryptoType.SECP256K1.getName();
+    }
+
+    @Override
+    public void validateKeys(String verkey) {
+        byte[] pk = Base58.decode(verkey);
+        if (pk.length != PUBLICKEYBYTES && pk.length != UNCOMPRESSED_PUBLICKEYBYTES) {
+            throw new IllegalArgumentException(String.format("Invalid secp256k1 verkey length %d", pk.length));
+        }
+        if (ECKey.CURVE.getCurve().decodePoint(pk).isInfinity()) {
+            throw new IllegalArgumentException("Invalid secp256k1 verkey, point at infinity");
+        }
+    }
+}
@@ -0,0 +1,327 @@
+/*
+ *
+ *  * Copyright 2021 UBICUA.
+ *  *
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  *
+ *  *      http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ *
+ */
+
+package jssi.crypto.pack;
+
+import android.util.Base64;
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+
+import jssi.crypto.CryptoBox;
+import jssi.crypto.CryptoException;
+import jssi.crypto.CryptoService;
+import jssi.crypto.KeyHandle;
+import org.libsodium.api.Crypto_aead_chacha20poly1305_ietf;
+import org.libsodium.api.Crypto_aead_xchacha20poly1305_ietf;
+import org.libsodium.api.RandomSource;
+import org.libsodium.jni.SodiumException;
+import static org.libsodium.jni.SodiumConstants.CRYPTO_AEAD_CHACHA20POLY1305_IETF_NONCEBYTES;
+import static org.libsodium.jni.SodiumConstants.CRYPTO_AEAD_XCHACHA20POLY1305_IETF_KEYBYTES;
+import static org.libsodium.jni.SodiumConstants.CRYPTO_AEAD_XCHACHA20POLY1305_IETF_NONCEBYTES;
+import static org.libsodium.jni.SodiumConstants.CRYPTO_AEAD_XCHACHA20POLY1305_IETF_TAGBYTES;
+
+/**
+ * Multi-recipient pack/unpack compatible with Aries pack_message. The payload
+ * is encrypted once with a random content key, and only that 32-byte key is
+ * wrapped per recipient: with crypto_box between the sender and the recipient
+ * (authcrypt) or sealed to the recipient (anoncrypt). Fan-out therefore costs
+ * one key wrap per recipient whatever the payload size. Wrapping runs on the
+ * executor once there are {@link #PARALLEL_THRESHOLD} recipients or more.
+ *
+ * Authcrypt wraps go through {@link CryptoService#cryptoBox}, so repeated
+ * messages between the same keys reuse its precomputed shared keys.
+ *
+ * @author UBICUA
+ */
+public class MessagePacker {
+
+    private static final String TAG = MessagePacker.class.getName();
+
+    public static final int PARALLEL_THRESHOLD = 4;
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final int BASE64 = Base64.URL_SAFE | Base64.NO_WRAP;
+
+    public static enum Cipher {
+        XCHACHA20POLY1305_IETF("xchacha20poly1305_ietf", CRYPTO_AEAD_XCHACHA20POLY1305_IETF_NONCEBYTES),
+        CHACHA20POLY1305_IETF("chacha20poly1305_ietf", CRYPTO_AEAD_CHACHA20POLY1305_IETF_NONCEBYTES);
+
+        private final String name;
+        private final int nonceBytes;
+
+        Cipher(String name, int nonceBytes) {
+            this.name = name;
+            this.nonceBytes = nonceBytes;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public static Cipher toCipher(String name) {
+            for (Cipher item : Cipher.values()) {
+                if (item.name.equals(name)) {
+                    return item;
+                }
+            }
+            return null;
+        }
+    }
+
+    private final CryptoService cryptoService;
+    private final Executor executor;
+    private final Cipher cipher;
+
+    public MessagePacker(CryptoService cryptoService) {
+        this(cryptoService, Pool.EXECUTOR, Cipher.XCHACHA20POLY1305_IETF);
+    }
+
+    /* Without executor every recipient is wrapped on the calling thread */
+    public MessagePacker(CryptoService cryptoService, @Nullable Executor executor, Cipher cipher) {
+        this.cryptoService = cryptoService;
+        this.executor = executor;
+        this.cipher = cipher;
+    }
+
+    /* Authcrypt when `sender` is given, it must then hold its signkey; anoncrypt otherwise */
+    public String pack(byte[] message, List<KeyHandle> recipients, @Nullable KeyHandle sender) throws CryptoException, SodiumException {
+        Log.d(TAG, String.format("Pack %d bytes for %d recipients, sender: %s", message.length, recipients.size(), sender == null ? "anonymous" : sender.getVerkey()));
+
+        if (recipients.isEmpty()) {
+            throw new CryptoException("No recipients to pack for");
+        }
+
+        byte[] cek = RandomSource.key(CRYPTO_AEAD_XCHACHA20POLY1305_IETF_KEYBYTES);
+        try {
+            List<Recipient> wrapped = wrap(cek, recipients, sender);
+            ProtectedHeader header = new ProtectedHeader(cipher.getName(), ProtectedHeader.TYPE,
+                    sender == null ? ProtectedHeader.ANONCRYPT : ProtectedHeader.AUTHCRYPT, wrapped);
+            String protectedHeader = encode(MAPPER.writeValueAsBytes(header));
+
+            byte[] nonce = RandomSource.nonce(cipher.nonceBytes);
+            byte[] ciphertext = new byte[message.length];
+            byte[] tag = new byte[CRYPTO_AEAD_XCHACHA20POLY1305_IETF_TAGBYTES];
+            byte[] add = protectedHeader.getBytes(StandardCharsets.US_ASCII);
+
+            if (cipher == Cipher.XCHACHA20POLY1305_IETF) {
+                Crypto_aead_xchacha20poly1305_ietf.encrypt_detached(ciphertext, tag, message, add, nonce, cek);
+            } else {
+                Crypto_aead_chacha20poly1305_ietf.encrypt_detached(ciphertext, tag, message, add, nonce, cek);
+            }
+
+            PackedMessage packed = new PackedMessage(protectedHeader, encode(nonce), encode(ciphertext), encode(tag));
+            return MAPPER.writeValueAsString(packed);
+        } catch (IOException e) {
+            throw new CryptoException(String.format("Unable to serialize packed message: %s", e.getMessage()));
+        } finally {
+            Arrays.fill(cek, (byte) 0);
+        }
+    }
+
+    /*
+     * Unpacks `message` with the first of `mine` it was packed for. The recipients
+     * of the header are indexed by kid, so the lookup does not depend on their order.
+     */
+    public UnpackedMessage unpack(String message, Collection<KeyHandle> mine) throws CryptoException, SodiumException {
+        PackedMessage packed;
+        ProtectedHeader header;
+        try {
+            packed = MAPPER.readValue(message, PackedMessage.class);
+            header = MAPPER.readValue(decode(packed.protectedHeader), ProtectedHeader.class);
+        } catch (IOException | IllegalArgumentException e) {
+            throw new CryptoException(String.format("Invalid packed message: %s", e.getMessage()));
+        }
+
+        Cipher enc = Cipher.toCipher(header.enc);
+        if (enc == null) {
+            throw new CryptoException(String.format("Unsupported content encryption: %s", header.enc));
+        }
+        boolean authcrypt;
+        if (ProtectedHeader.AUTHCRYPT.equals(header.alg)) {
+            authcrypt = true;
+        } else if (ProtectedHeader.ANONCRYPT.equals(header.alg)) {
+            authcrypt = false;
+        } else {
+            throw new CryptoException(String.format("Unsupported key wrapping: %s", header.alg));
+        }
+        if (header.recipients == null) {
+            throw new CryptoException("Packed message without recipients");
+        }
+
+        Map<String, Recipient> index = new HashMap<>(header.recipients.size() * 2);
+        for (Recipient item : header.recipients) {
+            if (item.header != null && item.header.kid != null) {
+                index.put(item.header.kid, item);
+            }
+        }
+
+        KeyHandle handle = null;
+        Recipient recipient = null;
+        for (KeyHandle item : mine) {
+            recipient = index.get(item.getKey());
+            if (recipient != null) {
+                handle = item;
+                break;
+            }
+        }
+        if (recipient == null) {
+            throw new CryptoException(String.format("None of %d keys is among the %d recipients", mine.size(), index.size()));
+        }
+        Log.d(TAG, String.format("Unpack %s message for %s", header.alg, handle.getVerkey()));
+
+        String sender = null;
+        byte[] cek;
+        try {
+            if (authcrypt) {
+                if (recipient.header.sender == null || recipient.header.iv == null) {
+                    throw new CryptoException(String.format("Authcrypt recipient %s without sender", recipient.header.kid));
+                }
+                sender = new String(cryptoService.cryptoBoxSealOpen(handle, decode(recipient.header.sender)), StandardCharsets.UTF_8);
+                cek = cryptoService.cryptoBoxOpen(decode(recipient.encryptedKey), decode(recipient.header.iv), cryptoService.keyHandle(sender), handle);
+            } else {
+                cek = cryptoService.cryptoBoxSealOpen(handle, decode(recipient.encryptedKey));
+            }
+        } catch (IllegalArgumentException e) {
+            throw new CryptoException(String.format("Invalid recipient %s: %s", recipient.header.kid, e.getMessage()));
+        }
+
+        try {
+            byte[] nonce = decode(packed.iv);
+            byte[] ciphertext = decode(packed.ciphertext);
+            byte[] tag = decode(packed.tag);
+            byte[] add = packed.protectedHeader.getBytes(StandardCharsets.US_ASCII);
+
+            byte[] data;
+            if (enc == Cipher.XCHACHA20POLY1305_IETF) {
+                data = Crypto_aead_xchacha20poly1305_ietf.decrypt_detached(ciphertext, tag, add, nonce, cek);
+            } else {
+                data = Crypto_aead_chacha20poly1305_ietf.decrypt_detached(ciphertext, tag, add, nonce, cek);
+            }
+            return new UnpackedMessage(data, handle.getKey(), sender);
+        } catch (IllegalArgumentException e) {
+            throw new CryptoException(String.format("Invalid packed message: %s", e.getMessage()));
+        } finally {
+            Arrays.fill(cek, (byte) 0);
+        }
+    }
+
+    /* Wraps `cek` for every recipient, in order; the calling thread takes the first one */
+    private List<Recipient> wrap(final byte[] cek, List<KeyHandle> recipients, final KeyHandle sender) throws CryptoException, SodiumException {
+        List<Recipient> result = new ArrayList<>(recipients.size());
+
+        if (executor == null || recipients.size() < PARALLEL_THRESHOLD) {
+            for (KeyHandle recipient : recipients) {
+                result.add(wrap(cek, recipient, sender));
+            }
+            return result;
+        }
+
+        List<FutureTask<Recipient>> tasks = new ArrayList<>(recipients.size() - 1);
+        try {
+            for (final KeyHandle recipient : recipients.subList(1, recipients.size())) {
+                FutureTask<Recipient> task = new FutureTask<>(new Callable<Recipient>() {
+                    @Override
+                    public Recipient call() throws Exception {
+                        return wrap(cek, recipient, sender);
+                    }
+                });
+                tasks.add(task);
+                executor.execute(task);
+            }
+
+            result.add(wrap(cek, recipients.get(0), sender));
+            for (FutureTask<Recipient> task : tasks) {
+                result.add(task.get());
+            }
+            return result;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CryptoException("Interrupted while wrapping the content key");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof CryptoException) {
+                throw (CryptoException) cause;
+            }
+            if (cause instanceof SodiumException) {
+                throw (SodiumException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new CryptoException(String.format("Unable to wrap the content key: %s", cause));
+        } finally {
+            for (FutureTask<Recipient> task : tasks) {
+                task.cancel(false);
+            }
+        }
+    }
+
+    private Recipient wrap(byte[] cek, KeyHandle recipient, @Nullable KeyHandle sender) throws CryptoException, SodiumException {
+        if (sender == null) {
+            return new Recipient(encode(cryptoService.cryptoBoxSeal(recipient, cek)), new Recipient.Header(recipient.getKey(), null, null));
+        }
+
+        /* crypto_box of the recipient public key and the sender secret key */
+        CryptoBox box = cryptoService.cryptoBox(cek, recipient, sender);
+        if (box == null) {
+            throw new CryptoException(String.format("Sender %s cannot authcrypt for %s", sender.getVerkey(), recipient.getVerkey()));
+        }
+        byte[] verkey = sender.getKey().getBytes(StandardCharsets.UTF_8);
+        String sealed = encode(cryptoService.cryptoBoxSeal(recipient, verkey));
+        return new Recipient(encode(box.cipher), new Recipient.Header(recipient.getKey(), sealed, encode(box.nonce)));
+    }
+
+    private static String encode(byte[] bytes) {
+        return Base64.encodeToString(bytes, BASE64);
+    }
+
+    private static byte[] decode(String value) {
+        if (value == null) {
+            throw new IllegalArgumentException("Missing field");
+        }
+        return Base64.decode(value, BASE64);
+    }
+
+    /* Shared wrapping pool, created on first use */
+    private static class Pool {
+        private static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(
+                Math.max(2, Runtime.getRuntime().availableProcessors()), runnable -> {
+                    Thread thread = new Thread(runnable, "message-packer");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+}
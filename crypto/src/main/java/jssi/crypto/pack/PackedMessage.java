@@ -0,0 +1,52 @@
+/*
+ *
+ *  * Copyright 2021 UBICUA.
+ *  *
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  *
+ *  *      http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ *
+ */
+
+package jssi.crypto.pack;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Envelope of a packed message, serialized as the Aries pack_message JWE:
+ * the base64url protected header, which is also the additional data of the
+ * content encryption, the content nonce, cipher text and tag.
+ *
+ * @author UBICUA
+ */
+public class PackedMessage {
+
+    @JsonProperty("protected")
+    public String protectedHeader;
+    @JsonProperty("iv")
+    public String iv;
+    @JsonProperty("ciphertext")
+    public String ciphertext;
+    @JsonProperty("tag")
+    public String tag;
+
+    @JsonCreator
+    public PackedMessage(@JsonProperty("protected") String protectedHeader,
+                         @JsonProperty("iv") String iv,
+                         @JsonProperty("ciphertext") String ciphertext,
+                         @JsonProperty("tag") String tag) {
+        this.protectedHeader = protectedHeader;
+        this.iv = iv;
+        this.ciphertext = ciphertext;
+        this.tag = tag;
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ *
+ *  * Copyright 2021 UBICUA.
+ *  *
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  *
+ *  *      http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ *
+ */
+
+package jssi.crypto.pack;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.List;
+
+/**
+ * Protected header of a {@link PackedMessage}, holding the content cipher,
+ * the wrapping mode and the content key wrapped for every recipient.
+ *
+ * @author UBICUA
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class ProtectedHeader {
+
+    public static final String TYPE = "JWM/1.0";
+    public static final String AUTHCRYPT = "Authcrypt";
+    public static final String ANONCRYPT = "Anoncrypt";
+
+    @JsonProperty("enc")
+    public String enc;
+    @JsonProperty("typ")
+    public String typ;
+    @JsonProperty("alg")
+    public String alg;
+    @JsonProperty("recipients")
+    public List<Recipient> recipients;
+
+    @JsonCreator
+    public ProtectedHeader(@JsonProperty("enc") String enc,
+                           @JsonProperty("typ") String typ,
+                           @JsonProperty("alg") String alg,
+                           @JsonProperty("recipients") List<Recipient> recipients) {
+        this.enc = enc;
+        this.typ = typ;
+        this.alg = alg;
+        this.recipients = recipients;
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ *
+ *  * Copyright 2021 UBICUA.
+ *  *
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  *
+ *  *      http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ *
+ */
+
+package jssi.crypto.pack;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Content key wrapped for one recipient. With authcrypt the header also
+ * carries the sender verkey sealed to the recipient and the crypto_box nonce,
+ * with anoncrypt the key is sealed and both are absent.
+ *
+ * @author UBICUA
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class Recipient {
+
+    @JsonProperty("encrypted_key")
+    public String encryptedKey;
+    @JsonProperty("header")
+    public Header header;
+
+    @JsonCreator
+    public Recipient(@JsonProperty("encrypted_key") String encryptedKey,
+                     @JsonProperty("header") Header header) {
+        this.encryptedKey = encryptedKey;
+        this.header = header;
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class Header {
+
+        /* Base58 verkey of the recipient, without type suffix */
+        @JsonProperty("kid")
+        public String kid;
+        @JsonProperty("sender")
+        @JsonInclude(JsonInclude.Include.NON_NULL)
+        public String sender;
+        @JsonProperty("iv")
+        @JsonInclude(JsonInclude.Include.NON_NULL)
+        public String iv;
+
+        @JsonCreator
+        public Header(@JsonProperty("kid") String kid,
+                      @JsonProperty("sender") String sender,
+                      @JsonProperty("iv") String iv) {
+            this.kid = kid;
+            this.sender = sender;
+            this.iv = iv;
+        }
+    }
+}
@@ -0,0 +1,47 @@
+/*
+ *
+ *  * Copyright 2021 UBICUA.
+ *  *
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  *
+ *  *      http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ *
+ */
+
+package jssi.crypto.pack;
+
+/**
+ * Result of {@link MessagePacker#unpack}: the plain message, the verkey it was
+ * unwrapped with and, for authcrypt messages, the verkey of the sender.
+ *
+ * @author UBICUA
+ */
+public class UnpackedMessage {
+
+    public byte[] message;
+    public String recipientVerkey;
+    public String senderVerkey;
+
+    public UnpackedMessage(byte[] message, String recipientVerkey, String senderVerkey) {
+        this.message = message;
+        this.recipientVerkey = recipientVerkey;
+        this.senderVerkey = senderVerkey;
+    }
+
+    public boolean isAuthenticated() {
+        return senderVerkey != null;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("UnpackedMessage: { recipient: %s, sender: %s, length: %d}", recipientVerkey, senderVerkey, message.length);
+    }
+}
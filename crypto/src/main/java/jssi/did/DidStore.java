@@ -0,0 +1,307 @@
+/*
+ *
+ *  * Copyright 2021 UBICUA.
+ *  *
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  *
+ *  *      http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ *
+ */
+
+package jssi.did;
+
+import android.util.Log;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import jssi.crypto.Keys;
+import jssi.store.PreexistingEntityException;
+import jssi.wallet.Wallet;
+import jssi.wallet.io.ImportMode;
+import jssi.wallet.record.WalletRecord;
+import org.libsodium.jni.SodiumException;
+
+/**
+ * DIDs and keys kept as wallet records: {@link Did#TYPE} and {@link TheirDid#TYPE}
+ * named by DID, {@link Keys#TYPE} named by verkey. DID records carry plaintext
+ * tags, {@link #TAG_VERKEY} and {@link #TAG_METADATA} among them. Other components
+ * keep {@link TheirDid#TYPE} records too, e.g. the DID resolver cache, so only the
+ * ones tagged {@link #TAG_PAIRWISE} are their DIDs of this store.
+ *
+ * The records are read once into an in-memory index by DID, verkey and
+ * plaintext tag, so lookups do not touch the database. Writes go to the wallet
+ * first and then to the index. Secret keys are never indexed, see
+ * {@link #getKeys(String)}.
+ *
+ * @author UBICUA
+ */
+public class DidStore {
+
+    private static final String TAG = DidStore.class.getName();
+
+    public static final String TAG_VERKEY = "~verkey";
+    public static final String TAG_METADATA = "~metadata";
+    public static final String TAG_PAIRWISE = "~pairwise";
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final Wallet wallet;
+
+    private final Map<String, Did> myDids = new LinkedHashMap<>();
+    private final Map<String, TheirDid> theirDids = new HashMap<>();
+    /* Verkey without type suffix to DID, mine and theirs */
+    private final Map<String, String> dids = new HashMap<>();
+    /* Plaintext tags of my DIDs, by DID and by tag name and value */
+    private final Map<String, Map<String, String>> tags = new HashMap<>();
+    private final Map<String, Map<String, Set<String>>> tagged = new HashMap<>();
+    private boolean loaded;
+
+    public DidStore(Wallet wallet) {
+        this.wallet = wallet;
+    }
+
+    /* Builds the index, done on first use otherwise */
+    public synchronized void load() throws SodiumException {
+        if (loaded) {
+            return;
+        }
+
+        for (WalletRecord record : wallet.findRecords(Did.TYPE)) {
+            Did did = read(record, Did.class);
+            if (did != null) {
+                indexMyDid(did, plaintext(record.getTags()));
+            }
+        }
+        for (WalletRecord record : wallet.findRecords(TheirDid.TYPE)) {
+            if (record.getTags() == null || !record.getTags().containsKey(TAG_PAIRWISE)) {
+                continue;
+            }
+            TheirDid did = read(record, TheirDid.class);
+            if (did != null) {
+                indexTheirDid(did);
+            }
+        }
+        loaded = true;
+        Log.d(TAG, String.format("Indexed %d own and %d their DIDs", myDids.size(), theirDids.size()));
+    }
+
+    /* Drops the index, e.g. when the wallet is locked */
+    public synchronized void clear() {
+        myDids.clear();
+        theirDids.clear();
+        dids.clear();
+        tags.clear();
+        tagged.clear();
+        loaded = false;
+    }
+
+    public synchronized void storeMyDid(Did did, Keys keys) throws SodiumException, IOException, PreexistingEntityException {
+        load();
+
+        if (keys != null && wallet.findRecord(Keys.TYPE, keys.verkey) == null) {
+            wallet.addRecord(new WalletRecord(Keys.TYPE, keys.verkey, MAPPER.writeValueAsString(keys)));
+        }
+
+        Map<String, String> values = new HashMap<>();
+        values.put(TAG_VERKEY, verkey(did.verkey));
+        wallet.addRecord(new WalletRecord(Did.TYPE, did.did, MAPPER.writeValueAsString(did), values));
+        indexMyDid(did, values);
+    }
+
+    /* Adds or replaces their DID, value and tags in one transaction */
+    public synchronized void storeTheirDid(TheirDid did) throws SodiumException, IOException, PreexistingEntityException {
+        load();
+
+        Map<String, String> values = new HashMap<>();
+        values.put(TAG_VERKEY, verkey(did.verkey));
+        values.put(TAG_PAIRWISE, "1");
+        WalletRecord record = new WalletRecord(TheirDid.TYPE, did.did, MAPPER.writeValueAsString(did), values);
+        wallet.importRecords(Collections.singletonList(record), ImportMode.OVERWRITE);
+
+        TheirDid previous = theirDids.get(did.did);
+        if (previous != null) {
+            dids.remove(verkey(previous.verkey));
+        }
+        indexTheirDid(did);
+    }
+
+    /* Records of their DIDs not stored here are left alone */
+    public synchronized void removeTheirDid(String did) throws SodiumException {
+        load();
+
+        TheirDid previous = theirDids.remove(did);
+        if (previous != null) {
+            wallet.deleteRecord(TheirDid.TYPE, did);
+            dids.remove(verkey(previous.verkey));
+        }
+    }
+
+    public synchronized List<Did> listMyDids() throws SodiumException {
+        load();
+        return new ArrayList<>(myDids.values());
+    }
+
+    public synchronized Did getMyDid(String did) throws SodiumException {
+        load();
+        return myDids.get(did);
+    }
+
+    public synchronized TheirDid getTheirDid(String did) throws SodiumException {
+        load();
+        return theirDids.get(did);
+    }
+
+    /* Verkey of one of my or their DIDs, null when unknown */
+    public synchronized String getKeyForDid(String did) throws SodiumException {
+        load();
+        Did mine = myDids.get(did);
+        if (mine != null) {
+            return mine.verkey;
+        }
+        TheirDid theirs = theirDids.get(did);
+        return theirs == null ? null : theirs.verkey;
+    }
+
+    /* DID owning `verkey`, with or without type suffix */
+    public synchronized String getDidForKey(String verkey) throws SodiumException {
+        load();
+        return dids.get(verkey(verkey));
+    }
+
+    /* My DIDs whose plaintext tag `name` equals `value` */
+    public synchronized Set<String> findMyDids(String name, String value) throws SodiumException {
+        load();
+        Map<String, Set<String>> byValue = tagged.get(name);
+        Set<String> result = byValue == null ? null : byValue.get(value);
+        return result == null ? Collections.<String>emptySet() : new HashSet<>(result);
+    }
+
+    public synchronized void setDidMetadata(String did, String metadata) throws SodiumException {
+        setDidTag(did, TAG_METADATA, metadata);
+    }
+
+    public synchronized DidMetadata getDidMetadata(String did) throws SodiumException {
+        load();
+        Map<String, String> values = tags.get(did);
+        String metadata = values == null ? null : values.get(TAG_METADATA);
+        return metadata == null ? null : new DidMetadata(metadata);
+    }
+
+    /* Sets the plaintext tag `name` of my DID, which must start with '~' */
+    public synchronized void setDidTag(String did, String name, String value) throws SodiumException {
+        load();
+        if (!name.startsWith("~")) {
+            throw new IllegalArgumentException(String.format("Not a plaintext tag: %s", name));
+        }
+
+        Did mine = myDids.get(did);
+        if (mine == null) {
+            throw new IllegalArgumentException(String.format("Unknown DID %s", did));
+        }
+
+        Map<String, String> values = tags.get(did);
+        Map<String, String> update = Collections.singletonMap(name, value);
+        if (values.containsKey(name)) {
+            WalletRecord record = new WalletRecord(Did.TYPE, did, null, new HashMap<>(values));
+            wallet.updateRecordTags(record, update);
+            untag(did, name, values.get(name));
+        } else {
+            wallet.addRecordTags(new WalletRecord(Did.TYPE, did, null), update);
+        }
+        values.put(name, value);
+        tag(did, name, value);
+    }
+
+    /* Keys of `verkey`, read from the wallet on every call */
+    public Keys getKeys(String verkey) throws SodiumException, IOException {
+        WalletRecord record = wallet.findRecord(Keys.TYPE, verkey);
+        return record == null ? null : MAPPER.readValue(record.getValue(), Keys.class);
+    }
+
+    private void indexMyDid(Did did, Map<String, String> values) {
+        myDids.put(did.did, did);
+        if (did.verkey != null) {
+            dids.put(verkey(did.verkey), did.did);
+        }
+        tags.put(did.did, values);
+        for (Map.Entry<String, String> entry : values.entrySet()) {
+            tag(did.did, entry.getKey(), entry.getValue());
+        }
+    }
+
+    private void indexTheirDid(TheirDid did) {
+        theirDids.put(did.did, did);
+        if (did.verkey != null) {
+            dids.put(verkey(did.verkey), did.did);
+        }
+    }
+
+    private void tag(String did, String name, String value) {
+        Map<String, Set<String>> byValue = tagged.get(name);
+        if (byValue == null) {
+            byValue = new HashMap<>();
+            tagged.put(name, byValue);
+        }
+        Set<String> owners = byValue.get(value);
+        if (owners == null) {
+            owners = new HashSet<>();
+            byValue.put(value, owners);
+        }
+        owners.add(did);
+    }
+
+    private void untag(String did, String name, String value) {
+        Map<String, Set<String>> byValue = tagged.get(name);
+        Set<String> owners = byValue == null ? null : byValue.get(value);
+        if (owners != null) {
+            owners.remove(did);
+            if (owners.isEmpty()) {
+                byValue.remove(value);
+            }
+        }
+    }
+
+    private static Map<String, String> plaintext(Map<String, String> values) {
+        Map<String, String> result = new HashMap<>();
+        if (values != null) {
+            for (Map.Entry<String, String> entry : values.entrySet()) {
+                if (entry.getKey().startsWith("~")) {
+                    result.put(entry.getKey(), entry.getValue());
+                }
+            }
+        }
+        return result;
+    }
+
+    private static <T> T read(WalletRecord record, Class<T> type) {
+        try {
+            return MAPPER.readValue(record.getValue(), type);
+        } catch (IOException e) {
+            Log.e(TAG, String.format("Skip unreadable %s record %s: %s", record.getType(), record.getName(), e.getMessage()));
+            return null;
+        }
+    }
+
+    private static String verkey(String verkey) {
+        int index = verkey.indexOf(':');
+        return index < 0 ? verkey : verkey.substring(0, index);
+    }
+}
@@ -0,0 +1,311 @@
+/*
+ *
+ *  * Copyright 2021 UBICUA.
+ *  *
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  *
+ *  *      http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ *
+ */
+
+package jssi.resolver;
+
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import jssi.did.TheirDid;
+import jssi.store.PreexistingEntityException;
+import jssi.wallet.Wallet;
+import jssi.wallet.record.WalletRecord;
+import org.libsodium.jni.SodiumException;
+
+/**
+ * Caching front of another resolver. Documents are kept in a bounded LRU and,
+ * when a wallet is given, persisted as {@link TheirDid#TYPE} records whose tags
+ * hold the document and the time it was resolved, so they survive restarts.
+ * The tags are added to a record stored by someone else, e.g. a pairwise DID of
+ * {@link jssi.did.DidStore}, leaving its value and other tags alone; the cache
+ * never deletes a record.
+ *
+ * A document younger than `refreshAfter` is served as is; up to `expireAfter`
+ * it is still served while a background refresh runs, so repeated interactions
+ * with a DID do not wait on the network. Only unknown or expired DIDs block.
+ * Concurrent lookups of the same DID share a single request.
+ *
+ * @author UBICUA
+ */
+public class CachingResolver implements DidResolver {
+
+    private static final String TAG = CachingResolver.class.getName();
+
+    public static final int DEFAULT_CAPACITY = 256;
+    public static final long DEFAULT_REFRESH_AFTER = TimeUnit.MINUTES.toMillis(15);
+    public static final long DEFAULT_EXPIRE_AFTER = TimeUnit.DAYS.toMillis(1);
+
+    /* Tags of the persisted records */
+    public static final String TAG_DOCUMENT = "document";
+    public static final String TAG_RESOLVED = "resolved";
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final DidResolver delegate;
+    private final Wallet wallet;
+    private final Executor executor;
+    private final long refreshAfter;
+    private final long expireAfter;
+    private final Map<String, Entry> entries;
+    private final ConcurrentMap<String, FutureTask<DidDocument>> pending = new ConcurrentHashMap<>();
+
+    public CachingResolver(DidResolver delegate) {
+        this(delegate, null);
+    }
+
+    public CachingResolver(DidResolver delegate, @Nullable Wallet wallet) {
+        this(delegate, wallet, Refresh.EXECUTOR, DEFAULT_CAPACITY, DEFAULT_REFRESH_AFTER, DEFAULT_EXPIRE_AFTER, TimeUnit.MILLISECONDS);
+    }
+
+    public CachingResolver(DidResolver delegate, @Nullable Wallet wallet, Executor executor,
+                           final int capacity, long refreshAfter, long expireAfter, TimeUnit unit) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException(String.format("Invalid capacity %d", capacity));
+        }
+        if (refreshAfter < 0 || expireAfter < refreshAfter) {
+            throw new IllegalArgumentException(String.format("Invalid refresh %d and expiry %d", refreshAfter, expireAfter));
+        }
+        this.delegate = delegate;
+        this.wallet = wallet;
+        this.executor = executor;
+        this.refreshAfter = unit.toMillis(refreshAfter);
+        this.expireAfter = unit.toMillis(expireAfter);
+        this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    @Override
+    public DidDocument resolve(String did) throws ResolverException {
+        Entry entry = cached(did);
+        if (entry == null) {
+            entry = restore(did);
+        }
+
+        if (entry != null) {
+            long age = System.currentTimeMillis() - entry.resolved;
+            if (age < expireAfter) {
+                if (age >= refreshAfter) {
+                    refresh(did);
+                }
+                return entry.document;
+            }
+            Log.d(TAG, String.format("Expired %s, resolved %d ms ago", did, age));
+        }
+        return await(fetch(did, true));
+    }
+
+    /* Forgets `did` in memory and marks its persisted document expired */
+    public void invalidate(String did) {
+        synchronized (entries) {
+            entries.remove(did);
+        }
+        if (wallet != null) {
+            try {
+                wallet.addRecordTags(new WalletRecord(TheirDid.TYPE, did, null), Collections.singletonMap(TAG_RESOLVED, "0"));
+            } catch (SodiumException e) {
+                Log.e(TAG, String.format("Unable to invalidate %s: %s", did, e.getMessage()));
+            }
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    /* Empties the memory cache only, persisted records are kept */
+    public void clear() {
+        synchronized (entries) {
+            Log.d(TAG, String.format("Clear %d DID documents", entries.size()));
+            entries.clear();
+        }
+    }
+
+    private Entry cached(String did) {
+        synchronized (entries) {
+            return entries.get(did);
+        }
+    }
+
+    private void remember(String did, Entry entry) {
+        synchronized (entries) {
+            entries.put(did, entry);
+        }
+    }
+
+    private void refresh(String did) {
+        try {
+            fetch(did, false);
+        } catch (RejectedExecutionException e) {
+            Log.e(TAG, String.format("Refresh of %s rejected: %s", did, e.getMessage()));
+        }
+    }
+
+    /*
+     * Starts, or joins, the request for `did`. A blocking request runs on the calling
+     * thread, a background one on the executor.
+     */
+    private FutureTask<DidDocument> fetch(final String did, boolean blocking) {
+        FutureTask<DidDocument> task = new FutureTask<DidDocument>(() -> load(did)) {
+            @Override
+            protected void done() {
+                pending.remove(did, this);
+            }
+        };
+
+        FutureTask<DidDocument> existing = pending.putIfAbsent(did, task);
+        if (existing != null) {
+            return existing;
+        }
+
+        if (blocking) {
+            task.run();
+        } else {
+            try {
+                executor.execute(task);
+            } catch (RejectedExecutionException e) {
+                pending.remove(did, task);
+                throw e;
+            }
+        }
+        return task;
+    }
+
+    private DidDocument await(FutureTask<DidDocument> task) throws ResolverException {
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ResolverException("Interrupted while resolving", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof ResolverException) {
+                throw (ResolverException) cause;
+            }
+            throw new ResolverException(String.format("Resolve failed: %s", cause), cause);
+        }
+    }
+
+    private DidDocument load(String did) throws ResolverException {
+        DidDocument document;
+        try {
+            document = delegate.resolve(did);
+        } catch (ResolverException e) {
+            Log.e(TAG, String.format("Resolve %s failed: %s", did, e.getMessage()));
+            throw e;
+        }
+
+        /* Possibly a transient miss, whatever is cached or stored is kept */
+        if (document == null) {
+            return null;
+        }
+
+        Entry entry = new Entry(document, System.currentTimeMillis());
+        remember(did, entry);
+        persist(did, entry);
+        return document;
+    }
+
+    private Entry restore(String did) {
+        if (wallet == null) {
+            return null;
+        }
+        try {
+            WalletRecord record = wallet.findRecord(TheirDid.TYPE, did);
+            if (record == null || record.getTags() == null) {
+                return null;
+            }
+            String document = record.getTags().get(TAG_DOCUMENT);
+            String resolved = record.getTags().get(TAG_RESOLVED);
+            if (document == null || resolved == null) {
+                return null;
+            }
+            Entry entry = new Entry(MAPPER.readValue(document, DidDocument.class), Long.parseLong(resolved));
+            remember(did, entry);
+            return entry;
+        } catch (SodiumException | IOException | NumberFormatException e) {
+            Log.e(TAG, String.format("Unable to restore %s: %s", did, e.getMessage()));
+            return null;
+        }
+    }
+
+    private void persist(String did, Entry entry) {
+        if (wallet == null) {
+            return;
+        }
+        try {
+            Map<String, String> tags = new HashMap<>();
+            tags.put(TAG_DOCUMENT, MAPPER.writeValueAsString(entry.document));
+            tags.put(TAG_RESOLVED, Long.toString(entry.resolved));
+
+            if (wallet.addRecordTags(new WalletRecord(TheirDid.TYPE, did, null), tags)) {
+                return;
+            }
+            String value = MAPPER.writeValueAsString(new TheirDid(did, entry.document.getVerkey()));
+            try {
+                wallet.addRecord(new WalletRecord(TheirDid.TYPE, did, value, tags));
+            } catch (PreexistingEntityException e) {
+                /* stored meanwhile */
+                wallet.addRecordTags(new WalletRecord(TheirDid.TYPE, did, null), tags);
+            }
+        } catch (SodiumException | IOException e) {
+            Log.e(TAG, String.format("Unable to persist %s: %s", did, e.getMessage()));
+        }
+    }
+
+    private static class Entry {
+        final DidDocument document;
+        final long resolved;
+
+        Entry(DidDocument document, long resolved) {
+            this.document = document;
+            this.resolved = resolved;
+        }
+    }
+
+    /* Shared refresh pool, created on first use */
+    private static class Refresh {
+        private static final Executor EXECUTOR = Executors.newFixedThreadPool(2, runnable -> {
+            Thread thread = new Thread(runnable, "did-resolver");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+}
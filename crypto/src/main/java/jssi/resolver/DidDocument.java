@@ -0,0 +1,137 @@
+/*
+ *
+ *  * Copyright 2021 UBICUA.
+ *  *
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  *
+ *  *      http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ *
+ */
+
+package jssi.resolver;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The parts of a DID document the client uses: its verification methods, under
+ * either the current "verificationMethod" or the older "publicKey" name, and
+ * its services. Other members are ignored.
+ *
+ * @author UBICUA
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class DidDocument {
+
+    public static final String ED25519_KEY_TYPE = "Ed25519VerificationKey2018";
+
+    @JsonProperty("id")
+    public String id;
+    @JsonProperty("verificationMethod")
+    @JsonInclude(JsonInclude.Include.NON_EMPTY)
+    public List<VerificationMethod> verificationMethod;
+    @JsonProperty("publicKey")
+    @JsonInclude(JsonInclude.Include.NON_EMPTY)
+    public List<VerificationMethod> publicKey;
+    @JsonProperty("service")
+    @JsonInclude(JsonInclude.Include.NON_EMPTY)
+    public List<Service> service;
+
+    @JsonCreator
+    public DidDocument(@JsonProperty("id") String id,
+                       @JsonProperty("verificationMethod") List<VerificationMethod> verificationMethod,
+                       @JsonProperty("publicKey") List<VerificationMethod> publicKey,
+                       @JsonProperty("service") List<Service> service) {
+        this.id = id;
+        this.verificationMethod = verificationMethod;
+        this.publicKey = publicKey;
+        this.service = service;
+    }
+
+    /* Minimal document of `did` holding its Ed25519 verkey */
+    public static DidDocument of(String did, String verkey) {
+        VerificationMethod method = new VerificationMethod(did + "#key-1", ED25519_KEY_TYPE, did, verkey);
+        return new DidDocument(did, Collections.singletonList(method), null, null);
+    }
+
+    /* Base58 Ed25519 verkey of the document, null when it has none */
+    public String getVerkey() {
+        String verkey = verkey(verificationMethod);
+        return verkey != null ? verkey : verkey(publicKey);
+    }
+
+    private static String verkey(List<VerificationMethod> methods) {
+        if (methods == null) {
+            return null;
+        }
+        for (VerificationMethod method : methods) {
+            if (ED25519_KEY_TYPE.equals(method.type) && method.publicKeyBase58 != null) {
+                return method.publicKeyBase58;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("DidDocument: {%s, verkey: %s}", id, getVerkey());
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class VerificationMethod {
+
+        @JsonProperty("id")
+        public String id;
+        @JsonProperty("type")
+        public String type;
+        @JsonProperty("controller")
+        public String controller;
+        @JsonProperty("publicKeyBase58")
+        public String publicKeyBase58;
+
+        @JsonCreator
+        public VerificationMethod(@JsonProperty("id") String id,
+                                  @JsonProperty("type") String type,
+                                  @JsonProperty("controller") String controller,
+                                  @JsonProperty("publicKeyBase58") String publicKeyBase58) {
+            this.id = id;
+            this.type = type;
+            this.controller = controller;
+            this.publicKeyBase58 = publicKeyBase58;
+        }
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class Service {
+
+        @JsonProperty("id")
+        public String id;
+        @JsonProperty("type")
+        public String type;
+        /* A URI string, or an object for newer service types */
+        @JsonProperty("serviceEndpoint")
+        public Object serviceEndpoint;
+
+        @JsonCreator
+        public Service(@JsonProperty("id") String id,
+                       @JsonProperty("type") String type,
+                       @JsonProperty("serviceEndpoint") Object serviceEndpoint) {
+            this.id = id;
+            this.type = type;
+            this.serviceEndpoint = serviceEndpoint;
+        }
+    }
+}
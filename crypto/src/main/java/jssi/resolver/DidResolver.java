@@ -0,0 +1,33 @@
+/*
+ *
+ *  * Copyright 2021 UBICUA.
+ *  *
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  *
+ *  *      http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ *
+ */
+
+package jssi.resolver;
+
+/**
+ * Resolves a DID to its DID document.
+ *
+ * @author UBICUA
+ */
+public interface DidResolver {
+
+    /* Method of the unqualified Indy DIDs used across the app */
+    public static final String DEFAULT_METHOD = "sov";
+
+    /* Document of `did`, null when the resolver does not know it */
+    public DidDocument resolve(String did) throws ResolverException;
+}
@@ -0,0 +1,127 @@
+/*
+ *
+ *  * Copyright 2021 UBICUA.
+ *  *
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  *
+ *  *      http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ *
+ */
+
+package jssi.resolver;
+
+import android.util.Log;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.Map;
+
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+/**
+ * Client of a Universal Resolver compatible endpoint. The response may be a
+ * DID resolution result, whose "didDocument" is taken, or the bare document.
+ * Calls block, see {@link CachingResolver} for repeated lookups.
+ *
+ * @author UBICUA
+ */
+public class HttpResolver implements DidResolver {
+
+    private static final String TAG = HttpResolver.class.getName();
+
+    public static final URI DEFAULT_RESOLVE_URI = URI.create("http://localhost:8080/resolver/1.0/identifiers/");
+    public static final URI DEFAULT_PROPERTIES_URI = URI.create("http://localhost:8080/resolver/1.0/properties");
+
+    private static final String ACCEPT = "application/ld+json;profile=\"https://w3id.org/did-resolution\", application/json";
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final OkHttpClient client;
+    private final HttpUrl resolveUri;
+    private final HttpUrl propertiesUri;
+
+    public HttpResolver() {
+        this(new OkHttpClient());
+    }
+
+    public HttpResolver(OkHttpClient client) {
+        this(client, DEFAULT_RESOLVE_URI, DEFAULT_PROPERTIES_URI);
+    }
+
+    public HttpResolver(OkHttpClient client, URI resolveUri, URI propertiesUri) {
+        this.client = client;
+        this.resolveUri = HttpUrl.get(resolveUri.toString());
+        this.propertiesUri = HttpUrl.get(propertiesUri.toString());
+    }
+
+    @Override
+    public DidDocument resolve(String did) throws ResolverException {
+        Log.d(TAG, String.format("Resolve %s", did));
+
+        HttpUrl url = resolveUri.newBuilder().addPathSegment(did).build();
+        JsonNode tree = get(url, did);
+        if (tree == null) {
+            return null;
+        }
+
+        JsonNode document = tree.has("didDocument") ? tree.get("didDocument") : tree;
+        if (document == null || document.isNull()) {
+            return null;
+        }
+        try {
+            return MAPPER.treeToValue(document, DidDocument.class);
+        } catch (IOException e) {
+            throw new ResolverException(String.format("Invalid DID document of %s: %s", did, e.getMessage()), e);
+        }
+    }
+
+    /* Drivers and settings reported by the resolver */
+    public Map<String, Object> properties() throws ResolverException {
+        JsonNode tree = get(propertiesUri, "properties");
+        if (tree == null) {
+            throw new ResolverException(String.format("No properties at %s", propertiesUri));
+        }
+        return MAPPER.convertValue(tree, new TypeReference<Map<String, Object>>() {});
+    }
+
+    /* Parsed body of `url`, null on 404 */
+    private JsonNode get(HttpUrl url, String subject) throws ResolverException {
+        Request request = new Request.Builder()
+                .url(url)
+                .header("Accept", ACCEPT)
+                .get()
+                .build();
+
+        try (Response response = client.newCall(request).execute()) {
+            if (response.code() == 404) {
+                Log.d(TAG, String.format("Not found: %s", subject));
+                return null;
+            }
+            if (!response.isSuccessful()) {
+                throw new ResolverException(String.format("Resolve %s failed: HTTP %d", subject, response.code()));
+            }
+            ResponseBody body = response.body();
+            if (body == null) {
+                throw new ResolverException(String.format("Resolve %s failed: empty response", subject));
+            }
+            return MAPPER.readTree(body.byteStream());
+        } catch (IOException e) {
+            throw new ResolverException(String.format("Resolve %s failed: %s", subject, e.getMessage()), e);
+        }
+    }
+}
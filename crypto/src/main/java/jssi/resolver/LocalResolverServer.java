@@ -0,0 +1,212 @@
+/*
+ *
+ *  * Copyright 2021 UBICUA.
+ *  *
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  *
+ *  *      http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ *
+ */
+
+package jssi.resolver;
+
+import android.util.Log;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Embedded stand-in for a Universal Resolver, serving registered documents on
+ * the loopback interface with the paths {@link HttpResolver} expects. Meant for
+ * tests and load runs: {@link #setLatency} simulates a remote resolver and
+ * {@link #getRequestCount()} shows how many lookups reached it.
+ *
+ * Only GET is supported, one request per connection.
+ *
+ * @author UBICUA
+ */
+public class LocalResolverServer implements Closeable {
+
+    private static final String TAG = LocalResolverServer.class.getName();
+
+    public static final String RESOLVE_PATH = "/1.0/identifiers/";
+    public static final String PROPERTIES_PATH = "/1.0/properties";
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final ServerSocket server;
+    private final ExecutorService workers;
+    private final Thread acceptor;
+    /* Serialized resolution results by DID */
+    private final ConcurrentMap<String, byte[]> documents = new ConcurrentHashMap<>();
+    private final AtomicLong requests = new AtomicLong();
+    private volatile long latency;
+
+    /* Listens on an ephemeral port */
+    public LocalResolverServer() throws IOException {
+        this(0);
+    }
+
+    public LocalResolverServer(int port) throws IOException {
+        this.server = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+        this.workers = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "local-resolver");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.acceptor = new Thread(this::accept, "local-resolver-accept");
+        this.acceptor.setDaemon(true);
+        this.acceptor.start();
+        Log.d(TAG, String.format("Local resolver on port %d", server.getLocalPort()));
+    }
+
+    public void register(DidDocument document) throws IOException {
+        ObjectNode result = MAPPER.createObjectNode();
+        result.set("didDocument", MAPPER.valueToTree(document));
+        result.putObject("resolverMetadata").put("driverId", "local");
+        result.putObject("methodMetadata");
+        documents.put(document.id, MAPPER.writeValueAsBytes(result));
+    }
+
+    public void register(String did, String verkey) throws IOException {
+        register(DidDocument.of(did, verkey));
+    }
+
+    public void unregister(String did) {
+        documents.remove(did);
+    }
+
+    /* Delay added to every response */
+    public void setLatency(long latency, TimeUnit unit) {
+        this.latency = unit.toMillis(latency);
+    }
+
+    public long getRequestCount() {
+        return requests.get();
+    }
+
+    public int getPort() {
+        return server.getLocalPort();
+    }
+
+    public URI getResolveUri() {
+        return URI.create(String.format("http://127.0.0.1:%d%s", getPort(), RESOLVE_PATH));
+    }
+
+    public URI getPropertiesUri() {
+        return URI.create(String.format("http://127.0.0.1:%d%s", getPort(), PROPERTIES_PATH));
+    }
+
+    /* Resolver client of this server */
+    public HttpResolver resolver(okhttp3.OkHttpClient client) {
+        return new HttpResolver(client, getResolveUri(), getPropertiesUri());
+    }
+
+    @Override
+    public void close() throws IOException {
+        server.close();
+        workers.shutdownNow();
+    }
+
+    private void accept() {
+        while (!server.isClosed()) {
+            try {
+                final Socket socket = server.accept();
+                workers.execute(() -> handle(socket));
+            } catch (SocketException e) {
+                /* closed */
+                return;
+            } catch (IOException e) {
+                Log.e(TAG, String.format("Accept failed: %s", e.getMessage()));
+            }
+        }
+    }
+
+    private void handle(Socket socket) {
+        try (Socket client = socket) {
+            BufferedReader reader = new BufferedReader(new InputStreamReader(client.getInputStream(), StandardCharsets.ISO_8859_1));
+            String line = reader.readLine();
+            if (line == null) {
+                return;
+            }
+            /* Headers are not needed */
+            String header;
+            do {
+                header = reader.readLine();
+            } while (header != null && !header.isEmpty());
+
+            requests.incrementAndGet();
+            if (latency > 0) {
+                Thread.sleep(latency);
+            }
+
+            String[] parts = line.split(" ");
+            OutputStream out = client.getOutputStream();
+            if (parts.length < 2 || !"GET".equals(parts[0])) {
+                respond(out, 405, "Method Not Allowed", new byte[0]);
+                return;
+            }
+
+            String path = parts[1];
+            if (path.startsWith(RESOLVE_PATH)) {
+                byte[] body = documents.get(decode(path.substring(RESOLVE_PATH.length())));
+                if (body == null) {
+                    respond(out, 404, "Not Found", new byte[0]);
+                } else {
+                    respond(out, 200, "OK", body);
+                }
+            } else if (path.equals(PROPERTIES_PATH)) {
+                ObjectNode properties = MAPPER.createObjectNode();
+                properties.put("driverId", "local");
+                properties.put("documents", documents.size());
+                respond(out, 200, "OK", MAPPER.writeValueAsBytes(properties));
+            } else {
+                respond(out, 404, "Not Found", new byte[0]);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            Log.e(TAG, String.format("Request failed: %s", e.getMessage()));
+        }
+    }
+
+    private static void respond(OutputStream out, int status, String reason, byte[] body) throws IOException {
+        String head = String.format("HTTP/1.1 %d %s\r\nContent-Type: application/json\r\nContent-Length: %d\r\nConnection: close\r\n\r\n",
+                status, reason, body.length);
+        out.write(head.getBytes(StandardCharsets.ISO_8859_1));
+        out.write(body);
+        out.flush();
+    }
+
+    private static String decode(String segment) throws UnsupportedEncodingException {
+        return URLDecoder.decode(segment, "UTF-8");
+    }
+}
@@ -0,0 +1,134 @@
+#!/usr/bin/env bash
+#
+#  Copyright 2021 UBICUA.
+#
+#  Licensed under the Apache License, Version 2.0 (the "License");
+#  you may not use this file except in compliance with the License.
+#  You may obtain a copy of the License at
+#
+#       http://www.apache.org/licenses/LICENSE-2.0
+#
+#  Unless required by applicable law or agreed to in writing, software
+#  distributed under the License is distributed on an "AS IS" BASIS,
+#  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+#  See the License for the specific language governing permissions and
+#  limitations under the License.
+#
+
+# Builds libsodiumjni and libsodiumext from a pinned libsodium release.
+#
+#   ./build-native.sh [linux-x86_64] [arm64-v8a] [armeabi-v7a]
+#
+# Without arguments every target is built. Android targets need ANDROID_NDK_HOME
+# (r21 or later). Needs cmake >= 3.13, swig >= 3.0 and, for the host target, a JDK.
+#
+# Outputs:
+#   linux-x86_64 -> src/main/resources/native/linux-x86_64, extracted by NativeLoader
+#   <abi>        -> ../ssido/src/main/jniLibs/<abi>
+
+set -euo pipefail
+
+LIBSODIUM_VERSION=1.0.18
+LIBSODIUM_SHA256=6f504490b342a4f8a4c4a02fc9b866cbef8622d5df4e5452b46be121e46636c1
+LIBSODIUM_URL=https://download.libsodium.org/libsodium/releases/libsodium-${LIBSODIUM_VERSION}.tar.gz
+ANDROID_API=23
+
+ROOT=$(cd "$(dirname "$0")" && pwd)
+WORK=${ROOT}/build/native
+JOBS=$(getconf _NPROCESSORS_ONLN 2>/dev/null || echo 2)
+
+# Same paths and no build id, so rebuilding the same sources gives the same bytes
+export SOURCE_DATE_EPOCH=${SOURCE_DATE_EPOCH:-1609459200}
+DETERMINISTIC_CFLAGS="-ffile-prefix-map=${WORK}=. -ffile-prefix-map=${ROOT}=."
+DETERMINISTIC_LDFLAGS="-Wl,--build-id=none -s"
+
+fetch() {
+    local archive=${WORK}/libsodium-${LIBSODIUM_VERSION}.tar.gz
+    mkdir -p "${WORK}"
+    if [ ! -f "${archive}" ]; then
+        curl -fsSL -o "${archive}.part" "${LIBSODIUM_URL}"
+        mv "${archive}.part" "${archive}"
+    fi
+    echo "${LIBSODIUM_SHA256}  ${archive}" | sha256sum -c - >/dev/null
+}
+
+ndk_toolchain() {
+    : "${ANDROID_NDK_HOME:?ANDROID_NDK_HOME is required for Android targets}"
+    local host
+    case "$(uname -s)" in
+        Linux) host=linux-x86_64 ;;
+        Darwin) host=darwin-x86_64 ;;
+        *) echo "Unsupported build host $(uname -s)" >&2; exit 1 ;;
+    esac
+    echo "${ANDROID_NDK_HOME}/toolchains/llvm/prebuilt/${host}/bin"
+}
+
+# libsodium_build <target> <configure host or empty> <cc> <ar> <ranlib>
+libsodium_build() {
+    local target=$1 host=$2 cc=$3 ar=$4 ranlib=$5
+    local src=${WORK}/${target}/libsodium-${LIBSODIUM_VERSION}
+    local prefix=${WORK}/${target}/libsodium
+
+    [ -f "${prefix}/lib/libsodium.a" ] && return
+    rm -rf "${src}" && mkdir -p "${WORK}/${target}"
+    tar -xzf "${WORK}/libsodium-${LIBSODIUM_VERSION}.tar.gz" -C "${WORK}/${target}"
+    (
+        cd "${src}"
+        ./configure ${host:+--host=${host}} --prefix="${prefix}" \
+            --disable-shared --enable-static --with-pic \
+            CC="${cc}" AR="${ar}" RANLIB="${ranlib}" \
+            CFLAGS="-O2 ${DETERMINISTIC_CFLAGS}" >/dev/null
+        make -j"${JOBS}" >/dev/null
+        make install >/dev/null
+    )
+}
+
+# jni_build <target> <output dir> [cmake arguments...]
+jni_build() {
+    local target=$1 output=$2
+    shift 2
+    local build=${WORK}/${target}/cmake
+
+    cmake -S "${ROOT}/src/main/jni" -B "${build}" \
+        -DCMAKE_BUILD_TYPE=Release \
+        -DSODIUM_ROOT="${WORK}/${target}/libsodium" \
+        -DCMAKE_C_FLAGS="${DETERMINISTIC_CFLAGS}" \
+        -DCMAKE_SHARED_LINKER_FLAGS="${DETERMINISTIC_LDFLAGS}" \
+        "$@" >/dev/null
+    cmake --build "${build}" -- -j"${JOBS}" >/dev/null
+
+    mkdir -p "${output}"
+    cp "${build}/libsodiumjni.so" "${build}/libsodiumext.so" "${output}/"
+    echo "${target}: ${output}"
+}
+
+build_linux_x86_64() {
+    libsodium_build linux-x86_64 "" "${CC:-cc}" "${AR:-ar}" "${RANLIB:-ranlib}"
+    jni_build linux-x86_64 "${ROOT}/src/main/resources/native/linux-x86_64"
+}
+
+# build_android <abi> <configure host> <clang prefix>
+build_android() {
+    local abi=$1 host=$2 clang=$3
+    local toolchain
+    toolchain=$(ndk_toolchain)
+    libsodium_build "${abi}" "${host}" "${toolchain}/${clang}${ANDROID_API}-clang" \
+        "${toolchain}/llvm-ar" "${toolchain}/llvm-ranlib"
+    jni_build "${abi}" "${ROOT}/../ssido/src/main/jniLibs/${abi}" \
+        -DCMAKE_TOOLCHAIN_FILE="${ANDROID_NDK_HOME}/build/cmake/android.toolchain.cmake" \
+        -DANDROID_ABI="${abi}" \
+        -DANDROID_PLATFORM="android-${ANDROID_API}"
+}
+
+targets=("$@")
+[ ${#targets[@]} -eq 0 ] && targets=(linux-x86_64 arm64-v8a armeabi-v7a)
+
+fetch
+for target in "${targets[@]}"; do
+    case "${target}" in
+        linux-x86_64) build_linux_x86_64 ;;
+        arm64-v8a) build_android arm64-v8a aarch64-linux-android aarch64-linux-android ;;
+        armeabi-v7a) build_android armeabi-v7a armv7a-linux-androideabi armv7a-linux-androideabi ;;
+        *) echo "Unknown target ${target}" >&2; exit 1 ;;
+    esac
+done
@@ -18,7 +18,13 @@
 
 package org.libsodium.api;
 
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
 import org.libsodium.jni.SodiumException;
+import org.libsodium.jni.SodiumExt;
+import org.libsodium.spi.SodiumProvider;
+import org.libsodium.spi.SodiumProviders;
 
 /**
  *
@@ -31,4 +37,61 @@ public abstract class Crypto {
             throw new SodiumException(message);
         }
     }
+
+    /* Implementation selected at startup for the operation, native or pure Java */
+    protected static SodiumProvider provider(SodiumProviders.Operation operation) {
+        return SodiumProviders.get(operation);
+    }
+
+    /* Throws unless [offset, offset + count) lies within an array of the given length */
+    protected static void range(int length, int offset, int count) {
+        if (offset < 0 || count < 0 || offset > length - count) {
+            throw new IndexOutOfBoundsException(String.format("Range [%d, %d + %d) out of bounds for length %d", offset, offset, count, length));
+        }
+    }
+
+    protected static void size(byte[] value, int length, String name) {
+        if (value == null || value.length != length) {
+            throw new IllegalArgumentException(String.format("%s must be %d bytes", name, length));
+        }
+    }
+
+    protected static void space(ByteBuffer buffer, int count) {
+        if (buffer.remaining() < count) {
+            throw new BufferOverflowException();
+        }
+    }
+
+    /* Checks the parallel arrays of a batch, returns the number of messages */
+    protected static int batch(int[] offsets, int[] lengths, int[] results) {
+        if (offsets.length != lengths.length || (results != null && results.length != offsets.length)) {
+            throw new IllegalArgumentException("Batch arrays differ in length");
+        }
+        return offsets.length;
+    }
+
+    /* Avoids the copy when the range already covers the whole array */
+    protected static byte[] slice(byte[] value, int offset, int count) {
+        return offset == 0 && count == value.length ? value : Arrays.copyOfRange(value, offset, offset + count);
+    }
+
+    /* Remaining bytes of a buffer that is neither direct nor array backed, position untouched */
+    protected static byte[] remaining(ByteBuffer buffer) {
+        byte[] value = new byte[buffer.remaining()];
+        buffer.duplicate().get(value);
+        return value;
+    }
+
+    /* Direct buffers go through the native entry points, heap buffers through their arrays */
+    protected static boolean direct(ByteBuffer out, ByteBuffer in) {
+        return SodiumExt.isAvailable() && out.isDirect() && in.isDirect();
+    }
+
+    protected static boolean direct(ByteBuffer in) {
+        return SodiumExt.isAvailable() && in.isDirect();
+    }
+
+    protected static boolean heap(ByteBuffer out, ByteBuffer in) {
+        return out.hasArray() && in.hasArray();
+    }
 }
@@ -53,20 +53,31 @@ public class Crypto_aead_chacha20poly1305 extends Crypto {
         return data;
     }
     
+    /**
+     * @deprecated allocates a map per call, use {@link #encrypt_detached(byte[], byte[], byte[], byte[], byte[], byte[])}
+     */
+    @Deprecated
     public static Map<String, byte[]> encrypt_detached(byte[] data, byte[] add, byte[] nonce, byte[] key) throws SodiumException {
-
         byte[] cipher = new byte[data.length];
         byte[] tag = new byte[CRYPTO_AEAD_CHACHA20POLY1305_TAGBYTES];
-        if (add == null) {
-            add = new byte[0];
-        }
+        encrypt_detached(cipher, tag, data, add, nonce, key);
 
-        exception(Sodium.crypto_aead_chacha20poly1305_encrypt_detached(cipher, tag, new int[0], data, data.length, add, add.length, new byte[0], nonce, key), "crypto_aead_chacha20poly1305_encrypt_detached");
         Map<String, byte[]> result = new HashMap<>();
         result.put("cipher", cipher);
         result.put("tag", tag);
         return result;
     }
+
+    /* Writes data.length bytes of cipher text into `cipher` and the tag into `tag` */
+    public static void encrypt_detached(byte[] cipher, byte[] tag, byte[] data, byte[] add, byte[] nonce, byte[] key) throws SodiumException {
+        range(cipher.length, 0, data.length);
+        size(tag, CRYPTO_AEAD_CHACHA20POLY1305_TAGBYTES, "tag");
+        if (add == null) {
+            add = new byte[0];
+        }
+
+        exception(Sodium.crypto_aead_chacha20poly1305_encrypt_detached(cipher, tag, new int[0], data, data.length, add, add.length, new byte[0], nonce, key), "crypto_aead_chacha20poly1305_encrypt_detached");
+    }
     
     public static byte[] decrypt_detached(byte[] cipher, byte[] tag, byte[] add, byte[] nonce, byte[] key) throws SodiumException {
 
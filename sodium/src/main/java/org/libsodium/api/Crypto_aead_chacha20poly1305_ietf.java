@@ -17,13 +17,18 @@
  */
 package org.libsodium.api;
 
+import java.nio.ByteBuffer;
 import java.util.HashMap;
 import java.util.Map;
 import org.libsodium.jni.Sodium;
 import static org.libsodium.jni.SodiumConstants.CRYPTO_AEAD_CHACHA20POLY1305_IETF_ABYTES;
 import static org.libsodium.jni.SodiumConstants.CRYPTO_AEAD_CHACHA20POLY1305_IETF_KEYBYTES;
+import static org.libsodium.jni.SodiumConstants.CRYPTO_AEAD_CHACHA20POLY1305_IETF_NONCEBYTES;
 import static org.libsodium.jni.SodiumConstants.CRYPTO_AEAD_CHACHA20POLY1305_IETF_TAGBYTES;
 import org.libsodium.jni.SodiumException;
+import org.libsodium.jni.SodiumExt;
+import org.libsodium.spi.NativeSodiumProvider;
+import static org.libsodium.spi.SodiumProviders.Operation.AEAD_CHACHA20POLY1305_IETF;
 
 /**
  *
@@ -33,40 +38,226 @@ public class Crypto_aead_chacha20poly1305_ietf extends Crypto {
 
     public static byte[] encrypt(byte[] data, byte[] add, byte[] nonce, byte[] key) throws SodiumException {
         byte[] cipher = new byte[data.length + CRYPTO_AEAD_CHACHA20POLY1305_IETF_ABYTES];
+        encrypt(cipher, 0, data, 0, data.length, add, nonce, 0, key);
+        return cipher;
+    }
 
-        if (add == null) {
-            add = new byte[0];
+    public static byte[] decrypt(byte[] cipher, byte[] add, byte[] nonce, byte[] key) throws SodiumException {
+        if (cipher.length < CRYPTO_AEAD_CHACHA20POLY1305_IETF_ABYTES) {
+            throw new SodiumException("crypto_aead_chacha20poly1305_ietf_decrypt");
         }
+        byte[] data = new byte[cipher.length - CRYPTO_AEAD_CHACHA20POLY1305_IETF_ABYTES];
+        decrypt(data, 0, cipher, 0, cipher.length, add, nonce, 0, key);
+        return data;
+    }
 
-        exception(Sodium.crypto_aead_chacha20poly1305_ietf_encrypt(cipher, new int[0], data, data.length, add, add.length, new byte[0], nonce, key), "crypto_aead_chacha20poly1305_ietf_encrypt");
-        return cipher;
+    /**
+     * Encrypts {@code length} bytes of {@code data} at {@code offset} into {@code cipher} at
+     * {@code cipherOffset}, nonce read at {@code nonceOffset}. Both arrays may be the same
+     * one only when the offsets are equal.
+     *
+     * @return bytes written to {@code cipher}
+     */
+    public static int encrypt(byte[] cipher, int cipherOffset, byte[] data, int offset, int length,
+                              byte[] add, byte[] nonce, int nonceOffset, byte[] key) throws SodiumException {
+        range(data.length, offset, length);
+        range(cipher.length, cipherOffset, length + CRYPTO_AEAD_CHACHA20POLY1305_IETF_ABYTES);
+        range(nonce.length, nonceOffset, CRYPTO_AEAD_CHACHA20POLY1305_IETF_NONCEBYTES);
+        size(key, CRYPTO_AEAD_CHACHA20POLY1305_IETF_KEYBYTES, "key");
+
+        exception(provider(AEAD_CHACHA20POLY1305_IETF).aead_chacha20poly1305_ietf_encrypt(cipher, cipherOffset, data, offset, length,
+                add, 0, add == null ? 0 : add.length, nonce, nonceOffset, key), "crypto_aead_chacha20poly1305_ietf_encrypt");
+        return length + CRYPTO_AEAD_CHACHA20POLY1305_IETF_ABYTES;
     }
 
-    public static byte[] decrypt(byte[] cipher, byte[] add, byte[] nonce, byte[] key) throws SodiumException {
+    /**
+     * Decrypts {@code length} bytes of {@code cipher} at {@code offset} into {@code data} at
+     * {@code dataOffset}, nonce read at {@code nonceOffset}.
+     *
+     * @return bytes written to {@code data}
+     */
+    public static int decrypt(byte[] data, int dataOffset, byte[] cipher, int offset, int length,
+                              byte[] add, byte[] nonce, int nonceOffset, byte[] key) throws SodiumException {
+        if (length < CRYPTO_AEAD_CHACHA20POLY1305_IETF_ABYTES) {
+            throw new SodiumException("crypto_aead_chacha20poly1305_ietf_decrypt");
+        }
+        range(cipher.length, offset, length);
+        range(data.length, dataOffset, length - CRYPTO_AEAD_CHACHA20POLY1305_IETF_ABYTES);
+        range(nonce.length, nonceOffset, CRYPTO_AEAD_CHACHA20POLY1305_IETF_NONCEBYTES);
+        size(key, CRYPTO_AEAD_CHACHA20POLY1305_IETF_KEYBYTES, "key");
 
-        byte[] data = new byte[cipher.length - CRYPTO_AEAD_CHACHA20POLY1305_IETF_ABYTES];
-        if (add == null) {
-            add = new byte[0];
+        exception(provider(AEAD_CHACHA20POLY1305_IETF).aead_chacha20poly1305_ietf_decrypt(data, dataOffset, cipher, offset, length,
+                add, 0, add == null ? 0 : add.length, nonce, nonceOffset, key), "crypto_aead_chacha20poly1305_ietf_decrypt");
+        return length - CRYPTO_AEAD_CHACHA20POLY1305_IETF_ABYTES;
+    }
+
+    /**
+     * Encrypts the remaining bytes of {@code data} into {@code cipher}. Positions of both
+     * buffers are advanced only on success.
+     */
+    public static int encrypt(ByteBuffer cipher, ByteBuffer data, byte[] add, byte[] nonce, byte[] key) throws SodiumException {
+        int length = data.remaining();
+        int written = length + CRYPTO_AEAD_CHACHA20POLY1305_IETF_ABYTES;
+        space(cipher, written);
+
+        if (direct(cipher, data)) {
+            size(nonce, CRYPTO_AEAD_CHACHA20POLY1305_IETF_NONCEBYTES, "nonce");
+            size(key, CRYPTO_AEAD_CHACHA20POLY1305_IETF_KEYBYTES, "key");
+            exception(SodiumExt.aead_ietf_encrypt_direct(cipher, cipher.position(), data, data.position(), length,
+                    add, 0, add == null ? 0 : add.length, nonce, 0, key), "crypto_aead_chacha20poly1305_ietf_encrypt");
+        } else if (heap(cipher, data)) {
+            encrypt(cipher.array(), cipher.arrayOffset() + cipher.position(),
+                    data.array(), data.arrayOffset() + data.position(), length, add, nonce, 0, key);
+        } else {
+            cipher.duplicate().put(encrypt(remaining(data), add, nonce, key));
         }
+        data.position(data.limit());
+        cipher.position(cipher.position() + written);
+        return written;
+    }
 
-        exception(Sodium.crypto_aead_chacha20poly1305_ietf_decrypt(data, new int[0], new byte[0], cipher, cipher.length, add, add.length, nonce, key), "crypto_aead_chacha20poly1305_ietf_decrypt");
-        return data;
+    /**
+     * Decrypts the remaining bytes of {@code cipher} into {@code data}. Positions of both
+     * buffers are advanced only on success.
+     */
+    public static int decrypt(ByteBuffer data, ByteBuffer cipher, byte[] add, byte[] nonce, byte[] key) throws SodiumException {
+        int length = cipher.remaining();
+        if (length < CRYPTO_AEAD_CHACHA20POLY1305_IETF_ABYTES) {
+            throw new SodiumException("crypto_aead_chacha20poly1305_ietf_decrypt");
+        }
+        int written = length - CRYPTO_AEAD_CHACHA20POLY1305_IETF_ABYTES;
+        space(data, written);
+
+        if (direct(data, cipher)) {
+            size(nonce, CRYPTO_AEAD_CHACHA20POLY1305_IETF_NONCEBYTES, "nonce");
+            size(key, CRYPTO_AEAD_CHACHA20POLY1305_IETF_KEYBYTES, "key");
+            exception(SodiumExt.aead_ietf_decrypt_direct(data, data.position(), cipher, cipher.position(), length,
+                    add, 0, add == null ? 0 : add.length, nonce, 0, key), "crypto_aead_chacha20poly1305_ietf_decrypt");
+        } else if (heap(data, cipher)) {
+            decrypt(data.array(), data.arrayOffset() + data.position(),
+                    cipher.array(), cipher.arrayOffset() + cipher.position(), length, add, nonce, 0, key);
+        } else {
+            data.duplicate().put(decrypt(remaining(cipher), add, nonce, key));
+        }
+        cipher.position(cipher.limit());
+        data.position(data.position() + written);
+        return written;
+    }
+
+    /**
+     * Encrypts {@code inOffsets.length} messages, without additional data, in one native
+     * call when the native provider is selected, otherwise one provider call each. Message i spans {@code inLengths[i]} bytes at {@code inOffsets[i]} of {@code in};
+     * its cipher text is written at {@code outOffsets[i]} of {@code out}, using the nonce at
+     * {@code nonceOffsets[i]} of {@code nonces} and {@code keys[i]}. {@code nonces} may be
+     * {@code in} or {@code out}, e.g. for nonce prefixed records.
+     *
+     * @return number of failed messages, each flagged with a non zero entry in {@code results}
+     */
+    public static int encrypt_batch(byte[] out, int[] outOffsets, byte[] in, int[] inOffsets, int[] inLengths,
+                                    byte[] nonces, int[] nonceOffsets, byte[][] keys, int[] results) throws SodiumException {
+        int count = batch(inOffsets, inLengths, results);
+        if (outOffsets.length != count || nonceOffsets.length != count || keys.length != count) {
+            throw new IllegalArgumentException("Batch arrays differ in length");
+        }
+        for (int i = 0; i < count; i++) {
+            range(in.length, inOffsets[i], inLengths[i]);
+            range(out.length, outOffsets[i], inLengths[i] + CRYPTO_AEAD_CHACHA20POLY1305_IETF_ABYTES);
+            range(nonces.length, nonceOffsets[i], CRYPTO_AEAD_CHACHA20POLY1305_IETF_NONCEBYTES);
+            size(keys[i], CRYPTO_AEAD_CHACHA20POLY1305_IETF_KEYBYTES, "key");
+        }
+
+        if (nativeBatch()) {
+            int failures = SodiumExt.aead_ietf_encrypt_batch(out, outOffsets, in, inOffsets, inLengths, nonces, nonceOffsets, keys, results);
+            exception(failures < 0 ? -1 : 0, "crypto_aead_chacha20poly1305_ietf_encrypt_batch");
+            return failures;
+        }
+
+        int failures = 0;
+        for (int i = 0; i < count; i++) {
+            try {
+                encrypt(out, outOffsets[i], in, inOffsets[i], inLengths[i], null, nonces, nonceOffsets[i], keys[i]);
+                results[i] = 0;
+            } catch (SodiumException e) {
+                results[i] = -1;
+                failures++;
+            }
+        }
+        return failures;
+    }
+
+    /**
+     * Decrypts {@code inOffsets.length} cipher texts, without additional data, in one native
+     * call when the native provider is selected; the counterpart of {@link #encrypt_batch}. A failed message leaves its output
+     * range undefined.
+     *
+     * @return number of failed messages, each flagged with a non zero entry in {@code results}
+     */
+    public static int decrypt_batch(byte[] out, int[] outOffsets, byte[] in, int[] inOffsets, int[] inLengths,
+                                    byte[] nonces, int[] nonceOffsets, byte[][] keys, int[] results) throws SodiumException {
+        int count = batch(inOffsets, inLengths, results);
+        if (outOffsets.length != count || nonceOffsets.length != count || keys.length != count) {
+            throw new IllegalArgumentException("Batch arrays differ in length");
+        }
+        for (int i = 0; i < count; i++) {
+            if (inLengths[i] < CRYPTO_AEAD_CHACHA20POLY1305_IETF_ABYTES) {
+                throw new SodiumException("crypto_aead_chacha20poly1305_ietf_decrypt_batch");
+            }
+            range(in.length, inOffsets[i], inLengths[i]);
+            range(out.length, outOffsets[i], inLengths[i] - CRYPTO_AEAD_CHACHA20POLY1305_IETF_ABYTES);
+            range(nonces.length, nonceOffsets[i], CRYPTO_AEAD_CHACHA20POLY1305_IETF_NONCEBYTES);
+            size(keys[i], CRYPTO_AEAD_CHACHA20POLY1305_IETF_KEYBYTES, "key");
+        }
+
+        if (nativeBatch()) {
+            int failures = SodiumExt.aead_ietf_decrypt_batch(out, outOffsets, in, inOffsets, inLengths, nonces, nonceOffsets, keys, results);
+            exception(failures < 0 ? -1 : 0, "crypto_aead_chacha20poly1305_ietf_decrypt_batch");
+            return failures;
+        }
+
+        int failures = 0;
+        for (int i = 0; i < count; i++) {
+            try {
+                decrypt(out, outOffsets[i], in, inOffsets[i], inLengths[i], null, nonces, nonceOffsets[i], keys[i]);
+                results[i] = 0;
+            } catch (SodiumException e) {
+                results[i] = -1;
+                failures++;
+            }
+        }
+        return failures;
     }
 
+    /* The batch entry points bypass the providers, so they only stand in for the native one */
+    private static boolean nativeBatch() {
+        return SodiumExt.isAvailable() && NativeSodiumProvider.NAME.equals(provider(AEAD_CHACHA20POLY1305_IETF).getName());
+    }
+
+    /**
+     * @deprecated allocates a map per call, use {@link #encrypt_detached(byte[], byte[], byte[], byte[], byte[], byte[])}
+     */
+    @Deprecated
     public static Map<String, byte[]> encrypt_detached(byte[] data, byte[] add, byte[] nonce, byte[] key) throws SodiumException {
         byte[] cipher = new byte[data.length];
         byte[] tag = new byte[CRYPTO_AEAD_CHACHA20POLY1305_IETF_TAGBYTES];
-        if (add == null) {
-            add = new byte[0];
-        }
+        encrypt_detached(cipher, tag, data, add, nonce, key);
 
-        exception(Sodium.crypto_aead_chacha20poly1305_ietf_encrypt_detached(cipher, tag, new int[0], data, data.length, add, add.length, new byte[0], nonce, key), "crypto_aead_chacha20poly1305_ietf_encrypt_detached");
         Map<String, byte[]> result = new HashMap<>();
         result.put("cipher", cipher);
         result.put("tag", tag);
         return result;
     }
 
+    /* Writes data.length bytes of cipher text into `cipher` and the tag into `tag` */
+    public static void encrypt_detached(byte[] cipher, byte[] tag, byte[] data, byte[] add, byte[] nonce, byte[] key) throws SodiumException {
+        range(cipher.length, 0, data.length);
+        size(tag, CRYPTO_AEAD_CHACHA20POLY1305_IETF_TAGBYTES, "tag");
+        if (add == null) {
+            add = new byte[0];
+        }
+
+        exception(Sodium.crypto_aead_chacha20poly1305_ietf_encrypt_detached(cipher, tag, new int[0], data, data.length, add, add.length, new byte[0], nonce, key), "crypto_aead_chacha20poly1305_ietf_encrypt_detached");
+    }
+
     public static byte[] decrypt_detached(byte[] cipher, byte[] tag, byte[] add, byte[] nonce, byte[] key) throws SodiumException {
         
         byte[] data = new byte[cipher.length];
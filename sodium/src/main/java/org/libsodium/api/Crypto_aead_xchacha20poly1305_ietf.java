@@ -21,6 +21,8 @@ package org.libsodium.api;
 import java.util.HashMap;
 import java.util.Map;
 import static org.libsodium.api.Crypto.exception;
+import static org.libsodium.api.Crypto.range;
+import static org.libsodium.api.Crypto.size;
 import org.libsodium.jni.Sodium;
 import static org.libsodium.jni.SodiumConstants.CRYPTO_AEAD_XCHACHA20POLY1305_IETF_ABYTES;
 import static org.libsodium.jni.SodiumConstants.CRYPTO_AEAD_XCHACHA20POLY1305_IETF_KEYBYTES;
@@ -55,20 +57,32 @@ public class Crypto_aead_xchacha20poly1305_ietf {
         return data;
     }
 
+    /**
+     * @deprecated allocates a map per call, use {@link #encrypt_detached(byte[], byte[], byte[], byte[], byte[], byte[])}
+     */
+    @Deprecated
     public static Map<String, byte[]> encrypt_detached(byte[] data, byte[] add, byte[] nonce, byte[] key) throws SodiumException {
         byte[] cipher = new byte[data.length];
         byte[] tag = new byte[CRYPTO_AEAD_XCHACHA20POLY1305_IETF_TAGBYTES];
-        if (add == null) {
-            add = new byte[0];
-        }
+        encrypt_detached(cipher, tag, data, add, nonce, key);
 
-        exception(Sodium.crypto_aead_xchacha20poly1305_ietf_encrypt_detached(cipher, tag, new int[0], data, data.length, add, add.length, new byte[0], nonce, key), "crypto_aead_xchacha20poly1305_ietf_encrypt_detached");
         Map<String, byte[]> result = new HashMap<>();
         result.put("cipher", cipher);
         result.put("tag", tag);
         return result;
     }
 
+    /* Writes data.length bytes of cipher text into `cipher` and the tag into `tag` */
+    public static void encrypt_detached(byte[] cipher, byte[] tag, byte[] data, byte[] add, byte[] nonce, byte[] key) throws SodiumException {
+        range(cipher.length, 0, data.length);
+        size(tag, CRYPTO_AEAD_XCHACHA20POLY1305_IETF_TAGBYTES, "tag");
+        if (add == null) {
+            add = new byte[0];
+        }
+
+        exception(Sodium.crypto_aead_xchacha20poly1305_ietf_encrypt_detached(cipher, tag, new int[0], data, data.length, add, add.length, new byte[0], nonce, key), "crypto_aead_xchacha20poly1305_ietf_encrypt_detached");
+    }
+
     public static byte[] decrypt_detached(byte[] cipher, byte[] tag, byte[] add, byte[] nonce, byte[] key) throws SodiumException {
          byte[] data = new byte[cipher.length];
         if (add == null) {
@@ -22,6 +22,7 @@ import org.libsodium.jni.Sodium;
 import static org.libsodium.jni.SodiumConstants.CRYPTO_AUTH_HMACSHA256_BYTES;
 import static org.libsodium.jni.SodiumConstants.CRYPTO_AUTH_HMACSHA256_KEYBYTES;
 import org.libsodium.jni.SodiumException;
+import static org.libsodium.spi.SodiumProviders.Operation.AUTH_HMACSHA256;
 
 /**
  *
@@ -37,13 +38,21 @@ public class Crypto_auth_hmacsha256 extends Crypto{
     }
     
     public static byte[] hmacsha256(byte[] data, byte[] key) throws SodiumException {
+        size(key, CRYPTO_AUTH_HMACSHA256_KEYBYTES, "key");
         byte[] hash = new byte[CRYPTO_AUTH_HMACSHA256_BYTES];
-        exception(Sodium.crypto_auth_hmacsha256(hash, data, data.length, key), "crypto_auth_hmacsha256");
+        exception(provider(AUTH_HMACSHA256).auth_hmacsha256(hash, 0, data, 0, data.length, key), "crypto_auth_hmacsha256");
         return hash;
     }
     
      public static boolean verify(byte[] hash, byte[] data, byte[] key) throws SodiumException {
-        exception(Sodium.crypto_auth_hmacsha256_verify(hash, data, data.length, key), "crypto_auth_hmacsha256_verify");
+        size(hash, CRYPTO_AUTH_HMACSHA256_BYTES, "hash");
+        byte[] expected = hmacsha256(data, key);
+        /* Constant time, as crypto_verify_32 */
+        int diff = 0;
+        for (int i = 0; i < expected.length; i++) {
+            diff |= expected[i] ^ hash[i];
+        }
+        exception(diff == 0 ? 0 : -1, "crypto_auth_hmacsha256_verify");
         return true;
     }
 }
@@ -18,14 +18,17 @@
 
 package org.libsodium.api;
 
+import java.nio.ByteBuffer;
 import java.util.HashMap;
 import java.util.Map;
 import org.libsodium.jni.Sodium;
 import static org.libsodium.jni.SodiumConstants.CRYPTO_BOX_BEFORENMBYTES;
+import static org.libsodium.jni.SodiumConstants.CRYPTO_BOX_NONCEBYTES;
 import static org.libsodium.jni.SodiumConstants.CRYPTO_BOX_PUBLICKEYBYTES;
 import static org.libsodium.jni.SodiumConstants.CRYPTO_BOX_SEALBYTES;
 import static org.libsodium.jni.SodiumConstants.CRYPTO_BOX_SECRETKEYBYTES;
 import org.libsodium.jni.SodiumException;
+import org.libsodium.jni.SodiumExt;
 import static org.libsodium.jni.SodiumConstants.CRYPTO_BOX_TAGBYTES;
 
 /**
@@ -34,33 +37,55 @@ import static org.libsodium.jni.SodiumConstants.CRYPTO_BOX_TAGBYTES;
  */
 public class Crypto_box extends Crypto{
     
+    /**
+     * @deprecated allocates a map per call, use {@link #generate_keypair(byte[])}
+     */
+    @Deprecated
     public static Map<String, byte[]> seed_keypair(byte[] seed) throws SodiumException {
-        
-        byte[] pk = new byte[CRYPTO_BOX_PUBLICKEYBYTES];
-        byte[] sk = new byte[CRYPTO_BOX_SECRETKEYBYTES];
-
-        exception(Sodium.crypto_box_seed_keypair(pk, sk, seed), "crypto_box_seed_keypair");
-        
+        KeyPair pair = generate_keypair(seed);
         Map<String, byte[]> result = new HashMap<>();
-        result.put("pk", pk);
-        result.put("sk", sk);
-
+        result.put("pk", pair.getPk());
+        result.put("sk", pair.getSk());
         return result;
     }
+
+    public static KeyPair generate_keypair(byte[] seed) throws SodiumException {
+        KeyPair pair = new KeyPair(new byte[CRYPTO_BOX_PUBLICKEYBYTES], new byte[CRYPTO_BOX_SECRETKEYBYTES]);
+        seed_keypair(seed, pair.getPk(), pair.getSk());
+        return pair;
+    }
+
+    /* Writes the key pair into caller supplied arrays */
+    public static void seed_keypair(byte[] seed, byte[] pk, byte[] sk) throws SodiumException {
+        size(pk, CRYPTO_BOX_PUBLICKEYBYTES, "pk");
+        size(sk, CRYPTO_BOX_SECRETKEYBYTES, "sk");
+        exception(Sodium.crypto_box_seed_keypair(pk, sk, seed), "crypto_box_seed_keypair");
+    }
     
+    /**
+     * @deprecated allocates a map per call, use {@link #generate_keypair()}
+     */
+    @Deprecated
     public static Map<String, byte[]> keypair() throws SodiumException {
-        
-        byte[] pk = new byte[CRYPTO_BOX_PUBLICKEYBYTES];
-        byte[] sk = new byte[CRYPTO_BOX_SECRETKEYBYTES];
-
-        exception(Sodium.crypto_box_keypair(pk, sk), "crypto_box_keypair");
-        
+        KeyPair pair = generate_keypair();
         Map<String, byte[]> result = new HashMap<>();
-        result.put("pk", pk);
-        result.put("sk", sk);
-
+        result.put("pk", pair.getPk());
+        result.put("sk", pair.getSk());
         return result;
     }
+
+    public static KeyPair generate_keypair() throws SodiumException {
+        KeyPair pair = new KeyPair(new byte[CRYPTO_BOX_PUBLICKEYBYTES], new byte[CRYPTO_BOX_SECRETKEYBYTES]);
+        keypair(pair.getPk(), pair.getSk());
+        return pair;
+    }
+
+    /* Writes the key pair into caller supplied arrays */
+    public static void keypair(byte[] pk, byte[] sk) throws SodiumException {
+        size(pk, CRYPTO_BOX_PUBLICKEYBYTES, "pk");
+        size(sk, CRYPTO_BOX_SECRETKEYBYTES, "sk");
+        exception(Sodium.crypto_box_keypair(pk, sk), "crypto_box_keypair");
+    }
     
     public static byte[] easy(byte[] data, byte[] nonce, byte[] pk, byte[] sk) throws SodiumException {
         byte[] cipher = new byte[data.length + CRYPTO_BOX_TAGBYTES];
@@ -76,19 +101,122 @@ public class Crypto_box extends Crypto{
         return data;
     }
     
-    public static Map<String, byte[]> detached(byte[] data, byte[] nonce, byte[] pk, byte[] sk) throws SodiumException {
+    /**
+     * Offset variant of {@link #easy}, writes {@code length} + tag bytes at {@code cipherOffset}.
+     *
+     * @return bytes written to {@code cipher}
+     */
+    public static int easy(byte[] cipher, int cipherOffset, byte[] data, int offset, int length,
+                           byte[] nonce, int nonceOffset, byte[] pk, byte[] sk) throws SodiumException {
+        range(data.length, offset, length);
+        range(cipher.length, cipherOffset, length + CRYPTO_BOX_TAGBYTES);
+        range(nonce.length, nonceOffset, CRYPTO_BOX_NONCEBYTES);
+        size(pk, CRYPTO_BOX_PUBLICKEYBYTES, "pk");
+        size(sk, CRYPTO_BOX_SECRETKEYBYTES, "sk");
+
+        if (SodiumExt.isAvailable()) {
+            exception(SodiumExt.box_easy(cipher, cipherOffset, data, offset, length, nonce, nonceOffset, pk, sk), "crypto_box_easy");
+        } else {
+            byte[] result = easy(slice(data, offset, length), slice(nonce, nonceOffset, CRYPTO_BOX_NONCEBYTES), pk, sk);
+            System.arraycopy(result, 0, cipher, cipherOffset, result.length);
+        }
+        return length + CRYPTO_BOX_TAGBYTES;
+    }
+
+    /**
+     * Offset variant of {@link #open_easy}, reads {@code length} bytes of {@code cipher} at {@code offset}.
+     *
+     * @return bytes written to {@code data}
+     */
+    public static int open_easy(byte[] data, int dataOffset, byte[] cipher, int offset, int length,
+                                byte[] nonce, int nonceOffset, byte[] pk, byte[] sk) throws SodiumException {
+        if (length < CRYPTO_BOX_TAGBYTES) {
+            throw new SodiumException("crypto_box_open_easy");
+        }
+        range(cipher.length, offset, length);
+        range(data.length, dataOffset, length - CRYPTO_BOX_TAGBYTES);
+        range(nonce.length, nonceOffset, CRYPTO_BOX_NONCEBYTES);
+        size(pk, CRYPTO_BOX_PUBLICKEYBYTES, "pk");
+        size(sk, CRYPTO_BOX_SECRETKEYBYTES, "sk");
+
+        if (SodiumExt.isAvailable()) {
+            exception(SodiumExt.box_open_easy(data, dataOffset, cipher, offset, length, nonce, nonceOffset, pk, sk), "crypto_box_open_easy");
+        } else {
+            byte[] result = open_easy(slice(cipher, offset, length), slice(nonce, nonceOffset, CRYPTO_BOX_NONCEBYTES), pk, sk);
+            System.arraycopy(result, 0, data, dataOffset, result.length);
+        }
+        return length - CRYPTO_BOX_TAGBYTES;
+    }
 
+    /* Buffer variant of easy, positions advance only on success */
+    public static int easy(ByteBuffer cipher, ByteBuffer data, byte[] nonce, byte[] pk, byte[] sk) throws SodiumException {
+        int length = data.remaining();
+        int written = length + CRYPTO_BOX_TAGBYTES;
+        space(cipher, written);
+
+        if (direct(cipher, data)) {
+            size(nonce, CRYPTO_BOX_NONCEBYTES, "nonce");
+        size(pk, CRYPTO_BOX_PUBLICKEYBYTES, "pk");
+        size(sk, CRYPTO_BOX_SECRETKEYBYTES, "sk");
+            exception(SodiumExt.box_easy_direct(cipher, cipher.position(), data, data.position(), length, nonce, 0, pk, sk), "crypto_box_easy");
+        } else if (heap(cipher, data)) {
+            easy(cipher.array(), cipher.arrayOffset() + cipher.position(),
+                    data.array(), data.arrayOffset() + data.position(), length, nonce, 0, pk, sk);
+        } else {
+            cipher.duplicate().put(easy(remaining(data), nonce, pk, sk));
+        }
+        data.position(data.limit());
+        cipher.position(cipher.position() + written);
+        return written;
+    }
+
+    /* Buffer variant of open_easy, positions advance only on success */
+    public static int open_easy(ByteBuffer data, ByteBuffer cipher, byte[] nonce, byte[] pk, byte[] sk) throws SodiumException {
+        int length = cipher.remaining();
+        if (length < CRYPTO_BOX_TAGBYTES) {
+            throw new SodiumException("crypto_box_open_easy");
+        }
+        int written = length - CRYPTO_BOX_TAGBYTES;
+        space(data, written);
+
+        if (direct(data, cipher)) {
+            size(nonce, CRYPTO_BOX_NONCEBYTES, "nonce");
+        size(pk, CRYPTO_BOX_PUBLICKEYBYTES, "pk");
+        size(sk, CRYPTO_BOX_SECRETKEYBYTES, "sk");
+            exception(SodiumExt.box_open_easy_direct(data, data.position(), cipher, cipher.position(), length, nonce, 0, pk, sk), "crypto_box_open_easy");
+        } else if (heap(data, cipher)) {
+            open_easy(data.array(), data.arrayOffset() + data.position(),
+                    cipher.array(), cipher.arrayOffset() + cipher.position(), length, nonce, 0, pk, sk);
+        } else {
+            data.duplicate().put(open_easy(remaining(cipher), nonce, pk, sk));
+        }
+        cipher.position(cipher.limit());
+        data.position(data.position() + written);
+        return written;
+    }
+
+    /**
+     * @deprecated allocates a map per call, use {@link #detached(byte[], byte[], byte[], byte[], byte[], byte[])}
+     */
+    @Deprecated
+    public static Map<String, byte[]> detached(byte[] data, byte[] nonce, byte[] pk, byte[] sk) throws SodiumException {
         byte[] cipher = new byte[data.length];
         byte[] tag = new byte[CRYPTO_BOX_TAGBYTES];
-
-        exception(Sodium.crypto_box_detached(cipher, tag, data, data.length, nonce, pk, sk), "crypto_box_detached");
+        detached(cipher, tag, data, nonce, pk, sk);
 
         Map<String, byte[]> result = new HashMap<>();
         result.put("cipher", cipher);
         result.put("tag", tag);
-
         return result;
     }
+
+    /* Writes data.length bytes of cipher text into `cipher` and the tag into `tag` */
+    public static void detached(byte[] cipher, byte[] tag, byte[] data, byte[] nonce, byte[] pk, byte[] sk) throws SodiumException {
+        range(cipher.length, 0, data.length);
+        size(tag, CRYPTO_BOX_TAGBYTES, "tag");
+
+        exception(Sodium.crypto_box_detached(cipher, tag, data, data.length, nonce, pk, sk), "crypto_box_detached");
+    }
  
     public static byte[] open_detached(byte[] cipher, byte[] tag, byte[] nonce, byte[] pk, byte[] sk) throws SodiumException {
 
@@ -120,19 +248,28 @@ public class Crypto_box extends Crypto{
         return data;
     }
     
+    /**
+     * @deprecated allocates a map per call, use {@link #detached_afternm(byte[], byte[], byte[], byte[], byte[])}
+     */
+    @Deprecated
     public static Map<String, byte[]> detached_afternm(byte[] data, byte[] nonce, byte[] key) throws SodiumException {
-
         byte[] cipher = new byte[data.length];
         byte[] tag = new byte[CRYPTO_BOX_TAGBYTES];
-
-        exception(Sodium.crypto_box_detached_afternm(cipher, tag, data, data.length, nonce, key), "crypto_box_detached_afternm");
+        detached_afternm(cipher, tag, data, nonce, key);
 
         Map<String, byte[]> result = new HashMap<>();
         result.put("cipher", cipher);
         result.put("tag", tag);
-
         return result;
     }
+
+    /* Writes data.length bytes of cipher text into `cipher` and the tag into `tag` */
+    public static void detached_afternm(byte[] cipher, byte[] tag, byte[] data, byte[] nonce, byte[] key) throws SodiumException {
+        range(cipher.length, 0, data.length);
+        size(tag, CRYPTO_BOX_TAGBYTES, "tag");
+
+        exception(Sodium.crypto_box_detached_afternm(cipher, tag, data, data.length, nonce, key), "crypto_box_detached_afternm");
+    }
     
     public static byte[] open_detached_afternm(byte[] cipher, byte[] tag, byte[] nonce, byte[] key) throws SodiumException {
  
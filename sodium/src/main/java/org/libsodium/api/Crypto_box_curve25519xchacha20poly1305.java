@@ -34,33 +34,55 @@ import org.libsodium.jni.SodiumException;
  */
 public class Crypto_box_curve25519xchacha20poly1305 extends Crypto{
     
+    /**
+     * @deprecated allocates a map per call, use {@link #generate_keypair(byte[])}
+     */
+    @Deprecated
     public static Map<String, byte[]> seed_keypair(byte[] seed) throws SodiumException {
-        
-        byte[] pk = new byte[CRYPTO_BOX_CURVE25519XCHACHA20POLY1305_PUBLICKEYBYTES];
-        byte[] sk = new byte[CRYPTO_BOX_CURVE25519XCHACHA20POLY1305_SECRETKEYBYTES];
-
-        exception(Sodium.crypto_box_curve25519xchacha20poly1305_seed_keypair(pk, sk, seed), "crypto_box_curve25519xchacha20poly1305_seed_keypair");
-        
+        KeyPair pair = generate_keypair(seed);
         Map<String, byte[]> result = new HashMap<>();
-        result.put("pk", pk);
-        result.put("sk", sk);
-
+        result.put("pk", pair.getPk());
+        result.put("sk", pair.getSk());
         return result;
     }
+
+    public static KeyPair generate_keypair(byte[] seed) throws SodiumException {
+        KeyPair pair = new KeyPair(new byte[CRYPTO_BOX_CURVE25519XCHACHA20POLY1305_PUBLICKEYBYTES], new byte[CRYPTO_BOX_CURVE25519XCHACHA20POLY1305_SECRETKEYBYTES]);
+        seed_keypair(seed, pair.getPk(), pair.getSk());
+        return pair;
+    }
+
+    /* Writes the key pair into caller supplied arrays */
+    public static void seed_keypair(byte[] seed, byte[] pk, byte[] sk) throws SodiumException {
+        size(pk, CRYPTO_BOX_CURVE25519XCHACHA20POLY1305_PUBLICKEYBYTES, "pk");
+        size(sk, CRYPTO_BOX_CURVE25519XCHACHA20POLY1305_SECRETKEYBYTES, "sk");
+        exception(Sodium.crypto_box_curve25519xchacha20poly1305_seed_keypair(pk, sk, seed), "crypto_box_curve25519xchacha20poly1305_seed_keypair");
+    }
     
+    /**
+     * @deprecated allocates a map per call, use {@link #generate_keypair()}
+     */
+    @Deprecated
     public static Map<String, byte[]> keypair() throws SodiumException {
-        
-        byte[] pk = new byte[CRYPTO_BOX_CURVE25519XCHACHA20POLY1305_PUBLICKEYBYTES];
-        byte[] sk = new byte[CRYPTO_BOX_CURVE25519XCHACHA20POLY1305_SECRETKEYBYTES];
-
-        exception(Sodium.crypto_box_curve25519xchacha20poly1305_keypair(pk, sk), "crypto_box_curve25519xchacha20poly1305_keypair");
-        
+        KeyPair pair = generate_keypair();
         Map<String, byte[]> result = new HashMap<>();
-        result.put("pk", pk);
-        result.put("sk", sk);
-
+        result.put("pk", pair.getPk());
+        result.put("sk", pair.getSk());
         return result;
     }
+
+    public static KeyPair generate_keypair() throws SodiumException {
+        KeyPair pair = new KeyPair(new byte[CRYPTO_BOX_CURVE25519XCHACHA20POLY1305_PUBLICKEYBYTES], new byte[CRYPTO_BOX_CURVE25519XCHACHA20POLY1305_SECRETKEYBYTES]);
+        keypair(pair.getPk(), pair.getSk());
+        return pair;
+    }
+
+    /* Writes the key pair into caller supplied arrays */
+    public static void keypair(byte[] pk, byte[] sk) throws SodiumException {
+        size(pk, CRYPTO_BOX_CURVE25519XCHACHA20POLY1305_PUBLICKEYBYTES, "pk");
+        size(sk, CRYPTO_BOX_CURVE25519XCHACHA20POLY1305_SECRETKEYBYTES, "sk");
+        exception(Sodium.crypto_box_curve25519xchacha20poly1305_keypair(pk, sk), "crypto_box_curve25519xchacha20poly1305_keypair");
+    }
     
     public static byte[] easy(byte[] data, byte[] nonce, byte[] pk, byte[] sk) throws SodiumException {
        
@@ -76,19 +98,28 @@ public class Crypto_box_curve25519xchacha20poly1305 extends Crypto{
         return data;
     }
     
+    /**
+     * @deprecated allocates a map per call, use {@link #detached(byte[], byte[], byte[], byte[], byte[], byte[])}
+     */
+    @Deprecated
     public static Map<String, byte[]> detached(byte[] data, byte[] nonce, byte[] pk, byte[] sk) throws SodiumException {
-
         byte[] cipher = new byte[data.length];
         byte[] tag = new byte[CRYPTO_BOX_CURVE25519XCHACHA20POLY1305_TAGBYTES];
-
-        exception(Sodium.crypto_box_curve25519xchacha20poly1305_detached(cipher, tag, data, data.length, nonce, pk, sk), "crypto_box_curve25519xchacha20poly1305_detached");
+        detached(cipher, tag, data, nonce, pk, sk);
 
         Map<String, byte[]> result = new HashMap<>();
         result.put("cipher", cipher);
         result.put("tag", tag);
-
         return result;
     }
+
+    /* Writes data.length bytes of cipher text into `cipher` and the tag into `tag` */
+    public static void detached(byte[] cipher, byte[] tag, byte[] data, byte[] nonce, byte[] pk, byte[] sk) throws SodiumException {
+        range(cipher.length, 0, data.length);
+        size(tag, CRYPTO_BOX_CURVE25519XCHACHA20POLY1305_TAGBYTES, "tag");
+
+        exception(Sodium.crypto_box_curve25519xchacha20poly1305_detached(cipher, tag, data, data.length, nonce, pk, sk), "crypto_box_curve25519xchacha20poly1305_detached");
+    }
  
     public static byte[] open_detached(byte[] cipher, byte[] tag, byte[] nonce, byte[] pk, byte[] sk) throws SodiumException {
 
@@ -120,19 +151,28 @@ public class Crypto_box_curve25519xchacha20poly1305 extends Crypto{
         return data;
     }
     
+    /**
+     * @deprecated allocates a map per call, use {@link #detached_afternm(byte[], byte[], byte[], byte[], byte[])}
+     */
+    @Deprecated
     public static Map<String, byte[]> detached_afternm(byte[] data, byte[] nonce, byte[] key) throws SodiumException {
-
         byte[] cipher = new byte[data.length];
         byte[] tag = new byte[CRYPTO_BOX_CURVE25519XCHACHA20POLY1305_TAGBYTES];
-
-        exception(Sodium.crypto_box_curve25519xchacha20poly1305_detached_afternm(cipher, tag, data, data.length, nonce, key), "crypto_box_curve25519xchacha20poly1305_detached_afternm");
+        detached_afternm(cipher, tag, data, nonce, key);
 
         Map<String, byte[]> result = new HashMap<>();
         result.put("cipher", cipher);
         result.put("tag", tag);
-
         return result;
     }
+
+    /* Writes data.length bytes of cipher text into `cipher` and the tag into `tag` */
+    public static void detached_afternm(byte[] cipher, byte[] tag, byte[] data, byte[] nonce, byte[] key) throws SodiumException {
+        range(cipher.length, 0, data.length);
+        size(tag, CRYPTO_BOX_CURVE25519XCHACHA20POLY1305_TAGBYTES, "tag");
+
+        exception(Sodium.crypto_box_curve25519xchacha20poly1305_detached_afternm(cipher, tag, data, data.length, nonce, key), "crypto_box_curve25519xchacha20poly1305_detached_afternm");
+    }
     
     public static byte[] open_detached_afternm(byte[] cipher, byte[] tag,  byte[] nonce, byte[] key) throws SodiumException {
 
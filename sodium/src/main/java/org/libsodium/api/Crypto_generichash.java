@@ -18,10 +18,47 @@
 
 package org.libsodium.api;
 
+import org.libsodium.jni.Sodium;
+import static org.libsodium.jni.SodiumConstants.CRYPTO_GENERICHASH_BYTES;
+import static org.libsodium.jni.SodiumConstants.CRYPTO_GENERICHASH_BYTES_MAX;
+import static org.libsodium.jni.SodiumConstants.CRYPTO_GENERICHASH_BYTES_MIN;
+import static org.libsodium.jni.SodiumConstants.CRYPTO_GENERICHASH_KEYBYTES_MAX;
+import org.libsodium.jni.SodiumException;
+import org.libsodium.jni.SodiumExt;
+
 /**
  *
  * @author ITON Solutions
  */
-public class Crypto_generichash {
+public class Crypto_generichash extends Crypto {
+
+    public static byte[] generichash(byte[] data) throws SodiumException {
+        return generichash(data, null, CRYPTO_GENERICHASH_BYTES);
+    }
+
+    public static byte[] generichash(byte[] data, byte[] key, int length) throws SodiumException {
+        check(key, length);
+        byte[] hash = new byte[length];
+        exception(Sodium.crypto_generichash(hash, length, data, data.length, key == null ? new byte[0] : key, key == null ? 0 : key.length), "crypto_generichash");
+        return hash;
+    }
+
+    /* Multi-part unkeyed BLAKE2b with the default output length, see {@link HashState} */
+    public static HashState init() throws SodiumException {
+        return init(null, CRYPTO_GENERICHASH_BYTES);
+    }
+
+    public static HashState init(byte[] key, int length) throws SodiumException {
+        check(key, length);
+        return new HashState(SodiumExt.HASH_BLAKE2B, key, length);
+    }
 
+    private static void check(byte[] key, int length) {
+        if (length < CRYPTO_GENERICHASH_BYTES_MIN || length > CRYPTO_GENERICHASH_BYTES_MAX) {
+            throw new IllegalArgumentException(String.format("Invalid hash length %d", length));
+        }
+        if (key != null && key.length > CRYPTO_GENERICHASH_KEYBYTES_MAX) {
+            throw new IllegalArgumentException(String.format("Invalid key length %d", key.length));
+        }
+    }
 }
@@ -19,9 +19,11 @@
 
 package org.libsodium.api;
 
-import org.libsodium.jni.Sodium;
+import java.nio.ByteBuffer;
 import static org.libsodium.jni.SodiumConstants.CRYPTO_HASH_SHA256;
 import org.libsodium.jni.SodiumException;
+import org.libsodium.jni.SodiumExt;
+import static org.libsodium.spi.SodiumProviders.Operation.HASH_SHA256;
 
 /**
  *
@@ -29,9 +31,38 @@ import org.libsodium.jni.SodiumException;
  */
 public class Crypto_hash_sha256 extends Crypto{
     
+    /* Multi-part hashing, see {@link HashState} */
+    public static HashState init() throws SodiumException {
+        return HashState.sha256();
+    }
+
     public static byte[] sha256(byte[] message) throws SodiumException  {
         byte[] hash = new byte[CRYPTO_HASH_SHA256];
-        exception(Sodium.crypto_hash_sha256(hash, message, message.length), "crypto_hash_sha256");
+        sha256(hash, 0, message, 0, message.length);
+        return hash;
+    }
+
+    /* Hashes {@code length} bytes of {@code message} at {@code offset} into {@code hash} at {@code hashOffset} */
+    public static int sha256(byte[] hash, int hashOffset, byte[] message, int offset, int length) throws SodiumException {
+        range(message.length, offset, length);
+        range(hash.length, hashOffset, CRYPTO_HASH_SHA256);
+
+        exception(provider(HASH_SHA256).hash_sha256(hash, hashOffset, message, offset, length), "crypto_hash_sha256");
+        return CRYPTO_HASH_SHA256;
+    }
+
+    /* Hashes the remaining bytes of {@code message}, its position advances only on success */
+    public static byte[] sha256(ByteBuffer message) throws SodiumException {
+        byte[] hash = new byte[CRYPTO_HASH_SHA256];
+
+        if (direct(message)) {
+            exception(SodiumExt.hash_sha256_direct(hash, 0, message, message.position(), message.remaining()), "crypto_hash_sha256");
+        } else if (message.hasArray()) {
+            sha256(hash, 0, message.array(), message.arrayOffset() + message.position(), message.remaining());
+        } else {
+            hash = sha256(remaining(message));
+        }
+        message.position(message.limit());
         return hash;
     }
-}
+}
\ No newline at end of file
@@ -0,0 +1,72 @@
+/*
+ *
+ *  * Copyright 2021 UBICUA.
+ *  *
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  *
+ *  *      http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ *
+ */
+
+
+package org.libsodium.api;
+
+import java.nio.ByteBuffer;
+import org.libsodium.jni.Sodium;
+import static org.libsodium.jni.SodiumConstants.CRYPTO_HASH_SHA512;
+import org.libsodium.jni.SodiumException;
+import org.libsodium.jni.SodiumExt;
+
+/**
+ *
+ * @author UBICUA
+ */
+public class Crypto_hash_sha512 extends Crypto {
+
+    /* Multi-part hashing, see {@link HashState} */
+    public static HashState init() throws SodiumException {
+        return HashState.sha512();
+    }
+
+    public static byte[] sha512(byte[] message) throws SodiumException {
+        byte[] hash = new byte[CRYPTO_HASH_SHA512];
+        exception(Sodium.crypto_hash_sha512(hash, message, message.length), "crypto_hash_sha512");
+        return hash;
+    }
+
+    /* Hashes {@code length} bytes of {@code message} at {@code offset} into {@code hash} at {@code hashOffset} */
+    public static int sha512(byte[] hash, int hashOffset, byte[] message, int offset, int length) throws SodiumException {
+        range(message.length, offset, length);
+        range(hash.length, hashOffset, CRYPTO_HASH_SHA512);
+
+        if (SodiumExt.isAvailable()) {
+            exception(SodiumExt.hash_sha512(hash, hashOffset, message, offset, length), "crypto_hash_sha512");
+        } else {
+            System.arraycopy(sha512(slice(message, offset, length)), 0, hash, hashOffset, CRYPTO_HASH_SHA512);
+        }
+        return CRYPTO_HASH_SHA512;
+    }
+
+    /* Hashes the remaining bytes of {@code message}, its position advances only on success */
+    public static byte[] sha512(ByteBuffer message) throws SodiumException {
+        byte[] hash = new byte[CRYPTO_HASH_SHA512];
+
+        if (direct(message)) {
+            exception(SodiumExt.hash_sha512_direct(hash, 0, message, message.position(), message.remaining()), "crypto_hash_sha512");
+        } else if (message.hasArray()) {
+            sha512(hash, 0, message.array(), message.arrayOffset() + message.position(), message.remaining());
+        } else {
+            hash = sha512(remaining(message));
+        }
+        message.position(message.limit());
+        return hash;
+    }
+}
@@ -32,6 +32,10 @@ import org.libsodium.jni.SodiumException;
 public class Crypto_pwhash extends Crypto {
     
     public static byte[] pwhash(byte[] credentials, byte[] salt, int opslimit, int memlimit) throws SodiumException {
+        return pwhash(credentials, salt, opslimit, memlimit, CRYPTO_PWHASH_ALG_ARGON2I);
+    }
+
+    public static byte[] pwhash(byte[] credentials, byte[] salt, int opslimit, int memlimit, int alg) throws SodiumException {
         
         byte[] hash = new byte[CRYPTO_AEAD_CHACHA20POLY1305_IETF_KEYBYTES];
         
@@ -43,7 +47,7 @@ public class Crypto_pwhash extends Crypto {
                 salt,
                 opslimit,
                 memlimit,
-                CRYPTO_PWHASH_ALG_ARGON2I), "crypto_pwhash");
+                alg), "crypto_pwhash");
         
         return hash;
     }
@@ -18,12 +18,15 @@
 
 package org.libsodium.api;
 
+import java.nio.ByteBuffer;
 import java.util.HashMap;
 import java.util.Map;
 import org.libsodium.jni.Sodium;
 import static org.libsodium.jni.SodiumConstants.CRYPTO_SECRETBOX_KEYBYTES;
+import static org.libsodium.jni.SodiumConstants.CRYPTO_SECRETBOX_NONCEBYTES;
 import static org.libsodium.jni.SodiumConstants.CRYPTO_SECRETBOX_TAGBYTES;
 import org.libsodium.jni.SodiumException;
+import org.libsodium.jni.SodiumExt;
 
 /**
  *
@@ -45,18 +48,118 @@ public class Crypto_secretbox extends Crypto{
         return data;
     }
     
+    /**
+     * Offset variant of {@link #easy}, writes {@code length} + tag bytes at {@code cipherOffset}.
+     *
+     * @return bytes written to {@code cipher}
+     */
+    public static int easy(byte[] cipher, int cipherOffset, byte[] data, int offset, int length,
+                           byte[] nonce, int nonceOffset, byte[] key) throws SodiumException {
+        range(data.length, offset, length);
+        range(cipher.length, cipherOffset, length + CRYPTO_SECRETBOX_TAGBYTES);
+        range(nonce.length, nonceOffset, CRYPTO_SECRETBOX_NONCEBYTES);
+        size(key, CRYPTO_SECRETBOX_KEYBYTES, "key");
+
+        if (SodiumExt.isAvailable()) {
+            exception(SodiumExt.secretbox_easy(cipher, cipherOffset, data, offset, length, nonce, nonceOffset, key), "crypto_secretbox_easy");
+        } else {
+            byte[] result = easy(slice(data, offset, length), slice(nonce, nonceOffset, CRYPTO_SECRETBOX_NONCEBYTES), key);
+            System.arraycopy(result, 0, cipher, cipherOffset, result.length);
+        }
+        return length + CRYPTO_SECRETBOX_TAGBYTES;
+    }
+
+    /**
+     * Offset variant of {@link #open_easy}, reads {@code length} bytes of {@code cipher} at {@code offset}.
+     *
+     * @return bytes written to {@code data}
+     */
+    public static int open_easy(byte[] data, int dataOffset, byte[] cipher, int offset, int length,
+                                byte[] nonce, int nonceOffset, byte[] key) throws SodiumException {
+        if (length < CRYPTO_SECRETBOX_TAGBYTES) {
+            throw new SodiumException("crypto_secretbox_open_easy");
+        }
+        range(cipher.length, offset, length);
+        range(data.length, dataOffset, length - CRYPTO_SECRETBOX_TAGBYTES);
+        range(nonce.length, nonceOffset, CRYPTO_SECRETBOX_NONCEBYTES);
+        size(key, CRYPTO_SECRETBOX_KEYBYTES, "key");
+
+        if (SodiumExt.isAvailable()) {
+            exception(SodiumExt.secretbox_open_easy(data, dataOffset, cipher, offset, length, nonce, nonceOffset, key), "crypto_secretbox_open_easy");
+        } else {
+            byte[] result = open_easy(slice(cipher, offset, length), slice(nonce, nonceOffset, CRYPTO_SECRETBOX_NONCEBYTES), key);
+            System.arraycopy(result, 0, data, dataOffset, result.length);
+        }
+        return length - CRYPTO_SECRETBOX_TAGBYTES;
+    }
+
+    /* Buffer variant of easy, positions advance only on success */
+    public static int easy(ByteBuffer cipher, ByteBuffer data, byte[] nonce, byte[] key) throws SodiumException {
+        int length = data.remaining();
+        int written = length + CRYPTO_SECRETBOX_TAGBYTES;
+        space(cipher, written);
+
+        if (direct(cipher, data)) {
+            size(nonce, CRYPTO_SECRETBOX_NONCEBYTES, "nonce");
+        size(key, CRYPTO_SECRETBOX_KEYBYTES, "key");
+            exception(SodiumExt.secretbox_easy_direct(cipher, cipher.position(), data, data.position(), length, nonce, 0, key), "crypto_secretbox_easy");
+        } else if (heap(cipher, data)) {
+            easy(cipher.array(), cipher.arrayOffset() + cipher.position(),
+                    data.array(), data.arrayOffset() + data.position(), length, nonce, 0, key);
+        } else {
+            cipher.duplicate().put(easy(remaining(data), nonce, key));
+        }
+        data.position(data.limit());
+        cipher.position(cipher.position() + written);
+        return written;
+    }
+
+    /* Buffer variant of open_easy, positions advance only on success */
+    public static int open_easy(ByteBuffer data, ByteBuffer cipher, byte[] nonce, byte[] key) throws SodiumException {
+        int length = cipher.remaining();
+        if (length < CRYPTO_SECRETBOX_TAGBYTES) {
+            throw new SodiumException("crypto_secretbox_open_easy");
+        }
+        int written = length - CRYPTO_SECRETBOX_TAGBYTES;
+        space(data, written);
+
+        if (direct(data, cipher)) {
+            size(nonce, CRYPTO_SECRETBOX_NONCEBYTES, "nonce");
+        size(key, CRYPTO_SECRETBOX_KEYBYTES, "key");
+            exception(SodiumExt.secretbox_open_easy_direct(data, data.position(), cipher, cipher.position(), length, nonce, 0, key), "crypto_secretbox_open_easy");
+        } else if (heap(data, cipher)) {
+            open_easy(data.array(), data.arrayOffset() + data.position(),
+                    cipher.array(), cipher.arrayOffset() + cipher.position(), length, nonce, 0, key);
+        } else {
+            data.duplicate().put(open_easy(remaining(cipher), nonce, key));
+        }
+        cipher.position(cipher.limit());
+        data.position(data.position() + written);
+        return written;
+    }
+
+    /**
+     * @deprecated allocates a map per call, use {@link #detached(byte[], byte[], byte[], byte[], byte[])}
+     */
+    @Deprecated
     public static Map<String, byte[]> detached(byte[] data, byte[] nonce, byte[] key) throws SodiumException {
         byte[] cipher = new byte[data.length];
         byte[] tag = new byte[CRYPTO_SECRETBOX_TAGBYTES];
-
-        exception(Sodium.crypto_secretbox_detached(cipher, tag, data, data.length, nonce, key), "crypto_secretbox_detached");
+        detached(cipher, tag, data, nonce, key);
 
         Map<String, byte[]> result = new HashMap<>();
         result.put("cipher", cipher);
         result.put("tag", tag);
-
         return result;
     }
+
+    /* Writes data.length bytes of cipher text into `cipher` and the tag into `tag` */
+    public static void detached(byte[] cipher, byte[] tag, byte[] data, byte[] nonce, byte[] key) throws SodiumException {
+        range(cipher.length, 0, data.length);
+        size(tag, CRYPTO_SECRETBOX_TAGBYTES, "tag");
+
+        exception(Sodium.crypto_secretbox_detached(cipher, tag, data, data.length, nonce, key), "crypto_secretbox_detached");
+    }
     
     public static byte[] open_detached(byte[] cipher, byte[] tag, byte[] nonce, byte[] key) throws SodiumException {
         byte[] data = new byte[cipher.length];
@@ -0,0 +1,131 @@
+/*
+ *
+ *  * Copyright 2021 UBICUA.
+ *  *
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  *
+ *  *      http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ *
+ */
+
+package org.libsodium.api;
+
+import java.util.Arrays;
+import org.libsodium.jni.Sodium;
+import static org.libsodium.jni.SodiumConstants.CRYPTO_SECRETSTREAM_XCHACHA20POLY1305_ABYTES;
+import static org.libsodium.jni.SodiumConstants.CRYPTO_SECRETSTREAM_XCHACHA20POLY1305_HEADERBYTES;
+import static org.libsodium.jni.SodiumConstants.CRYPTO_SECRETSTREAM_XCHACHA20POLY1305_KEYBYTES;
+import static org.libsodium.jni.SodiumConstants.CRYPTO_SECRETSTREAM_XCHACHA20POLY1305_STATEBYTES;
+import org.libsodium.jni.SodiumException;
+
+/**
+ * Chunked authenticated encryption with crypto_secretstream_xchacha20poly1305.
+ * Each message carries a tag; reordered, dropped or truncated chunks fail to
+ * pull, and only a chunk tagged {@code TAG_FINAL} ends the stream.
+ *
+ * @author UBICUA
+ */
+public class Crypto_secretstream_xchacha20poly1305 extends Crypto {
+
+    public static byte[] keygen() {
+        byte[] key = new byte[CRYPTO_SECRETSTREAM_XCHACHA20POLY1305_KEYBYTES];
+        Sodium.crypto_secretstream_xchacha20poly1305_keygen(key);
+        return key;
+    }
+
+    public static byte[] state() {
+        return new byte[CRYPTO_SECRETSTREAM_XCHACHA20POLY1305_STATEBYTES];
+    }
+
+    /* Initializes `state` for encryption, returns the header the receiver needs */
+    public static byte[] init_push(byte[] state, byte[] key) throws SodiumException {
+        size(state, CRYPTO_SECRETSTREAM_XCHACHA20POLY1305_STATEBYTES, "state");
+        size(key, CRYPTO_SECRETSTREAM_XCHACHA20POLY1305_KEYBYTES, "key");
+
+        byte[] header = new byte[CRYPTO_SECRETSTREAM_XCHACHA20POLY1305_HEADERBYTES];
+        exception(Sodium.crypto_secretstream_xchacha20poly1305_init_push(state, header, key), "crypto_secretstream_xchacha20poly1305_init_push");
+        return header;
+    }
+
+    public static byte[] push(byte[] state, byte[] data, byte[] add, byte tag) throws SodiumException {
+        byte[] cipher = new byte[data.length + CRYPTO_SECRETSTREAM_XCHACHA20POLY1305_ABYTES];
+        push(state, cipher, data, data.length, add, tag);
+        return cipher;
+    }
+
+    /**
+     * Encrypts the first {@code length} bytes of {@code data} into {@code cipher}, so
+     * both arrays can be reused across chunks.
+     *
+     * @return bytes written to {@code cipher}
+     */
+    public static int push(byte[] state, byte[] cipher, byte[] data, int length, byte[] add, byte tag) throws SodiumException {
+        size(state, CRYPTO_SECRETSTREAM_XCHACHA20POLY1305_STATEBYTES, "state");
+        range(data.length, 0, length);
+        range(cipher.length, 0, length + CRYPTO_SECRETSTREAM_XCHACHA20POLY1305_ABYTES);
+
+        if (add == null) {
+            add = new byte[0];
+        }
+        exception(Sodium.crypto_secretstream_xchacha20poly1305_push(state, cipher, new int[1], data, length, add, add.length, (short) (tag & 0xff)), "crypto_secretstream_xchacha20poly1305_push");
+        return length + CRYPTO_SECRETSTREAM_XCHACHA20POLY1305_ABYTES;
+    }
+
+    public static void init_pull(byte[] state, byte[] header, byte[] key) throws SodiumException {
+        size(state, CRYPTO_SECRETSTREAM_XCHACHA20POLY1305_STATEBYTES, "state");
+        size(header, CRYPTO_SECRETSTREAM_XCHACHA20POLY1305_HEADERBYTES, "header");
+        size(key, CRYPTO_SECRETSTREAM_XCHACHA20POLY1305_KEYBYTES, "key");
+
+        exception(Sodium.crypto_secretstream_xchacha20poly1305_init_pull(state, header, key), "crypto_secretstream_xchacha20poly1305_init_pull");
+    }
+
+    /* Decrypts a whole chunk, its tag is stored in tag[0] */
+    public static byte[] pull(byte[] state, byte[] cipher, byte[] add, byte[] tag) throws SodiumException {
+        if (cipher.length < CRYPTO_SECRETSTREAM_XCHACHA20POLY1305_ABYTES) {
+            throw new SodiumException("crypto_secretstream_xchacha20poly1305_pull");
+        }
+        byte[] data = new byte[cipher.length - CRYPTO_SECRETSTREAM_XCHACHA20POLY1305_ABYTES];
+        pull(state, data, cipher, cipher.length, add, tag);
+        return data;
+    }
+
+    /**
+     * Decrypts the first {@code length} bytes of {@code cipher} into {@code data}, the
+     * chunk tag is stored in {@code tag[0]}.
+     *
+     * @return bytes written to {@code data}
+     */
+    public static int pull(byte[] state, byte[] data, byte[] cipher, int length, byte[] add, byte[] tag) throws SodiumException {
+        if (length < CRYPTO_SECRETSTREAM_XCHACHA20POLY1305_ABYTES) {
+            throw new SodiumException("crypto_secretstream_xchacha20poly1305_pull");
+        }
+        size(state, CRYPTO_SECRETSTREAM_XCHACHA20POLY1305_STATEBYTES, "state");
+        range(cipher.length, 0, length);
+        range(data.length, 0, length - CRYPTO_SECRETSTREAM_XCHACHA20POLY1305_ABYTES);
+        range(tag.length, 0, 1);
+
+        if (add == null) {
+            add = new byte[0];
+        }
+        exception(Sodium.crypto_secretstream_xchacha20poly1305_pull(state, data, new int[1], tag, cipher, length, add, add.length), "crypto_secretstream_xchacha20poly1305_pull");
+        return length - CRYPTO_SECRETSTREAM_XCHACHA20POLY1305_ABYTES;
+    }
+
+    public static void rekey(byte[] state) {
+        size(state, CRYPTO_SECRETSTREAM_XCHACHA20POLY1305_STATEBYTES, "state");
+        Sodium.crypto_secretstream_xchacha20poly1305_rekey(state);
+    }
+
+    /* Zeroizes a state that is no longer needed */
+    public static void clear(byte[] state) {
+        Arrays.fill(state, (byte) 0);
+    }
+}
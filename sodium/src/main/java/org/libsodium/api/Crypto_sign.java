@@ -32,18 +32,30 @@ import org.libsodium.jni.SodiumException;
  */
 public class Crypto_sign extends Crypto{
      
+    /**
+     * @deprecated allocates a map per call, use {@link #generate_keypair()}
+     */
+    @Deprecated
     public static Map<String, byte[]> keypair() throws SodiumException {
-        byte[] pk = new byte[CRYPTO_SIGN_PUBLICKEYBYTES];
-        byte[] sk = new byte[CRYPTO_SIGN_SECRETKEYBYTES];
-
-        exception(Sodium.crypto_sign_keypair(pk, sk), "crypto_sign_keypair");
-
+        KeyPair pair = generate_keypair();
         Map<String, byte[]> result = new HashMap<>();
-        result.put("pk", pk);
-        result.put("sk", sk);
-
+        result.put("pk", pair.getPk());
+        result.put("sk", pair.getSk());
         return result;
     }
+
+    public static KeyPair generate_keypair() throws SodiumException {
+        KeyPair pair = new KeyPair(new byte[CRYPTO_SIGN_PUBLICKEYBYTES], new byte[CRYPTO_SIGN_SECRETKEYBYTES]);
+        keypair(pair.getPk(), pair.getSk());
+        return pair;
+    }
+
+    /* Writes the key pair into caller supplied arrays */
+    public static void keypair(byte[] pk, byte[] sk) throws SodiumException {
+        size(pk, CRYPTO_SIGN_PUBLICKEYBYTES, "pk");
+        size(sk, CRYPTO_SIGN_SECRETKEYBYTES, "sk");
+        exception(Sodium.crypto_sign_keypair(pk, sk), "crypto_sign_keypair");
+    }
     
     public static byte[] sign(byte[] data, byte[] sk) throws SodiumException {
         byte[] cipher = new byte[data.length + CRYPTO_SIGN_BYTES];
@@ -72,23 +84,20 @@ public class Crypto_sign extends Crypto{
         return true;
     }
     
-    public static Map<String, byte[]> init() throws SodiumException {
-        // FIXME: crypto_sign_init not implemented in libsodium-jni
-        throw new SodiumException("Not implemented in libsodium-jni");
+    /* Multi-part Ed25519ph signature, see SignState */
+    public static SignState init() throws SodiumException {
+        return new SignState();
     }
     
-    public static Map<String, byte[]> update() throws SodiumException {
-        // FIXME: crypto_sign_update not implemented in libsodium-jni
-        throw new SodiumException("Not implemented in libsodium-jni");
+    public static SignState update(SignState state, byte[] data) throws SodiumException {
+        return state.update(data);
     }
     
-    public static Map<String, byte[]> final_create() throws SodiumException {
-        // FIXME: crypto_sign_final_create not implemented in libsodium-jni
-        throw new SodiumException("Not implemented in libsodium-jni");
+    public static byte[] final_create(SignState state, byte[] sk) throws SodiumException {
+        return state.create(sk);
     }
     
-    public static Map<String, byte[]> final_verify() throws SodiumException {
-        // FIXME: crypto_sign_final_verify not implemented in libsodium-jni
-        throw new SodiumException("Not implemented in libsodium-jni");
+    public static boolean final_verify(SignState state, byte[] sign, byte[] pk) throws SodiumException {
+        return state.verify(sign, pk);
     }
 }
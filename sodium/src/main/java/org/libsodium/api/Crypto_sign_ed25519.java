@@ -18,6 +18,7 @@
 
 package org.libsodium.api;
 
+import java.nio.ByteBuffer;
 import java.util.HashMap;
 import java.util.Map;
 import org.libsodium.jni.Sodium;
@@ -26,6 +27,7 @@ import static org.libsodium.jni.SodiumConstants.CRYPTO_SIGN_ED25519_SECRETKEYBYT
 import static org.libsodium.jni.SodiumConstants.CRYPTO_SIGN_ED25519_SIGNATURE_BYTES;
 import static org.libsodium.jni.SodiumConstants.CRYPTO_SIGN_ED25519_TO_CURVE_BYTES;
 import org.libsodium.jni.SodiumException;
+import org.libsodium.jni.SodiumExt;
 
 /**
  *
@@ -33,33 +35,55 @@ import org.libsodium.jni.SodiumException;
  */
 public class Crypto_sign_ed25519 extends Crypto{
     
+    /**
+     * @deprecated allocates a map per call, use {@link #generate_keypair()}
+     */
+    @Deprecated
     public static Map<String, byte[]> keypair() throws SodiumException {
-        
-        byte[] pk = new byte[CRYPTO_SIGN_ED25519_PUBLICKEYBYTES];
-        byte[] sk = new byte[CRYPTO_SIGN_ED25519_SECRETKEYBYTES];
-
-        exception(Sodium.crypto_sign_ed25519_keypair(pk, sk), "crypto_sign_ed25519_keypair");
-        
+        KeyPair pair = generate_keypair();
         Map<String, byte[]> result = new HashMap<>();
-        result.put("pk", pk);
-        result.put("sk", sk);
-
+        result.put("pk", pair.getPk());
+        result.put("sk", pair.getSk());
         return result;
     }
+
+    public static KeyPair generate_keypair() throws SodiumException {
+        KeyPair pair = new KeyPair(new byte[CRYPTO_SIGN_ED25519_PUBLICKEYBYTES], new byte[CRYPTO_SIGN_ED25519_SECRETKEYBYTES]);
+        keypair(pair.getPk(), pair.getSk());
+        return pair;
+    }
+
+    /* Writes the key pair into caller supplied arrays */
+    public static void keypair(byte[] pk, byte[] sk) throws SodiumException {
+        size(pk, CRYPTO_SIGN_ED25519_PUBLICKEYBYTES, "pk");
+        size(sk, CRYPTO_SIGN_ED25519_SECRETKEYBYTES, "sk");
+        exception(Sodium.crypto_sign_ed25519_keypair(pk, sk), "crypto_sign_ed25519_keypair");
+    }
     
+    /**
+     * @deprecated allocates a map per call, use {@link #generate_keypair(byte[])}
+     */
+    @Deprecated
     public static Map<String, byte[]> seed_keypair(byte[] seed) throws SodiumException {
-        
-        byte[] pk = new byte[CRYPTO_SIGN_ED25519_PUBLICKEYBYTES];
-        byte[] sk = new byte[CRYPTO_SIGN_ED25519_SECRETKEYBYTES];
-
-        exception(Sodium.crypto_sign_ed25519_seed_keypair(pk, sk, seed), "crypto_sign_ed25519_seed_keypair");
-        
+        KeyPair pair = generate_keypair(seed);
         Map<String, byte[]> result = new HashMap<>();
-        result.put("pk", pk);
-        result.put("sk", sk);
-
+        result.put("pk", pair.getPk());
+        result.put("sk", pair.getSk());
         return result;
     }
+
+    public static KeyPair generate_keypair(byte[] seed) throws SodiumException {
+        KeyPair pair = new KeyPair(new byte[CRYPTO_SIGN_ED25519_PUBLICKEYBYTES], new byte[CRYPTO_SIGN_ED25519_SECRETKEYBYTES]);
+        seed_keypair(seed, pair.getPk(), pair.getSk());
+        return pair;
+    }
+
+    /* Writes the key pair into caller supplied arrays */
+    public static void seed_keypair(byte[] seed, byte[] pk, byte[] sk) throws SodiumException {
+        size(pk, CRYPTO_SIGN_ED25519_PUBLICKEYBYTES, "pk");
+        size(sk, CRYPTO_SIGN_ED25519_SECRETKEYBYTES, "sk");
+        exception(Sodium.crypto_sign_ed25519_seed_keypair(pk, sk, seed), "crypto_sign_ed25519_seed_keypair");
+    }
     
     public static byte[] sk_to_curve25519(byte[] sk) throws SodiumException {
         byte[] curve = new byte[CRYPTO_SIGN_ED25519_TO_CURVE_BYTES];
@@ -86,6 +110,121 @@ public class Crypto_sign_ed25519 extends Crypto{
         return true;
     }
     
+    /* Signs {@code length} bytes of {@code data} at {@code offset}, signature written at {@code signOffset} */
+    public static int detached(byte[] sign, int signOffset, byte[] data, int offset, int length, byte[] sk) throws SodiumException {
+        range(data.length, offset, length);
+        range(sign.length, signOffset, CRYPTO_SIGN_ED25519_SIGNATURE_BYTES);
+        size(sk, CRYPTO_SIGN_ED25519_SECRETKEYBYTES, "sk");
+
+        if (SodiumExt.isAvailable()) {
+            exception(SodiumExt.sign_detached(sign, signOffset, data, offset, length, sk), "crypto_sign_ed25519_detached");
+        } else {
+            System.arraycopy(detached(slice(data, offset, length), sk), 0, sign, signOffset, CRYPTO_SIGN_ED25519_SIGNATURE_BYTES);
+        }
+        return CRYPTO_SIGN_ED25519_SIGNATURE_BYTES;
+    }
+
+    public static boolean verify_detached(byte[] data, int offset, int length, byte[] sign, int signOffset, byte[] pk) throws SodiumException {
+        range(data.length, offset, length);
+        range(sign.length, signOffset, CRYPTO_SIGN_ED25519_SIGNATURE_BYTES);
+        size(pk, CRYPTO_SIGN_ED25519_PUBLICKEYBYTES, "pk");
+
+        if (SodiumExt.isAvailable()) {
+            exception(SodiumExt.sign_verify_detached(sign, signOffset, data, offset, length, pk), "crypto_sign_ed25519_verify_detached");
+            return true;
+        }
+        return verify_detached(slice(data, offset, length), slice(sign, signOffset, CRYPTO_SIGN_ED25519_SIGNATURE_BYTES), pk);
+    }
+
+    /* Signs the remaining bytes of {@code data}, its position advances only on success */
+    public static byte[] detached(ByteBuffer data, byte[] sk) throws SodiumException {
+        byte[] sign = new byte[CRYPTO_SIGN_ED25519_SIGNATURE_BYTES];
+
+        if (direct(data)) {
+            size(sk, CRYPTO_SIGN_ED25519_SECRETKEYBYTES, "sk");
+            exception(SodiumExt.sign_detached_direct(sign, 0, data, data.position(), data.remaining(), sk), "crypto_sign_ed25519_detached");
+        } else if (data.hasArray()) {
+            detached(sign, 0, data.array(), data.arrayOffset() + data.position(), data.remaining(), sk);
+        } else {
+            sign = detached(remaining(data), sk);
+        }
+        data.position(data.limit());
+        return sign;
+    }
+
+    public static boolean verify_detached(ByteBuffer data, byte[] sign, byte[] pk) throws SodiumException {
+        if (direct(data)) {
+            size(sign, CRYPTO_SIGN_ED25519_SIGNATURE_BYTES, "sign");
+            size(pk, CRYPTO_SIGN_ED25519_PUBLICKEYBYTES, "pk");
+            exception(SodiumExt.sign_verify_detached_direct(sign, 0, data, data.position(), data.remaining(), pk), "crypto_sign_ed25519_verify_detached");
+        } else if (data.hasArray()) {
+            verify_detached(data.array(), data.arrayOffset() + data.position(), data.remaining(), sign, 0, pk);
+        } else {
+            verify_detached(remaining(data), sign, pk);
+        }
+        data.position(data.limit());
+        return true;
+    }
+
+    /**
+     * Signs {@code offsets.length} messages packed in {@code data} with the same key in one
+     * native call. Signature i is written at {@code i * CRYPTO_SIGN_ED25519_SIGNATURE_BYTES}
+     * of the returned array.
+     */
+    public static byte[] detached_batch(byte[] data, int[] offsets, int[] lengths, byte[] sk) throws SodiumException {
+        int count = batch(offsets, lengths, null);
+        for (int i = 0; i < count; i++) {
+            range(data.length, offsets[i], lengths[i]);
+        }
+        size(sk, CRYPTO_SIGN_ED25519_SECRETKEYBYTES, "sk");
+
+        byte[] signs = new byte[count * CRYPTO_SIGN_ED25519_SIGNATURE_BYTES];
+        if (SodiumExt.isAvailable()) {
+            exception(SodiumExt.sign_detached_batch(signs, data, offsets, lengths, sk) == 0 ? 0 : -1, "crypto_sign_ed25519_detached_batch");
+            return signs;
+        }
+        for (int i = 0; i < count; i++) {
+            detached(signs, i * CRYPTO_SIGN_ED25519_SIGNATURE_BYTES, data, offsets[i], lengths[i], sk);
+        }
+        return signs;
+    }
+
+    /**
+     * Verifies {@code offsets.length} detached signatures, packed in {@code signs} as
+     * returned by {@link #detached_batch}, against {@code pks[i]} in one native call.
+     *
+     * @return number of invalid signatures, each flagged with a non zero entry in {@code results}
+     */
+    public static int verify_detached_batch(byte[] data, int[] offsets, int[] lengths, byte[] signs, byte[][] pks, int[] results) throws SodiumException {
+        int count = batch(offsets, lengths, results);
+        if (pks.length != count) {
+            throw new IllegalArgumentException("Batch arrays differ in length");
+        }
+        range(signs.length, 0, count * CRYPTO_SIGN_ED25519_SIGNATURE_BYTES);
+        for (int i = 0; i < count; i++) {
+            range(data.length, offsets[i], lengths[i]);
+            size(pks[i], CRYPTO_SIGN_ED25519_PUBLICKEYBYTES, "pk");
+        }
+
+        if (SodiumExt.isAvailable()) {
+            int failures = SodiumExt.sign_verify_detached_batch(signs, data, offsets, lengths, pks, results);
+            exception(failures < 0 ? -1 : 0, "crypto_sign_ed25519_verify_detached_batch");
+            return failures;
+        }
+
+        int failures = 0;
+        for (int i = 0; i < count; i++) {
+            try {
+                verify_detached(data, offsets[i], lengths[i], signs, i * CRYPTO_SIGN_ED25519_SIGNATURE_BYTES, pks[i]);
+                results[i] = 0;
+            } catch (SodiumException e) {
+                results[i] = -1;
+                failures++;
+            }
+        }
+        return failures;
+    }
+
     public static byte[] sign(byte[] data, byte[] sk) throws SodiumException {
         
         byte[] sign = new byte[data.length + CRYPTO_SIGN_ED25519_SIGNATURE_BYTES];
@@ -0,0 +1,183 @@
+/*
+ *
+ *  * Copyright 2021 UBICUA.
+ *  *
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  *
+ *  *      http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ *
+ */
+
+package org.libsodium.api;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import org.libsodium.jni.Sodium;
+import static org.libsodium.jni.SodiumConstants.CRYPTO_GENERICHASH_STATEBYTES;
+import static org.libsodium.jni.SodiumConstants.CRYPTO_HASH_SHA256;
+import static org.libsodium.jni.SodiumConstants.CRYPTO_HASH_SHA256_STATEBYTES;
+import static org.libsodium.jni.SodiumConstants.CRYPTO_HASH_SHA512;
+import static org.libsodium.jni.SodiumConstants.CRYPTO_HASH_SHA512_STATEBYTES;
+import org.libsodium.jni.SodiumException;
+import org.libsodium.jni.SodiumExt;
+
+/**
+ * Multi-part SHA-256, SHA-512 or BLAKE2b hash, created by
+ * {@link Crypto_hash_sha256#init()}, {@link Crypto_hash_sha512#init()} and
+ * {@link Crypto_generichash#init(byte[], int)}. Inputs are fed with
+ * {@code update} over arrays, array ranges or buffers instead of being
+ * concatenated first. A state is single use and not thread safe; after
+ * {@link #digest()} it is zeroized.
+ *
+ * @author UBICUA
+ */
+public final class HashState extends Crypto {
+
+    private final int alg;
+    private final int length;
+    private final byte[] state;
+    private boolean finished;
+
+    HashState(int alg, byte[] key, int length) throws SodiumException {
+        this.alg = alg;
+        this.length = length;
+
+        int result;
+        switch (alg) {
+            case SodiumExt.HASH_SHA256:
+                state = new byte[CRYPTO_HASH_SHA256_STATEBYTES];
+                result = SodiumExt.isAvailable() ? SodiumExt.hash_init(alg, state, null, length) : Sodium.crypto_hash_sha256_init(state);
+                break;
+            case SodiumExt.HASH_SHA512:
+                state = new byte[CRYPTO_HASH_SHA512_STATEBYTES];
+                result = SodiumExt.isAvailable() ? SodiumExt.hash_init(alg, state, null, length) : Sodium.crypto_hash_sha512_init(state);
+                break;
+            default:
+                state = new byte[CRYPTO_GENERICHASH_STATEBYTES];
+                result = SodiumExt.isAvailable()
+                        ? SodiumExt.hash_init(alg, state, key, length)
+                        : Sodium.crypto_generichash_init(state, key == null ? new byte[0] : key, key == null ? 0 : key.length, length);
+                break;
+        }
+        exception(result, String.format("%s_init", name()));
+    }
+
+    public HashState update(byte[] data) throws SodiumException {
+        return update(data, 0, data.length);
+    }
+
+    public HashState update(byte[] data, int offset, int count) throws SodiumException {
+        ensureActive();
+        range(data.length, offset, count);
+
+        int result;
+        if (SodiumExt.isAvailable()) {
+            result = SodiumExt.hash_update(alg, state, data, offset, count);
+        } else {
+            byte[] in = slice(data, offset, count);
+            switch (alg) {
+                case SodiumExt.HASH_SHA256:
+                    result = Sodium.crypto_hash_sha256_update(state, in, count);
+                    break;
+                case SodiumExt.HASH_SHA512:
+                    result = Sodium.crypto_hash_sha512_update(state, in, count);
+                    break;
+                default:
+                    result = Sodium.crypto_generichash_update(state, in, count);
+                    break;
+            }
+        }
+        exception(result, String.format("%s_update", name()));
+        return this;
+    }
+
+    /* Consumes the remaining bytes of `data`, its position advances only on success */
+    public HashState update(ByteBuffer data) throws SodiumException {
+        ensureActive();
+
+        if (direct(data)) {
+            exception(SodiumExt.hash_update_direct(alg, state, data, data.position(), data.remaining()), String.format("%s_update", name()));
+        } else if (data.hasArray()) {
+            update(data.array(), data.arrayOffset() + data.position(), data.remaining());
+        } else {
+            update(remaining(data));
+        }
+        data.position(data.limit());
+        return this;
+    }
+
+    public byte[] digest() throws SodiumException {
+        byte[] hash = new byte[length];
+        digest(hash, 0);
+        return hash;
+    }
+
+    /* Writes the digest into `hash` at `offset`, returns its length */
+    public int digest(byte[] hash, int offset) throws SodiumException {
+        ensureActive();
+        range(hash.length, offset, length);
+        finished = true;
+
+        try {
+            if (SodiumExt.isAvailable()) {
+                exception(SodiumExt.hash_final(alg, state, hash, offset, length), String.format("%s_final", name()));
+                return length;
+            }
+            byte[] out = new byte[length];
+            int result;
+            switch (alg) {
+                case SodiumExt.HASH_SHA256:
+                    result = Sodium.crypto_hash_sha256_final(state, out);
+                    break;
+                case SodiumExt.HASH_SHA512:
+                    result = Sodium.crypto_hash_sha512_final(state, out);
+                    break;
+                default:
+                    result = Sodium.crypto_generichash_final(state, out, length);
+                    break;
+            }
+            exception(result, String.format("%s_final", name()));
+            System.arraycopy(out, 0, hash, offset, length);
+            return length;
+        } finally {
+            Arrays.fill(state, (byte) 0);
+        }
+    }
+
+    public int getLength() {
+        return length;
+    }
+
+    private String name() {
+        switch (alg) {
+            case SodiumExt.HASH_SHA256:
+                return "crypto_hash_sha256";
+            case SodiumExt.HASH_SHA512:
+                return "crypto_hash_sha512";
+            default:
+                return "crypto_generichash";
+        }
+    }
+
+    private void ensureActive() {
+        if (finished) {
+            throw new IllegalStateException("Hash state already finalized");
+        }
+    }
+
+    static HashState sha256() throws SodiumException {
+        return new HashState(SodiumExt.HASH_SHA256, null, CRYPTO_HASH_SHA256);
+    }
+
+    static HashState sha512() throws SodiumException {
+        return new HashState(SodiumExt.HASH_SHA512, null, CRYPTO_HASH_SHA512);
+    }
+}
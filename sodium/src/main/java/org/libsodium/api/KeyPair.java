@@ -0,0 +1,51 @@
+/*
+ *
+ *  * Copyright 2021 UBICUA.
+ *  *
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  *
+ *  *      http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ *
+ */
+
+package org.libsodium.api;
+
+import java.util.Arrays;
+
+/**
+ * Public and secret key pair returned by the {@code generate_keypair} methods,
+ * replacing the {@code Map} with "pk" and "sk" entries.
+ *
+ * @author UBICUA
+ */
+public final class KeyPair {
+
+    private final byte[] pk;
+    private final byte[] sk;
+
+    public KeyPair(byte[] pk, byte[] sk) {
+        this.pk = pk;
+        this.sk = sk;
+    }
+
+    public byte[] getPk() {
+        return pk;
+    }
+
+    public byte[] getSk() {
+        return sk;
+    }
+
+    /* Zeroizes the secret key once the caller no longer needs it */
+    public void clear() {
+        Arrays.fill(sk, (byte) 0);
+    }
+}
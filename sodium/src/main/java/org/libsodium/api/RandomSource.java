@@ -0,0 +1,150 @@
+/*
+ *
+ *  * Copyright 2021 UBICUA.
+ *  *
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  *
+ *  *      http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ *
+ */
+
+package org.libsodium.api;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.security.SecureRandom;
+import org.libsodium.jni.NaCl;
+import org.libsodium.jni.Sodium;
+import org.libsodium.jni.SodiumExt;
+import org.libsodium.spi.ChaCha20Drbg;
+
+/**
+ * Nonces and keys from a per thread {@link ChaCha20Drbg}, so that small requests are
+ * served from a buffer instead of one {@code randombytes_buf} JNI call each. Every thread
+ * seeds its generator from {@code randombytes_buf} and reseeds it after
+ * {@value #RESEED_INTERVAL} bytes and in the child of a fork, as counted by
+ * {@link SodiumExt#fork_counter()}. Without {@code sodiumjni} seeds come from
+ * {@link SecureRandom}, without {@code sodiumext} forks are not detected.
+ *
+ * <p>In strict mode, set by {@link #setStrict} or the {@value #STRICT_PROPERTY} system
+ * property, every request goes to {@code randombytes_buf} directly.
+ *
+ * @author UBICUA
+ */
+public final class RandomSource {
+
+    public static final String STRICT_PROPERTY = "org.libsodium.random.strict";
+
+    /* Bytes buffered per refill and served between reseeds */
+    public static final int BUFFER_SIZE = 0x1000;
+    public static final long RESEED_INTERVAL = 0x100000;
+
+    private static volatile boolean strict = Boolean.getBoolean(STRICT_PROPERTY);
+
+    private static final ThreadLocal<Generator> GENERATOR = new ThreadLocal<Generator>() {
+        @Override
+        protected Generator initialValue() {
+            return new Generator();
+        }
+    };
+
+    private static final class Generator {
+        private final ChaCha20Drbg drbg = new ChaCha20Drbg(BUFFER_SIZE);
+        private final byte[] seed = new byte[ChaCha20Drbg.SEEDBYTES];
+        private long served = RESEED_INTERVAL;
+        private int forks;
+
+        void generate(byte[] out, int offset, int length) {
+            int current = forks();
+            if (current != forks || served >= RESEED_INTERVAL) {
+                forks = current;
+                reseed();
+            }
+            drbg.generate(out, offset, length);
+            served += length;
+        }
+
+        private void reseed() {
+            seed(seed);
+            drbg.reseed(seed);
+            for (int i = 0; i < seed.length; i++) {
+                seed[i] = 0;
+            }
+            served = 0;
+        }
+    }
+
+    private static final class SeedHolder {
+        private static final SecureRandom RANDOM = new SecureRandom();
+    }
+
+    private static final class ForkHolder {
+        private static final ByteBuffer COUNTER = SodiumExt.isAvailable() ? SodiumExt.fork_counter().order(ByteOrder.nativeOrder()) : null;
+    }
+
+    private RandomSource() {
+    }
+
+    public static boolean isStrict() {
+        return strict;
+    }
+
+    public static void setStrict(boolean value) {
+        strict = value;
+    }
+
+    /* Fills {@code out}, as {@link Crypto_randombytes#buf} */
+    public static byte[] buf(byte[] out) {
+        return buf(out, 0, out.length);
+    }
+
+    public static byte[] buf(byte[] out, int offset, int length) {
+        Crypto.range(out.length, offset, length);
+        if (strict) {
+            if (offset == 0 && length == out.length) {
+                seed(out);
+            } else {
+                byte[] random = new byte[length];
+                seed(random);
+                System.arraycopy(random, 0, out, offset, length);
+            }
+        } else {
+            GENERATOR.get().generate(out, offset, length);
+        }
+        return out;
+    }
+
+    public static byte[] nonce(int length) {
+        return buf(new byte[length]);
+    }
+
+    public static byte[] key(int length) {
+        return buf(new byte[length]);
+    }
+
+    /* Drops the generator of the calling thread, the next request seeds a new one */
+    public static void clear() {
+        GENERATOR.get().drbg.clear();
+        GENERATOR.remove();
+    }
+
+    private static void seed(byte[] out) {
+        if (NaCl.isAvailable()) {
+            Sodium.randombytes_buf(out, out.length);
+        } else {
+            SeedHolder.RANDOM.nextBytes(out);
+        }
+    }
+
+    private static int forks() {
+        return ForkHolder.COUNTER == null ? 0 : ForkHolder.COUNTER.getInt(0);
+    }
+}
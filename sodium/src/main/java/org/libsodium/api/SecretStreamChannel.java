@@ -0,0 +1,85 @@
+/*
+ *
+ *  * Copyright 2021 UBICUA.
+ *  *
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  *
+ *  *      http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ *
+ */
+
+package org.libsodium.api;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * {@link WritableByteChannel} view of a {@link SecretStreamOutputStream}, for
+ * writers built on NIO such as file channels. Closing the channel writes the
+ * final chunk and closes the target.
+ *
+ * @author UBICUA
+ */
+public class SecretStreamChannel implements WritableByteChannel {
+
+    private final SecretStreamOutputStream out;
+    private byte[] transfer;
+    private boolean open = true;
+
+    public SecretStreamChannel(WritableByteChannel channel, byte[] key) throws IOException {
+        this(channel, key, SecretStreamOutputStream.DEFAULT_CHUNK_SIZE);
+    }
+
+    public SecretStreamChannel(WritableByteChannel channel, byte[] key, int chunkSize) throws IOException {
+        this.out = new SecretStreamOutputStream(Channels.newOutputStream(channel), key, chunkSize);
+    }
+
+    @Override
+    public synchronized int write(ByteBuffer src) throws IOException {
+        if (!open) {
+            throw new ClosedChannelException();
+        }
+        int written = src.remaining();
+
+        if (src.hasArray()) {
+            out.write(src.array(), src.arrayOffset() + src.position(), written);
+            src.position(src.limit());
+        } else {
+            /* Direct buffers are staged through a small reusable array */
+            if (transfer == null) {
+                transfer = new byte[SecretStreamOutputStream.DEFAULT_CHUNK_SIZE];
+            }
+            while (src.hasRemaining()) {
+                int n = Math.min(src.remaining(), transfer.length);
+                src.get(transfer, 0, n);
+                out.write(transfer, 0, n);
+            }
+        }
+        return written;
+    }
+
+    @Override
+    public synchronized boolean isOpen() {
+        return open;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (!open) {
+            return;
+        }
+        open = false;
+        out.close();
+    }
+}
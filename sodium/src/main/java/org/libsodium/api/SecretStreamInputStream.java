@@ -0,0 +1,155 @@
+/*
+ *
+ *  * Copyright 2021 UBICUA.
+ *  *
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  *
+ *  *      http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ *
+ */
+
+package org.libsodium.api;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import static org.libsodium.jni.SodiumConstants.CRYPTO_SECRETSTREAM_XCHACHA20POLY1305_ABYTES;
+import static org.libsodium.jni.SodiumConstants.CRYPTO_SECRETSTREAM_XCHACHA20POLY1305_HEADERBYTES;
+import static org.libsodium.jni.SodiumConstants.CRYPTO_SECRETSTREAM_XCHACHA20POLY1305_TAG_FINAL;
+import org.libsodium.jni.SodiumException;
+
+/**
+ * Decrypts a stream written by {@link SecretStreamOutputStream}. Tampered or
+ * reordered chunks, a missing final chunk and data after it all surface as
+ * {@link IOException}; bytes are only handed out once their chunk verified.
+ *
+ * @author UBICUA
+ */
+public class SecretStreamInputStream extends InputStream {
+
+    public static final int MAX_CHUNK_SIZE = 0x100000;
+
+    private final InputStream in;
+    private final byte[] state = Crypto_secretstream_xchacha20poly1305.state();
+    private final byte[] tag = new byte[1];
+    private byte[] cipher = new byte[0];
+    private byte[] data = new byte[0];
+    private int position;
+    private int limit;
+    private boolean finished;
+
+    public SecretStreamInputStream(InputStream in, byte[] key) throws IOException {
+        this.in = in;
+
+        byte[] header = new byte[CRYPTO_SECRETSTREAM_XCHACHA20POLY1305_HEADERBYTES];
+        readFully(header, header.length);
+        try {
+            Crypto_secretstream_xchacha20poly1305.init_pull(state, header, key);
+        } catch (SodiumException e) {
+            throw new IOException(e);
+        }
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!fill()) {
+            return -1;
+        }
+        return data[position++] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (off < 0 || len < 0 || off > b.length - len) {
+            throw new IndexOutOfBoundsException();
+        }
+        if (len == 0) {
+            return 0;
+        }
+        if (!fill()) {
+            return -1;
+        }
+        int n = Math.min(len, limit - position);
+        System.arraycopy(data, position, b, off, n);
+        position += n;
+        return n;
+    }
+
+    @Override
+    public int available() {
+        return limit - position;
+    }
+
+    @Override
+    public void close() throws IOException {
+        Crypto_secretstream_xchacha20poly1305.clear(state);
+        Arrays.fill(data, (byte) 0);
+        position = limit = 0;
+        in.close();
+    }
+
+    /* False once the final chunk is consumed */
+    private boolean fill() throws IOException {
+        while (position == limit) {
+            if (finished) {
+                return false;
+            }
+            next();
+        }
+        return true;
+    }
+
+    private void next() throws IOException {
+        byte[] prefix = new byte[4];
+        try {
+            readFully(prefix, prefix.length);
+        } catch (EOFException e) {
+            throw new EOFException("Truncated stream, final chunk missing");
+        }
+        int length = (prefix[0] & 0xff) << 24 | (prefix[1] & 0xff) << 16 | (prefix[2] & 0xff) << 8 | (prefix[3] & 0xff);
+        if (length < CRYPTO_SECRETSTREAM_XCHACHA20POLY1305_ABYTES || length > MAX_CHUNK_SIZE + CRYPTO_SECRETSTREAM_XCHACHA20POLY1305_ABYTES) {
+            throw new IOException(String.format("Invalid chunk length %d", length));
+        }
+
+        if (cipher.length < length) {
+            cipher = new byte[length];
+            Arrays.fill(data, (byte) 0);
+            data = new byte[length - CRYPTO_SECRETSTREAM_XCHACHA20POLY1305_ABYTES];
+        }
+        readFully(cipher, length);
+
+        try {
+            limit = Crypto_secretstream_xchacha20poly1305.pull(state, data, cipher, length, null, tag);
+        } catch (SodiumException e) {
+            throw new IOException("Chunk failed authentication", e);
+        }
+        position = 0;
+
+        if (tag[0] == CRYPTO_SECRETSTREAM_XCHACHA20POLY1305_TAG_FINAL) {
+            finished = true;
+            if (in.read() != -1) {
+                throw new IOException("Trailing data after final chunk");
+            }
+        }
+    }
+
+    private void readFully(byte[] buffer, int length) throws IOException {
+        int offset = 0;
+        while (offset < length) {
+            int n = in.read(buffer, offset, length - offset);
+            if (n < 0) {
+                throw new EOFException("Truncated stream");
+            }
+            offset += n;
+        }
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ *
+ *  * Copyright 2021 UBICUA.
+ *  *
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  *
+ *  *      http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ *
+ */
+
+package org.libsodium.api;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import static org.libsodium.jni.SodiumConstants.CRYPTO_SECRETSTREAM_XCHACHA20POLY1305_ABYTES;
+import static org.libsodium.jni.SodiumConstants.CRYPTO_SECRETSTREAM_XCHACHA20POLY1305_TAG_FINAL;
+import static org.libsodium.jni.SodiumConstants.CRYPTO_SECRETSTREAM_XCHACHA20POLY1305_TAG_MESSAGE;
+import org.libsodium.jni.SodiumException;
+
+/**
+ * Encrypts everything written to it with crypto_secretstream_xchacha20poly1305.
+ * The stream starts with the secretstream header followed by frames of a
+ * 4-byte big-endian length and one encrypted chunk. {@link #close()} writes the
+ * chunk tagged {@code TAG_FINAL}, without it {@link SecretStreamInputStream}
+ * reports the stream as truncated.
+ *
+ * @author UBICUA
+ */
+public class SecretStreamOutputStream extends FilterOutputStream {
+
+    public static final int DEFAULT_CHUNK_SIZE = 0x1000;
+
+    private final byte[] state = Crypto_secretstream_xchacha20poly1305.state();
+    private final byte[] chunk;
+    private final byte[] cipher;
+    private int count;
+    private boolean closed;
+
+    public SecretStreamOutputStream(OutputStream out, byte[] key) throws IOException {
+        this(out, key, DEFAULT_CHUNK_SIZE);
+    }
+
+    public SecretStreamOutputStream(OutputStream out, byte[] key, int chunkSize) throws IOException {
+        super(out);
+        if (chunkSize <= 0 || chunkSize > SecretStreamInputStream.MAX_CHUNK_SIZE) {
+            throw new IllegalArgumentException(String.format("Invalid chunk size %d", chunkSize));
+        }
+        this.chunk = new byte[chunkSize];
+        this.cipher = new byte[chunkSize + CRYPTO_SECRETSTREAM_XCHACHA20POLY1305_ABYTES];
+
+        try {
+            out.write(Crypto_secretstream_xchacha20poly1305.init_push(state, key));
+        } catch (SodiumException e) {
+            throw new IOException(e);
+        }
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        ensureOpen();
+        chunk[count++] = (byte) b;
+        if (count == chunk.length) {
+            push(CRYPTO_SECRETSTREAM_XCHACHA20POLY1305_TAG_MESSAGE);
+        }
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (off < 0 || len < 0 || off > b.length - len) {
+            throw new IndexOutOfBoundsException();
+        }
+        ensureOpen();
+
+        while (len > 0) {
+            int n = Math.min(len, chunk.length - count);
+            System.arraycopy(b, off, chunk, count, n);
+            count += n;
+            off += n;
+            len -= n;
+            if (count == chunk.length) {
+                push(CRYPTO_SECRETSTREAM_XCHACHA20POLY1305_TAG_MESSAGE);
+            }
+        }
+    }
+
+    /* Seals the buffered bytes as a shorter chunk, frames are length prefixed */
+    @Override
+    public void flush() throws IOException {
+        ensureOpen();
+        if (count > 0) {
+            push(CRYPTO_SECRETSTREAM_XCHACHA20POLY1305_TAG_MESSAGE);
+        }
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            push(CRYPTO_SECRETSTREAM_XCHACHA20POLY1305_TAG_FINAL);
+            out.flush();
+        } finally {
+            Crypto_secretstream_xchacha20poly1305.clear(state);
+            Arrays.fill(chunk, (byte) 0);
+            out.close();
+        }
+    }
+
+    private void push(byte tag) throws IOException {
+        int length;
+        try {
+            length = Crypto_secretstream_xchacha20poly1305.push(state, cipher, chunk, count, null, tag);
+        } catch (SodiumException e) {
+            throw new IOException(e);
+        }
+        out.write(length >>> 24);
+        out.write(length >>> 16);
+        out.write(length >>> 8);
+        out.write(length);
+        out.write(cipher, 0, length);
+        count = 0;
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+    }
+}
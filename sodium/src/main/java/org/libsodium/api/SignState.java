@@ -0,0 +1,134 @@
+/*
+ *
+ *  * Copyright 2021 UBICUA.
+ *  *
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  *
+ *  *      http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ *
+ */
+
+package org.libsodium.api;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import static org.libsodium.jni.SodiumConstants.CRYPTO_SIGN_BYTES;
+import static org.libsodium.jni.SodiumConstants.CRYPTO_SIGN_PUBLICKEYBYTES;
+import static org.libsodium.jni.SodiumConstants.CRYPTO_SIGN_SECRETKEYBYTES;
+import static org.libsodium.jni.SodiumConstants.CRYPTO_SIGN_STATEBYTES;
+import org.libsodium.jni.SodiumException;
+import org.libsodium.jni.SodiumExt;
+
+/**
+ * Multi-part Ed25519ph signature, created by {@link Crypto_sign#init()}. The
+ * message is hashed with SHA-512 as it is fed, so signing needs constant memory
+ * whatever its size. Ed25519ph signatures differ from, and do not verify as,
+ * {@link Crypto_sign#detached(byte[], byte[])} signatures of the same message.
+ *
+ * Needs the sodiumext library, libsodium-jni does not wrap crypto_sign_init.
+ * A state is single use and not thread safe; it is zeroized once finalized.
+ *
+ * @author UBICUA
+ */
+public final class SignState extends Crypto {
+
+    /* Read size of update(InputStream) */
+    public static final int CHUNK_SIZE = 0x2000;
+
+    private final byte[] state = new byte[CRYPTO_SIGN_STATEBYTES];
+    private boolean finished;
+
+    SignState() throws SodiumException {
+        if (!SodiumExt.isAvailable()) {
+            throw new SodiumException("crypto_sign_init needs the sodiumext library");
+        }
+        exception(SodiumExt.sign_init(state), "crypto_sign_init");
+    }
+
+    public SignState update(byte[] data) throws SodiumException {
+        return update(data, 0, data.length);
+    }
+
+    public SignState update(byte[] data, int offset, int count) throws SodiumException {
+        ensureActive();
+        range(data.length, offset, count);
+        exception(SodiumExt.sign_update(state, data, offset, count), "crypto_sign_update");
+        return this;
+    }
+
+    /* Consumes the remaining bytes of `data`, its position advances only on success */
+    public SignState update(ByteBuffer data) throws SodiumException {
+        ensureActive();
+
+        if (direct(data)) {
+            exception(SodiumExt.sign_update_direct(state, data, data.position(), data.remaining()), "crypto_sign_update");
+        } else if (data.hasArray()) {
+            update(data.array(), data.arrayOffset() + data.position(), data.remaining());
+        } else {
+            update(remaining(data));
+        }
+        data.position(data.limit());
+        return this;
+    }
+
+    /* Reads `in` to its end in CHUNK_SIZE pieces, the stream is not closed */
+    public SignState update(InputStream in) throws SodiumException, IOException {
+        byte[] chunk = new byte[CHUNK_SIZE];
+        int count;
+        while ((count = in.read(chunk)) != -1) {
+            update(chunk, 0, count);
+        }
+        return this;
+    }
+
+    public byte[] create(byte[] sk) throws SodiumException {
+        byte[] sign = new byte[CRYPTO_SIGN_BYTES];
+        create(sk, sign, 0);
+        return sign;
+    }
+
+    /* Writes the signature into `sign` at `offset` */
+    public void create(byte[] sk, byte[] sign, int offset) throws SodiumException {
+        ensureActive();
+        size(sk, CRYPTO_SIGN_SECRETKEYBYTES, "sk");
+        range(sign.length, offset, CRYPTO_SIGN_BYTES);
+        finished = true;
+
+        try {
+            exception(SodiumExt.sign_final_create(state, sign, offset, sk), "crypto_sign_final_create");
+        } finally {
+            Arrays.fill(state, (byte) 0);
+        }
+    }
+
+    /* Throws SodiumException when `sign` does not match, as the other verify calls */
+    public boolean verify(byte[] sign, byte[] pk) throws SodiumException {
+        ensureActive();
+        size(sign, CRYPTO_SIGN_BYTES, "sign");
+        size(pk, CRYPTO_SIGN_PUBLICKEYBYTES, "pk");
+        finished = true;
+
+        try {
+            exception(SodiumExt.sign_final_verify(state, sign, 0, pk), "crypto_sign_final_verify");
+            return true;
+        } finally {
+            Arrays.fill(state, (byte) 0);
+        }
+    }
+
+    private void ensureActive() {
+        if (finished) {
+            throw new IllegalStateException("Sign state already finalized");
+        }
+    }
+}
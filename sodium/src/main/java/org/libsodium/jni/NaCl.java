@@ -24,11 +24,27 @@ package org.libsodium.jni;
  */
 public class NaCl {
 
+    private static final UnsatisfiedLinkError ERROR;
+
     static {
-        System.loadLibrary("sodiumjni");
+        UnsatisfiedLinkError error = null;
+        try {
+            NativeLoader.load("sodiumjni");
+        } catch (UnsatisfiedLinkError e) {
+            error = e;
+        }
+        ERROR = error;
+    }
+
+    /* True once libsodiumjni is loaded, otherwise {@link #sodium()} throws */
+    public static boolean isAvailable() {
+        return ERROR == null;
     }
 
     public static Sodium sodium() {
+        if (ERROR != null) {
+            throw ERROR;
+        }
         Sodium.sodium_init();
         return SodiumHolder.SODIUM_INSTANCE;
     }
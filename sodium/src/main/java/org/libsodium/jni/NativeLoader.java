@@ -0,0 +1,106 @@
+/*
+ *
+ *  * Copyright 2021 UBICUA.
+ *  *
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  *
+ *  *      http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ *
+ */
+
+package org.libsodium.jni;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Locale;
+
+/**
+ * Loads the JNI libraries of this package. {@link System#loadLibrary} is tried first, as on
+ * Android where the libraries come from {@code jniLibs}; otherwise the library is extracted from
+ * {@code /native/<os>-<arch>/} on the class path, as packaged by {@code build-native.sh}, to a
+ * temporary file and loaded from there.
+ *
+ * @author UBICUA
+ */
+public final class NativeLoader {
+
+    private static final String RESOURCES = "/native/";
+
+    private NativeLoader() {
+    }
+
+    public static void load(String name) {
+        try {
+            System.loadLibrary(name);
+            return;
+        } catch (UnsatisfiedLinkError e) {
+            String resource = RESOURCES + platform() + "/" + System.mapLibraryName(name);
+            InputStream in = NativeLoader.class.getResourceAsStream(resource);
+            if (in == null) {
+                throw e;
+            }
+            try {
+                System.load(extract(name, in).getAbsolutePath());
+            } catch (IOException x) {
+                UnsatisfiedLinkError error = new UnsatisfiedLinkError(String.format("Cannot extract %s: %s", resource, x.getMessage()));
+                error.initCause(x);
+                throw error;
+            }
+        }
+    }
+
+    /* Platform directory name, e.g. linux-x86_64 */
+    public static String platform() {
+        String os = System.getProperty("os.name", "").toLowerCase(Locale.ROOT);
+        String arch = System.getProperty("os.arch", "").toLowerCase(Locale.ROOT);
+
+        if (os.startsWith("linux")) {
+            os = "linux";
+        } else if (os.startsWith("mac") || os.startsWith("darwin")) {
+            os = "osx";
+        } else if (os.startsWith("windows")) {
+            os = "windows";
+        }
+
+        if (arch.equals("amd64") || arch.equals("x86_64")) {
+            arch = "x86_64";
+        } else if (arch.equals("aarch64") || arch.equals("arm64")) {
+            arch = "aarch64";
+        } else if (arch.startsWith("arm")) {
+            arch = "arm";
+        } else if (arch.matches("i[3-6]86|x86")) {
+            arch = "x86";
+        }
+        return os + "-" + arch;
+    }
+
+    private static File extract(String name, InputStream in) throws IOException {
+        String library = System.mapLibraryName(name);
+        int dot = library.lastIndexOf('.');
+        File file = File.createTempFile(library.substring(0, dot) + "-", library.substring(dot));
+        file.deleteOnExit();
+
+        try (InputStream input = in; OutputStream out = new FileOutputStream(file)) {
+            byte[] buffer = new byte[0x2000];
+            int read;
+            while ((read = input.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+        } catch (IOException e) {
+            file.delete();
+            throw e;
+        }
+        return file;
+    }
+}
@@ -64,6 +64,7 @@ public abstract class SodiumConstants {
     public final static int CRYPTO_SIGN_SEEDBYTES = 32;
     public final static int CRYPTO_SIGN_PUBLICKEYBYTES = 32;
     public final static int CRYPTO_SIGN_SECRETKEYBYTES = 64;
+    public final static int CRYPTO_SIGN_STATEBYTES = 208;
 
     public final static int CRYPTO_SIGN_ED25519_SEEDBYTES = 32;
     public final static int CRYPTO_SIGN_ED25519_PUBLICKEYBYTES = 32;
@@ -83,12 +84,32 @@ public abstract class SodiumConstants {
     public final static int CRYPTO_PWHASH_MEMLIMIT_MODERATE = 134217728;
     public final static int CRYPTO_PWHASH_ALG_ARGON2I = 1;
     public final static int CRYPTO_PWHASH_ALG_DEFAULT = 2;
+    public final static int CRYPTO_PWHASH_ALG_ARGON2ID13 = 2;
+    public final static int CRYPTO_PWHASH_ARGON2I_OPSLIMIT_MIN = 3;
+    public final static int CRYPTO_PWHASH_ARGON2ID_OPSLIMIT_MIN = 1;
+    public final static int CRYPTO_PWHASH_MEMLIMIT_MIN = 8192;
 
     public final static int CRYPTO_SHORTHASH_BYTES = 8;
     public final static int CRYPTO_SHORTHASH_KEYBYTES = 16;
     public final static int CRYPTO_GENERICHASH_BYTES = 32;
     public final static int CRYPTO_GENERICHASH_KEYBYTES = 32;
+    public final static int CRYPTO_GENERICHASH_BYTES_MIN = 16;
+    public final static int CRYPTO_GENERICHASH_BYTES_MAX = 64;
+    public final static int CRYPTO_GENERICHASH_KEYBYTES_MAX = 64;
+    public final static int CRYPTO_GENERICHASH_STATEBYTES = 384;
 
     public final static int CRYPTO_HASH_SHA256 = 32;
+    public final static int CRYPTO_HASH_SHA512 = 64;
+    public final static int CRYPTO_HASH_SHA256_STATEBYTES = 104;
+    public final static int CRYPTO_HASH_SHA512_STATEBYTES = 208;
+
+    public final static int CRYPTO_SECRETSTREAM_XCHACHA20POLY1305_KEYBYTES = 32;
+    public final static int CRYPTO_SECRETSTREAM_XCHACHA20POLY1305_HEADERBYTES = 24;
+    public final static int CRYPTO_SECRETSTREAM_XCHACHA20POLY1305_ABYTES = 17;
+    public final static int CRYPTO_SECRETSTREAM_XCHACHA20POLY1305_STATEBYTES = 52;
+    public final static byte CRYPTO_SECRETSTREAM_XCHACHA20POLY1305_TAG_MESSAGE = 0;
+    public final static byte CRYPTO_SECRETSTREAM_XCHACHA20POLY1305_TAG_PUSH = 1;
+    public final static byte CRYPTO_SECRETSTREAM_XCHACHA20POLY1305_TAG_REKEY = 2;
+    public final static byte CRYPTO_SECRETSTREAM_XCHACHA20POLY1305_TAG_FINAL = 3;
 
 }
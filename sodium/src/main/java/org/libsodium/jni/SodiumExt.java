@@ -0,0 +1,146 @@
+/*
+ *
+ *  * Copyright 2021 UBICUA.
+ *  *
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  *
+ *  *      http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ *
+ */
+
+package org.libsodium.jni;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Offset and direct buffer entry points of the {@code sodiumext} library, built
+ * from {@code src/main/jni/sodiumext.c} next to {@code sodiumjni} and loaded by
+ * {@link NativeLoader}. The library is optional: when it cannot be loaded
+ * {@link #isAvailable()} is false and the {@code org.libsodium.api} wrappers fall
+ * back to copying through {@link Sodium}.
+ *
+ * <p>Ranges are not checked here, callers validate them. Every function returns 0
+ * on success, -1 otherwise; the batch functions return the number of failed
+ * messages and report each one in {@code results}.
+ *
+ * @author UBICUA
+ */
+public final class SodiumExt {
+
+    /* Algorithms of the multi-part hash functions */
+    public static final int HASH_SHA256 = 0;
+    public static final int HASH_SHA512 = 1;
+    public static final int HASH_BLAKE2B = 2;
+
+    private static final boolean AVAILABLE;
+
+    static {
+        boolean loaded;
+        try {
+            NativeLoader.load("sodiumext");
+            loaded = true;
+        } catch (UnsatisfiedLinkError e) {
+            loaded = false;
+        }
+        AVAILABLE = loaded;
+    }
+
+    private SodiumExt() {
+    }
+
+    public static boolean isAvailable() {
+        return AVAILABLE;
+    }
+
+    public static native int aead_ietf_encrypt(byte[] c, int cOffset, byte[] m, int mOffset, int mLength,
+                                               byte[] ad, int adOffset, int adLength, byte[] npub, int npubOffset, byte[] k);
+
+    public static native int aead_ietf_decrypt(byte[] m, int mOffset, byte[] c, int cOffset, int cLength,
+                                               byte[] ad, int adOffset, int adLength, byte[] npub, int npubOffset, byte[] k);
+
+    public static native int aead_ietf_encrypt_direct(ByteBuffer c, int cOffset, ByteBuffer m, int mOffset, int mLength,
+                                                      byte[] ad, int adOffset, int adLength, byte[] npub, int npubOffset, byte[] k);
+
+    public static native int aead_ietf_decrypt_direct(ByteBuffer m, int mOffset, ByteBuffer c, int cOffset, int cLength,
+                                                      byte[] ad, int adOffset, int adLength, byte[] npub, int npubOffset, byte[] k);
+
+    public static native int secretbox_easy(byte[] c, int cOffset, byte[] m, int mOffset, int mLength,
+                                            byte[] n, int nOffset, byte[] k);
+
+    public static native int secretbox_open_easy(byte[] m, int mOffset, byte[] c, int cOffset, int cLength,
+                                                 byte[] n, int nOffset, byte[] k);
+
+    public static native int secretbox_easy_direct(ByteBuffer c, int cOffset, ByteBuffer m, int mOffset, int mLength,
+                                                   byte[] n, int nOffset, byte[] k);
+
+    public static native int secretbox_open_easy_direct(ByteBuffer m, int mOffset, ByteBuffer c, int cOffset, int cLength,
+                                                        byte[] n, int nOffset, byte[] k);
+
+    public static native int box_easy(byte[] c, int cOffset, byte[] m, int mOffset, int mLength,
+                                      byte[] n, int nOffset, byte[] pk, byte[] sk);
+
+    public static native int box_open_easy(byte[] m, int mOffset, byte[] c, int cOffset, int cLength,
+                                           byte[] n, int nOffset, byte[] pk, byte[] sk);
+
+    public static native int box_easy_direct(ByteBuffer c, int cOffset, ByteBuffer m, int mOffset, int mLength,
+                                             byte[] n, int nOffset, byte[] pk, byte[] sk);
+
+    public static native int box_open_easy_direct(ByteBuffer m, int mOffset, ByteBuffer c, int cOffset, int cLength,
+                                                  byte[] n, int nOffset, byte[] pk, byte[] sk);
+
+    public static native int sign_detached(byte[] sig, int sigOffset, byte[] m, int mOffset, int mLength, byte[] sk);
+
+    public static native int sign_verify_detached(byte[] sig, int sigOffset, byte[] m, int mOffset, int mLength, byte[] pk);
+
+    public static native int sign_detached_direct(byte[] sig, int sigOffset, ByteBuffer m, int mOffset, int mLength, byte[] sk);
+
+    public static native int sign_verify_detached_direct(byte[] sig, int sigOffset, ByteBuffer m, int mOffset, int mLength, byte[] pk);
+
+    public static native int hash_sha256(byte[] out, int outOffset, byte[] in, int inOffset, int inLength);
+
+    public static native int hash_sha512(byte[] out, int outOffset, byte[] in, int inOffset, int inLength);
+
+    public static native int hash_sha256_direct(byte[] out, int outOffset, ByteBuffer in, int inOffset, int inLength);
+
+    public static native int hash_sha512_direct(byte[] out, int outOffset, ByteBuffer in, int inOffset, int inLength);
+
+    public static native int hash_init(int alg, byte[] state, byte[] key, int outLength);
+
+    public static native int hash_update(int alg, byte[] state, byte[] in, int inOffset, int inLength);
+
+    public static native int hash_update_direct(int alg, byte[] state, ByteBuffer in, int inOffset, int inLength);
+
+    public static native int hash_final(int alg, byte[] state, byte[] out, int outOffset, int outLength);
+
+    /* Ed25519ph, `state` holds a crypto_sign_state of CRYPTO_SIGN_STATEBYTES */
+    public static native int sign_init(byte[] state);
+
+    public static native int sign_update(byte[] state, byte[] in, int inOffset, int inLength);
+
+    public static native int sign_update_direct(byte[] state, ByteBuffer in, int inOffset, int inLength);
+
+    public static native int sign_final_create(byte[] state, byte[] sig, int sigOffset, byte[] sk);
+
+    public static native int sign_final_verify(byte[] state, byte[] sig, int sigOffset, byte[] pk);
+
+    public static native int aead_ietf_encrypt_batch(byte[] c, int[] cOffsets, byte[] m, int[] mOffsets, int[] mLengths,
+                                                     byte[] npub, int[] npubOffsets, byte[][] k, int[] results);
+
+    public static native int aead_ietf_decrypt_batch(byte[] m, int[] mOffsets, byte[] c, int[] cOffsets, int[] cLengths,
+                                                     byte[] npub, int[] npubOffsets, byte[][] k, int[] results);
+
+    public static native int sign_detached_batch(byte[] sig, byte[] m, int[] mOffsets, int[] mLengths, byte[] sk);
+
+    public static native int sign_verify_detached_batch(byte[] sig, byte[] m, int[] mOffsets, int[] mLengths, byte[][] pk, int[] results);
+
+    /* Native order int incremented in the child of every fork */
+    public static native ByteBuffer fork_counter();
+}
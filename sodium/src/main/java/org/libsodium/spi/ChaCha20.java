@@ -0,0 +1,153 @@
+/*
+ *
+ *  * Copyright 2021 UBICUA.
+ *  *
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  *
+ *  *      http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ *
+ */
+
+package org.libsodium.spi;
+
+/**
+ * ChaCha20 with a 96 bit nonce and 32 bit block counter, RFC 8439 section 2.4. Instances
+ * hold the working state and are reused, one per thread.
+ *
+ * @author UBICUA
+ */
+final class ChaCha20 {
+
+    static final int KEYBYTES = 32;
+    static final int NONCEBYTES = 12;
+    static final int BLOCKBYTES = 64;
+
+    private final int[] input = new int[16];
+    private final int[] x = new int[16];
+
+    void init(byte[] key, byte[] nonce, int nonceOffset, int counter) {
+        input[0] = 0x61707865;
+        input[1] = 0x3320646e;
+        input[2] = 0x79622d32;
+        input[3] = 0x6b206574;
+        for (int i = 0; i < 8; i++) {
+            input[4 + i] = le32(key, 4 * i);
+        }
+        input[12] = counter;
+        input[13] = le32(nonce, nonceOffset);
+        input[14] = le32(nonce, nonceOffset + 4);
+        input[15] = le32(nonce, nonceOffset + 8);
+    }
+
+    /* First {@code length} bytes of the current block, the counter is not advanced */
+    void keystream(byte[] out, int offset, int length) {
+        block();
+        for (int i = 0; i < length; i++) {
+            out[offset + i] = (byte) (x[i >> 2] >>> ((i & 3) << 3));
+        }
+    }
+
+    /* XORs the key stream into {@code length} bytes, in and out may be the same range */
+    void xor(byte[] out, int outOffset, byte[] in, int inOffset, int length) {
+        while (length >= BLOCKBYTES) {
+            block();
+            for (int i = 0; i < 16; i++) {
+                int o = outOffset + 4 * i;
+                int j = inOffset + 4 * i;
+                int w = x[i];
+                out[o] = (byte) (in[j] ^ w);
+                out[o + 1] = (byte) (in[j + 1] ^ (w >>> 8));
+                out[o + 2] = (byte) (in[j + 2] ^ (w >>> 16));
+                out[o + 3] = (byte) (in[j + 3] ^ (w >>> 24));
+            }
+            input[12]++;
+            outOffset += BLOCKBYTES;
+            inOffset += BLOCKBYTES;
+            length -= BLOCKBYTES;
+        }
+        if (length > 0) {
+            block();
+            for (int i = 0; i < length; i++) {
+                out[outOffset + i] = (byte) (in[inOffset + i] ^ (x[i >> 2] >>> ((i & 3) << 3)));
+            }
+            input[12]++;
+        }
+    }
+
+    /* Key stream into {@code length} bytes, advancing the counter */
+    void stream(byte[] out, int offset, int length) {
+        for (int i = 0; i < length; i++) {
+            out[offset + i] = 0;
+        }
+        xor(out, offset, out, offset, length);
+    }
+
+    void clear() {
+        for (int i = 0; i < 16; i++) {
+            input[i] = 0;
+            x[i] = 0;
+        }
+    }
+
+    /* One block of key stream words in x */
+    private void block() {
+        int x0 = input[0], x1 = input[1], x2 = input[2], x3 = input[3];
+        int x4 = input[4], x5 = input[5], x6 = input[6], x7 = input[7];
+        int x8 = input[8], x9 = input[9], x10 = input[10], x11 = input[11];
+        int x12 = input[12], x13 = input[13], x14 = input[14], x15 = input[15];
+
+        for (int i = 0; i < 10; i++) {
+            /* Column rounds */
+            x0 += x4; x12 = Integer.rotateLeft(x12 ^ x0, 16);
+            x8 += x12; x4 = Integer.rotateLeft(x4 ^ x8, 12);
+            x0 += x4; x12 = Integer.rotateLeft(x12 ^ x0, 8);
+            x8 += x12; x4 = Integer.rotateLeft(x4 ^ x8, 7);
+            x1 += x5; x13 = Integer.rotateLeft(x13 ^ x1, 16);
+            x9 += x13; x5 = Integer.rotateLeft(x5 ^ x9, 12);
+            x1 += x5; x13 = Integer.rotateLeft(x13 ^ x1, 8);
+            x9 += x13; x5 = Integer.rotateLeft(x5 ^ x9, 7);
+            x2 += x6; x14 = Integer.rotateLeft(x14 ^ x2, 16);
+            x10 += x14; x6 = Integer.rotateLeft(x6 ^ x10, 12);
+            x2 += x6; x14 = Integer.rotateLeft(x14 ^ x2, 8);
+            x10 += x14; x6 = Integer.rotateLeft(x6 ^ x10, 7);
+            x3 += x7; x15 = Integer.rotateLeft(x15 ^ x3, 16);
+            x11 += x15; x7 = Integer.rotateLeft(x7 ^ x11, 12);
+            x3 += x7; x15 = Integer.rotateLeft(x15 ^ x3, 8);
+            x11 += x15; x7 = Integer.rotateLeft(x7 ^ x11, 7);
+            /* Diagonal rounds */
+            x0 += x5; x15 = Integer.rotateLeft(x15 ^ x0, 16);
+            x10 += x15; x5 = Integer.rotateLeft(x5 ^ x10, 12);
+            x0 += x5; x15 = Integer.rotateLeft(x15 ^ x0, 8);
+            x10 += x15; x5 = Integer.rotateLeft(x5 ^ x10, 7);
+            x1 += x6; x12 = Integer.rotateLeft(x12 ^ x1, 16);
+            x11 += x12; x6 = Integer.rotateLeft(x6 ^ x11, 12);
+            x1 += x6; x12 = Integer.rotateLeft(x12 ^ x1, 8);
+            x11 += x12; x6 = Integer.rotateLeft(x6 ^ x11, 7);
+            x2 += x7; x13 = Integer.rotateLeft(x13 ^ x2, 16);
+            x8 += x13; x7 = Integer.rotateLeft(x7 ^ x8, 12);
+            x2 += x7; x13 = Integer.rotateLeft(x13 ^ x2, 8);
+            x8 += x13; x7 = Integer.rotateLeft(x7 ^ x8, 7);
+            x3 += x4; x14 = Integer.rotateLeft(x14 ^ x3, 16);
+            x9 += x14; x4 = Integer.rotateLeft(x4 ^ x9, 12);
+            x3 += x4; x14 = Integer.rotateLeft(x14 ^ x3, 8);
+            x9 += x14; x4 = Integer.rotateLeft(x4 ^ x9, 7);
+        }
+
+        x[0] = x0 + input[0]; x[1] = x1 + input[1]; x[2] = x2 + input[2]; x[3] = x3 + input[3];
+        x[4] = x4 + input[4]; x[5] = x5 + input[5]; x[6] = x6 + input[6]; x[7] = x7 + input[7];
+        x[8] = x8 + input[8]; x[9] = x9 + input[9]; x[10] = x10 + input[10]; x[11] = x11 + input[11];
+        x[12] = x12 + input[12]; x[13] = x13 + input[13]; x[14] = x14 + input[14]; x[15] = x15 + input[15];
+    }
+
+    static int le32(byte[] b, int offset) {
+        return (b[offset] & 0xff) | (b[offset + 1] & 0xff) << 8 | (b[offset + 2] & 0xff) << 16 | (b[offset + 3] & 0xff) << 24;
+    }
+}
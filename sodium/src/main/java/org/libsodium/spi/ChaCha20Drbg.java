@@ -0,0 +1,97 @@
+/*
+ *
+ *  * Copyright 2021 UBICUA.
+ *  *
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  *
+ *  *      http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ *
+ */
+
+package org.libsodium.spi;
+
+/**
+ * Fast key erasure generator over ChaCha20: each refill draws {@code 32 + capacity} bytes
+ * of key stream, the first 32 replace the key and the rest are served, then wiped, from the
+ * buffer. Earlier output cannot be recovered from the state. Not thread safe, seeding is
+ * left to the caller.
+ *
+ * @author UBICUA
+ */
+public final class ChaCha20Drbg {
+
+    public static final int SEEDBYTES = ChaCha20.KEYBYTES;
+
+    private static final byte[] NONCE = new byte[ChaCha20.NONCEBYTES];
+
+    private final ChaCha20 chacha = new ChaCha20();
+    private final byte[] key = new byte[ChaCha20.KEYBYTES];
+    private final byte[] buffer;
+    private int position;
+
+    public ChaCha20Drbg(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        buffer = new byte[ChaCha20.KEYBYTES + capacity];
+        position = buffer.length;
+    }
+
+    /* Mixes {@code seed} into the key and drops buffered output */
+    public void reseed(byte[] seed) {
+        if (seed.length != SEEDBYTES) {
+            throw new IllegalArgumentException(String.format("seed must be %d bytes", SEEDBYTES));
+        }
+        for (int i = 0; i < SEEDBYTES; i++) {
+            key[i] ^= seed[i];
+        }
+        wipe(position, buffer.length);
+        position = buffer.length;
+    }
+
+    public void generate(byte[] out, int offset, int length) {
+        while (length > 0) {
+            if (position == buffer.length) {
+                refill();
+            }
+            int count = Math.min(length, buffer.length - position);
+            System.arraycopy(buffer, position, out, offset, count);
+            wipe(position, position + count);
+            position += count;
+            offset += count;
+            length -= count;
+        }
+    }
+
+    public void clear() {
+        wipe(0, buffer.length);
+        position = buffer.length;
+        for (int i = 0; i < key.length; i++) {
+            key[i] = 0;
+        }
+        chacha.clear();
+    }
+
+    private void refill() {
+        chacha.init(key, NONCE, 0, 0);
+        chacha.stream(buffer, 0, buffer.length);
+        chacha.clear();
+        System.arraycopy(buffer, 0, key, 0, ChaCha20.KEYBYTES);
+        wipe(0, ChaCha20.KEYBYTES);
+        position = ChaCha20.KEYBYTES;
+    }
+
+    private void wipe(int from, int to) {
+        for (int i = from; i < to; i++) {
+            buffer[i] = 0;
+        }
+    }
+}
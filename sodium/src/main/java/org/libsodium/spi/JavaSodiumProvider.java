@@ -0,0 +1,131 @@
+/*
+ *
+ *  * Copyright 2021 UBICUA.
+ *  *
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  *
+ *  *      http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ *
+ */
+
+package org.libsodium.spi;
+
+/**
+ * Pure Java ChaCha20-Poly1305 IETF (RFC 8439), SHA-256 and HMAC-SHA256, bit compatible
+ * with libsodium. Always available, so the wrappers also work where the JNI libraries
+ * cannot be loaded, and faster than a JNI transition on small inputs. The working state
+ * lives in one {@link State} per thread, nothing is allocated per call.
+ *
+ * @author UBICUA
+ */
+public final class JavaSodiumProvider implements SodiumProvider {
+
+    public static final String NAME = "java";
+
+    private static final ThreadLocal<State> STATE = new ThreadLocal<State>() {
+        @Override
+        protected State initialValue() {
+            return new State();
+        }
+    };
+
+    private static final class State {
+        private final ChaCha20 chacha = new ChaCha20();
+        private final Poly1305 poly = new Poly1305();
+        private final Sha256 sha = new Sha256();
+        private final byte[] polyKey = new byte[Poly1305.KEYBYTES];
+        private final byte[] mac = new byte[Poly1305.BYTES];
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return true;
+    }
+
+    @Override
+    public int aead_chacha20poly1305_ietf_encrypt(byte[] c, int cOffset, byte[] m, int mOffset, int mLength,
+                                                  byte[] ad, int adOffset, int adLength, byte[] npub, int npubOffset, byte[] k) {
+        State state = STATE.get();
+        state.chacha.init(k, npub, npubOffset, 1);
+        state.chacha.xor(c, cOffset, m, mOffset, mLength);
+        tag(state, c, cOffset, mLength, ad, adOffset, adLength, npub, npubOffset, k);
+        System.arraycopy(state.mac, 0, c, cOffset + mLength, Poly1305.BYTES);
+        clear(state);
+        return 0;
+    }
+
+    @Override
+    public int aead_chacha20poly1305_ietf_decrypt(byte[] m, int mOffset, byte[] c, int cOffset, int cLength,
+                                                  byte[] ad, int adOffset, int adLength, byte[] npub, int npubOffset, byte[] k) {
+        State state = STATE.get();
+        int length = cLength - Poly1305.BYTES;
+        tag(state, c, cOffset, length, ad, adOffset, adLength, npub, npubOffset, k);
+
+        /* Constant time, the plain text is only written once the tag matches */
+        int diff = 0;
+        for (int i = 0; i < Poly1305.BYTES; i++) {
+            diff |= state.mac[i] ^ c[cOffset + length + i];
+        }
+        if (diff != 0) {
+            clear(state);
+            return -1;
+        }
+        state.chacha.init(k, npub, npubOffset, 1);
+        state.chacha.xor(m, mOffset, c, cOffset, length);
+        clear(state);
+        return 0;
+    }
+
+    @Override
+    public int hash_sha256(byte[] out, int outOffset, byte[] in, int inOffset, int inLength) {
+        STATE.get().sha.reset().update(in, inOffset, inLength).digest(out, outOffset);
+        return 0;
+    }
+
+    @Override
+    public int auth_hmacsha256(byte[] out, int outOffset, byte[] in, int inOffset, int inLength, byte[] k) {
+        STATE.get().sha.hmac(out, outOffset, in, inOffset, inLength, k);
+        return 0;
+    }
+
+    /* Poly1305 tag of ad and cipher text into state.mac, keyed by block 0 of the stream */
+    private static void tag(State state, byte[] c, int cOffset, int cLength,
+                            byte[] ad, int adOffset, int adLength, byte[] npub, int npubOffset, byte[] k) {
+        state.chacha.init(k, npub, npubOffset, 0);
+        state.chacha.keystream(state.polyKey, 0, Poly1305.KEYBYTES);
+
+        Poly1305 poly = state.poly;
+        poly.init(state.polyKey, 0);
+        if (adLength > 0) {
+            poly.update(ad, adOffset, adLength);
+            poly.pad(adLength);
+        }
+        poly.update(c, cOffset, cLength);
+        poly.pad(cLength);
+        poly.lengths(adLength, cLength);
+        poly.finish(state.mac, 0);
+    }
+
+    private static void clear(State state) {
+        state.chacha.clear();
+        for (int i = 0; i < Poly1305.KEYBYTES; i++) {
+            state.polyKey[i] = 0;
+        }
+        for (int i = 0; i < Poly1305.BYTES; i++) {
+            state.mac[i] = 0;
+        }
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ *
+ *  * Copyright 2021 UBICUA.
+ *  *
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  *
+ *  *      http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ *
+ */
+
+package org.libsodium.spi;
+
+import java.util.Arrays;
+import org.libsodium.jni.NaCl;
+import org.libsodium.jni.Sodium;
+import org.libsodium.jni.SodiumExt;
+import static org.libsodium.jni.SodiumConstants.CRYPTO_AEAD_CHACHA20POLY1305_IETF_ABYTES;
+import static org.libsodium.jni.SodiumConstants.CRYPTO_AEAD_CHACHA20POLY1305_IETF_NONCEBYTES;
+import static org.libsodium.jni.SodiumConstants.CRYPTO_AUTH_HMACSHA256_BYTES;
+import static org.libsodium.jni.SodiumConstants.CRYPTO_HASH_SHA256;
+
+/**
+ * libsodium through {@code sodiumext} when it is loaded, otherwise through the SWIG
+ * bindings of {@code sodiumjni} on copies of the requested ranges.
+ *
+ * @author UBICUA
+ */
+public final class NativeSodiumProvider implements SodiumProvider {
+
+    public static final String NAME = "native";
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return NaCl.isAvailable();
+    }
+
+    @Override
+    public int aead_chacha20poly1305_ietf_encrypt(byte[] c, int cOffset, byte[] m, int mOffset, int mLength,
+                                                  byte[] ad, int adOffset, int adLength, byte[] npub, int npubOffset, byte[] k) {
+        if (SodiumExt.isAvailable()) {
+            return SodiumExt.aead_ietf_encrypt(c, cOffset, m, mOffset, mLength, ad, adOffset, adLength, npub, npubOffset, k);
+        }
+        byte[] cipher = new byte[mLength + CRYPTO_AEAD_CHACHA20POLY1305_IETF_ABYTES];
+        int result = Sodium.crypto_aead_chacha20poly1305_ietf_encrypt(cipher, new int[0], slice(m, mOffset, mLength), mLength,
+                slice(ad, adOffset, adLength), adLength, new byte[0], slice(npub, npubOffset, CRYPTO_AEAD_CHACHA20POLY1305_IETF_NONCEBYTES), k);
+        if (result == 0) {
+            System.arraycopy(cipher, 0, c, cOffset, cipher.length);
+        }
+        return result;
+    }
+
+    @Override
+    public int aead_chacha20poly1305_ietf_decrypt(byte[] m, int mOffset, byte[] c, int cOffset, int cLength,
+                                                  byte[] ad, int adOffset, int adLength, byte[] npub, int npubOffset, byte[] k) {
+        if (SodiumExt.isAvailable()) {
+            return SodiumExt.aead_ietf_decrypt(m, mOffset, c, cOffset, cLength, ad, adOffset, adLength, npub, npubOffset, k);
+        }
+        byte[] data = new byte[cLength - CRYPTO_AEAD_CHACHA20POLY1305_IETF_ABYTES];
+        int result = Sodium.crypto_aead_chacha20poly1305_ietf_decrypt(data, new int[0], new byte[0], slice(c, cOffset, cLength), cLength,
+                slice(ad, adOffset, adLength), adLength, slice(npub, npubOffset, CRYPTO_AEAD_CHACHA20POLY1305_IETF_NONCEBYTES), k);
+        if (result == 0) {
+            System.arraycopy(data, 0, m, mOffset, data.length);
+        }
+        return result;
+    }
+
+    @Override
+    public int hash_sha256(byte[] out, int outOffset, byte[] in, int inOffset, int inLength) {
+        if (SodiumExt.isAvailable()) {
+            return SodiumExt.hash_sha256(out, outOffset, in, inOffset, inLength);
+        }
+        byte[] hash = new byte[CRYPTO_HASH_SHA256];
+        int result = Sodium.crypto_hash_sha256(hash, slice(in, inOffset, inLength), inLength);
+        System.arraycopy(hash, 0, out, outOffset, hash.length);
+        return result;
+    }
+
+    @Override
+    public int auth_hmacsha256(byte[] out, int outOffset, byte[] in, int inOffset, int inLength, byte[] k) {
+        byte[] hash = new byte[CRYPTO_AUTH_HMACSHA256_BYTES];
+        int result = Sodium.crypto_auth_hmacsha256(hash, slice(in, inOffset, inLength), inLength, k);
+        System.arraycopy(hash, 0, out, outOffset, hash.length);
+        return result;
+    }
+
+    /* Avoids the copy when the range already covers the whole array, null stays empty */
+    private static byte[] slice(byte[] value, int offset, int count) {
+        if (value == null) {
+            return new byte[0];
+        }
+        return offset == 0 && count == value.length ? value : Arrays.copyOfRange(value, offset, offset + count);
+    }
+}
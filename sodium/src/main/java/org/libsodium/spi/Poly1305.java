@@ -0,0 +1,223 @@
+/*
+ *
+ *  * Copyright 2021 UBICUA.
+ *  *
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  *
+ *  *      http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ *
+ */
+
+package org.libsodium.spi;
+
+import static org.libsodium.spi.ChaCha20.le32;
+
+/**
+ * Poly1305 one-time authenticator, RFC 8439 section 2.5, on five 26 bit limbs as
+ * poly1305-donna-32. Instances hold the state and are reused, one per thread.
+ *
+ * @author UBICUA
+ */
+final class Poly1305 {
+
+    static final int KEYBYTES = 32;
+    static final int BYTES = 16;
+
+    private static final byte[] ZEROS = new byte[BYTES];
+
+    private int r0, r1, r2, r3, r4;
+    private int s1, s2, s3, s4;
+    private int h0, h1, h2, h3, h4;
+    private int pad0, pad1, pad2, pad3;
+
+    private final byte[] buffer = new byte[BYTES];
+    private int leftover;
+
+    void init(byte[] key, int offset) {
+        /* r &= 0xffffffc0ffffffc0ffffffc0fffffff */
+        r0 = le32(key, offset) & 0x3ffffff;
+        r1 = (le32(key, offset + 3) >>> 2) & 0x3ffff03;
+        r2 = (le32(key, offset + 6) >>> 4) & 0x3ffc0ff;
+        r3 = (le32(key, offset + 9) >>> 6) & 0x3f03fff;
+        r4 = (le32(key, offset + 12) >>> 8) & 0x00fffff;
+
+        s1 = r1 * 5;
+        s2 = r2 * 5;
+        s3 = r3 * 5;
+        s4 = r4 * 5;
+
+        h0 = h1 = h2 = h3 = h4 = 0;
+
+        pad0 = le32(key, offset + 16);
+        pad1 = le32(key, offset + 20);
+        pad2 = le32(key, offset + 24);
+        pad3 = le32(key, offset + 28);
+
+        leftover = 0;
+    }
+
+    void update(byte[] m, int offset, int length) {
+        if (leftover > 0) {
+            int want = Math.min(BYTES - leftover, length);
+            System.arraycopy(m, offset, buffer, leftover, want);
+            leftover += want;
+            offset += want;
+            length -= want;
+            if (leftover < BYTES) {
+                return;
+            }
+            blocks(buffer, 0, BYTES, 1 << 24);
+            leftover = 0;
+        }
+        int full = length & ~(BYTES - 1);
+        if (full > 0) {
+            blocks(m, offset, full, 1 << 24);
+            offset += full;
+            length -= full;
+        }
+        if (length > 0) {
+            System.arraycopy(m, offset, buffer, 0, length);
+            leftover = length;
+        }
+    }
+
+    /* Zero padding up to the next 16 byte boundary of {@code length} absorbed bytes, as the AEAD construction */
+    void pad(int length) {
+        int rest = length & (BYTES - 1);
+        if (rest != 0) {
+            update(ZEROS, 0, BYTES - rest);
+        }
+    }
+
+    /* Little endian 64 bit lengths closing the AEAD input */
+    void lengths(long adLength, long dataLength) {
+        for (int i = 0; i < 8; i++) {
+            buffer[leftover + i] = (byte) (adLength >>> (8 * i));
+        }
+        for (int i = 0; i < 8; i++) {
+            buffer[leftover + 8 + i] = (byte) (dataLength >>> (8 * i));
+        }
+        /* Called on a block boundary, the buffer is empty */
+        blocks(buffer, 0, BYTES, 1 << 24);
+    }
+
+    void finish(byte[] mac, int offset) {
+        if (leftover > 0) {
+            buffer[leftover] = 1;
+            for (int i = leftover + 1; i < BYTES; i++) {
+                buffer[i] = 0;
+            }
+            blocks(buffer, 0, BYTES, 0);
+            leftover = 0;
+        }
+
+        /* Fully carry h */
+        int c = h1 >>> 26; h1 &= 0x3ffffff;
+        h2 += c; c = h2 >>> 26; h2 &= 0x3ffffff;
+        h3 += c; c = h3 >>> 26; h3 &= 0x3ffffff;
+        h4 += c; c = h4 >>> 26; h4 &= 0x3ffffff;
+        h0 += c * 5; c = h0 >>> 26; h0 &= 0x3ffffff;
+        h1 += c;
+
+        /* Compute h + -p */
+        int g0 = h0 + 5; c = g0 >>> 26; g0 &= 0x3ffffff;
+        int g1 = h1 + c; c = g1 >>> 26; g1 &= 0x3ffffff;
+        int g2 = h2 + c; c = g2 >>> 26; g2 &= 0x3ffffff;
+        int g3 = h3 + c; c = g3 >>> 26; g3 &= 0x3ffffff;
+        int g4 = h4 + c - (1 << 26);
+
+        /* Select h if h < p, or h + -p if h >= p */
+        int mask = (g4 >>> 31) - 1;
+        g0 &= mask; g1 &= mask; g2 &= mask; g3 &= mask; g4 &= mask;
+        mask = ~mask;
+        h0 = (h0 & mask) | g0;
+        h1 = (h1 & mask) | g1;
+        h2 = (h2 & mask) | g2;
+        h3 = (h3 & mask) | g3;
+        h4 = (h4 & mask) | g4;
+
+        /* h = h % (2^128) */
+        h0 = h0 | (h1 << 26);
+        h1 = (h1 >>> 6) | (h2 << 20);
+        h2 = (h2 >>> 12) | (h3 << 14);
+        h3 = (h3 >>> 18) | (h4 << 8);
+
+        /* mac = (h + pad) % (2^128) */
+        long f = (h0 & 0xffffffffL) + (pad0 & 0xffffffffL);
+        h0 = (int) f;
+        f = (h1 & 0xffffffffL) + (pad1 & 0xffffffffL) + (f >>> 32);
+        h1 = (int) f;
+        f = (h2 & 0xffffffffL) + (pad2 & 0xffffffffL) + (f >>> 32);
+        h2 = (int) f;
+        f = (h3 & 0xffffffffL) + (pad3 & 0xffffffffL) + (f >>> 32);
+        h3 = (int) f;
+
+        store32(mac, offset, h0);
+        store32(mac, offset + 4, h1);
+        store32(mac, offset + 8, h2);
+        store32(mac, offset + 12, h3);
+        clear();
+    }
+
+    void clear() {
+        r0 = r1 = r2 = r3 = r4 = 0;
+        s1 = s2 = s3 = s4 = 0;
+        h0 = h1 = h2 = h3 = h4 = 0;
+        pad0 = pad1 = pad2 = pad3 = 0;
+        for (int i = 0; i < BYTES; i++) {
+            buffer[i] = 0;
+        }
+        leftover = 0;
+    }
+
+    private void blocks(byte[] m, int offset, int length, int hibit) {
+        int h0 = this.h0, h1 = this.h1, h2 = this.h2, h3 = this.h3, h4 = this.h4;
+        long r0 = this.r0, r1 = this.r1, r2 = this.r2, r3 = this.r3, r4 = this.r4;
+        long s1 = this.s1, s2 = this.s2, s3 = this.s3, s4 = this.s4;
+
+        while (length >= BYTES) {
+            /* h += m[i] */
+            h0 += le32(m, offset) & 0x3ffffff;
+            h1 += (le32(m, offset + 3) >>> 2) & 0x3ffffff;
+            h2 += (le32(m, offset + 6) >>> 4) & 0x3ffffff;
+            h3 += (le32(m, offset + 9) >>> 6) & 0x3ffffff;
+            h4 += (le32(m, offset + 12) >>> 8) | hibit;
+
+            /* h *= r */
+            long d0 = h0 * r0 + h1 * s4 + h2 * s3 + h3 * s2 + h4 * s1;
+            long d1 = h0 * r1 + h1 * r0 + h2 * s4 + h3 * s3 + h4 * s2;
+            long d2 = h0 * r2 + h1 * r1 + h2 * r0 + h3 * s4 + h4 * s3;
+            long d3 = h0 * r3 + h1 * r2 + h2 * r1 + h3 * r0 + h4 * s4;
+            long d4 = h0 * r4 + h1 * r3 + h2 * r2 + h3 * r1 + h4 * r0;
+
+            /* (partial) h %= p */
+            long c = d0 >>> 26; h0 = (int) d0 & 0x3ffffff;
+            d1 += c; c = d1 >>> 26; h1 = (int) d1 & 0x3ffffff;
+            d2 += c; c = d2 >>> 26; h2 = (int) d2 & 0x3ffffff;
+            d3 += c; c = d3 >>> 26; h3 = (int) d3 & 0x3ffffff;
+            d4 += c; c = d4 >>> 26; h4 = (int) d4 & 0x3ffffff;
+            h0 += (int) c * 5; c = h0 >>> 26; h0 &= 0x3ffffff;
+            h1 += (int) c;
+
+            offset += BYTES;
+            length -= BYTES;
+        }
+
+        this.h0 = h0; this.h1 = h1; this.h2 = h2; this.h3 = h3; this.h4 = h4;
+    }
+
+    private static void store32(byte[] b, int offset, int value) {
+        b[offset] = (byte) value;
+        b[offset + 1] = (byte) (value >>> 8);
+        b[offset + 2] = (byte) (value >>> 16);
+        b[offset + 3] = (byte) (value >>> 24);
+    }
+}
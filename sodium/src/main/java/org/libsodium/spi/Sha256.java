@@ -0,0 +1,198 @@
+/*
+ *
+ *  * Copyright 2021 UBICUA.
+ *  *
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  *
+ *  *      http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ *
+ */
+
+package org.libsodium.spi;
+
+/**
+ * SHA-256, FIPS 180-4, and HMAC-SHA256, RFC 2104. Instances hold the state and are
+ * reused, one per thread.
+ *
+ * @author UBICUA
+ */
+final class Sha256 {
+
+    static final int BYTES = 32;
+    static final int BLOCKBYTES = 64;
+
+    private static final int[] K = {
+            0x428a2f98, 0x71374491, 0xb5c0fbcf, 0xe9b5dba5, 0x3956c25b, 0x59f111f1, 0x923f82a4, 0xab1c5ed5,
+            0xd807aa98, 0x12835b01, 0x243185be, 0x550c7dc3, 0x72be5d74, 0x80deb1fe, 0x9bdc06a7, 0xc19bf174,
+            0xe49b69c1, 0xefbe4786, 0x0fc19dc6, 0x240ca1cc, 0x2de92c6f, 0x4a7484aa, 0x5cb0a9dc, 0x76f988da,
+            0x983e5152, 0xa831c66d, 0xb00327c8, 0xbf597fc7, 0xc6e00bf3, 0xd5a79147, 0x06ca6351, 0x14292967,
+            0x27b70a85, 0x2e1b2138, 0x4d2c6dfc, 0x53380d13, 0x650a7354, 0x766a0abb, 0x81c2c92e, 0x92722c85,
+            0xa2bfe8a1, 0xa81a664b, 0xc24b8b70, 0xc76c51a3, 0xd192e819, 0xd6990624, 0xf40e3585, 0x106aa070,
+            0x19a4c116, 0x1e376c08, 0x2748774c, 0x34b0bcb5, 0x391c0cb3, 0x4ed8aa4a, 0x5b9cca4f, 0x682e6ff3,
+            0x748f82ee, 0x78a5636f, 0x84c87814, 0x8cc70208, 0x90befffa, 0xa4506ceb, 0xbef9a3f7, 0xc67178f2
+    };
+
+    private final int[] h = new int[8];
+    private final int[] w = new int[64];
+    private final byte[] buffer = new byte[BLOCKBYTES];
+    private int buffered;
+    private long count;
+
+    /* HMAC key block and inner digest */
+    private final byte[] pad = new byte[BLOCKBYTES];
+    private final byte[] inner = new byte[BYTES];
+
+    Sha256 reset() {
+        h[0] = 0x6a09e667;
+        h[1] = 0xbb67ae85;
+        h[2] = 0x3c6ef372;
+        h[3] = 0xa54ff53a;
+        h[4] = 0x510e527f;
+        h[5] = 0x9b05688c;
+        h[6] = 0x1f83d9ab;
+        h[7] = 0x5be0cd19;
+        buffered = 0;
+        count = 0;
+        return this;
+    }
+
+    Sha256 update(byte[] in, int offset, int length) {
+        count += length;
+        if (buffered > 0) {
+            int want = Math.min(BLOCKBYTES - buffered, length);
+            System.arraycopy(in, offset, buffer, buffered, want);
+            buffered += want;
+            offset += want;
+            length -= want;
+            if (buffered < BLOCKBYTES) {
+                return this;
+            }
+            compress(buffer, 0);
+            buffered = 0;
+        }
+        while (length >= BLOCKBYTES) {
+            compress(in, offset);
+            offset += BLOCKBYTES;
+            length -= BLOCKBYTES;
+        }
+        if (length > 0) {
+            System.arraycopy(in, offset, buffer, 0, length);
+            buffered = length;
+        }
+        return this;
+    }
+
+    void digest(byte[] out, int offset) {
+        long bits = count << 3;
+        buffer[buffered++] = (byte) 0x80;
+        if (buffered > BLOCKBYTES - 8) {
+            while (buffered < BLOCKBYTES) {
+                buffer[buffered++] = 0;
+            }
+            compress(buffer, 0);
+            buffered = 0;
+        }
+        while (buffered < BLOCKBYTES - 8) {
+            buffer[buffered++] = 0;
+        }
+        for (int i = 0; i < 8; i++) {
+            buffer[BLOCKBYTES - 1 - i] = (byte) (bits >>> (8 * i));
+        }
+        compress(buffer, 0);
+
+        for (int i = 0; i < 8; i++) {
+            int v = h[i];
+            out[offset + 4 * i] = (byte) (v >>> 24);
+            out[offset + 4 * i + 1] = (byte) (v >>> 16);
+            out[offset + 4 * i + 2] = (byte) (v >>> 8);
+            out[offset + 4 * i + 3] = (byte) v;
+        }
+        clear();
+    }
+
+    void hmac(byte[] out, int outOffset, byte[] in, int offset, int length, byte[] key) {
+        /* Keys longer than a block are hashed first */
+        if (key.length > BLOCKBYTES) {
+            reset().update(key, 0, key.length).digest(pad, 0);
+            for (int i = BYTES; i < BLOCKBYTES; i++) {
+                pad[i] = 0;
+            }
+        } else {
+            System.arraycopy(key, 0, pad, 0, key.length);
+            for (int i = key.length; i < BLOCKBYTES; i++) {
+                pad[i] = 0;
+            }
+        }
+
+        for (int i = 0; i < BLOCKBYTES; i++) {
+            pad[i] ^= 0x36;
+        }
+        reset().update(pad, 0, BLOCKBYTES).update(in, offset, length).digest(inner, 0);
+
+        for (int i = 0; i < BLOCKBYTES; i++) {
+            pad[i] ^= 0x36 ^ 0x5c;
+        }
+        reset().update(pad, 0, BLOCKBYTES).update(inner, 0, BYTES).digest(out, outOffset);
+
+        for (int i = 0; i < BLOCKBYTES; i++) {
+            pad[i] = 0;
+        }
+        for (int i = 0; i < BYTES; i++) {
+            inner[i] = 0;
+        }
+    }
+
+    private void clear() {
+        for (int i = 0; i < 8; i++) {
+            h[i] = 0;
+        }
+        for (int i = 0; i < BLOCKBYTES; i++) {
+            buffer[i] = 0;
+        }
+        for (int i = 0; i < 64; i++) {
+            w[i] = 0;
+        }
+        buffered = 0;
+        count = 0;
+    }
+
+    private void compress(byte[] block, int offset) {
+        for (int i = 0; i < 16; i++) {
+            int j = offset + 4 * i;
+            w[i] = (block[j] & 0xff) << 24 | (block[j + 1] & 0xff) << 16 | (block[j + 2] & 0xff) << 8 | (block[j + 3] & 0xff);
+        }
+        for (int i = 16; i < 64; i++) {
+            int w15 = w[i - 15];
+            int w2 = w[i - 2];
+            int s0 = Integer.rotateRight(w15, 7) ^ Integer.rotateRight(w15, 18) ^ (w15 >>> 3);
+            int s1 = Integer.rotateRight(w2, 17) ^ Integer.rotateRight(w2, 19) ^ (w2 >>> 10);
+            w[i] = w[i - 16] + s0 + w[i - 7] + s1;
+        }
+
+        int a = h[0], b = h[1], c = h[2], d = h[3], e = h[4], f = h[5], g = h[6], k = h[7];
+        for (int i = 0; i < 64; i++) {
+            int t1 = k + (Integer.rotateRight(e, 6) ^ Integer.rotateRight(e, 11) ^ Integer.rotateRight(e, 25))
+                    + ((e & f) ^ (~e & g)) + K[i] + w[i];
+            int t2 = (Integer.rotateRight(a, 2) ^ Integer.rotateRight(a, 13) ^ Integer.rotateRight(a, 22))
+                    + ((a & b) ^ (a & c) ^ (b & c));
+            k = g;
+            g = f;
+            f = e;
+            e = d + t1;
+            d = c;
+            c = b;
+            b = a;
+            a = t1 + t2;
+        }
+        h[0] += a; h[1] += b; h[2] += c; h[3] += d;
+        h[4] += e; h[5] += f; h[6] += g; h[7] += k;
+    }
+}
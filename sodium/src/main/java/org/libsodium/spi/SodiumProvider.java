@@ -0,0 +1,48 @@
+/*
+ *
+ *  * Copyright 2021 UBICUA.
+ *  *
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  *
+ *  *      http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ *
+ */
+
+package org.libsodium.spi;
+
+/**
+ * Implementation of the primitives the {@code org.libsodium.api} wrappers dispatch through
+ * {@link SodiumProviders}, either the native library or a pure Java one. Functions follow the
+ * libsodium conventions: 0 on success, -1 otherwise. Ranges and sizes are validated by the
+ * wrappers before any call, inputs and outputs may overlap only at the same offset.
+ *
+ * <p>Additional providers are registered in
+ * {@code META-INF/services/org.libsodium.spi.SodiumProvider}.
+ *
+ * @author UBICUA
+ */
+public interface SodiumProvider {
+
+    /* Name matched by the {@link SodiumProviders#PROPERTY} system property */
+    String getName();
+
+    boolean isAvailable();
+
+    int aead_chacha20poly1305_ietf_encrypt(byte[] c, int cOffset, byte[] m, int mOffset, int mLength,
+                                           byte[] ad, int adOffset, int adLength, byte[] npub, int npubOffset, byte[] k);
+
+    int aead_chacha20poly1305_ietf_decrypt(byte[] m, int mOffset, byte[] c, int cOffset, int cLength,
+                                           byte[] ad, int adOffset, int adLength, byte[] npub, int npubOffset, byte[] k);
+
+    int hash_sha256(byte[] out, int outOffset, byte[] in, int inOffset, int inLength);
+
+    int auth_hmacsha256(byte[] out, int outOffset, byte[] in, int inOffset, int inLength, byte[] k);
+}
@@ -0,0 +1,195 @@
+/*
+ *
+ *  * Copyright 2021 UBICUA.
+ *  *
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  *
+ *  *      http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ *
+ */
+
+package org.libsodium.spi;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+import static org.libsodium.jni.SodiumConstants.CRYPTO_AEAD_CHACHA20POLY1305_IETF_ABYTES;
+import static org.libsodium.jni.SodiumConstants.CRYPTO_AEAD_CHACHA20POLY1305_IETF_KEYBYTES;
+import static org.libsodium.jni.SodiumConstants.CRYPTO_AEAD_CHACHA20POLY1305_IETF_NONCEBYTES;
+import static org.libsodium.jni.SodiumConstants.CRYPTO_AUTH_HMACSHA256_KEYBYTES;
+import static org.libsodium.jni.SodiumConstants.CRYPTO_HASH_SHA256;
+
+/**
+ * Picks a {@link SodiumProvider} per {@link Operation} once, on first use. The provider
+ * named by the {@code org.libsodium.provider.<operation>} system property wins when it is
+ * available, then the one named by {@value #PROPERTY}; otherwise, among the available ones,
+ * the fastest on a short run over {@link #BENCHMARK_SIZES}. The native and the pure Java
+ * providers are always candidates, others come from {@link ServiceLoader}.
+ *
+ * @author UBICUA
+ */
+public final class SodiumProviders {
+
+    public static final String PROPERTY = "org.libsodium.provider";
+
+    /* Small tag values and a typical record */
+    public static final int[] BENCHMARK_SIZES = {0x40, 0x400};
+    public static final int BENCHMARK_ITERATIONS = 0x100;
+
+    public enum Operation {
+        AEAD_CHACHA20POLY1305_IETF("aead"),
+        HASH_SHA256("sha256"),
+        AUTH_HMACSHA256("hmacsha256");
+
+        private final String property;
+
+        Operation(String property) {
+            this.property = property;
+        }
+
+        /* System property selecting the provider of this operation */
+        public String getProperty() {
+            return PROPERTY + "." + property;
+        }
+    }
+
+    private static final class ProviderHolder {
+        private static final Map<Operation, SodiumProvider> PROVIDERS = new EnumMap<>(Operation.class);
+
+        static {
+            List<SodiumProvider> providers = providers();
+            for (Operation operation : Operation.values()) {
+                String name = System.getProperty(operation.getProperty(), System.getProperty(PROPERTY));
+                PROVIDERS.put(operation, select(providers, operation, name));
+            }
+        }
+    }
+
+    private SodiumProviders() {
+    }
+
+    public static SodiumProvider get(Operation operation) {
+        return ProviderHolder.PROVIDERS.get(operation);
+    }
+
+    /* Every registered provider, the native one first, available or not */
+    public static List<SodiumProvider> providers() {
+        List<SodiumProvider> providers = new ArrayList<>();
+        providers.add(new NativeSodiumProvider());
+        providers.add(new JavaSodiumProvider());
+
+        Iterator<SodiumProvider> iterator = ServiceLoader.load(SodiumProvider.class, SodiumProviders.class.getClassLoader()).iterator();
+        while (true) {
+            try {
+                if (!iterator.hasNext()) {
+                    break;
+                }
+                providers.add(iterator.next());
+            } catch (ServiceConfigurationError e) {
+                /* A broken registration does not hide the others */
+            }
+        }
+        return Collections.unmodifiableList(providers);
+    }
+
+    /**
+     * Provider named {@code name} when available, otherwise the fastest available one for
+     * {@code operation}. When none is available the first is returned, so calls fail as they
+     * did without providers.
+     */
+    public static SodiumProvider select(List<SodiumProvider> providers, Operation operation, String name) {
+        List<SodiumProvider> available = new ArrayList<>();
+        for (SodiumProvider provider : providers) {
+            if (available(provider)) {
+                if (provider.getName().equals(name)) {
+                    return provider;
+                }
+                available.add(provider);
+            }
+        }
+        if (available.isEmpty()) {
+            return providers.get(0);
+        }
+        if (available.size() == 1) {
+            return available.get(0);
+        }
+
+        SodiumProvider fastest = available.get(0);
+        long best = Long.MAX_VALUE;
+        for (SodiumProvider provider : available) {
+            long time = 0;
+            for (int size : BENCHMARK_SIZES) {
+                long sample = benchmark(provider, operation, size, BENCHMARK_ITERATIONS);
+                time = sample == Long.MAX_VALUE ? Long.MAX_VALUE : time + sample;
+                if (time == Long.MAX_VALUE) {
+                    break;
+                }
+            }
+            if (time < best) {
+                best = time;
+                fastest = provider;
+            }
+        }
+        return fastest;
+    }
+
+    /**
+     * Nanoseconds per call of {@code operation} over {@code size} bytes, measured after as
+     * many warm up calls. {@link Long#MAX_VALUE} when the provider fails.
+     */
+    public static long benchmark(SodiumProvider provider, Operation operation, int size, int iterations) {
+        byte[] data = new byte[size];
+        byte[] out = new byte[size + CRYPTO_AEAD_CHACHA20POLY1305_IETF_ABYTES + CRYPTO_HASH_SHA256];
+        byte[] nonce = new byte[CRYPTO_AEAD_CHACHA20POLY1305_IETF_NONCEBYTES];
+        byte[] key = new byte[Math.max(CRYPTO_AEAD_CHACHA20POLY1305_IETF_KEYBYTES, CRYPTO_AUTH_HMACSHA256_KEYBYTES)];
+
+        try {
+            long start = 0;
+            for (int i = 0; i < 2 * iterations; i++) {
+                if (i == iterations) {
+                    start = System.nanoTime();
+                }
+                data[0] = (byte) i;
+                int result;
+                switch (operation) {
+                    case AEAD_CHACHA20POLY1305_IETF:
+                        result = provider.aead_chacha20poly1305_ietf_encrypt(out, 0, data, 0, size, null, 0, 0, nonce, 0, key);
+                        break;
+                    case HASH_SHA256:
+                        result = provider.hash_sha256(out, 0, data, 0, size);
+                        break;
+                    default:
+                        result = provider.auth_hmacsha256(out, 0, data, 0, size, key);
+                        break;
+                }
+                if (result != 0) {
+                    return Long.MAX_VALUE;
+                }
+            }
+            return (System.nanoTime() - start) / Math.max(iterations, 1);
+        } catch (RuntimeException | LinkageError e) {
+            return Long.MAX_VALUE;
+        }
+    }
+
+    private static boolean available(SodiumProvider provider) {
+        try {
+            return provider.isAvailable();
+        } catch (RuntimeException | LinkageError e) {
+            return false;
+        }
+    }
+}
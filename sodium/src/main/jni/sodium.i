@@ -0,0 +1,445 @@
+/*
+ *
+ *  * Copyright 2021 UBICUA.
+ *  *
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  *
+ *  *      http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ *
+ */
+
+/*
+ * SWIG interface of libsodiumjni, the generated org.libsodium.jni.SodiumJNI and
+ * org.libsodium.jni.Sodium are checked in. Types follow the Java side rather than
+ * libsodium: buffers are byte[], lengths and sizes int, output lengths int[] and
+ * opaque states byte[]. The wrapper includes sodium.h, so arguments are converted
+ * to the real prototypes when compiled.
+ */
+%module Sodium
+
+%{
+#include <string.h>
+#include <sodium.h>
+%}
+
+/* Buffers, null passes NULL through */
+%typemap(jni) unsigned char *, void * "jbyteArray"
+%typemap(jtype) unsigned char *, void * "byte[]"
+%typemap(jstype) unsigned char *, void * "byte[]"
+%typemap(javain) unsigned char *, void * "$javainput"
+%typemap(in) unsigned char *, void * {
+    $1 = $input ? ($1_ltype) JCALL2(GetByteArrayElements, jenv, $input, 0) : NULL;
+}
+%typemap(argout) unsigned char *, void * {
+    if ($input) {
+        JCALL3(ReleaseByteArrayElements, jenv, $input, (jbyte *) $1, 0);
+    }
+}
+
+/* Nul terminated strings returned as bytes, e.g. primitive names */
+%typemap(jni) const unsigned char * "jbyteArray"
+%typemap(jtype) const unsigned char * "byte[]"
+%typemap(jstype) const unsigned char * "byte[]"
+%typemap(javaout) const unsigned char * {
+    return $jnicall;
+}
+%typemap(out) const unsigned char * {
+    jsize length = (jsize) strlen((const char *) $1);
+    $result = JCALL1(NewByteArray, jenv, length);
+    JCALL4(SetByteArrayRegion, jenv, $result, 0, length, (const jbyte *) $1);
+}
+
+/* Lengths */
+%typemap(jni) unsigned long long "jint"
+%typemap(jtype) unsigned long long "int"
+%typemap(jstype) unsigned long long "int"
+%typemap(javain) unsigned long long "$javainput"
+%typemap(in) unsigned long long {
+    $1 = (unsigned long long) $input;
+}
+
+/* Output lengths, written to element 0 when the array is not empty */
+%typemap(jni) unsigned long long * "jintArray"
+%typemap(jtype) unsigned long long * "int[]"
+%typemap(jstype) unsigned long long * "int[]"
+%typemap(javain) unsigned long long * "$javainput"
+%typemap(in) unsigned long long * (unsigned long long temp) {
+    temp = 0;
+    $1 = &temp;
+}
+%typemap(argout) unsigned long long * {
+    if ($input && JCALL1(GetArrayLength, jenv, $input) > 0) {
+        jint value = (jint) temp$argnum;
+        JCALL4(SetIntArrayRegion, jenv, $input, 0, 1, &value);
+    }
+}
+
+int sodium_init(void);
+const char *sodium_version_string(void);
+
+void randombytes(unsigned char *, unsigned long long);
+int randombytes_random(void);
+int randombytes_uniform(unsigned long long);
+void randombytes_buf(unsigned char *, unsigned long long);
+int randombytes_close(void);
+void randombytes_stir(void);
+
+void sodium_increment(unsigned char *, unsigned long long);
+
+int crypto_secretbox_keybytes(void);
+int crypto_secretbox_noncebytes(void);
+int crypto_secretbox_macbytes(void);
+int crypto_secretbox_zerobytes(void);
+int crypto_secretbox_boxzerobytes(void);
+const unsigned char *crypto_secretbox_primitive(void);
+int crypto_secretbox_easy(unsigned char *, unsigned char *, unsigned long long, unsigned char *, unsigned char *);
+int crypto_secretbox_open_easy(unsigned char *, unsigned char *, unsigned long long, unsigned char *, unsigned char *);
+int crypto_secretbox_detached(unsigned char *, unsigned char *, unsigned char *, unsigned long long, unsigned char *, unsigned char *);
+int crypto_secretbox_open_detached(unsigned char *, unsigned char *, unsigned char *, unsigned long long, unsigned char *, unsigned char *);
+
+int crypto_scalarmult_bytes(void);
+int crypto_scalarmult_scalarbytes(void);
+const unsigned char *crypto_scalarmult_primitive(void);
+int crypto_scalarmult_base(unsigned char *, unsigned char *);
+int crypto_scalarmult(unsigned char *, unsigned char *, unsigned char *);
+
+int crypto_box_seedbytes(void);
+int crypto_box_publickeybytes(void);
+int crypto_box_secretkeybytes(void);
+int crypto_box_noncebytes(void);
+int crypto_box_macbytes(void);
+const unsigned char *crypto_box_primitive(void);
+int crypto_box_keypair(unsigned char *, unsigned char *);
+int crypto_box_seed_keypair(unsigned char *, unsigned char *, unsigned char *);
+int crypto_box_easy(unsigned char *, unsigned char *, unsigned long long, unsigned char *, unsigned char *, unsigned char *);
+int crypto_box_open_easy(unsigned char *, unsigned char *, unsigned long long, unsigned char *, unsigned char *, unsigned char *);
+int crypto_box_detached(unsigned char *, unsigned char *, unsigned char *, unsigned long long, unsigned char *, unsigned char *, unsigned char *);
+int crypto_box_open_detached(unsigned char *, unsigned char *, unsigned char *, unsigned long long, unsigned char *, unsigned char *, unsigned char *);
+int crypto_box_beforenmbytes(void);
+int crypto_box_beforenm(unsigned char *, unsigned char *, unsigned char *);
+int crypto_box_easy_afternm(unsigned char *, unsigned char *, unsigned long long, unsigned char *, unsigned char *);
+int crypto_box_open_easy_afternm(unsigned char *, unsigned char *, unsigned long long, unsigned char *, unsigned char *);
+int crypto_box_detached_afternm(unsigned char *, unsigned char *, unsigned char *, unsigned long long, unsigned char *, unsigned char *);
+int crypto_box_open_detached_afternm(unsigned char *, unsigned char *, unsigned char *, unsigned long long, unsigned char *, unsigned char *);
+int crypto_box_sealbytes(void);
+int crypto_box_seal(unsigned char *, unsigned char *, unsigned long long, unsigned char *);
+int crypto_box_seal_open(unsigned char *, unsigned char *, unsigned long long, unsigned char *, unsigned char *);
+int crypto_box_zerobytes(void);
+int crypto_box_boxzerobytes(void);
+int crypto_box(unsigned char *, unsigned char *, unsigned long long, unsigned char *, unsigned char *, unsigned char *);
+int crypto_box_open(unsigned char *, unsigned char *, unsigned long long, unsigned char *, unsigned char *, unsigned char *);
+int crypto_box_afternm(unsigned char *, unsigned char *, unsigned long long, unsigned char *, unsigned char *);
+int crypto_box_open_afternm(unsigned char *, unsigned char *, unsigned long long, unsigned char *, unsigned char *);
+
+int crypto_sign_bytes(void);
+int crypto_sign_seedbytes(void);
+int crypto_sign_publickeybytes(void);
+int crypto_sign_secretkeybytes(void);
+const unsigned char *crypto_sign_primitive(void);
+int crypto_sign_keypair(unsigned char *, unsigned char *);
+int crypto_sign_seed_keypair(unsigned char *, unsigned char *, unsigned char *);
+int crypto_sign(unsigned char *, unsigned long long *, unsigned char *, unsigned long long, unsigned char *);
+int crypto_sign_open(unsigned char *, unsigned long long *, unsigned char *, unsigned long long, unsigned char *);
+int crypto_sign_detached(unsigned char *, unsigned long long *, unsigned char *, unsigned long long, unsigned char *);
+int crypto_sign_verify_detached(unsigned char *, unsigned char *, unsigned long long, unsigned char *);
+int crypto_sign_ed25519_sk_to_seed(unsigned char *, unsigned char *);
+int crypto_sign_ed25519_sk_to_pk(unsigned char *, unsigned char *);
+
+int crypto_generichash_bytes(void);
+int crypto_generichash_bytes_min(void);
+int crypto_generichash_bytes_max(void);
+int crypto_generichash_keybytes(void);
+int crypto_generichash_keybytes_min(void);
+int crypto_generichash_keybytes_max(void);
+const unsigned char *crypto_generichash_primitive(void);
+int crypto_generichash(unsigned char *, unsigned long long, unsigned char *, unsigned long long, unsigned char *, unsigned long long);
+int crypto_generichash_statebytes(void);
+int crypto_generichash_init(void *, unsigned char *, unsigned long long, unsigned long long);
+int crypto_generichash_update(void *, unsigned char *, unsigned long long);
+int crypto_generichash_final(void *, unsigned char *, unsigned long long);
+
+int crypto_shorthash_bytes(void);
+int crypto_shorthash_keybytes(void);
+const unsigned char *crypto_shorthash_primitive(void);
+int crypto_shorthash(unsigned char *, unsigned char *, unsigned long long, unsigned char *);
+
+int crypto_auth_bytes(void);
+int crypto_auth_keybytes(void);
+const unsigned char *crypto_auth_primitive(void);
+int crypto_auth(unsigned char *, unsigned char *, unsigned long long, unsigned char *);
+int crypto_auth_verify(unsigned char *, unsigned char *, unsigned long long, unsigned char *);
+
+int crypto_onetimeauth_bytes(void);
+int crypto_onetimeauth_keybytes(void);
+const unsigned char *crypto_onetimeauth_primitive(void);
+int crypto_onetimeauth(unsigned char *, unsigned char *, unsigned long long, unsigned char *);
+int crypto_onetimeauth_verify(unsigned char *, unsigned char *, unsigned long long, unsigned char *);
+int crypto_onetimeauth_statebytes(void);
+int crypto_onetimeauth_init(void *, unsigned char *);
+int crypto_onetimeauth_update(void *, unsigned char *, unsigned long long);
+int crypto_onetimeauth_final(void *, unsigned char *);
+
+int crypto_kx_keypair(unsigned char *, unsigned char *);
+int crypto_kx_seed_keypair(unsigned char *, unsigned char *, unsigned char *);
+int crypto_kx_client_session_keys(unsigned char *, unsigned char *, unsigned char *, unsigned char *, unsigned char *);
+int crypto_kx_server_session_keys(unsigned char *, unsigned char *, unsigned char *, unsigned char *, unsigned char *);
+
+int crypto_kdf_bytes_min(void);
+int crypto_kdf_bytes_max(void);
+int crypto_kdf_keybytes(void);
+int crypto_kdf_contextbytes(void);
+const unsigned char *crypto_kdf_primitive(void);
+int crypto_kdf_derive_from_key(unsigned char *, unsigned long long, unsigned long long, unsigned char *, unsigned char *);
+void crypto_kdf_keygen(unsigned char *);
+
+int crypto_aead_chacha20poly1305_keybytes(void);
+int crypto_aead_chacha20poly1305_nsecbytes(void);
+int crypto_aead_chacha20poly1305_npubbytes(void);
+int crypto_aead_chacha20poly1305_abytes(void);
+int crypto_aead_chacha20poly1305_messagebytes_max(void);
+void crypto_aead_chacha20poly1305_keygen(unsigned char *);
+int crypto_aead_chacha20poly1305_encrypt(unsigned char *, unsigned long long *, unsigned char *, unsigned long long, unsigned char *, unsigned long long, unsigned char *, unsigned char *, unsigned char *);
+int crypto_aead_chacha20poly1305_encrypt_detached(unsigned char *, unsigned char *, unsigned long long *, unsigned char *, unsigned long long, unsigned char *, unsigned long long, unsigned char *, unsigned char *, unsigned char *);
+int crypto_aead_chacha20poly1305_decrypt(unsigned char *, unsigned long long *, unsigned char *, unsigned char *, unsigned long long, unsigned char *, unsigned long long, unsigned char *, unsigned char *);
+int crypto_aead_chacha20poly1305_decrypt_detached(unsigned char *, unsigned char *, unsigned char *, unsigned long long, unsigned char *, unsigned char *, unsigned long long, unsigned char *, unsigned char *);
+int crypto_aead_chacha20poly1305_ietf_keybytes(void);
+int crypto_aead_chacha20poly1305_ietf_nsecbytes(void);
+int crypto_aead_chacha20poly1305_ietf_abytes(void);
+int crypto_aead_chacha20poly1305_ietf_messagebytes_max(void);
+int crypto_aead_chacha20poly1305_ietf_npubbytes(void);
+void crypto_aead_chacha20poly1305_ietf_keygen(unsigned char *);
+int crypto_aead_chacha20poly1305_ietf_encrypt(unsigned char *, unsigned long long *, unsigned char *, unsigned long long, unsigned char *, unsigned long long, unsigned char *, unsigned char *, unsigned char *);
+int crypto_aead_chacha20poly1305_ietf_encrypt_detached(unsigned char *, unsigned char *, unsigned long long *, unsigned char *, unsigned long long, unsigned char *, unsigned long long, unsigned char *, unsigned char *, unsigned char *);
+int crypto_aead_chacha20poly1305_ietf_decrypt(unsigned char *, unsigned long long *, unsigned char *, unsigned char *, unsigned long long, unsigned char *, unsigned long long, unsigned char *, unsigned char *);
+int crypto_aead_chacha20poly1305_ietf_decrypt_detached(unsigned char *, unsigned char *, unsigned char *, unsigned long long, unsigned char *, unsigned char *, unsigned long long, unsigned char *, unsigned char *);
+int crypto_aead_xchacha20poly1305_ietf_keybytes(void);
+int crypto_aead_xchacha20poly1305_ietf_npubbytes(void);
+int crypto_aead_xchacha20poly1305_ietf_nsecbytes(void);
+int crypto_aead_xchacha20poly1305_ietf_abytes(void);
+int crypto_aead_xchacha20poly1305_ietf_messagebytes_max(void);
+void crypto_aead_xchacha20poly1305_ietf_keygen(unsigned char *);
+int crypto_aead_xchacha20poly1305_ietf_encrypt_detached(unsigned char *, unsigned char *, unsigned long long *, unsigned char *, unsigned long long, unsigned char *, unsigned long long, unsigned char *, unsigned char *, unsigned char *);
+int crypto_aead_xchacha20poly1305_ietf_encrypt(unsigned char *, unsigned long long *, unsigned char *, unsigned long long, unsigned char *, unsigned long long, unsigned char *, unsigned char *, unsigned char *);
+int crypto_aead_xchacha20poly1305_ietf_decrypt_detached(unsigned char *, unsigned char *, unsigned char *, unsigned long long, unsigned char *, unsigned char *, unsigned long long, unsigned char *, unsigned char *);
+int crypto_aead_xchacha20poly1305_ietf_decrypt(unsigned char *, unsigned long long *, unsigned char *, unsigned char *, unsigned long long, unsigned char *, unsigned long long, unsigned char *, unsigned char *);
+
+int crypto_auth_hmacsha256_bytes(void);
+int crypto_auth_hmacsha256_keybytes(void);
+int crypto_auth_hmacsha256(unsigned char *, unsigned char *, unsigned long long, unsigned char *);
+int crypto_auth_hmacsha256_verify(unsigned char *, unsigned char *, unsigned long long, unsigned char *);
+int crypto_auth_hmacsha256_statebytes(void);
+int crypto_auth_hmacsha256_init(void *, unsigned char *, unsigned long long);
+int crypto_auth_hmacsha256_update(void *, unsigned char *, unsigned long long);
+int crypto_auth_hmacsha256_final(void *, unsigned char *);
+int crypto_auth_hmacsha512_bytes(void);
+int crypto_auth_hmacsha512_keybytes(void);
+int crypto_auth_hmacsha512(unsigned char *, unsigned char *, unsigned long long, unsigned char *);
+int crypto_auth_hmacsha512_verify(unsigned char *, unsigned char *, unsigned long long, unsigned char *);
+int crypto_auth_hmacsha512_statebytes(void);
+int crypto_auth_hmacsha512_init(void *, unsigned char *, unsigned long long);
+int crypto_auth_hmacsha512_update(void *, unsigned char *, unsigned long long);
+int crypto_auth_hmacsha512_final(void *, unsigned char *);
+int crypto_auth_hmacsha512256_bytes(void);
+int crypto_auth_hmacsha512256_keybytes(void);
+int crypto_auth_hmacsha512256(unsigned char *, unsigned char *, unsigned long long, unsigned char *);
+int crypto_auth_hmacsha512256_verify(unsigned char *, unsigned char *, unsigned long long, unsigned char *);
+int crypto_auth_hmacsha512256_statebytes(void);
+int crypto_auth_hmacsha512256_init(void *, unsigned char *, unsigned long long);
+int crypto_auth_hmacsha512256_update(void *, unsigned char *, unsigned long long);
+int crypto_auth_hmacsha512256_final(void *, unsigned char *);
+
+int crypto_box_curve25519xsalsa20poly1305_seedbytes(void);
+int crypto_box_curve25519xsalsa20poly1305_publickeybytes(void);
+int crypto_box_curve25519xsalsa20poly1305_secretkeybytes(void);
+int crypto_box_curve25519xsalsa20poly1305_beforenmbytes(void);
+int crypto_box_curve25519xsalsa20poly1305_noncebytes(void);
+int crypto_box_curve25519xsalsa20poly1305_zerobytes(void);
+int crypto_box_curve25519xsalsa20poly1305_boxzerobytes(void);
+int crypto_box_curve25519xsalsa20poly1305_macbytes(void);
+int crypto_box_curve25519xsalsa20poly1305(unsigned char *, unsigned char *, unsigned long long, unsigned char *, unsigned char *, unsigned char *);
+int crypto_box_curve25519xsalsa20poly1305_open(unsigned char *, unsigned char *, unsigned long long, unsigned char *, unsigned char *, unsigned char *);
+int crypto_box_curve25519xsalsa20poly1305_seed_keypair(unsigned char *, unsigned char *, unsigned char *);
+int crypto_box_curve25519xsalsa20poly1305_keypair(unsigned char *, unsigned char *);
+int crypto_box_curve25519xsalsa20poly1305_beforenm(unsigned char *, unsigned char *, unsigned char *);
+int crypto_box_curve25519xsalsa20poly1305_afternm(unsigned char *, unsigned char *, unsigned long long, unsigned char *, unsigned char *);
+int crypto_box_curve25519xsalsa20poly1305_open_afternm(unsigned char *, unsigned char *, unsigned long long, unsigned char *, unsigned char *);
+
+int crypto_core_hsalsa20_outputbytes(void);
+int crypto_core_hsalsa20_inputbytes(void);
+int crypto_core_hsalsa20_keybytes(void);
+int crypto_core_hsalsa20_constbytes(void);
+int crypto_core_hsalsa20(unsigned char *, unsigned char *, unsigned char *, unsigned char *);
+int crypto_core_salsa20_outputbytes(void);
+int crypto_core_salsa20_inputbytes(void);
+int crypto_core_salsa20_keybytes(void);
+int crypto_core_salsa20_constbytes(void);
+int crypto_core_salsa20(unsigned char *, unsigned char *, unsigned char *, unsigned char *);
+
+int crypto_generichash_blake2b_bytes_min(void);
+int crypto_generichash_blake2b_bytes_max(void);
+int crypto_generichash_blake2b_bytes(void);
+int crypto_generichash_blake2b_keybytes_min(void);
+int crypto_generichash_blake2b_keybytes_max(void);
+int crypto_generichash_blake2b_keybytes(void);
+int crypto_generichash_blake2b_saltbytes(void);
+int crypto_generichash_blake2b_personalbytes(void);
+int crypto_generichash_blake2b(unsigned char *, unsigned long long, unsigned char *, unsigned long long, unsigned char *, unsigned long long);
+int crypto_generichash_blake2b_salt_personal(unsigned char *, unsigned long long, unsigned char *, unsigned long long, unsigned char *, unsigned long long, unsigned char *, unsigned char *);
+int crypto_generichash_blake2b_init(void *, unsigned char *, unsigned long long, unsigned long long);
+int crypto_generichash_blake2b_init_salt_personal(void *, unsigned char *, unsigned long long, unsigned long long, unsigned char *, unsigned char *);
+int crypto_generichash_blake2b_update(void *, unsigned char *, unsigned long long);
+int crypto_generichash_blake2b_final(void *, unsigned char *, unsigned long long);
+
+int crypto_hash_sha256_bytes(void);
+int crypto_hash_sha256(unsigned char *, unsigned char *, unsigned long long);
+int crypto_hash_sha256_statebytes(void);
+int crypto_hash_sha256_init(void *);
+int crypto_hash_sha256_update(void *, unsigned char *, unsigned long long);
+int crypto_hash_sha256_final(void *, unsigned char *);
+int crypto_hash_sha512_bytes(void);
+int crypto_hash_sha512(unsigned char *, unsigned char *, unsigned long long);
+int crypto_hash_sha512_statebytes(void);
+int crypto_hash_sha512_init(void *);
+int crypto_hash_sha512_update(void *, unsigned char *, unsigned long long);
+int crypto_hash_sha512_final(void *, unsigned char *);
+
+int crypto_onetimeauth_poly1305_bytes(void);
+int crypto_onetimeauth_poly1305_keybytes(void);
+int crypto_onetimeauth_poly1305(unsigned char *, unsigned char *, unsigned long long, unsigned char *);
+int crypto_onetimeauth_poly1305_verify(unsigned char *, unsigned char *, unsigned long long, unsigned char *);
+int crypto_onetimeauth_poly1305_init(void *, unsigned char *);
+int crypto_onetimeauth_poly1305_update(void *, unsigned char *, unsigned long long);
+int crypto_onetimeauth_poly1305_final(void *, unsigned char *);
+
+int crypto_pwhash_alg_argon2i13(void);
+int crypto_pwhash_alg_default(void);
+int crypto_pwhash_bytes_min(void);
+int crypto_pwhash_bytes_max(void);
+int crypto_pwhash_passwd_min(void);
+int crypto_pwhash_passwd_max(void);
+int crypto_pwhash_saltbytes(void);
+int crypto_pwhash_strbytes(void);
+const unsigned char *crypto_pwhash_strprefix(void);
+int crypto_pwhash_opslimit_min(void);
+int crypto_pwhash_opslimit_max(void);
+int crypto_pwhash_memlimit_min(void);
+int crypto_pwhash_memlimit_max(void);
+int crypto_pwhash_opslimit_interactive(void);
+int crypto_pwhash_memlimit_interactive(void);
+int crypto_pwhash_opslimit_moderate(void);
+int crypto_pwhash_memlimit_moderate(void);
+int crypto_pwhash_opslimit_sensitive(void);
+int crypto_pwhash_memlimit_sensitive(void);
+int crypto_pwhash(unsigned char *, unsigned long long, unsigned char *, unsigned long long, unsigned char *, unsigned long long, unsigned long long, unsigned long long);
+int crypto_pwhash_str(unsigned char *, unsigned char *, unsigned long long, unsigned long long, unsigned long long);
+int crypto_pwhash_str_verify(unsigned char *, unsigned char *, unsigned long long);
+const unsigned char *crypto_pwhash_primitive(void);
+int crypto_pwhash_scryptsalsa208sha256_saltbytes(void);
+int crypto_pwhash_scryptsalsa208sha256_strbytes(void);
+const unsigned char *crypto_pwhash_scryptsalsa208sha256_strprefix(void);
+int crypto_pwhash_scryptsalsa208sha256_opslimit_interactive(void);
+int crypto_pwhash_scryptsalsa208sha256_memlimit_interactive(void);
+int crypto_pwhash_scryptsalsa208sha256_opslimit_sensitive(void);
+int crypto_pwhash_scryptsalsa208sha256_memlimit_sensitive(void);
+int crypto_pwhash_scryptsalsa208sha256(unsigned char *, unsigned long long, unsigned char *, unsigned long long, unsigned char *, unsigned long long, unsigned long long);
+int crypto_pwhash_scryptsalsa208sha256_str(unsigned char *, unsigned char *, unsigned long long, unsigned long long, unsigned long long);
+int crypto_pwhash_scryptsalsa208sha256_str_verify(unsigned char *, unsigned char *, unsigned long long);
+int crypto_pwhash_scryptsalsa208sha256_ll(unsigned char *, unsigned long long, unsigned char *, unsigned long long, unsigned long long, unsigned long long, unsigned long long, unsigned char *, unsigned long long);
+
+int crypto_scalarmult_curve25519_bytes(void);
+int crypto_scalarmult_curve25519_scalarbytes(void);
+int crypto_scalarmult_curve25519(unsigned char *, unsigned char *, unsigned char *);
+int crypto_scalarmult_curve25519_base(unsigned char *, unsigned char *);
+
+int crypto_secretbox_xsalsa20poly1305_keybytes(void);
+int crypto_secretbox_xsalsa20poly1305_noncebytes(void);
+int crypto_secretbox_xsalsa20poly1305_zerobytes(void);
+int crypto_secretbox_xsalsa20poly1305_boxzerobytes(void);
+int crypto_secretbox_xsalsa20poly1305_macbytes(void);
+int crypto_secretbox_xsalsa20poly1305(unsigned char *, unsigned char *, unsigned long long, unsigned char *, unsigned char *);
+int crypto_secretbox_xsalsa20poly1305_open(unsigned char *, unsigned char *, unsigned long long, unsigned char *, unsigned char *);
+
+int crypto_shorthash_siphash24_bytes(void);
+int crypto_shorthash_siphash24_keybytes(void);
+int crypto_shorthash_siphash24(unsigned char *, unsigned char *, unsigned long long, unsigned char *);
+
+int crypto_sign_ed25519_bytes(void);
+int crypto_sign_ed25519_seedbytes(void);
+int crypto_sign_ed25519_publickeybytes(void);
+int crypto_sign_ed25519_secretkeybytes(void);
+int crypto_sign_ed25519(unsigned char *, unsigned long long *, unsigned char *, unsigned long long, unsigned char *);
+int crypto_sign_ed25519_open(unsigned char *, unsigned long long *, unsigned char *, unsigned long long, unsigned char *);
+
+int crypto_stream_xsalsa20(unsigned char *, unsigned long long, unsigned char *, unsigned char *);
+
+int crypto_sign_ed25519_detached(unsigned char *, unsigned long long *, unsigned char *, unsigned long long, unsigned char *);
+int crypto_sign_ed25519_verify_detached(unsigned char *, unsigned char *, unsigned long long, unsigned char *);
+int crypto_sign_ed25519_keypair(unsigned char *, unsigned char *);
+int crypto_sign_ed25519_seed_keypair(unsigned char *, unsigned char *, unsigned char *);
+int crypto_sign_ed25519_pk_to_curve25519(unsigned char *, unsigned char *);
+int crypto_sign_ed25519_sk_to_curve25519(unsigned char *, unsigned char *);
+
+int crypto_stream_chacha20_keybytes(void);
+int crypto_stream_chacha20_noncebytes(void);
+int crypto_stream_chacha20(unsigned char *, unsigned long long, unsigned char *, unsigned char *);
+int crypto_stream_chacha20_xor(unsigned char *, unsigned char *, unsigned long long, unsigned char *, unsigned char *);
+int crypto_stream_chacha20_xor_ic(unsigned char *, unsigned char *, unsigned long long, unsigned char *, unsigned long long, unsigned char *);
+int crypto_stream_chacha20_ietf_noncebytes(void);
+int crypto_stream_chacha20_ietf(unsigned char *, unsigned long long, unsigned char *, unsigned char *);
+int crypto_stream_chacha20_ietf_xor(unsigned char *, unsigned char *, unsigned long long, unsigned char *, unsigned char *);
+int crypto_stream_chacha20_ietf_xor_ic(unsigned char *, unsigned char *, unsigned long long, unsigned char *, unsigned long long, unsigned char *);
+int crypto_stream_salsa20_keybytes(void);
+int crypto_stream_salsa20_noncebytes(void);
+int crypto_stream_salsa20(unsigned char *, unsigned long long, unsigned char *, unsigned char *);
+int crypto_stream_salsa20_xor(unsigned char *, unsigned char *, unsigned long long, unsigned char *, unsigned char *);
+int crypto_stream_salsa20_xor_ic(unsigned char *, unsigned char *, unsigned long long, unsigned char *, unsigned long long, unsigned char *);
+int crypto_stream_xsalsa20_keybytes(void);
+int crypto_stream_xsalsa20_noncebytes(void);
+int crypto_stream_xsalsa20_xor(unsigned char *, unsigned char *, unsigned long long, unsigned char *, unsigned char *);
+int crypto_stream_xsalsa20_xor_ic(unsigned char *, unsigned char *, unsigned long long, unsigned char *, unsigned long long, unsigned char *);
+
+int crypto_secretstream_xchacha20poly1305_keybytes(void);
+int crypto_secretstream_xchacha20poly1305_headerbytes(void);
+int crypto_secretstream_xchacha20poly1305_abytes(void);
+int crypto_secretstream_xchacha20poly1305_statebytes(void);
+int crypto_secretstream_xchacha20poly1305_tag_message(void);
+int crypto_secretstream_xchacha20poly1305_tag_push(void);
+int crypto_secretstream_xchacha20poly1305_tag_rekey(void);
+int crypto_secretstream_xchacha20poly1305_tag_final(void);
+int crypto_secretstream_xchacha20poly1305_messagebytes_max(void);
+void crypto_secretstream_xchacha20poly1305_keygen(unsigned char *);
+int crypto_secretstream_xchacha20poly1305_init_push(void *, unsigned char *, unsigned char *);
+int crypto_secretstream_xchacha20poly1305_push(void *, unsigned char *, unsigned long long *, unsigned char *, unsigned long long, unsigned char *, unsigned long long, unsigned char);
+int crypto_secretstream_xchacha20poly1305_init_pull(void *, unsigned char *, unsigned char *);
+int crypto_secretstream_xchacha20poly1305_pull(void *, unsigned char *, unsigned long long *, unsigned char *, unsigned char *, unsigned long long, unsigned char *, unsigned long long);
+void crypto_secretstream_xchacha20poly1305_rekey(void *);
+
+int crypto_box_curve25519xchacha20poly1305_seedbytes(void);
+int crypto_box_curve25519xchacha20poly1305_publickeybytes(void);
+int crypto_box_curve25519xchacha20poly1305_secretkeybytes(void);
+int crypto_box_curve25519xchacha20poly1305_beforenmbytes(void);
+int crypto_box_curve25519xchacha20poly1305_noncebytes(void);
+int crypto_box_curve25519xchacha20poly1305_macbytes(void);
+int crypto_box_curve25519xchacha20poly1305_messagebytes_max(void);
+int crypto_box_curve25519xchacha20poly1305_sealbytes(void);
+int crypto_box_curve25519xchacha20poly1305_seed_keypair(unsigned char *, unsigned char *, unsigned char *);
+int crypto_box_curve25519xchacha20poly1305_keypair(unsigned char *, unsigned char *);
+int crypto_box_curve25519xchacha20poly1305_beforenm(unsigned char *, unsigned char *, unsigned char *);
+int crypto_box_curve25519xchacha20poly1305_detached_afternm(unsigned char *, unsigned char *, unsigned char *, unsigned long long, unsigned char *, unsigned char *);
+int crypto_box_curve25519xchacha20poly1305_detached(unsigned char *, unsigned char *, unsigned char *, unsigned long long, unsigned char *, unsigned char *, unsigned char *);
+int crypto_box_curve25519xchacha20poly1305_easy_afternm(unsigned char *, unsigned char *, unsigned long long, unsigned char *, unsigned char *);
+int crypto_box_curve25519xchacha20poly1305_easy(unsigned char *, unsigned char *, unsigned long long, unsigned char *, unsigned char *, unsigned char *);
+int crypto_box_curve25519xchacha20poly1305_open_detached_afternm(unsigned char *, unsigned char *, unsigned char *, unsigned long long, unsigned char *, unsigned char *);
+int crypto_box_curve25519xchacha20poly1305_open_detached(unsigned char *, unsigned char *, unsigned char *, unsigned long long, unsigned char *, unsigned char *, unsigned char *);
+int crypto_box_curve25519xchacha20poly1305_open_easy_afternm(unsigned char *, unsigned char *, unsigned long long, unsigned char *, unsigned char *);
+int crypto_box_curve25519xchacha20poly1305_open_easy(unsigned char *, unsigned char *, unsigned long long, unsigned char *, unsigned char *, unsigned char *);
+int crypto_box_curve25519xchacha20poly1305_seal(unsigned char *, unsigned char *, unsigned long long, unsigned char *);
+int crypto_box_curve25519xchacha20poly1305_seal_open(unsigned char *, unsigned char *, unsigned long long, unsigned char *, unsigned char *);
@@ -0,0 +1,1022 @@
+/*
+ *
+ *  * Copyright 2021 UBICUA.
+ *  *
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  *
+ *  *      http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ *
+ */
+
+/*
+ * Offset and direct buffer entry points for org.libsodium.jni.SodiumExt.
+ *
+ * Large inputs and outputs are accessed in place: heap arrays through
+ * GetPrimitiveArrayCritical, direct buffers through GetDirectBufferAddress,
+ * always resolved before any array is pinned.
+ * Keys and nonces are small and copied to the stack. Ranges are validated on
+ * the Java side before any of these functions is called.
+ */
+
+#include <jni.h>
+#include <pthread.h>
+#include <stdlib.h>
+#include <string.h>
+#include <sodium.h>
+
+#define EXT_CLASS "org/libsodium/jni/SodiumExt"
+
+/* A heap array pinned for the duration of a call, shared when in and out alias. */
+typedef struct {
+    jbyteArray array;
+    jbyte *data;
+} pinned;
+
+static int pin(JNIEnv *env, pinned *p, jbyteArray array) {
+    p->array = array;
+    p->data = array == NULL ? NULL : (*env)->GetPrimitiveArrayCritical(env, array, NULL);
+    return array == NULL || p->data != NULL;
+}
+
+static void unpin(JNIEnv *env, pinned *p, jint mode) {
+    if (p->data != NULL) {
+        (*env)->ReleasePrimitiveArrayCritical(env, p->array, p->data, mode);
+        p->data = NULL;
+    }
+}
+
+static unsigned char *address(JNIEnv *env, jobject buffer, jint offset) {
+    unsigned char *base = buffer == NULL ? NULL : (*env)->GetDirectBufferAddress(env, buffer);
+    return base == NULL ? NULL : base + offset;
+}
+
+static void region(JNIEnv *env, jbyteArray array, jint offset, jint length, unsigned char *out) {
+    (*env)->GetByteArrayRegion(env, array, offset, length, (jbyte *) out);
+}
+
+/*
+ * Runs `call` with `out` and `in` pinned. When both are the same array it is pinned
+ * once, libsodium supports in-place operation for every primitive used here.
+ */
+#define WITH_PINNED(env, out, in, ad, call)                                        \
+    do {                                                                           \
+        pinned po = {0}, pi = {0}, pa = {0};                                       \
+        int same = (*env)->IsSameObject(env, out, in);                             \
+        if (!pin(env, &po, out)) return -1;                                        \
+        if (same) { pi = po; } else if (!pin(env, &pi, in)) { unpin(env, &po, JNI_ABORT); return -1; } \
+        if (!pin(env, &pa, ad)) { if (!same) unpin(env, &pi, JNI_ABORT); unpin(env, &po, JNI_ABORT); return -1; } \
+        unsigned char *o = (unsigned char *) po.data;                              \
+        unsigned char *i = (unsigned char *) pi.data;                              \
+        unsigned char *a = (unsigned char *) pa.data;                              \
+        (void) a;                                                                  \
+        result = (call);                                                           \
+        unpin(env, &pa, JNI_ABORT);                                                \
+        if (!same) unpin(env, &pi, JNI_ABORT);                                     \
+        unpin(env, &po, 0);                                                        \
+    } while (0)
+
+/* ---------------------------------------------------------------- AEAD IETF */
+
+static jint aead_ietf_encrypt(JNIEnv *env, jclass clazz,
+                              jbyteArray c, jint c_off, jbyteArray m, jint m_off, jint m_len,
+                              jbyteArray ad, jint ad_off, jint ad_len,
+                              jbyteArray npub, jint npub_off, jbyteArray k) {
+    unsigned char nonce[crypto_aead_chacha20poly1305_ietf_NPUBBYTES];
+    unsigned char key[crypto_aead_chacha20poly1305_ietf_KEYBYTES];
+    int result;
+
+    region(env, npub, npub_off, sizeof nonce, nonce);
+    region(env, k, 0, sizeof key, key);
+
+    WITH_PINNED(env, c, m, ad,
+                crypto_aead_chacha20poly1305_ietf_encrypt(o + c_off, NULL, i + m_off, (unsigned long long) m_len,
+                                                          a == NULL ? NULL : a + ad_off, (unsigned long long) ad_len,
+                                                          NULL, nonce, key));
+    sodium_memzero(key, sizeof key);
+    return result;
+}
+
+static jint aead_ietf_decrypt(JNIEnv *env, jclass clazz,
+                              jbyteArray m, jint m_off, jbyteArray c, jint c_off, jint c_len,
+                              jbyteArray ad, jint ad_off, jint ad_len,
+                              jbyteArray npub, jint npub_off, jbyteArray k) {
+    unsigned char nonce[crypto_aead_chacha20poly1305_ietf_NPUBBYTES];
+    unsigned char key[crypto_aead_chacha20poly1305_ietf_KEYBYTES];
+    int result;
+
+    region(env, npub, npub_off, sizeof nonce, nonce);
+    region(env, k, 0, sizeof key, key);
+
+    WITH_PINNED(env, m, c, ad,
+                crypto_aead_chacha20poly1305_ietf_decrypt(o + m_off, NULL, NULL, i + c_off, (unsigned long long) c_len,
+                                                          a == NULL ? NULL : a + ad_off, (unsigned long long) ad_len,
+                                                          nonce, key));
+    sodium_memzero(key, sizeof key);
+    return result;
+}
+
+static jint aead_ietf_encrypt_direct(JNIEnv *env, jclass clazz,
+                                     jobject c, jint c_off, jobject m, jint m_off, jint m_len,
+                                     jbyteArray ad, jint ad_off, jint ad_len,
+                                     jbyteArray npub, jint npub_off, jbyteArray k) {
+    unsigned char nonce[crypto_aead_chacha20poly1305_ietf_NPUBBYTES];
+    unsigned char key[crypto_aead_chacha20poly1305_ietf_KEYBYTES];
+    unsigned char *o = address(env, c, c_off);
+    unsigned char *i = address(env, m, m_off);
+    pinned pa;
+    int result;
+
+    if (o == NULL || i == NULL) {
+        return -1;
+    }
+    region(env, npub, npub_off, sizeof nonce, nonce);
+    region(env, k, 0, sizeof key, key);
+
+    if (!pin(env, &pa, ad)) {
+        sodium_memzero(key, sizeof key);
+        return -1;
+    }
+    result = crypto_aead_chacha20poly1305_ietf_encrypt(o, NULL, i, (unsigned long long) m_len,
+                                                       pa.data == NULL ? NULL : (unsigned char *) pa.data + ad_off,
+                                                       (unsigned long long) ad_len, NULL, nonce, key);
+    unpin(env, &pa, JNI_ABORT);
+    sodium_memzero(key, sizeof key);
+    return result;
+}
+
+static jint aead_ietf_decrypt_direct(JNIEnv *env, jclass clazz,
+                                     jobject m, jint m_off, jobject c, jint c_off, jint c_len,
+                                     jbyteArray ad, jint ad_off, jint ad_len,
+                                     jbyteArray npub, jint npub_off, jbyteArray k) {
+    unsigned char nonce[crypto_aead_chacha20poly1305_ietf_NPUBBYTES];
+    unsigned char key[crypto_aead_chacha20poly1305_ietf_KEYBYTES];
+    unsigned char *o = address(env, m, m_off);
+    unsigned char *i = address(env, c, c_off);
+    pinned pa;
+    int result;
+
+    if (o == NULL || i == NULL) {
+        return -1;
+    }
+    region(env, npub, npub_off, sizeof nonce, nonce);
+    region(env, k, 0, sizeof key, key);
+
+    if (!pin(env, &pa, ad)) {
+        sodium_memzero(key, sizeof key);
+        return -1;
+    }
+    result = crypto_aead_chacha20poly1305_ietf_decrypt(o, NULL, NULL, i, (unsigned long long) c_len,
+                                                       pa.data == NULL ? NULL : (unsigned char *) pa.data + ad_off,
+                                                       (unsigned long long) ad_len, nonce, key);
+    unpin(env, &pa, JNI_ABORT);
+    sodium_memzero(key, sizeof key);
+    return result;
+}
+
+/* ---------------------------------------------------------------- secretbox */
+
+static jint secretbox_easy(JNIEnv *env, jclass clazz,
+                           jbyteArray c, jint c_off, jbyteArray m, jint m_off, jint m_len,
+                           jbyteArray n, jint n_off, jbyteArray k) {
+    unsigned char nonce[crypto_secretbox_NONCEBYTES];
+    unsigned char key[crypto_secretbox_KEYBYTES];
+    int result;
+
+    region(env, n, n_off, sizeof nonce, nonce);
+    region(env, k, 0, sizeof key, key);
+
+    WITH_PINNED(env, c, m, NULL,
+                crypto_secretbox_easy(o + c_off, i + m_off, (unsigned long long) m_len, nonce, key));
+    sodium_memzero(key, sizeof key);
+    return result;
+}
+
+static jint secretbox_open_easy(JNIEnv *env, jclass clazz,
+                                jbyteArray m, jint m_off, jbyteArray c, jint c_off, jint c_len,
+                                jbyteArray n, jint n_off, jbyteArray k) {
+    unsigned char nonce[crypto_secretbox_NONCEBYTES];
+    unsigned char key[crypto_secretbox_KEYBYTES];
+    int result;
+
+    region(env, n, n_off, sizeof nonce, nonce);
+    region(env, k, 0, sizeof key, key);
+
+    WITH_PINNED(env, m, c, NULL,
+                crypto_secretbox_open_easy(o + m_off, i + c_off, (unsigned long long) c_len, nonce, key));
+    sodium_memzero(key, sizeof key);
+    return result;
+}
+
+static jint secretbox_easy_direct(JNIEnv *env, jclass clazz,
+                                  jobject c, jint c_off, jobject m, jint m_off, jint m_len,
+                                  jbyteArray n, jint n_off, jbyteArray k) {
+    unsigned char nonce[crypto_secretbox_NONCEBYTES];
+    unsigned char key[crypto_secretbox_KEYBYTES];
+    unsigned char *o = address(env, c, c_off);
+    unsigned char *i = address(env, m, m_off);
+    int result;
+
+    if (o == NULL || i == NULL) {
+        return -1;
+    }
+    region(env, n, n_off, sizeof nonce, nonce);
+    region(env, k, 0, sizeof key, key);
+
+    result = crypto_secretbox_easy(o, i, (unsigned long long) m_len, nonce, key);
+    sodium_memzero(key, sizeof key);
+    return result;
+}
+
+static jint secretbox_open_easy_direct(JNIEnv *env, jclass clazz,
+                                       jobject m, jint m_off, jobject c, jint c_off, jint c_len,
+                                       jbyteArray n, jint n_off, jbyteArray k) {
+    unsigned char nonce[crypto_secretbox_NONCEBYTES];
+    unsigned char key[crypto_secretbox_KEYBYTES];
+    unsigned char *o = address(env, m, m_off);
+    unsigned char *i = address(env, c, c_off);
+    int result;
+
+    if (o == NULL || i == NULL) {
+        return -1;
+    }
+    region(env, n, n_off, sizeof nonce, nonce);
+    region(env, k, 0, sizeof key, key);
+
+    result = crypto_secretbox_open_easy(o, i, (unsigned long long) c_len, nonce, key);
+    sodium_memzero(key, sizeof key);
+    return result;
+}
+
+/* ---------------------------------------------------------------- box */
+
+static jint box_easy(JNIEnv *env, jclass clazz,
+                     jbyteArray c, jint c_off, jbyteArray m, jint m_off, jint m_len,
+                     jbyteArray n, jint n_off, jbyteArray pk, jbyteArray sk) {
+    unsigned char nonce[crypto_box_NONCEBYTES];
+    unsigned char public_key[crypto_box_PUBLICKEYBYTES];
+    unsigned char secret_key[crypto_box_SECRETKEYBYTES];
+    int result;
+
+    region(env, n, n_off, sizeof nonce, nonce);
+    region(env, pk, 0, sizeof public_key, public_key);
+    region(env, sk, 0, sizeof secret_key, secret_key);
+
+    WITH_PINNED(env, c, m, NULL,
+                crypto_box_easy(o + c_off, i + m_off, (unsigned long long) m_len, nonce, public_key, secret_key));
+    sodium_memzero(secret_key, sizeof secret_key);
+    return result;
+}
+
+static jint box_open_easy(JNIEnv *env, jclass clazz,
+                          jbyteArray m, jint m_off, jbyteArray c, jint c_off, jint c_len,
+                          jbyteArray n, jint n_off, jbyteArray pk, jbyteArray sk) {
+    unsigned char nonce[crypto_box_NONCEBYTES];
+    unsigned char public_key[crypto_box_PUBLICKEYBYTES];
+    unsigned char secret_key[crypto_box_SECRETKEYBYTES];
+    int result;
+
+    region(env, n, n_off, sizeof nonce, nonce);
+    region(env, pk, 0, sizeof public_key, public_key);
+    region(env, sk, 0, sizeof secret_key, secret_key);
+
+    WITH_PINNED(env, m, c, NULL,
+                crypto_box_open_easy(o + m_off, i + c_off, (unsigned long long) c_len, nonce, public_key, secret_key));
+    sodium_memzero(secret_key, sizeof secret_key);
+    return result;
+}
+
+static jint box_easy_direct(JNIEnv *env, jclass clazz,
+                            jobject c, jint c_off, jobject m, jint m_off, jint m_len,
+                            jbyteArray n, jint n_off, jbyteArray pk, jbyteArray sk) {
+    unsigned char nonce[crypto_box_NONCEBYTES];
+    unsigned char public_key[crypto_box_PUBLICKEYBYTES];
+    unsigned char secret_key[crypto_box_SECRETKEYBYTES];
+    unsigned char *o = address(env, c, c_off);
+    unsigned char *i = address(env, m, m_off);
+    int result;
+
+    if (o == NULL || i == NULL) {
+        return -1;
+    }
+    region(env, n, n_off, sizeof nonce, nonce);
+    region(env, pk, 0, sizeof public_key, public_key);
+    region(env, sk, 0, sizeof secret_key, secret_key);
+
+    result = crypto_box_easy(o, i, (unsigned long long) m_len, nonce, public_key, secret_key);
+    sodium_memzero(secret_key, sizeof secret_key);
+    return result;
+}
+
+static jint box_open_easy_direct(JNIEnv *env, jclass clazz,
+                                 jobject m, jint m_off, jobject c, jint c_off, jint c_len,
+                                 jbyteArray n, jint n_off, jbyteArray pk, jbyteArray sk) {
+    unsigned char nonce[crypto_box_NONCEBYTES];
+    unsigned char public_key[crypto_box_PUBLICKEYBYTES];
+    unsigned char secret_key[crypto_box_SECRETKEYBYTES];
+    unsigned char *o = address(env, m, m_off);
+    unsigned char *i = address(env, c, c_off);
+    int result;
+
+    if (o == NULL || i == NULL) {
+        return -1;
+    }
+    region(env, n, n_off, sizeof nonce, nonce);
+    region(env, pk, 0, sizeof public_key, public_key);
+    region(env, sk, 0, sizeof secret_key, secret_key);
+
+    result = crypto_box_open_easy(o, i, (unsigned long long) c_len, nonce, public_key, secret_key);
+    sodium_memzero(secret_key, sizeof secret_key);
+    return result;
+}
+
+/* ---------------------------------------------------------------- sign */
+
+static jint sign_detached(JNIEnv *env, jclass clazz,
+                          jbyteArray sig, jint sig_off, jbyteArray m, jint m_off, jint m_len, jbyteArray sk) {
+    unsigned char signature[crypto_sign_ed25519_BYTES];
+    unsigned char secret_key[crypto_sign_ed25519_SECRETKEYBYTES];
+    pinned pm;
+    int result;
+
+    region(env, sk, 0, sizeof secret_key, secret_key);
+    if (!pin(env, &pm, m)) {
+        sodium_memzero(secret_key, sizeof secret_key);
+        return -1;
+    }
+    result = crypto_sign_ed25519_detached(signature, NULL, (unsigned char *) pm.data + m_off,
+                                          (unsigned long long) m_len, secret_key);
+    unpin(env, &pm, JNI_ABORT);
+    sodium_memzero(secret_key, sizeof secret_key);
+
+    if (result == 0) {
+        (*env)->SetByteArrayRegion(env, sig, sig_off, sizeof signature, (jbyte *) signature);
+    }
+    return result;
+}
+
+static jint sign_verify_detached(JNIEnv *env, jclass clazz,
+                                 jbyteArray sig, jint sig_off, jbyteArray m, jint m_off, jint m_len, jbyteArray pk) {
+    unsigned char signature[crypto_sign_ed25519_BYTES];
+    unsigned char public_key[crypto_sign_ed25519_PUBLICKEYBYTES];
+    pinned pm;
+    int result;
+
+    region(env, sig, sig_off, sizeof signature, signature);
+    region(env, pk, 0, sizeof public_key, public_key);
+    if (!pin(env, &pm, m)) {
+        return -1;
+    }
+    result = crypto_sign_ed25519_verify_detached(signature, (unsigned char *) pm.data + m_off,
+                                                 (unsigned long long) m_len, public_key);
+    unpin(env, &pm, JNI_ABORT);
+    return result;
+}
+
+static jint sign_detached_direct(JNIEnv *env, jclass clazz,
+                                 jbyteArray sig, jint sig_off, jobject m, jint m_off, jint m_len, jbyteArray sk) {
+    unsigned char signature[crypto_sign_ed25519_BYTES];
+    unsigned char secret_key[crypto_sign_ed25519_SECRETKEYBYTES];
+    unsigned char *i = address(env, m, m_off);
+    int result;
+
+    if (i == NULL) {
+        return -1;
+    }
+    region(env, sk, 0, sizeof secret_key, secret_key);
+    result = crypto_sign_ed25519_detached(signature, NULL, i, (unsigned long long) m_len, secret_key);
+    sodium_memzero(secret_key, sizeof secret_key);
+
+    if (result == 0) {
+        (*env)->SetByteArrayRegion(env, sig, sig_off, sizeof signature, (jbyte *) signature);
+    }
+    return result;
+}
+
+static jint sign_verify_detached_direct(JNIEnv *env, jclass clazz,
+                                        jbyteArray sig, jint sig_off, jobject m, jint m_off, jint m_len, jbyteArray pk) {
+    unsigned char signature[crypto_sign_ed25519_BYTES];
+    unsigned char public_key[crypto_sign_ed25519_PUBLICKEYBYTES];
+    unsigned char *i = address(env, m, m_off);
+
+    if (i == NULL) {
+        return -1;
+    }
+    region(env, sig, sig_off, sizeof signature, signature);
+    region(env, pk, 0, sizeof public_key, public_key);
+    return crypto_sign_ed25519_verify_detached(signature, i, (unsigned long long) m_len, public_key);
+}
+
+/* ---------------------------------------------------------------- hash */
+
+static jint hash_sha256(JNIEnv *env, jclass clazz, jbyteArray out, jint out_off, jbyteArray in, jint in_off, jint in_len) {
+    unsigned char hash[crypto_hash_sha256_BYTES];
+    pinned pi;
+    int result;
+
+    if (!pin(env, &pi, in)) {
+        return -1;
+    }
+    result = crypto_hash_sha256(hash, (unsigned char *) pi.data + in_off, (unsigned long long) in_len);
+    unpin(env, &pi, JNI_ABORT);
+    (*env)->SetByteArrayRegion(env, out, out_off, sizeof hash, (jbyte *) hash);
+    return result;
+}
+
+static jint hash_sha512(JNIEnv *env, jclass clazz, jbyteArray out, jint out_off, jbyteArray in, jint in_off, jint in_len) {
+    unsigned char hash[crypto_hash_sha512_BYTES];
+    pinned pi;
+    int result;
+
+    if (!pin(env, &pi, in)) {
+        return -1;
+    }
+    result = crypto_hash_sha512(hash, (unsigned char *) pi.data + in_off, (unsigned long long) in_len);
+    unpin(env, &pi, JNI_ABORT);
+    (*env)->SetByteArrayRegion(env, out, out_off, sizeof hash, (jbyte *) hash);
+    return result;
+}
+
+static jint hash_sha256_direct(JNIEnv *env, jclass clazz, jbyteArray out, jint out_off, jobject in, jint in_off, jint in_len) {
+    unsigned char hash[crypto_hash_sha256_BYTES];
+    unsigned char *i = address(env, in, in_off);
+
+    if (i == NULL) {
+        return -1;
+    }
+    crypto_hash_sha256(hash, i, (unsigned long long) in_len);
+    (*env)->SetByteArrayRegion(env, out, out_off, sizeof hash, (jbyte *) hash);
+    return 0;
+}
+
+static jint hash_sha512_direct(JNIEnv *env, jclass clazz, jbyteArray out, jint out_off, jobject in, jint in_off, jint in_len) {
+    unsigned char hash[crypto_hash_sha512_BYTES];
+    unsigned char *i = address(env, in, in_off);
+
+    if (i == NULL) {
+        return -1;
+    }
+    crypto_hash_sha512(hash, i, (unsigned long long) in_len);
+    (*env)->SetByteArrayRegion(env, out, out_off, sizeof hash, (jbyte *) hash);
+    return 0;
+}
+
+/* ---------------------------------------------------------------- registration */
+
+#define BUF "Ljava/nio/ByteBuffer;"
+
+/* ------------------------------------------------------- Multi-part hashing */
+
+#define HASH_SHA256  0
+#define HASH_SHA512  1
+#define HASH_BLAKE2B 2
+
+/*
+ * Hash states live in Java byte arrays. Each call copies the state into an aligned
+ * local, runs the step and writes it back, so no array is pinned while it changes.
+ */
+typedef union {
+    crypto_hash_sha256_state sha256;
+    crypto_hash_sha512_state sha512;
+    crypto_generichash_state blake2b;
+} hash_state;
+
+static jint state_size(jint alg) {
+    switch (alg) {
+        case HASH_SHA256:  return (jint) sizeof(crypto_hash_sha256_state);
+        case HASH_SHA512:  return (jint) sizeof(crypto_hash_sha512_state);
+        case HASH_BLAKE2B: return (jint) sizeof(crypto_generichash_state);
+        default:           return -1;
+    }
+}
+
+static int load_state(JNIEnv *env, jint alg, jbyteArray state, hash_state *st) {
+    jint size = state_size(alg);
+
+    if (size < 0 || (*env)->GetArrayLength(env, state) != size) {
+        return 0;
+    }
+    region(env, state, 0, size, (unsigned char *) st);
+    return 1;
+}
+
+static void store_state(JNIEnv *env, jint alg, jbyteArray state, hash_state *st) {
+    (*env)->SetByteArrayRegion(env, state, 0, state_size(alg), (const jbyte *) st);
+    sodium_memzero(st, sizeof *st);
+}
+
+static int update(jint alg, hash_state *st, const unsigned char *in, jint in_len) {
+    switch (alg) {
+        case HASH_SHA256:  return crypto_hash_sha256_update(&st->sha256, in, (unsigned long long) in_len);
+        case HASH_SHA512:  return crypto_hash_sha512_update(&st->sha512, in, (unsigned long long) in_len);
+        case HASH_BLAKE2B: return crypto_generichash_update(&st->blake2b, in, (unsigned long long) in_len);
+        default:           return -1;
+    }
+}
+
+static jint hash_init(JNIEnv *env, jclass clazz, jint alg, jbyteArray state, jbyteArray k, jint out_len) {
+    unsigned char key[crypto_generichash_KEYBYTES_MAX];
+    jint key_len = k == NULL ? 0 : (*env)->GetArrayLength(env, k);
+    hash_state st;
+    int result;
+
+    if (state_size(alg) < 0 || (*env)->GetArrayLength(env, state) != state_size(alg) || key_len > (jint) sizeof key) {
+        return -1;
+    }
+    switch (alg) {
+        case HASH_SHA256:
+            result = crypto_hash_sha256_init(&st.sha256);
+            break;
+        case HASH_SHA512:
+            result = crypto_hash_sha512_init(&st.sha512);
+            break;
+        default:
+            if (key_len > 0) {
+                region(env, k, 0, key_len, key);
+            }
+            result = crypto_generichash_init(&st.blake2b, key_len > 0 ? key : NULL, (size_t) key_len, (size_t) out_len);
+            sodium_memzero(key, sizeof key);
+            break;
+    }
+    store_state(env, alg, state, &st);
+    return result;
+}
+
+static jint hash_update(JNIEnv *env, jclass clazz, jint alg, jbyteArray state, jbyteArray in, jint in_off, jint in_len) {
+    hash_state st;
+    pinned pi;
+    int result;
+
+    if (!load_state(env, alg, state, &st)) {
+        return -1;
+    }
+    if (!pin(env, &pi, in)) {
+        sodium_memzero(&st, sizeof st);
+        return -1;
+    }
+    result = update(alg, &st, (unsigned char *) pi.data + in_off, in_len);
+    unpin(env, &pi, JNI_ABORT);
+    store_state(env, alg, state, &st);
+    return result;
+}
+
+static jint hash_update_direct(JNIEnv *env, jclass clazz, jint alg, jbyteArray state, jobject in, jint in_off, jint in_len) {
+    unsigned char *i = address(env, in, in_off);
+    hash_state st;
+    int result;
+
+    if (i == NULL || !load_state(env, alg, state, &st)) {
+        return -1;
+    }
+    result = update(alg, &st, i, in_len);
+    store_state(env, alg, state, &st);
+    return result;
+}
+
+static jint hash_final(JNIEnv *env, jclass clazz, jint alg, jbyteArray state, jbyteArray out, jint out_off, jint out_len) {
+    unsigned char hash[crypto_generichash_BYTES_MAX];
+    hash_state st;
+    int result;
+
+    if (out_len > (jint) sizeof hash || !load_state(env, alg, state, &st)) {
+        return -1;
+    }
+    switch (alg) {
+        case HASH_SHA256:
+            result = crypto_hash_sha256_final(&st.sha256, hash);
+            break;
+        case HASH_SHA512:
+            result = crypto_hash_sha512_final(&st.sha512, hash);
+            break;
+        default:
+            result = crypto_generichash_final(&st.blake2b, hash, (size_t) out_len);
+            break;
+    }
+    store_state(env, alg, state, &st);
+    if (result == 0) {
+        (*env)->SetByteArrayRegion(env, out, out_off, out_len, (const jbyte *) hash);
+    }
+    sodium_memzero(hash, sizeof hash);
+    return result;
+}
+
+/* ------------------------------------------------------ Multi-part signing */
+
+/*
+ * Ed25519ph through crypto_sign_init/update/final_*. Like the hash states, the
+ * crypto_sign_state lives in a Java array and is copied in and out around each step.
+ */
+static int load_sign_state(JNIEnv *env, jbyteArray state, crypto_sign_state *st) {
+    if ((*env)->GetArrayLength(env, state) != (jint) sizeof *st) {
+        return 0;
+    }
+    region(env, state, 0, sizeof *st, (unsigned char *) st);
+    return 1;
+}
+
+static void store_sign_state(JNIEnv *env, jbyteArray state, crypto_sign_state *st) {
+    (*env)->SetByteArrayRegion(env, state, 0, sizeof *st, (const jbyte *) st);
+    sodium_memzero(st, sizeof *st);
+}
+
+static jint sign_init(JNIEnv *env, jclass clazz, jbyteArray state) {
+    crypto_sign_state st;
+    int result;
+
+    if ((*env)->GetArrayLength(env, state) != (jint) sizeof st) {
+        return -1;
+    }
+    result = crypto_sign_init(&st);
+    store_sign_state(env, state, &st);
+    return result;
+}
+
+static jint sign_update(JNIEnv *env, jclass clazz, jbyteArray state, jbyteArray in, jint in_off, jint in_len) {
+    crypto_sign_state st;
+    pinned pi;
+    int result;
+
+    if (!load_sign_state(env, state, &st)) {
+        return -1;
+    }
+    if (!pin(env, &pi, in)) {
+        sodium_memzero(&st, sizeof st);
+        return -1;
+    }
+    result = crypto_sign_update(&st, (unsigned char *) pi.data + in_off, (unsigned long long) in_len);
+    unpin(env, &pi, JNI_ABORT);
+    store_sign_state(env, state, &st);
+    return result;
+}
+
+static jint sign_update_direct(JNIEnv *env, jclass clazz, jbyteArray state, jobject in, jint in_off, jint in_len) {
+    unsigned char *i = address(env, in, in_off);
+    crypto_sign_state st;
+    int result;
+
+    if (i == NULL || !load_sign_state(env, state, &st)) {
+        return -1;
+    }
+    result = crypto_sign_update(&st, i, (unsigned long long) in_len);
+    store_sign_state(env, state, &st);
+    return result;
+}
+
+static jint sign_final_create(JNIEnv *env, jclass clazz, jbyteArray state, jbyteArray sig, jint sig_off, jbyteArray sk) {
+    unsigned char signature[crypto_sign_BYTES];
+    unsigned char secret_key[crypto_sign_SECRETKEYBYTES];
+    crypto_sign_state st;
+    int result;
+
+    if (!load_sign_state(env, state, &st)) {
+        return -1;
+    }
+    region(env, sk, 0, sizeof secret_key, secret_key);
+    result = crypto_sign_final_create(&st, signature, NULL, secret_key);
+    sodium_memzero(secret_key, sizeof secret_key);
+    store_sign_state(env, state, &st);
+
+    if (result == 0) {
+        (*env)->SetByteArrayRegion(env, sig, sig_off, sizeof signature, (jbyte *) signature);
+    }
+    return result;
+}
+
+static jint sign_final_verify(JNIEnv *env, jclass clazz, jbyteArray state, jbyteArray sig, jint sig_off, jbyteArray pk) {
+    unsigned char signature[crypto_sign_BYTES];
+    unsigned char public_key[crypto_sign_PUBLICKEYBYTES];
+    crypto_sign_state st;
+    int result;
+
+    if (!load_sign_state(env, state, &st)) {
+        return -1;
+    }
+    region(env, sig, sig_off, sizeof signature, signature);
+    region(env, pk, 0, sizeof public_key, public_key);
+    result = crypto_sign_final_verify(&st, signature, public_key);
+    store_sign_state(env, state, &st);
+    return result;
+}
+
+/* ------------------------------------------------------------------ Random */
+
+/*
+ * Incremented in the child of every fork. Java reads it through a direct buffer, so
+ * buffered generators notice a fork without a JNI call per request.
+ */
+static volatile jint fork_generation;
+
+static void on_fork_child(void) {
+    fork_generation++;
+}
+
+static jobject fork_counter(JNIEnv *env, jclass clazz) {
+    return (*env)->NewDirectByteBuffer(env, (void *) &fork_generation, sizeof fork_generation);
+}
+
+/* ------------------------------------------------------------------ Batches */
+
+/*
+ * Batches take packed inputs: message i spans lens[i] bytes at offs[i] of a single
+ * array. Each array is pinned once and per-message keys are copied up front, so the
+ * loop runs without further JNI calls. Per-message results go to `results` and the
+ * number of failures is returned, -1 when the batch could not be set up.
+ */
+
+static jint *int_region(JNIEnv *env, jintArray array, jint n) {
+    jint *out = malloc((size_t) (n > 0 ? n : 1) * sizeof(jint));
+
+    if (out != NULL && n > 0) {
+        (*env)->GetIntArrayRegion(env, array, 0, n, out);
+    }
+    return out;
+}
+
+static unsigned char *key_region(JNIEnv *env, jobjectArray keys, jint n, size_t size) {
+    unsigned char *out = malloc((size_t) (n > 0 ? n : 1) * size);
+    jint i;
+
+    if (out == NULL) {
+        return NULL;
+    }
+    for (i = 0; i < n; i++) {
+        jbyteArray key = (jbyteArray) (*env)->GetObjectArrayElement(env, keys, i);
+        region(env, key, 0, (jint) size, out + (size_t) i * size);
+        (*env)->DeleteLocalRef(env, key);
+    }
+    if ((*env)->ExceptionCheck(env)) {
+        sodium_memzero(out, (size_t) n * size);
+        free(out);
+        return NULL;
+    }
+    return out;
+}
+
+/* Pins up to three arrays, sharing the pin when the same array is passed twice */
+typedef struct {
+    pinned p[3];
+    jbyte *data[3];
+    int owned[3];
+} pin_set;
+
+static int pin_all(JNIEnv *env, pin_set *set, jbyteArray a0, jbyteArray a1, jbyteArray a2) {
+    jbyteArray arrays[3];
+    int alias[3];
+    int i, j;
+
+    arrays[0] = a0;
+    arrays[1] = a1;
+    arrays[2] = a2;
+    memset(set, 0, sizeof *set);
+
+    /* No JNI call is allowed once the first array is pinned, aliases are resolved before */
+    for (i = 0; i < 3; i++) {
+        alias[i] = -1;
+        for (j = 0; j < i; j++) {
+            if ((*env)->IsSameObject(env, arrays[i], arrays[j])) {
+                alias[i] = j;
+                break;
+            }
+        }
+    }
+
+    for (i = 0; i < 3; i++) {
+        if (alias[i] >= 0) {
+            set->data[i] = set->data[alias[i]];
+            continue;
+        }
+        if (!pin(env, &set->p[i], arrays[i])) {
+            return 0;
+        }
+        set->data[i] = set->p[i].data;
+        set->owned[i] = 1;
+    }
+    return 1;
+}
+
+/* Element 0 is the output, written back; the others are released without copy back */
+static void unpin_all(JNIEnv *env, pin_set *set) {
+    int i;
+
+    for (i = 2; i >= 0; i--) {
+        if (set->owned[i]) {
+            unpin(env, &set->p[i], i == 0 ? 0 : JNI_ABORT);
+        }
+    }
+}
+
+static jint aead_ietf_batch(JNIEnv *env, int encrypt,
+                            jbyteArray out, jintArray out_offs, jbyteArray in, jintArray in_offs, jintArray in_lens,
+                            jbyteArray npub, jintArray npub_offs, jobjectArray k, jintArray results) {
+    jint n = (*env)->GetArrayLength(env, in_offs);
+    jint *oo = int_region(env, out_offs, n);
+    jint *io = int_region(env, in_offs, n);
+    jint *il = int_region(env, in_lens, n);
+    jint *no = int_region(env, npub_offs, n);
+    jint *res = int_region(env, results, n);
+    unsigned char *keys = NULL;
+    pin_set set;
+    jint failures = -1;
+    jint i;
+
+    if (oo == NULL || io == NULL || il == NULL || no == NULL || res == NULL) {
+        goto done;
+    }
+    keys = key_region(env, k, n, crypto_aead_chacha20poly1305_ietf_KEYBYTES);
+    if (keys == NULL) {
+        goto done;
+    }
+    if (!pin_all(env, &set, out, in, npub)) {
+        unpin_all(env, &set);
+        goto done;
+    }
+
+    failures = 0;
+    for (i = 0; i < n; i++) {
+        unsigned char *o = (unsigned char *) set.data[0] + oo[i];
+        unsigned char *m = (unsigned char *) set.data[1] + io[i];
+        unsigned char *nonce = (unsigned char *) set.data[2] + no[i];
+        unsigned char *key = keys + (size_t) i * crypto_aead_chacha20poly1305_ietf_KEYBYTES;
+
+        res[i] = encrypt
+                 ? crypto_aead_chacha20poly1305_ietf_encrypt(o, NULL, m, (unsigned long long) il[i], NULL, 0, NULL, nonce, key)
+                 : crypto_aead_chacha20poly1305_ietf_decrypt(o, NULL, NULL, m, (unsigned long long) il[i], NULL, 0, nonce, key);
+        if (res[i] != 0) {
+            failures++;
+        }
+    }
+    unpin_all(env, &set);
+    (*env)->SetIntArrayRegion(env, results, 0, n, res);
+
+done:
+    if (keys != NULL) {
+        sodium_memzero(keys, (size_t) n * crypto_aead_chacha20poly1305_ietf_KEYBYTES);
+        free(keys);
+    }
+    free(oo);
+    free(io);
+    free(il);
+    free(no);
+    free(res);
+    return failures;
+}
+
+static jint aead_ietf_encrypt_batch(JNIEnv *env, jclass clazz,
+                                    jbyteArray c, jintArray c_offs, jbyteArray m, jintArray m_offs, jintArray m_lens,
+                                    jbyteArray npub, jintArray npub_offs, jobjectArray k, jintArray results) {
+    return aead_ietf_batch(env, 1, c, c_offs, m, m_offs, m_lens, npub, npub_offs, k, results);
+}
+
+static jint aead_ietf_decrypt_batch(JNIEnv *env, jclass clazz,
+                                    jbyteArray m, jintArray m_offs, jbyteArray c, jintArray c_offs, jintArray c_lens,
+                                    jbyteArray npub, jintArray npub_offs, jobjectArray k, jintArray results) {
+    return aead_ietf_batch(env, 0, m, m_offs, c, c_offs, c_lens, npub, npub_offs, k, results);
+}
+
+/* Signature i is written at i * crypto_sign_ed25519_BYTES of `sig`, all with the same key */
+static jint sign_detached_batch(JNIEnv *env, jclass clazz,
+                                jbyteArray sig, jbyteArray m, jintArray m_offs, jintArray m_lens, jbyteArray sk) {
+    unsigned char secret_key[crypto_sign_ed25519_SECRETKEYBYTES];
+    jint n = (*env)->GetArrayLength(env, m_offs);
+    jint *mo = int_region(env, m_offs, n);
+    jint *ml = int_region(env, m_lens, n);
+    pin_set set;
+    jint failures = -1;
+    jint i;
+
+    region(env, sk, 0, sizeof secret_key, secret_key);
+    if (mo == NULL || ml == NULL) {
+        goto done;
+    }
+    if (!pin_all(env, &set, sig, m, NULL)) {
+        unpin_all(env, &set);
+        goto done;
+    }
+
+    failures = 0;
+    for (i = 0; i < n; i++) {
+        if (crypto_sign_ed25519_detached((unsigned char *) set.data[0] + (size_t) i * crypto_sign_ed25519_BYTES, NULL,
+                                         (unsigned char *) set.data[1] + mo[i], (unsigned long long) ml[i], secret_key) != 0) {
+            failures++;
+        }
+    }
+    unpin_all(env, &set);
+
+done:
+    sodium_memzero(secret_key, sizeof secret_key);
+    free(mo);
+    free(ml);
+    return failures;
+}
+
+/* Signature i is read at i * crypto_sign_ed25519_BYTES of `sig` and checked against pks[i] */
+static jint sign_verify_detached_batch(JNIEnv *env, jclass clazz,
+                                       jbyteArray sig, jbyteArray m, jintArray m_offs, jintArray m_lens,
+                                       jobjectArray pks, jintArray results) {
+    jint n = (*env)->GetArrayLength(env, m_offs);
+    jint *mo = int_region(env, m_offs, n);
+    jint *ml = int_region(env, m_lens, n);
+    jint *res = int_region(env, results, n);
+    unsigned char *keys = NULL;
+    pin_set set;
+    jint failures = -1;
+    jint i;
+
+    if (mo == NULL || ml == NULL || res == NULL) {
+        goto done;
+    }
+    keys = key_region(env, pks, n, crypto_sign_ed25519_PUBLICKEYBYTES);
+    if (keys == NULL) {
+        goto done;
+    }
+    if (!pin_all(env, &set, NULL, sig, m)) {
+        unpin_all(env, &set);
+        goto done;
+    }
+
+    failures = 0;
+    for (i = 0; i < n; i++) {
+        res[i] = crypto_sign_ed25519_verify_detached((unsigned char *) set.data[1] + (size_t) i * crypto_sign_ed25519_BYTES,
+                                                     (unsigned char *) set.data[2] + mo[i], (unsigned long long) ml[i],
+                                                     keys + (size_t) i * crypto_sign_ed25519_PUBLICKEYBYTES);
+        if (res[i] != 0) {
+            failures++;
+        }
+    }
+    unpin_all(env, &set);
+    (*env)->SetIntArrayRegion(env, results, 0, n, res);
+
+done:
+    free(keys);
+    free(mo);
+    free(ml);
+    free(res);
+    return failures;
+}
+
+static const JNINativeMethod methods[] = {
+    {"aead_ietf_encrypt",           "([BI[BII[BII[BI[B)I",                 (void *) aead_ietf_encrypt},
+    {"aead_ietf_decrypt",           "([BI[BII[BII[BI[B)I",                 (void *) aead_ietf_decrypt},
+    {"aead_ietf_encrypt_direct",    "(" BUF "I" BUF "II[BII[BI[B)I",       (void *) aead_ietf_encrypt_direct},
+    {"aead_ietf_decrypt_direct",    "(" BUF "I" BUF "II[BII[BI[B)I",       (void *) aead_ietf_decrypt_direct},
+    {"secretbox_easy",              "([BI[BII[BI[B)I",                     (void *) secretbox_easy},
+    {"secretbox_open_easy",         "([BI[BII[BI[B)I",                     (void *) secretbox_open_easy},
+    {"secretbox_easy_direct",       "(" BUF "I" BUF "II[BI[B)I",           (void *) secretbox_easy_direct},
+    {"secretbox_open_easy_direct",  "(" BUF "I" BUF "II[BI[B)I",           (void *) secretbox_open_easy_direct},
+    {"box_easy",                    "([BI[BII[BI[B[B)I",                   (void *) box_easy},
+    {"box_open_easy",               "([BI[BII[BI[B[B)I",                   (void *) box_open_easy},
+    {"box_easy_direct",             "(" BUF "I" BUF "II[BI[B[B)I",         (void *) box_easy_direct},
+    {"box_open_easy_direct",        "(" BUF "I" BUF "II[BI[B[B)I",         (void *) box_open_easy_direct},
+    {"sign_detached",               "([BI[BII[B)I",                        (void *) sign_detached},
+    {"sign_verify_detached",        "([BI[BII[B)I",                        (void *) sign_verify_detached},
+    {"sign_detached_direct",        "([BI" BUF "II[B)I",                   (void *) sign_detached_direct},
+    {"sign_verify_detached_direct", "([BI" BUF "II[B)I",                   (void *) sign_verify_detached_direct},
+    {"hash_sha256",                 "([BI[BII)I",                          (void *) hash_sha256},
+    {"hash_sha512",                 "([BI[BII)I",                          (void *) hash_sha512},
+    {"hash_sha256_direct",          "([BI" BUF "II)I",                     (void *) hash_sha256_direct},
+    {"hash_sha512_direct",          "([BI" BUF "II)I",                     (void *) hash_sha512_direct},
+    {"hash_init",                   "(I[B[BI)I",                           (void *) hash_init},
+    {"hash_update",                 "(I[B[BII)I",                          (void *) hash_update},
+    {"hash_update_direct",          "(I[B" BUF "II)I",                     (void *) hash_update_direct},
+    {"hash_final",                  "(I[B[BII)I",                          (void *) hash_final},
+    {"sign_init",                   "([B)I",                               (void *) sign_init},
+    {"sign_update",                 "([B[BII)I",                           (void *) sign_update},
+    {"sign_update_direct",          "([B" BUF "II)I",                      (void *) sign_update_direct},
+    {"sign_final_create",           "([B[BI[B)I",                          (void *) sign_final_create},
+    {"sign_final_verify",           "([B[BI[B)I",                          (void *) sign_final_verify},
+    {"aead_ietf_encrypt_batch",     "([B[I[B[I[I[B[I[[B[I)I",              (void *) aead_ietf_encrypt_batch},
+    {"aead_ietf_decrypt_batch",     "([B[I[B[I[I[B[I[[B[I)I",              (void *) aead_ietf_decrypt_batch},
+    {"sign_detached_batch",         "([B[B[I[I[B)I",                       (void *) sign_detached_batch},
+    {"sign_verify_detached_batch",  "([B[B[I[I[[B[I)I",                    (void *) sign_verify_detached_batch},
+    {"fork_counter",                "()" BUF,                              (void *) fork_counter},
+};
+
+JNIEXPORT jint JNICALL JNI_OnLoad(JavaVM *vm, void *reserved) {
+    JNIEnv *env;
+    jclass clazz;
+
+    if ((*vm)->GetEnv(vm, (void **) &env, JNI_VERSION_1_6) != JNI_OK) {
+        return JNI_ERR;
+    }
+    if (sodium_init() < 0) {
+        return JNI_ERR;
+    }
+    if (pthread_atfork(NULL, NULL, on_fork_child) != 0) {
+        return JNI_ERR;
+    }
+    clazz = (*env)->FindClass(env, EXT_CLASS);
+    if (clazz == NULL) {
+        return JNI_ERR;
+    }
+    if ((*env)->RegisterNatives(env, clazz, methods, sizeof methods / sizeof methods[0]) != JNI_OK) {
+        return JNI_ERR;
+    }
+    return JNI_VERSION_1_6;
+}
@@ -0,0 +1,97 @@
+/*
+ *
+ *  * Copyright 2021 UBICUA.
+ *  *
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  *
+ *  *      http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ *
+ */
+
+package org.libsodium.api;
+
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.Test;
+import org.libsodium.jni.SodiumException;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.libsodium.jni.SodiumConstants.CRYPTO_AEAD_CHACHA20POLY1305_IETF_ABYTES;
+import static org.libsodium.jni.SodiumConstants.CRYPTO_AEAD_CHACHA20POLY1305_IETF_KEYBYTES;
+import static org.libsodium.jni.SodiumConstants.CRYPTO_AEAD_CHACHA20POLY1305_IETF_NONCEBYTES;
+
+/**
+ * Batched AEAD calls against the single message ones, through whichever provider is
+ * selected; without libsodiumjni that is the pure Java one.
+ *
+ * @author UBICUA
+ */
+public class AeadBatchTest {
+
+    private static final int[] LENGTHS = {0, 1, 16, 63, 200};
+
+    private final Random random = new Random(7);
+
+    @Test
+    public void batchMatchesSingleCalls() throws SodiumException {
+        int count = LENGTHS.length;
+        int[] inOffsets = new int[count];
+        int[] outOffsets = new int[count];
+        int[] nonceOffsets = new int[count];
+        byte[][] keys = new byte[count][];
+
+        int inSize = 0;
+        int outSize = 0;
+        for (int i = 0; i < count; i++) {
+            inOffsets[i] = inSize;
+            outOffsets[i] = outSize;
+            nonceOffsets[i] = i * CRYPTO_AEAD_CHACHA20POLY1305_IETF_NONCEBYTES;
+            keys[i] = bytes(CRYPTO_AEAD_CHACHA20POLY1305_IETF_KEYBYTES);
+            inSize += LENGTHS[i];
+            outSize += LENGTHS[i] + CRYPTO_AEAD_CHACHA20POLY1305_IETF_ABYTES;
+        }
+        byte[] in = bytes(inSize);
+        byte[] nonces = bytes(count * CRYPTO_AEAD_CHACHA20POLY1305_IETF_NONCEBYTES);
+
+        byte[] out = new byte[outSize];
+        int[] results = new int[count];
+        assertEquals(0, Crypto_aead_chacha20poly1305_ietf.encrypt_batch(out, outOffsets, in, inOffsets, LENGTHS,
+                nonces, nonceOffsets, keys, results));
+
+        int[] cipherLengths = new int[count];
+        for (int i = 0; i < count; i++) {
+            byte[] nonce = Arrays.copyOfRange(nonces, nonceOffsets[i], nonceOffsets[i] + CRYPTO_AEAD_CHACHA20POLY1305_IETF_NONCEBYTES);
+            byte[] expected = Crypto_aead_chacha20poly1305_ietf.encrypt(Arrays.copyOfRange(in, inOffsets[i], inOffsets[i] + LENGTHS[i]),
+                    null, nonce, keys[i]);
+            cipherLengths[i] = expected.length;
+            assertArrayEquals(expected, Arrays.copyOfRange(out, outOffsets[i], outOffsets[i] + expected.length));
+        }
+
+        /* corrupt message 2, the others still decrypt */
+        out[outOffsets[2]] ^= 1;
+        byte[] plain = new byte[inSize];
+        assertEquals(1, Crypto_aead_chacha20poly1305_ietf.decrypt_batch(plain, inOffsets, out, outOffsets, cipherLengths,
+                nonces, nonceOffsets, keys, results));
+        for (int i = 0; i < count; i++) {
+            assertEquals(i == 2, results[i] != 0);
+            if (i != 2) {
+                assertArrayEquals(Arrays.copyOfRange(in, inOffsets[i], inOffsets[i] + LENGTHS[i]),
+                        Arrays.copyOfRange(plain, inOffsets[i], inOffsets[i] + LENGTHS[i]));
+            }
+        }
+    }
+
+    private byte[] bytes(int length) {
+        byte[] value = new byte[length];
+        random.nextBytes(value);
+        return value;
+    }
+}
@@ -0,0 +1,292 @@
+/*
+ *
+ *  * Copyright 2021 UBICUA.
+ *  *
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  *
+ *  *      http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ *
+ */
+
+package org.libsodium.api;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.libsodium.jni.NaCl;
+import org.libsodium.jni.SodiumException;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import static org.junit.Assume.assumeTrue;
+import static org.libsodium.jni.SodiumConstants.CRYPTO_SECRETSTREAM_XCHACHA20POLY1305_ABYTES;
+import static org.libsodium.jni.SodiumConstants.CRYPTO_SECRETSTREAM_XCHACHA20POLY1305_HEADERBYTES;
+import static org.libsodium.jni.SodiumConstants.CRYPTO_SECRETSTREAM_XCHACHA20POLY1305_TAG_MESSAGE;
+
+/**
+ * Round trips and failure modes of {@link SecretStreamOutputStream},
+ * {@link SecretStreamInputStream} and {@link SecretStreamChannel}. Needs the host
+ * libsodiumjni, see build-native.sh; skipped without it.
+ *
+ * @author UBICUA
+ */
+public class SecretStreamTest {
+
+    private static final int CHUNK = 64;
+    private static final int FRAME = 4 + CRYPTO_SECRETSTREAM_XCHACHA20POLY1305_ABYTES;
+
+    private final Random random = new Random(42);
+
+    @BeforeClass
+    public static void sodium() {
+        assumeTrue("libsodiumjni not available", NaCl.isAvailable());
+        NaCl.sodium();
+    }
+
+    @Test
+    public void roundTripStream() throws IOException {
+        byte[] key = Crypto_secretstream_xchacha20poly1305.keygen();
+        byte[] data = bytes(3 * CHUNK + 17);
+
+        assertArrayEquals(data, decrypt(encrypt(key, data), key));
+    }
+
+    @Test
+    public void roundTripEmpty() throws IOException {
+        byte[] key = Crypto_secretstream_xchacha20poly1305.keygen();
+        byte[] stream = encrypt(key, new byte[0]);
+
+        assertEquals(CRYPTO_SECRETSTREAM_XCHACHA20POLY1305_HEADERBYTES + FRAME, stream.length);
+        assertEquals(0, decrypt(stream, key).length);
+    }
+
+    @Test
+    public void roundTripSingleBytes() throws IOException {
+        byte[] key = Crypto_secretstream_xchacha20poly1305.keygen();
+        byte[] data = bytes(2 * CHUNK + 1);
+
+        ByteArrayOutputStream sink = new ByteArrayOutputStream();
+        try (SecretStreamOutputStream out = new SecretStreamOutputStream(sink, key, CHUNK)) {
+            for (byte b : data) {
+                out.write(b);
+            }
+        }
+
+        ByteArrayOutputStream plain = new ByteArrayOutputStream();
+        try (SecretStreamInputStream in = new SecretStreamInputStream(new ByteArrayInputStream(sink.toByteArray()), key)) {
+            int b;
+            while ((b = in.read()) != -1) {
+                plain.write(b);
+            }
+        }
+        assertArrayEquals(data, plain.toByteArray());
+    }
+
+    @Test
+    public void roundTripChannel() throws IOException {
+        byte[] key = Crypto_secretstream_xchacha20poly1305.keygen();
+        byte[] data = bytes(5 * CHUNK + 3);
+        int half = data.length / 2;
+
+        ByteArrayOutputStream sink = new ByteArrayOutputStream();
+        try (SecretStreamChannel channel = new SecretStreamChannel(Channels.newChannel(sink), key, CHUNK)) {
+            ByteBuffer heap = ByteBuffer.wrap(data, 0, half);
+            assertEquals(half, channel.write(heap));
+            assertEquals(0, heap.remaining());
+
+            ByteBuffer direct = ByteBuffer.allocateDirect(data.length - half);
+            direct.put(data, half, data.length - half).flip();
+            assertEquals(data.length - half, channel.write(direct));
+            assertEquals(0, direct.remaining());
+        }
+        assertArrayEquals(data, decrypt(sink.toByteArray(), key));
+    }
+
+    @Test
+    public void flushSealsShortChunks() throws IOException {
+        byte[] key = Crypto_secretstream_xchacha20poly1305.keygen();
+        byte[] data = bytes(15);
+
+        ByteArrayOutputStream sink = new ByteArrayOutputStream();
+        try (SecretStreamOutputStream out = new SecretStreamOutputStream(sink, key, CHUNK)) {
+            out.write(data, 0, 10);
+            out.flush();
+            /* nothing buffered, no empty chunk */
+            out.flush();
+            out.write(data, 10, 5);
+            out.flush();
+        }
+        byte[] stream = sink.toByteArray();
+
+        /* header, chunks of 10 and 5 bytes, empty final chunk */
+        int offset = CRYPTO_SECRETSTREAM_XCHACHA20POLY1305_HEADERBYTES;
+        assertEquals(10 + CRYPTO_SECRETSTREAM_XCHACHA20POLY1305_ABYTES, length(stream, offset));
+        offset += FRAME + 10;
+        assertEquals(5 + CRYPTO_SECRETSTREAM_XCHACHA20POLY1305_ABYTES, length(stream, offset));
+        offset += FRAME + 5;
+        assertEquals(CRYPTO_SECRETSTREAM_XCHACHA20POLY1305_ABYTES, length(stream, offset));
+        assertEquals(offset + FRAME, stream.length);
+
+        assertArrayEquals(data, decrypt(stream, key));
+    }
+
+    @Test(expected = IOException.class)
+    public void wrongKey() throws IOException {
+        byte[] stream = encrypt(Crypto_secretstream_xchacha20poly1305.keygen(), bytes(CHUNK));
+        decrypt(stream, Crypto_secretstream_xchacha20poly1305.keygen());
+    }
+
+    @Test
+    public void tamperedChunk() throws IOException {
+        byte[] key = Crypto_secretstream_xchacha20poly1305.keygen();
+        byte[] stream = encrypt(key, bytes(2 * CHUNK));
+
+        for (int offset : new int[]{
+                CRYPTO_SECRETSTREAM_XCHACHA20POLY1305_HEADERBYTES + 4,
+                CRYPTO_SECRETSTREAM_XCHACHA20POLY1305_HEADERBYTES + FRAME + CHUNK - 1,
+                stream.length - 1}) {
+            byte[] tampered = stream.clone();
+            tampered[offset] ^= 1;
+            expectFailure(tampered, key, IOException.class);
+        }
+    }
+
+    @Test
+    public void reorderedChunks() throws IOException {
+        byte[] key = Crypto_secretstream_xchacha20poly1305.keygen();
+        byte[] stream = encrypt(key, bytes(2 * CHUNK));
+
+        int first = CRYPTO_SECRETSTREAM_XCHACHA20POLY1305_HEADERBYTES;
+        int second = first + FRAME + CHUNK;
+        byte[] reordered = stream.clone();
+        System.arraycopy(stream, second, reordered, first, FRAME + CHUNK);
+        System.arraycopy(stream, first, reordered, second, FRAME + CHUNK);
+
+        expectFailure(reordered, key, IOException.class);
+    }
+
+    @Test
+    public void truncatedStream() throws IOException {
+        byte[] key = Crypto_secretstream_xchacha20poly1305.keygen();
+        byte[] stream = encrypt(key, bytes(2 * CHUNK));
+
+        /* final chunk dropped, cut inside a frame, cut inside the header */
+        expectFailure(Arrays.copyOf(stream, stream.length - FRAME), key, EOFException.class);
+        expectFailure(Arrays.copyOf(stream, stream.length - 1), key, EOFException.class);
+        expectFailure(Arrays.copyOf(stream, stream.length - FRAME - 3), key, EOFException.class);
+        expectFailure(Arrays.copyOf(stream, CRYPTO_SECRETSTREAM_XCHACHA20POLY1305_HEADERBYTES - 1), key, EOFException.class);
+    }
+
+    @Test
+    public void missingFinalTag() throws IOException, SodiumException {
+        byte[] key = Crypto_secretstream_xchacha20poly1305.keygen();
+        byte[] data = bytes(CHUNK);
+
+        /* well formed frames, but none tagged TAG_FINAL */
+        byte[] state = Crypto_secretstream_xchacha20poly1305.state();
+        ByteArrayOutputStream sink = new ByteArrayOutputStream();
+        sink.write(Crypto_secretstream_xchacha20poly1305.init_push(state, key));
+        frame(sink, Crypto_secretstream_xchacha20poly1305.push(state, data, null, CRYPTO_SECRETSTREAM_XCHACHA20POLY1305_TAG_MESSAGE));
+
+        SecretStreamInputStream in = new SecretStreamInputStream(new ByteArrayInputStream(sink.toByteArray()), key);
+        byte[] read = new byte[CHUNK];
+        assertEquals(CHUNK, in.read(read, 0, read.length));
+        assertArrayEquals(data, read);
+        try {
+            in.read();
+            fail("Stream without final chunk accepted");
+        } catch (EOFException e) {
+            /* expected */
+        }
+    }
+
+    @Test
+    public void trailingData() throws IOException {
+        byte[] key = Crypto_secretstream_xchacha20poly1305.keygen();
+        byte[] stream = encrypt(key, bytes(CHUNK + 1));
+
+        byte[] trailing = Arrays.copyOf(stream, stream.length + 1);
+        expectFailure(trailing, key, IOException.class);
+
+        /* a second stream appended after the final chunk */
+        byte[] appended = Arrays.copyOf(stream, 2 * stream.length - CRYPTO_SECRETSTREAM_XCHACHA20POLY1305_HEADERBYTES);
+        System.arraycopy(stream, CRYPTO_SECRETSTREAM_XCHACHA20POLY1305_HEADERBYTES, appended, stream.length,
+                stream.length - CRYPTO_SECRETSTREAM_XCHACHA20POLY1305_HEADERBYTES);
+        expectFailure(appended, key, IOException.class);
+    }
+
+    @Test(expected = IOException.class)
+    public void writeAfterClose() throws IOException {
+        SecretStreamOutputStream out = new SecretStreamOutputStream(new ByteArrayOutputStream(), Crypto_secretstream_xchacha20poly1305.keygen(), CHUNK);
+        out.close();
+        out.write(1);
+    }
+
+    private byte[] bytes(int length) {
+        byte[] value = new byte[length];
+        random.nextBytes(value);
+        return value;
+    }
+
+    private static byte[] encrypt(byte[] key, byte[] data) throws IOException {
+        ByteArrayOutputStream sink = new ByteArrayOutputStream();
+        try (SecretStreamOutputStream out = new SecretStreamOutputStream(sink, key, CHUNK)) {
+            /* uneven writes so chunks straddle them */
+            for (int offset = 0; offset < data.length; offset += 23) {
+                out.write(data, offset, Math.min(23, data.length - offset));
+            }
+        }
+        return sink.toByteArray();
+    }
+
+    private static byte[] decrypt(byte[] stream, byte[] key) throws IOException {
+        try (InputStream in = new SecretStreamInputStream(new ByteArrayInputStream(stream), key)) {
+            ByteArrayOutputStream plain = new ByteArrayOutputStream();
+            byte[] buffer = new byte[37];
+            int n;
+            while ((n = in.read(buffer, 0, buffer.length)) != -1) {
+                plain.write(buffer, 0, n);
+            }
+            return plain.toByteArray();
+        }
+    }
+
+    private static void expectFailure(byte[] stream, byte[] key, Class<? extends IOException> type) {
+        try {
+            decrypt(stream, key);
+            fail("Invalid stream accepted");
+        } catch (IOException e) {
+            if (!type.isInstance(e)) {
+                throw new AssertionError(String.format("Expected %s, got %s", type.getSimpleName(), e), e);
+            }
+        }
+    }
+
+    private static int length(byte[] stream, int offset) {
+        return (stream[offset] & 0xff) << 24 | (stream[offset + 1] & 0xff) << 16 | (stream[offset + 2] & 0xff) << 8 | (stream[offset + 3] & 0xff);
+    }
+
+    private static void frame(ByteArrayOutputStream sink, byte[] cipher) {
+        sink.write(cipher.length >>> 24);
+        sink.write(cipher.length >>> 16);
+        sink.write(cipher.length >>> 8);
+        sink.write(cipher.length);
+        sink.write(cipher, 0, cipher.length);
+    }
+}
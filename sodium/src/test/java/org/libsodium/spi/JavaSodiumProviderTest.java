@@ -0,0 +1,188 @@
+/*
+ *
+ *  * Copyright 2021 UBICUA.
+ *  *
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  *
+ *  *      http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ *
+ */
+
+package org.libsodium.spi;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assume.assumeTrue;
+import static org.libsodium.jni.SodiumConstants.CRYPTO_AEAD_CHACHA20POLY1305_IETF_ABYTES;
+import static org.libsodium.jni.SodiumConstants.CRYPTO_AEAD_CHACHA20POLY1305_IETF_KEYBYTES;
+import static org.libsodium.jni.SodiumConstants.CRYPTO_AEAD_CHACHA20POLY1305_IETF_NONCEBYTES;
+import static org.libsodium.jni.SodiumConstants.CRYPTO_AUTH_HMACSHA256_BYTES;
+import static org.libsodium.jni.SodiumConstants.CRYPTO_AUTH_HMACSHA256_KEYBYTES;
+import static org.libsodium.jni.SodiumConstants.CRYPTO_HASH_SHA256;
+
+/**
+ * {@link JavaSodiumProvider} against published test vectors and, when libsodiumjni is
+ * loaded, against {@link NativeSodiumProvider}.
+ *
+ * @author UBICUA
+ */
+public class JavaSodiumProviderTest {
+
+    /* RFC 8439, section 2.8.2 */
+    private static final byte[] AEAD_PLAIN = ("Ladies and Gentlemen of the class of '99: If I could offer you only one tip "
+            + "for the future, sunscreen would be it.").getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] AEAD_AD = hex("50515253c0c1c2c3c4c5c6c7");
+    private static final byte[] AEAD_KEY = hex("808182838485868788898a8b8c8d8e8f909192939495969798999a9b9c9d9e9f");
+    private static final byte[] AEAD_NONCE = hex("070000004041424344454647");
+    private static final byte[] AEAD_CIPHER = hex(
+            "d31a8d34648e60db7b86afbc53ef7ec2a4aded51296e08fea9e2b5a736ee62d6"
+            + "3dbea45e8ca9671282fafb69da92728b1a71de0a9e060b2905d6a5b67ecd3b36"
+            + "92ddbd7f2d778b8c9803aee328091b58fab324e4fad675945585808b4831d7bc"
+            + "3ff4def08e4b7a9de576d26586cec64b6116"
+            + "1ae10b594f09e26a7e902ecbd0600691");
+
+    private final SodiumProvider provider = new JavaSodiumProvider();
+    private final Random random = new Random(8439);
+
+    @Test
+    public void aeadEncryptVector() {
+        byte[] c = new byte[AEAD_PLAIN.length + CRYPTO_AEAD_CHACHA20POLY1305_IETF_ABYTES];
+        assertEquals(0, provider.aead_chacha20poly1305_ietf_encrypt(c, 0, AEAD_PLAIN, 0, AEAD_PLAIN.length,
+                AEAD_AD, 0, AEAD_AD.length, AEAD_NONCE, 0, AEAD_KEY));
+        assertArrayEquals(AEAD_CIPHER, c);
+    }
+
+    @Test
+    public void aeadDecryptVector() {
+        byte[] m = new byte[AEAD_PLAIN.length];
+        assertEquals(0, provider.aead_chacha20poly1305_ietf_decrypt(m, 0, AEAD_CIPHER, 0, AEAD_CIPHER.length,
+                AEAD_AD, 0, AEAD_AD.length, AEAD_NONCE, 0, AEAD_KEY));
+        assertArrayEquals(AEAD_PLAIN, m);
+    }
+
+    @Test
+    public void aeadRejectsTampering() {
+        byte[] m = new byte[AEAD_PLAIN.length];
+
+        for (int i : new int[]{0, AEAD_PLAIN.length - 1, AEAD_CIPHER.length - 1}) {
+            byte[] c = AEAD_CIPHER.clone();
+            c[i] ^= 1;
+            assertEquals(-1, provider.aead_chacha20poly1305_ietf_decrypt(m, 0, c, 0, c.length,
+                    AEAD_AD, 0, AEAD_AD.length, AEAD_NONCE, 0, AEAD_KEY));
+        }
+
+        byte[] ad = AEAD_AD.clone();
+        ad[0] ^= 1;
+        assertEquals(-1, provider.aead_chacha20poly1305_ietf_decrypt(m, 0, AEAD_CIPHER, 0, AEAD_CIPHER.length,
+                ad, 0, ad.length, AEAD_NONCE, 0, AEAD_KEY));
+        /* nothing written on failure */
+        assertArrayEquals(new byte[AEAD_PLAIN.length], m);
+    }
+
+    @Test
+    public void aeadOffsets() {
+        int offset = 7;
+        byte[] m = new byte[offset + AEAD_PLAIN.length];
+        System.arraycopy(AEAD_PLAIN, 0, m, offset, AEAD_PLAIN.length);
+        byte[] ad = new byte[offset + AEAD_AD.length];
+        System.arraycopy(AEAD_AD, 0, ad, offset, AEAD_AD.length);
+        byte[] nonce = new byte[offset + AEAD_NONCE.length];
+        System.arraycopy(AEAD_NONCE, 0, nonce, offset, AEAD_NONCE.length);
+
+        byte[] c = new byte[offset + AEAD_CIPHER.length];
+        assertEquals(0, provider.aead_chacha20poly1305_ietf_encrypt(c, offset, m, offset, AEAD_PLAIN.length,
+                ad, offset, AEAD_AD.length, nonce, offset, AEAD_KEY));
+        assertArrayEquals(AEAD_CIPHER, Arrays.copyOfRange(c, offset, c.length));
+
+        /* in place */
+        assertEquals(0, provider.aead_chacha20poly1305_ietf_decrypt(c, offset, c, offset, AEAD_CIPHER.length,
+                ad, offset, AEAD_AD.length, nonce, offset, AEAD_KEY));
+        assertArrayEquals(AEAD_PLAIN, Arrays.copyOfRange(c, offset, offset + AEAD_PLAIN.length));
+    }
+
+    @Test
+    public void sha256Vectors() {
+        /* FIPS 180-2, appendix B.1 and B.2 */
+        assertArrayEquals(hex("ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad"), sha256(ascii("abc")));
+        assertArrayEquals(hex("248d6a61d20638b8e5c026930c3e6039a33ce45964ff2167f6ecedd419db06c1"),
+                sha256(ascii("abcdbcdecdefdefgefghfghighijhijkijkljklmklmnlmnomnopnopq")));
+        assertArrayEquals(hex("e3b0c44298fc1c149afbf4c8996fb92427ae41e4649b934ca495991b7852b855"), sha256(new byte[0]));
+    }
+
+    @Test
+    public void hmacSha256Vector() {
+        /* RFC 4231, test case 2; the short key is zero padded as HMAC does anyway */
+        byte[] key = Arrays.copyOf(ascii("Jefe"), CRYPTO_AUTH_HMACSHA256_KEYBYTES);
+        byte[] data = ascii("what do ya want for nothing?");
+        byte[] mac = new byte[CRYPTO_AUTH_HMACSHA256_BYTES];
+
+        assertEquals(0, provider.auth_hmacsha256(mac, 0, data, 0, data.length, key));
+        assertArrayEquals(hex("5bdcc146bf60754e6a042426089575c75a003f089d2739839dec58b964ec3843"), mac);
+    }
+
+    @Test
+    public void matchesNative() {
+        SodiumProvider reference = new NativeSodiumProvider();
+        assumeTrue("libsodiumjni not available", reference.isAvailable());
+
+        byte[] key = bytes(CRYPTO_AEAD_CHACHA20POLY1305_IETF_KEYBYTES);
+        byte[] nonce = bytes(CRYPTO_AEAD_CHACHA20POLY1305_IETF_NONCEBYTES);
+
+        for (int length : new int[]{0, 1, 15, 16, 17, 63, 64, 65, 1000}) {
+            byte[] m = bytes(length);
+            byte[] ad = bytes(length % 20);
+
+            byte[] expected = new byte[length + CRYPTO_AEAD_CHACHA20POLY1305_IETF_ABYTES];
+            byte[] actual = new byte[expected.length];
+            assertEquals(0, reference.aead_chacha20poly1305_ietf_encrypt(expected, 0, m, 0, length, ad, 0, ad.length, nonce, 0, key));
+            assertEquals(0, provider.aead_chacha20poly1305_ietf_encrypt(actual, 0, m, 0, length, ad, 0, ad.length, nonce, 0, key));
+            assertArrayEquals(expected, actual);
+
+            byte[] hash = new byte[CRYPTO_HASH_SHA256];
+            reference.hash_sha256(hash, 0, m, 0, length);
+            assertArrayEquals(hash, sha256(m));
+
+            byte[] mac = new byte[CRYPTO_AUTH_HMACSHA256_BYTES];
+            byte[] javaMac = new byte[CRYPTO_AUTH_HMACSHA256_BYTES];
+            reference.auth_hmacsha256(mac, 0, m, 0, length, key);
+            provider.auth_hmacsha256(javaMac, 0, m, 0, length, key);
+            assertArrayEquals(mac, javaMac);
+        }
+    }
+
+    private byte[] sha256(byte[] in) {
+        byte[] out = new byte[CRYPTO_HASH_SHA256];
+        assertEquals(0, provider.hash_sha256(out, 0, in, 0, in.length));
+        return out;
+    }
+
+    private byte[] bytes(int length) {
+        byte[] value = new byte[length];
+        random.nextBytes(value);
+        return value;
+    }
+
+    private static byte[] ascii(String value) {
+        return value.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static byte[] hex(String value) {
+        byte[] result = new byte[value.length() / 2];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = (byte) Integer.parseInt(value.substring(2 * i, 2 * i + 2), 16);
+        }
+        return result;
+    }
+}
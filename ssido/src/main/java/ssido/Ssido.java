@@ -18,12 +18,14 @@
 
 package ssido;
 
+import android.app.Activity;
 import android.app.Application;
 import android.content.ComponentName;
 import android.content.Context;
 import android.content.Intent;
 import android.content.ServiceConnection;
 import android.content.res.Configuration;
+import android.os.Bundle;
 import android.os.IBinder;
 import android.util.Log;
 
@@ -40,6 +42,8 @@ public class Ssido extends Application {
 
     private static Application app;
     private SsidoService service;
+    /* Started activities, the app is in background when none is */
+    private int started;
 
     @Override
     public void onCreate() {
@@ -49,6 +53,45 @@ public class Ssido extends Application {
 
         Intent intent = new Intent(this, SsidoService.class);
         bindService(intent, new ServiceListener(), Context.BIND_AUTO_CREATE);
+        registerActivityLifecycleCallbacks(new VisibilityListener());
+    }
+
+    /* Closes the wallet while the app is in background, see SsidoService#onBackground */
+    private class VisibilityListener implements ActivityLifecycleCallbacks {
+
+        @Override
+        public void onActivityStarted(Activity activity) {
+            if (started++ == 0 && service != null) {
+                service.onForeground();
+            }
+        }
+
+        @Override
+        public void onActivityStopped(Activity activity) {
+            if (--started == 0 && service != null && !activity.isChangingConfigurations()) {
+                service.onBackground();
+            }
+        }
+
+        @Override
+        public void onActivityCreated(Activity activity, Bundle state) {
+        }
+
+        @Override
+        public void onActivityResumed(Activity activity) {
+        }
+
+        @Override
+        public void onActivityPaused(Activity activity) {
+        }
+
+        @Override
+        public void onActivitySaveInstanceState(Activity activity, Bundle state) {
+        }
+
+        @Override
+        public void onActivityDestroyed(Activity activity) {
+        }
     }
 
     private class ServiceListener implements ServiceConnection {
@@ -0,0 +1,277 @@
+/*
+ *
+ *  * Copyright 2021 UBICUA.
+ *  *
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  *
+ *  *      http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ *
+ */
+
+package ssido.crypto;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import ssido.crypto.math.Curve;
+import ssido.crypto.math.GroupElement;
+import ssido.crypto.math.ScalarOps;
+import ssido.crypto.spec.EdDSANamedCurveTable;
+import ssido.crypto.spec.EdDSAParameterSpec;
+
+/**
+ * Verifies many Ed25519 signatures at once.
+ * <p>
+ * With random 128 bit $z_i$ the batch holds when
+ * $$
+ * 8 * (\sum z_i R_i + \sum (z_i h_i) A_i - (\sum z_i S_i) B) = 0
+ * $$
+ * which is computed as one multi-scalar multiplication
+ * ({@link GroupElement#multiScalarMultiplyVariableTime(GroupElement[][], byte[][])}), so the
+ * 256 doublings of a single verification are shared by the whole batch. Signatures by the
+ * same key share one $A$ term. When the batch fails, {@link #verifyEach()} bisects it to
+ * find the bad signatures.
+ * <p>
+ * The batch equation is the cofactored one: every signature {@link EdDSAEngine} accepts
+ * passes, but a signature deliberately built with small order components in $R$ or $A$
+ * may pass here and fail in the engine. Use the engine where that difference matters.
+ * <p>
+ * Not thread safe, use one instance per batch.
+ *
+ * @author UBICUA
+ */
+public final class Ed25519BatchVerifier {
+
+    private static final EdDSAParameterSpec SPEC = EdDSANamedCurveTable.ED_25519_CURVE_SPEC;
+    private static final GroupElement[] B_TABLE = SPEC.getB().oddMultiples();
+
+    private static final byte[] ZERO = new byte[32];
+    private static final byte[] ONE = new byte[32];
+    /* l - 1, multiplying by it negates mod l */
+    private static final byte[] MINUS_ONE = {
+        (byte) 0xec, (byte) 0xd3, (byte) 0xf5, (byte) 0x5c, (byte) 0x1a, (byte) 0x63, (byte) 0x12, (byte) 0x58,
+        (byte) 0xd6, (byte) 0x9c, (byte) 0xf7, (byte) 0xa2, (byte) 0xde, (byte) 0xf9, (byte) 0xde, (byte) 0x14,
+        0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, (byte) 0x10
+    };
+    private static final int Z_BYTES = 16;
+
+    static {
+        ONE[0] = 1;
+    }
+
+    private final SecureRandom random;
+    private final MessageDigest digest;
+    private final ScalarOps ops = SPEC.getScalarOps();
+    private final Curve curve = SPEC.getCurve();
+
+    private final List<Entry> entries = new ArrayList<>();
+    private final Map<EdDSAPublicKey, GroupElement[]> keys = new HashMap<>();
+
+    private static final class Entry {
+        final EdDSAPublicKey key;
+        /* null when the signature is malformed, it fails without taking part in a batch */
+        final GroupElement[] R;
+        final byte[] z;
+        final byte[] zh;
+        final byte[] S;
+
+        Entry(EdDSAPublicKey key, GroupElement[] R, byte[] z, byte[] zh, byte[] S) {
+            this.key = key;
+            this.R = R;
+            this.z = z;
+            this.zh = zh;
+            this.S = S;
+        }
+    }
+
+    public Ed25519BatchVerifier() {
+        this(new SecureRandom());
+    }
+
+    public Ed25519BatchVerifier(SecureRandom random) {
+        this.random = random;
+        try {
+            this.digest = MessageDigest.getInstance(SPEC.getHashAlgorithm());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Adds a signature to the batch, hashing and decoding it right away.
+     *
+     * @param key an Ed25519 public key
+     * @param message the signed message
+     * @param signature the 64 byte signature, a malformed one is reported as invalid
+     * @throws IllegalArgumentException if the key is not an Ed25519 key
+     */
+    public void add(EdDSAPublicKey key, byte[] message, byte[] signature) {
+        if (!SPEC.equals(key.getParams()))
+            throw new IllegalArgumentException("not an Ed25519 key");
+
+        int b = curve.getField().getb();
+        if (signature.length != b/4) {
+            entries.add(new Entry(key, null, null, null, null));
+            return;
+        }
+
+        byte[] Rbyte = Arrays.copyOfRange(signature, 0, b/8);
+        GroupElement R = decode(Rbyte);
+        if (R == null) {
+            entries.add(new Entry(key, null, null, null, null));
+            return;
+        }
+
+        // h = H(Rbar,Abar,M) mod l
+        digest.update(Rbyte);
+        digest.update(key.getAbyte());
+        digest.update(message);
+        byte[] h = ops.reduce(digest.digest());
+
+        byte[] z = new byte[32];
+        byte[] bytes = new byte[Z_BYTES];
+        random.nextBytes(bytes);
+        System.arraycopy(bytes, 0, z, 0, Z_BYTES);
+
+        GroupElement[] A = keys.get(key);
+        if (A == null) {
+            A = key.getA().oddMultiples();
+            keys.put(key, A);
+        }
+
+        entries.add(new Entry(key, R.oddMultiples(), z, ops.multiplyAndAdd(z, h, ZERO),
+                Arrays.copyOfRange(signature, b/8, b/4)));
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public void clear() {
+        entries.clear();
+        keys.clear();
+    }
+
+    /**
+     * @return true if every signature of the batch is valid, also for an empty batch
+     */
+    public boolean verify() {
+        for (Entry entry : entries) {
+            if (entry.R == null)
+                return false;
+        }
+        return entries.isEmpty() || check(entries);
+    }
+
+    /**
+     * Verifies the batch and, when it fails, its halves down to the single
+     * signatures at fault. With $k$ bad signatures out of $n$ that takes about
+     * $2k \log_2(n/k)$ smaller batches.
+     *
+     * @return the result of each signature, in the order they were added
+     */
+    public boolean[] verifyEach() {
+        boolean[] results = new boolean[entries.size()];
+        List<Integer> batch = new ArrayList<>();
+        for (int i = 0; i < entries.size(); i++) {
+            if (entries.get(i).R != null)
+                batch.add(i);
+        }
+        bisect(batch, results);
+        return results;
+    }
+
+    private void bisect(List<Integer> batch, boolean[] results) {
+        if (batch.isEmpty())
+            return;
+
+        List<Entry> selected = new ArrayList<>(batch.size());
+        for (int i : batch) {
+            selected.add(entries.get(i));
+        }
+        if (check(selected)) {
+            for (int i : batch) {
+                results[i] = true;
+            }
+            return;
+        }
+        if (batch.size() == 1)
+            return;
+
+        int half = batch.size() / 2;
+        bisect(batch.subList(0, half), results);
+        bisect(batch.subList(half, batch.size()), results);
+    }
+
+    private boolean check(List<Entry> batch) {
+        Map<EdDSAPublicKey, byte[]> A = new LinkedHashMap<>();
+        byte[] S = ZERO;
+
+        GroupElement[][] tables = new GroupElement[2 * batch.size() + 1][];
+        byte[][] scalars = new byte[2 * batch.size() + 1][];
+
+        int n = 0;
+        for (Entry entry : batch) {
+            tables[n] = entry.R;
+            scalars[n++] = entry.z;
+            S = ops.multiplyAndAdd(entry.z, entry.S, S);
+
+            byte[] zh = A.get(entry.key);
+            A.put(entry.key, zh == null ? entry.zh : ops.multiplyAndAdd(ONE, entry.zh, zh));
+        }
+        for (Map.Entry<EdDSAPublicKey, byte[]> term : A.entrySet()) {
+            tables[n] = keys.get(term.getKey());
+            scalars[n++] = term.getValue();
+        }
+        tables[n] = B_TABLE;
+        scalars[n++] = ops.multiplyAndAdd(S, MINUS_ONE, ZERO);
+
+        GroupElement r = GroupElement.multiScalarMultiplyVariableTime(
+                Arrays.copyOf(tables, n), Arrays.copyOf(scalars, n));
+
+        // Clear the small order components
+        for (int i = 0; i < 3; i++) {
+            r = r.dbl().toP2();
+        }
+        return !r.getX().isNonZero() && !r.getY().subtract(r.getZ()).isNonZero();
+    }
+
+    /* Point of a canonical encoding, null when there is none */
+    private GroupElement decode(byte[] s) {
+        GroupElement point;
+        try {
+            point = new GroupElement(curve, s);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        // EdDSAEngine compares encodings, so y >= p or a negative zero x cannot verify
+        if (!canonical(s) || (!point.getX().isNonZero() && (s[31] & 0x80) != 0))
+            return null;
+        return point;
+    }
+
+    /* y < p = 2^255 - 19, without the inversion of a re-encoding */
+    private static boolean canonical(byte[] s) {
+        if ((s[31] & 0x7f) != 0x7f)
+            return true;
+        for (int i = 30; i > 0; i--) {
+            if (s[i] != (byte) 0xff)
+                return true;
+        }
+        return (s[0] & 0xff) < 0xed;
+    }
+}
@@ -1073,6 +1073,78 @@ public class GroupElement implements Serializable {
         return r;
     }
 
+    /**
+     * Odd multiples $P, 3P, 5P, \dots, 15P$ of this point in CACHED representation,
+     * the table {@link #multiScalarMultiplyVariableTime(GroupElement[][], byte[][])}
+     * indexes with the digits of {@link #slide(byte[])}.
+     * <p>
+     * Unlike dblPrecmp no inversion is needed, so building it is cheap enough to
+     * do for every point of a batch.
+     *
+     * @return the table, entry $i$ holds $(2i+1)P$
+     */
+    public GroupElement[] oddMultiples() {
+        if (this.repr != Representation.P3 && this.repr != Representation.P3PrecomputedDouble)
+            throw new UnsupportedOperationException();
+
+        final GroupElement[] table = new GroupElement[8];
+        GroupElement Pi = p3(this.curve, this.X, this.Y, this.Z, this.T);
+        final GroupElement twice = Pi.dbl().toP3().toCached();
+        table[0] = Pi.toCached();
+        for (int i = 1; i < 8; i++) {
+            Pi = Pi.add(twice).toP3();
+            table[i] = Pi.toCached();
+        }
+        return table;
+    }
+
+    /**
+     * $r = a_0 * P_0 + a_1 * P_1 + \dots + a_{n-1} * P_{n-1}$ by Straus' method: the
+     * sliding window digits of all the scalars are added in while walking down
+     * a single chain of doublings, so each extra term costs only its additions.
+     * <p>
+     * Variable time, for public values only.
+     *
+     * @param tables $P_i$ as returned by {@link #oddMultiples()}.
+     * @param scalars $a_i$ in the encoding of {@link #doubleScalarMultiplyVariableTime(GroupElement, byte[], byte[])}, reduced.
+     * @return the GroupElement in P2 representation
+     */
+    public static GroupElement multiScalarMultiplyVariableTime(final GroupElement[][] tables, final byte[][] scalars) {
+        if (tables.length == 0 || tables.length != scalars.length)
+            throw new IllegalArgumentException();
+
+        final byte[][] slides = new byte[scalars.length][];
+        int i = -1;
+        for (int j = 0; j < scalars.length; j++) {
+            slides[j] = slide(scalars[j]);
+            for (int k = 255; k > i; --k) {
+                if (slides[j][k] != 0) {
+                    i = k;
+                    break;
+                }
+            }
+        }
+
+        GroupElement r = tables[0][0].curve.getZero(Representation.P2);
+
+        for (; i >= 0; --i) {
+            GroupElement t = r.dbl();
+
+            for (int j = 0; j < slides.length; j++) {
+                final byte digit = slides[j][i];
+                if (digit > 0) {
+                    t = t.toP3().add(tables[j][digit/2]);
+                } else if (digit < 0) {
+                    t = t.toP3().sub(tables[j][(-digit)/2]);
+                }
+            }
+
+            r = t.toP2();
+        }
+
+        return r;
+    }
+
     /**
      * Verify that a point is on its curve.
      * @return true if the point lies on its curve.
@@ -61,7 +61,7 @@ public class Ed25519FieldElement extends FieldElement {
      */
     public boolean isNonZero() {
         final byte[] s = toByteArray();
-        return Arrays.equals(s, ZERO);
+        return !Arrays.equals(s, ZERO);
     }
 
     /**
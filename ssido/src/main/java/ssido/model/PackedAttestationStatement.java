@@ -23,11 +23,10 @@ import androidx.annotation.NonNull;
 
 import com.fasterxml.jackson.databind.node.JsonNodeFactory;
 import com.fasterxml.jackson.databind.node.ObjectNode;
-import java.util.Arrays;
 
-import ssido.util.BinaryUtil;
 import org.libsodium.api.Crypto_hash_sha256;
 import org.libsodium.api.Crypto_sign_ed25519;
+import static org.libsodium.jni.SodiumConstants.CRYPTO_HASH_SHA256;
 import org.libsodium.jni.SodiumException;
 /**
  *
@@ -72,9 +71,11 @@ public class PackedAttestationStatement{
             ObjectNode result = factory.objectNode();
             
             try {
-                byte[] data = BinaryUtil.concat(authenticatorData, Crypto_hash_sha256.sha256(clientData));
-                byte[] sig = Crypto_sign_ed25519.sign(data, privateKey);
-                result.set("sig", factory.binaryNode(Arrays.copyOfRange(sig, 0, sig.length - data.length))); // detach data
+                /* authenticatorData || sha256(clientData), hashed in place */
+                byte[] data = new byte[authenticatorData.length + CRYPTO_HASH_SHA256];
+                System.arraycopy(authenticatorData, 0, data, 0, authenticatorData.length);
+                Crypto_hash_sha256.sha256(data, authenticatorData.length, clientData, 0, clientData.length);
+                result.set("sig", factory.binaryNode(Crypto_sign_ed25519.detached(data, privateKey)));
                 result.set("alg", factory.numberNode(-8)); // EdDSA(-8)
 
             } catch (SodiumException e) {
@@ -25,7 +25,9 @@ import android.content.Intent;
 import android.content.pm.PackageManager;
 import android.os.AsyncTask;
 import android.os.Build;
+import android.os.Handler;
 import android.os.IBinder;
+import android.os.Looper;
 import android.util.Log;
 import android.widget.Toast;
 
@@ -40,10 +42,13 @@ import ssido.ui.permission.Permission;
 import ssido.ui.permission.PermissionResponse;
 import ssido.ui.permission.PermissionResultCallback;
 import jssi.crypto.CryptoService;
+import jssi.did.DidStore;
 import jssi.store.DatabaseHelper;
 import jssi.wallet.Wallet;
 import jssi.wallet.WalletCredential;
 import jssi.wallet.WalletService;
+import jssi.wallet.crypto.AndroidDeviceKey;
+import jssi.wallet.crypto.SessionCache;
 import org.libsodium.jni.NaCl;
 
 import java.util.ArrayList;
@@ -51,7 +56,6 @@ import java.util.List;
 
 import io.reactivex.Observer;
 import io.reactivex.disposables.Disposable;
-import io.reactivex.schedulers.Schedulers;
 
 /**
  * Created by ITON Solutions on 26/09/2019.
@@ -59,12 +63,19 @@ import io.reactivex.schedulers.Schedulers;
 public class SsidoService extends Service {
 
     private static final String TAG = SsidoService.class.getName();
+    private static final String SESSION_KEY_ALIAS = "ssido.wallet.session";
+    /* In background longer than this the wallet is locked, as the session cache expires anyway */
+    private static final long IDLE_LOCK_TIMEOUT = SessionCache.DEFAULT_IDLE_TIMEOUT;
 
     private final IBinder binder = new SsidoBinder(this);
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Runnable idleLock = this::lockWallet;
     private Ssido app;
     private WalletService walletService;
     private CryptoService cryptoService;
-    private StoreService storeService;
+    private volatile StoreService storeService;
+    /* Set once the launcher has been told the wallet is open, later reopens are silent */
+    private volatile boolean launched;
 
 
     @Nullable
@@ -79,6 +90,55 @@ public class SsidoService extends Service {
         return super.onUnbind(intent);
     }
 
+    @Override
+    public void onDestroy() {
+        Log.d(TAG, "Stop Ssido service");
+        lockWallet();
+        super.onDestroy();
+    }
+
+    /*
+     * App in background: the wallet is closed but its master key stays in the session
+     * cache, so onForeground reopens it without key derivation. Still in background
+     * after IDLE_LOCK_TIMEOUT, the wallet is locked.
+     */
+    public void onBackground() {
+        if (walletService == null) {
+            return;
+        }
+        Log.d(TAG, "App in background, close wallet");
+        walletService.close().subscribe();
+        handler.removeCallbacks(idleLock);
+        handler.postDelayed(idleLock, IDLE_LOCK_TIMEOUT);
+    }
+
+    public void onForeground() {
+        handler.removeCallbacks(idleLock);
+        if (walletService == null || walletService.getWallet() != null) {
+            return;
+        }
+        Log.d(TAG, "App in foreground, reopen wallet");
+        open();
+    }
+
+    /*
+     * Zeroizes the wallet keys, the session cache and every derived key, the next open
+     * derives the master key again. Used on logout, idle timeout and service stop.
+     */
+    public void lockWallet() {
+        handler.removeCallbacks(idleLock);
+        if (walletService != null) {
+            walletService.lock().subscribe();
+        }
+        if (cryptoService != null) {
+            cryptoService.clearSharedKeys();
+            cryptoService.clearKeyHandles();
+        }
+        if (storeService != null) {
+            storeService.getDidStore().clear();
+        }
+    }
+
     @Override
     public void onCreate() {
         Log.d(TAG, "Start Ssido service");
@@ -146,9 +206,14 @@ public class SsidoService extends Service {
         Log.d(TAG, "Start Wallet service");
         WalletCredential credential = new WalletCredential("ubicua", "wallet_key");
         DatabaseHelper helper = new DatabaseHelper("ubicua.db", app);
-        walletService = new WalletService(app, credential, helper);
+        walletService = new WalletService(app, credential, helper, new SessionCache(new AndroidDeviceKey(SESSION_KEY_ALIAS)));
+        open();
+    }
+
+    /* The DidStore is rebuilt on every open, the one of a locked wallet is no longer usable */
+    private void open() {
 
-        walletService.open().subscribeOn(Schedulers.newThread()).subscribe(new Observer<Wallet>() {
+        walletService.open().subscribe(new Observer<Wallet>() {
             @Override
             public void onSubscribe(Disposable disposable) {
                 Log.d(TAG, "Received SUBSCRIBED event");
@@ -158,6 +223,11 @@ public class SsidoService extends Service {
             @Override
             public void onNext(Wallet wallet) {
                 Log.d(TAG, String.format("Wallet opened: id=%s", wallet.getId()));
+                if (cryptoService == null) {
+                    Log.d(TAG, "Start Crypto service");
+                    cryptoService = new CryptoService();
+                }
+                storeService = new StoreService(app, new DidStore(wallet));
             }
 
             @Override
@@ -168,9 +238,10 @@ public class SsidoService extends Service {
             @Override
             public void onComplete() {
                 Log.d(TAG, "Received COMPLETED event");
-                Log.d(TAG, "Start Crypto service");
-                cryptoService = new CryptoService();
-                storeService = new StoreService(app);
+                if (launched) {
+                    return;
+                }
+                launched = true;
                 Intent intent = new Intent();
                 intent.setAction(LauncherActivity.BROADCAST_ACTION);
                 sendBroadcast(intent);
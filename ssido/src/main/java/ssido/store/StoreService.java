@@ -25,6 +25,7 @@ import android.util.Log;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 import jssi.did.Did;
+import jssi.did.DidStore;
 import jssi.store.PreexistingEntityException;
 import jssi.wallet.Wallet;
 import jssi.wallet.record.WalletRecord;
@@ -32,6 +33,7 @@ import org.libsodium.jni.SodiumException;
 
 import java.io.IOException;
 import java.util.List;
+import java.util.Set;
 
 /**
  * Created by ITON Solutions on 11/04/2019.
@@ -46,10 +48,24 @@ public class StoreService {
     private static final String SSIDO_DID = "did";
     private static final String SSIDO_COUNTER = "counter";
 
+    /* Plaintext tag of my DIDs naming what they are used for */
+    public static final String TAG_ROLE = "~role";
+    public static final String ROLE_ONBOARDING = "onboarding";
+    /* DID of the wallets provisioned before DIDs were tagged with their role */
+    private static final String LEGACY_ONBOARDING_DID = "EjABoD8BV1mxQhfTccCKw4";
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
     private SharedPreferences preference;
+    private final DidStore didStore;
 
-    public StoreService(Context context) {
+    public StoreService(Context context, DidStore didStore) {
         preference = context.getSharedPreferences(SSIDO_STORE, Context.MODE_PRIVATE);
+        this.didStore = didStore;
+    }
+
+    public DidStore getDidStore() {
+        return didStore;
     }
 
     public boolean isFirstLaunch() {
@@ -72,27 +88,59 @@ public class StoreService {
         return preference.getString(SSIDO_USERNAME, "");
     }
 
+    /* Only the DID is kept in the preferences, the Did itself lives in the DidStore */
     public void setDid(Did did) {
-        try {
-            String result = new ObjectMapper().writeValueAsString(did);
-            preference.edit()
-                    .putBoolean(SSIDO_FIRST_LAUNCH, Boolean.FALSE)
-                    .putInt(SSIDO_COUNTER, 0)
-                    .putString(SSIDO_DID, result)
-                    .apply();
-        } catch(IOException e){
-            Log.e(TAG, String.format("Error: %s", e.getCause().getMessage()));
-        }
+        preference.edit()
+                .putBoolean(SSIDO_FIRST_LAUNCH, Boolean.FALSE)
+                .putInt(SSIDO_COUNTER, 0)
+                .putString(SSIDO_DID, did.did)
+                .apply();
     }
 
     public Did getDid() {
         String did = preference.getString(SSIDO_DID, null);
+        if (did == null) {
+            return null;
+        }
         try {
-            return did == null ? null : new ObjectMapper().readValue(did, Did.class);
-        } catch(IOException e){
-            Log.e(TAG, String.format("Error: %s", e.getCause().getMessage()));
+            if (did.startsWith("{")) {
+                /* Written as JSON by earlier versions */
+                Did legacy = MAPPER.readValue(did, Did.class);
+                preference.edit().putString(SSIDO_DID, legacy.did).apply();
+                did = legacy.did;
+            }
+            return didStore.getMyDid(did);
+        } catch(IOException | SodiumException e){
+            Log.e(TAG, String.format("Error: %s", e.getMessage()));
+            return null;
+        }
+    }
+
+    /**
+     * The DID tagged {@link #ROLE_ONBOARDING}. An untagged wallet gets the tag on the
+     * provisioned DID, or on its only DID; null when the choice is ambiguous.
+     */
+    public Did getOnboardingDid() throws SodiumException {
+        Set<String> tagged = didStore.findMyDids(TAG_ROLE, ROLE_ONBOARDING);
+        if (tagged.size() == 1) {
+            return didStore.getMyDid(tagged.iterator().next());
+        }
+        if (tagged.size() > 1) {
+            Log.e(TAG, String.format("%d DIDs tagged %s", tagged.size(), ROLE_ONBOARDING));
             return null;
         }
+
+        Did did = didStore.getMyDid(LEGACY_ONBOARDING_DID);
+        if (did == null) {
+            List<Did> dids = didStore.listMyDids();
+            if (dids.size() != 1) {
+                Log.e(TAG, String.format("%d DIDs, none tagged %s", dids.size(), ROLE_ONBOARDING));
+                return null;
+            }
+            did = dids.get(0);
+        }
+        didStore.setDidTag(did.did, TAG_ROLE, ROLE_ONBOARDING);
+        return did;
     }
 
     public static void addRecord(Wallet wallet, String type, String name, String value) {
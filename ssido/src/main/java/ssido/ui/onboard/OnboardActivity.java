@@ -27,18 +27,13 @@ import android.widget.EditText;
 
 import androidx.appcompat.app.AppCompatActivity;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-
 import ssido.R;
 import ssido.Ssido;
 import ssido.service.SsidoService;
 import ssido.ui.register.RegisterActivity;
 import jssi.did.Did;
-import jssi.wallet.record.WalletRecord;
 import org.libsodium.jni.SodiumException;
 
-import java.io.IOException;
-
 public class OnboardActivity extends AppCompatActivity {
 
     private static final String TAG = OnboardActivity.class.getName();
@@ -68,13 +63,16 @@ public class OnboardActivity extends AppCompatActivity {
             service.getStoreService().setUsername(username.getText().toString());
 
             try {
-                WalletRecord record = service.getWalletService().getWallet().findRecord(Did.TYPE, "EjABoD8BV1mxQhfTccCKw4");
-                Did did = new ObjectMapper().readValue(record.getValue(), Did.class);
+                Did did = service.getStoreService().getOnboardingDid();
+                if (did == null) {
+                    Log.e(TAG, "No onboarding DID in the wallet");
+                    return;
+                }
                 service.getStoreService().setDid(did);
                 Log.d(TAG, String.format("Store Did: {did: %s, verkey: %s}", did.did, did.verkey));
                 startActivityAndFinish(new Intent(getBaseContext(), RegisterActivity.class));
-            } catch (SodiumException | IOException e){
-                Log.e(TAG, String.format("Error: %s", e.getCause().getMessage()));
+            } catch (SodiumException e){
+                Log.e(TAG, String.format("Error: %s", e.getMessage()));
             }
         }
     }
@@ -19,8 +19,11 @@
 package jssi.store;
 
 import android.content.Context;
+import android.database.Cursor;
+import android.database.SQLException;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
+import android.util.Log;
 
 import jssi.wallet.WalletConstants;
 
@@ -29,6 +32,7 @@ import jssi.wallet.WalletConstants;
  */
 public class DatabaseHelper extends SQLiteOpenHelper {
 
+    private static final String TAG = DatabaseHelper.class.getName();
     private static final int DB_VERSION = 1;
 
     public DatabaseHelper(String database, Context context) {
@@ -51,6 +55,13 @@ public class DatabaseHelper extends SQLiteOpenHelper {
 
     }
 
+    @Override
+    public void onOpen(SQLiteDatabase database) {
+        super.onOpen(database);
+        uniqueIndexOnItemsTable(database);
+        generationOnItemsTable(database);
+    }
+
     public static class Table {
         public static final String ITEMS = "items";
         public static final String METADATA = "metadata";
@@ -65,6 +76,7 @@ public class DatabaseHelper extends SQLiteOpenHelper {
             public static final String NAME = "name";
             public static final String VALUE = "value";
             public static final String KEY   = "key";
+            public static final String GENERATION = "generation";
         }
 
         public static class Metadata {
@@ -93,6 +105,7 @@ public class DatabaseHelper extends SQLiteOpenHelper {
                 + Column.Item.NAME + " NOT NULL, "
                 + Column.Item.VALUE + " NOT NULL, "
                 + Column.Item.KEY + " NOT NULL, "
+                + Column.Item.GENERATION + " INTEGER NOT NULL DEFAULT 0, "
                 + "PRIMARY KEY(" + Column.Item.ID + ")"
                 + ");";
         database.execSQL(create);
@@ -102,6 +115,46 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         database.execSQL("CREATE UNIQUE INDEX idx_items_type_name ON " + Table.ITEMS + "(" + Column.Item.TYPE + ", " + Column.Item.NAME + ");");
     }
 
+    /*
+     * Wallets created elsewhere may lack the (type, name) unique index, in which case
+     * duplicate records are silently inserted. The index is created on open if the
+     * items table exists; a wallet that already holds duplicates is left untouched.
+     */
+    private void uniqueIndexOnItemsTable(SQLiteDatabase database) {
+        if (database.isReadOnly()) {
+            return;
+        }
+        try {
+            database.execSQL("CREATE UNIQUE INDEX IF NOT EXISTS idx_items_type_name ON " + Table.ITEMS + "(" + Column.Item.TYPE + ", " + Column.Item.NAME + ");");
+        } catch (SQLException e) {
+            Log.e(TAG, String.format("Error: %s", e.getMessage()));
+        }
+    }
+
+    /*
+     * Key generation each item is encrypted with, see KeyRotation. Existing rows
+     * belong to generation 0.
+     */
+    private void generationOnItemsTable(SQLiteDatabase database) {
+        if (database.isReadOnly()) {
+            return;
+        }
+        try (Cursor cursor = database.rawQuery("PRAGMA table_info(" + Table.ITEMS + ")", null)) {
+            int name = cursor.getColumnIndex("name");
+            while (cursor.moveToNext()) {
+                if (Column.Item.GENERATION.equals(cursor.getString(name))) {
+                    return;
+                }
+            }
+        }
+        try {
+            database.execSQL("ALTER TABLE " + Table.ITEMS + " ADD COLUMN " + Column.Item.GENERATION + " INTEGER NOT NULL DEFAULT 0;");
+            database.execSQL("CREATE INDEX IF NOT EXISTS idx_items_generation ON " + Table.ITEMS + "(" + Column.Item.GENERATION + ");");
+        } catch (SQLException e) {
+            Log.e(TAG, String.format("Error: %s", e.getMessage()));
+        }
+    }
+
     private void metadataTable(SQLiteDatabase database) {
         final String create = "CREATE TABLE "
                 + Table.METADATA + " ("
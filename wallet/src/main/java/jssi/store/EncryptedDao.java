@@ -65,6 +65,22 @@ public class EncryptedDao implements Serializable {
         return result;
     }
 
+    public long replace(Collection<Encrypted> tags)  {
+        long result = 0;
+        for(Encrypted tag : tags){
+            ContentValues values = new ContentValues();
+            values.put(DatabaseHelper.Column.TagEncrypted.ITEM_ID, tag.getItemId());
+            values.put(DatabaseHelper.Column.TagEncrypted.NAME, tag.getName());
+            values.put(DatabaseHelper.Column.TagEncrypted.VALUE, tag.getValue());
+            result += database.insertWithOnConflict(
+                    DatabaseHelper.Table.TAGS_ENCRYPTED,
+                    null,
+                    values,
+                    SQLiteDatabase.CONFLICT_REPLACE);
+        }
+        return result;
+    }
+
     public int delete(Collection<Encrypted> tags)  {
         int result = 0;
         for(Encrypted tag : tags){
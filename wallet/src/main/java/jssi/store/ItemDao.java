@@ -24,11 +24,20 @@ import android.database.DatabaseUtils;
 import android.database.sqlite.SQLiteCursor;
 import android.database.sqlite.SQLiteDatabase;
 
+import jssi.store.model.Encrypted;
 import jssi.store.model.Item;
+import jssi.store.model.Plaintext;
 
 import java.io.Serializable;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * @author ITON Solutions
@@ -51,15 +60,96 @@ public class ItemDao implements Serializable {
         values.put(DatabaseHelper.Column.Item.NAME, item.getName());
         values.put(DatabaseHelper.Column.Item.VALUE, item.getValue());
         values.put(DatabaseHelper.Column.Item.KEY, item.getKey());
+        values.put(DatabaseHelper.Column.Item.GENERATION, item.getGeneration());
         long result = database.insert(DatabaseHelper.Table.ITEMS, null, values);
 
-        EncryptedDao encrypted = new EncryptedDao(helper);
-        PlaintextDao plaintext = new PlaintextDao(helper);
-        encrypted.create(item.getEncrypted());
-        plaintext.create(item.getPlaintext());
+        if (result == -1) {
+            return result;
+        }
+
+        item.setId((int) result);
+        createTags(item);
+        return result;
+    }
+
+    /*
+     * Replaces value, key and every tag of the stored item `id` with the ones of `item`.
+     */
+    public int overwrite(int id, Item item) {
+        ContentValues values = new ContentValues();
+        values.put(DatabaseHelper.Column.Item.VALUE, item.getValue());
+        values.put(DatabaseHelper.Column.Item.KEY, item.getKey());
+        values.put(DatabaseHelper.Column.Item.GENERATION, item.getGeneration());
+
+        String[] item_id = {String.valueOf(id)};
+        int result = database.update(DatabaseHelper.Table.ITEMS, values, "id = ?", item_id);
+
+        database.delete(DatabaseHelper.Table.TAGS_ENCRYPTED, "item_id = ?", item_id);
+        database.delete(DatabaseHelper.Table.TAGS_PLAINTEXT, "item_id = ?", item_id);
+
+        item.setId(id);
+        createTags(item);
         return result;
     }
 
+    /*
+     * Replaces every column and tag of the stored item `id`, used when the item is
+     * encrypted again with other keys.
+     */
+    public int rewrite(int id, Item item) {
+        ContentValues values = new ContentValues();
+        values.put(DatabaseHelper.Column.Item.TYPE, item.getType());
+        values.put(DatabaseHelper.Column.Item.NAME, item.getName());
+        values.put(DatabaseHelper.Column.Item.VALUE, item.getValue());
+        values.put(DatabaseHelper.Column.Item.KEY, item.getKey());
+        values.put(DatabaseHelper.Column.Item.GENERATION, item.getGeneration());
+
+        String[] item_id = {String.valueOf(id)};
+        int result = database.update(DatabaseHelper.Table.ITEMS, values, "id = ?", item_id);
+
+        database.delete(DatabaseHelper.Table.TAGS_ENCRYPTED, "item_id = ?", item_id);
+        database.delete(DatabaseHelper.Table.TAGS_PLAINTEXT, "item_id = ?", item_id);
+
+        item.setId(id);
+        createTags(item);
+        return result;
+    }
+
+    /*
+     * Adds the tags of `item` to the stored item `id`. Tags with the same encrypted
+     * name are replaced, all others are kept.
+     */
+    public long mergeTags(int id, Item item) {
+        item.setId(id);
+        assignTags(item);
+        return new EncryptedDao(helper).replace(item.getEncrypted())
+                + new PlaintextDao(helper).replace(item.getPlaintext());
+    }
+
+    private void createTags(Item item) {
+        assignTags(item);
+        new EncryptedDao(helper).create(item.getEncrypted());
+        new PlaintextDao(helper).create(item.getPlaintext());
+    }
+
+    private void assignTags(Item item) {
+        if (item.getEncrypted() != null) {
+            for (Encrypted tag : item.getEncrypted()) {
+                tag.setItemId(item.getId());
+            }
+        } else {
+            item.setEncrypted(new ArrayList<>());
+        }
+
+        if (item.getPlaintext() != null) {
+            for (Plaintext tag : item.getPlaintext()) {
+                tag.setItemId(item.getId());
+            }
+        } else {
+            item.setPlaintext(new ArrayList<>());
+        }
+    }
+
     public int update(Item item) {
         int result = 0;
 
@@ -73,6 +163,7 @@ public class ItemDao implements Serializable {
         values.put(DatabaseHelper.Column.Item.NAME, item.getName());
         values.put(DatabaseHelper.Column.Item.VALUE, item.getValue());
         values.put(DatabaseHelper.Column.Item.KEY, item.getKey());
+        values.put(DatabaseHelper.Column.Item.GENERATION, item.getGeneration());
 
         String[] item_id = {String.valueOf(item.getId())};
         result += database.update(
@@ -187,10 +278,152 @@ public class ItemDao implements Serializable {
 
     }
 
+    /*
+     * Up to `limit` items, with their tags, not yet encrypted with key generation
+     * `generation`.
+     */
+    public List<Item> queryForOtherGeneration(int generation, int limit) {
+        List<Item> items = new ArrayList<>();
+
+        Cursor cursor = database.query(
+                DatabaseHelper.Table.ITEMS,
+                null,
+                DatabaseHelper.Column.Item.GENERATION + " <> ?",
+                new String[] { String.valueOf(generation) },
+                null,
+                null,
+                DatabaseHelper.Column.Item.ID,
+                String.valueOf(limit));
+
+        if (cursor.moveToFirst()) {
+            Wrapper wrapper = new Wrapper(cursor);
+            while (!wrapper.isAfterLast()) {
+                Item item = wrapper.wrap();
+
+                EncryptedDao encrypted = new EncryptedDao(helper);
+                PlaintextDao plaintext = new PlaintextDao(helper);
+                item.setEncrypted(encrypted.queryForAll(item.getId()));
+                item.setPlaintext(plaintext.queryForAll(item.getId()));
+
+                items.add(item);
+                wrapper.moveToNext();
+            }
+        }
+
+        cursor.close();
+        return items;
+    }
+
+    /*
+     * Resolves which of `items` already exist with a single query. The searchable
+     * encryption of type and name is deterministic, so the stored blobs can be matched
+     * directly. Tags of the returned items are not loaded.
+     *
+     * Every item costs two bind variables; callers keep batches well below the SQLite
+     * limit of 999.
+     */
+    public Map<Key, Item> queryForExisting(Collection<Item> items) {
+        Map<Key, Item> existing = new HashMap<>();
+
+        if (items.isEmpty()) {
+            return existing;
+        }
+
+        Set<Key> requested = new LinkedHashSet<>();
+        Set<ByteBuffer> types = new LinkedHashSet<>();
+        Set<ByteBuffer> names = new LinkedHashSet<>();
+
+        for (Item item : items) {
+            requested.add(new Key(item.getType(), item.getName()));
+            types.add(ByteBuffer.wrap(item.getType()));
+            names.add(ByteBuffer.wrap(item.getName()));
+        }
+
+        final List<byte[]> args = new ArrayList<>();
+        for (ByteBuffer type : types) {
+            args.add(type.array());
+        }
+        for (ByteBuffer name : names) {
+            args.add(name.array());
+        }
+
+        final SQLiteDatabase.CursorFactory factory = (db, masterQuery, editTable, query) -> {
+            for (int i = 0; i < args.size(); i++) {
+                query.bindBlob(i + 1, args.get(i));
+            }
+            return new SQLiteCursor(masterQuery, editTable, query);
+        };
+
+        final Cursor cursor = database.queryWithFactory(
+                factory,
+                false, DatabaseHelper.Table.ITEMS,
+                null,
+                DatabaseHelper.Column.Item.TYPE + " IN (" + placeholders(types.size()) + ") AND "
+                        + DatabaseHelper.Column.Item.NAME + " IN (" + placeholders(names.size()) + ")",
+                null,
+                null, null,
+                null,
+                null);
+
+        if (cursor.moveToFirst()) {
+            Wrapper wrapper = new Wrapper(cursor);
+            while (!wrapper.isAfterLast()) {
+                Item item = wrapper.wrap();
+                Key key = new Key(item.getType(), item.getName());
+                // type IN (..) AND name IN (..) also matches cross pairs, keep only the requested ones
+                if (requested.contains(key)) {
+                    existing.put(key, item);
+                }
+                wrapper.moveToNext();
+            }
+        }
+
+        cursor.close();
+        return existing;
+    }
+
+    private static String placeholders(int count) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            builder.append(i == 0 ? "?" : ", ?");
+        }
+        return builder.toString();
+    }
+
     public long getCount() {
         return DatabaseUtils.queryNumEntries(database, DatabaseHelper.Table.ITEMS);
     }
 
+    /*
+     * Identity of an item: its encrypted type and name.
+     */
+    public static class Key {
+
+        private final byte[] type;
+        private final byte[] name;
+        private final int hash;
+
+        public Key(byte[] type, byte[] name) {
+            this.type = type;
+            this.name = name;
+            this.hash = 31 * Arrays.hashCode(type) + Arrays.hashCode(name);
+        }
+
+        @Override
+        public boolean equals(Object object) {
+            if (!(object instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) object;
+            return Arrays.equals(type, other.type) && Arrays.equals(name, other.name);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
     private class Wrapper extends CursorWrapper {
 
         Wrapper(Cursor cursor) {
@@ -203,7 +436,11 @@ public class ItemDao implements Serializable {
             byte[] name = getBlob(getColumnIndex(DatabaseHelper.Column.Item.NAME));
             byte[] value = getBlob(getColumnIndex(DatabaseHelper.Column.Item.VALUE));
             byte[] key = getBlob(getColumnIndex(DatabaseHelper.Column.Item.KEY));
-            return new Item(id, type, name, value, key);
+            int index = getColumnIndex(DatabaseHelper.Column.Item.GENERATION);
+
+            Item item = new Item(id, type, name, value, key);
+            item.setGeneration(index == -1 ? 0 : getInt(index));
+            return item;
         }
     }
 
@@ -49,6 +49,19 @@ public class MetadataDao {
         database.insert(DatabaseHelper.Table.METADATA, null, values);
     }
 
+    /**
+     * @return the number of rows updated, 0 if there is no metadata with this id
+     */
+    public int update(int id, Metadata metadata) {
+        ContentValues values = new ContentValues();
+        values.put(DatabaseHelper.Column.Metadata.VALUE, metadata.getValue());
+        return database.update(
+                DatabaseHelper.Table.METADATA,
+                values,
+                DatabaseHelper.Column.Metadata.ID + " = ? ",
+                new String[] { String.valueOf(id) });
+    }
+
     public Metadata getMetadata(int id) {
         Metadata result = null;
 
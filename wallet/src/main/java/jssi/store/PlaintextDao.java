@@ -84,6 +84,22 @@ public class PlaintextDao implements Serializable {
         return result;
     }
 
+    public long replace(Collection<Plaintext> tags)  {
+        long result = 0;
+        for(Plaintext tag : tags){
+            ContentValues values = new ContentValues();
+            values.put(DatabaseHelper.Column.TagPlaintext.ITEM_ID, tag.getItemId());
+            values.put(DatabaseHelper.Column.TagPlaintext.NAME, tag.getName());
+            values.put(DatabaseHelper.Column.TagPlaintext.VALUE, tag.getValue());
+            result += database.insertWithOnConflict(
+                    DatabaseHelper.Table.TAGS_PLAINTEXT,
+                    null,
+                    values,
+                    SQLiteDatabase.CONFLICT_REPLACE);
+        }
+        return result;
+    }
+
     public int delete(Collection<Plaintext> tags)  {
         int result = 0;
         for(Plaintext tag : tags){
@@ -26,6 +26,7 @@ public class Item {
     private byte[] name;
     private byte[] value;
     private byte[] key;
+    private int generation;
     Collection<Plaintext> plaintext;
     Collection<Encrypted> encrypted;
 
@@ -83,6 +84,14 @@ public class Item {
         this.key = key;
     }
 
+    public int getGeneration() {
+        return generation;
+    }
+
+    public void setGeneration(int generation) {
+        this.generation = generation;
+    }
+
     public Collection<Encrypted> getEncrypted() {
         return encrypted;
     }
@@ -0,0 +1,78 @@
+/*
+ *
+ *  * Copyright 2021 UBICUA.
+ *  *
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  *
+ *  *      http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ *
+ */
+
+package jssi.wallet;
+
+import android.util.Log;
+
+import io.reactivex.Observable;
+import io.reactivex.Scheduler;
+import io.reactivex.functions.Action;
+
+/**
+ * Re-encrypts the items of a wallet with a new key generation while the wallet
+ * stays in use. Items are rotated in transactions of {@link Wallet#ROTATION_BATCH_SIZE};
+ * between batches the wallet is free, so other callers wait for one batch at most.
+ * Disposing the subscription stops after the current batch, the next rotation
+ * resumes with the items left.
+ *
+ * @author UBICUA
+ */
+public class KeyRotation {
+
+    private static final String TAG = KeyRotation.class.getName();
+
+    private final Wallet wallet;
+    private final Action finish;
+    private final int batchSize;
+
+    KeyRotation(Wallet wallet, Action finish) {
+        this(wallet, finish, Wallet.ROTATION_BATCH_SIZE);
+    }
+
+    KeyRotation(Wallet wallet, Action finish, int batchSize) {
+        this.wallet = wallet;
+        this.finish = finish;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * @return the running count of items rotated, completes once the old key
+     * generation has been dropped
+     */
+    public Observable<Integer> run(Scheduler scheduler) {
+        return Observable.<Integer>create(emitter -> {
+            int total = 0;
+            int count;
+
+            while (!emitter.isDisposed() && (count = wallet.rotateBatch(batchSize)) > 0) {
+                total += count;
+                emitter.onNext(total);
+            }
+
+            if (emitter.isDisposed()) {
+                Log.d(TAG, String.format("Key rotation paused after %d items", total));
+                return;
+            }
+
+            finish.run();
+            Log.d(TAG, String.format("Key rotation to generation %d finished, %d items", wallet.getGeneration(), total));
+            emitter.onComplete();
+        }).subscribeOn(scheduler);
+    }
+}
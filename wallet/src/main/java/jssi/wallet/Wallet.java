@@ -17,6 +17,7 @@
  */
 package jssi.wallet;
 
+import android.database.sqlite.SQLiteDatabase;
 import android.util.Log;
 
 
@@ -31,27 +32,56 @@ import jssi.wallet.record.WalletRecord;
 import jssi.store.EncryptedDao;
 import jssi.store.ItemDao;
 import jssi.store.PlaintextDao;
+import jssi.wallet.io.ImportMode;
 import org.libsodium.jni.SodiumException;
 
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 public class Wallet {
 
     private static final String TAG = Wallet.class.getName();
 
+    /** Records per import transaction; two bind variables each, well below SQLite's 999. */
+    public static final int BATCH_SIZE = 128;
+
+    /** Items re-encrypted per rotation transaction, the longest a caller waits on a rotation. */
+    public static final int ROTATION_BATCH_SIZE = 32;
+
     private final String id;
-    private final Keys keys;
+    private final DatabaseHelper helper;
     private final ItemDao itemDao;
     private final EncryptedDao encryptedDao;
     private final PlaintextDao plaintextDao;
+
+    /*
+     * Writes use `keys`; while a rotation is in progress rows of generation - 1 are
+     * still read with `previous`. Rotation batches hold the write lock, fair so that
+     * a waiting caller goes before the next batch.
+     */
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock(true);
+    private Keys keys;
+    private int generation;
+    private Keys previous;
+    /* Set by clearKeys, every operation then throws IllegalStateException */
+    private boolean closed;
     
     Wallet(String id, Keys keys, DatabaseHelper helper) {
+        this(id, keys, 0, null, helper);
+    }
+
+    Wallet(String id, Keys keys, int generation, Keys previous, DatabaseHelper helper) {
         this.id = id;
         this.keys = keys;
+        this.generation = generation;
+        this.previous = previous;
+        this.helper = helper;
         this.itemDao = new ItemDao(helper);
         this.encryptedDao = new EncryptedDao(helper);
         this.plaintextDao = new PlaintextDao(helper);
@@ -59,21 +89,33 @@ public class Wallet {
     
     public WalletRecord findRecord(String type, String name) throws SodiumException {
 
-        Item item = findItem(type, name);
-        if(item == null){
-            return null;
+        lock.readLock().lock();
+        try {
+            ensureOpen();
+            Item item = findItem(type, name);
+            if (item == null) {
+                return null;
+            }
+            WalletRecord record = new WalletRecord();
+            return record.decrypt(item, keysFor(item));
+        } finally {
+            lock.readLock().unlock();
         }
-        WalletRecord record = new WalletRecord();
-        return record.decrypt(item, keys);
     }
 
     public List<WalletRecord> findAllRecords() throws SodiumException {
 
         List<WalletRecord> records = new ArrayList<>();
 
-        List<Item> items = itemDao.queryForAll();
-        for(Item item : items) {
-            records.add(new WalletRecord().decrypt(item, keys));
+        lock.readLock().lock();
+        try {
+            ensureOpen();
+            List<Item> items = itemDao.queryForAll();
+            for (Item item : items) {
+                records.add(new WalletRecord().decrypt(item, keysFor(item)));
+            }
+        } finally {
+            lock.readLock().unlock();
         }
         return records;
     }
@@ -81,61 +123,318 @@ public class Wallet {
     public List<WalletRecord> findRecords(String type) throws SodiumException {
 
         List<WalletRecord> records = new ArrayList<>();
-        byte[] encryptedType = type == null ? new byte[0]
-                : Crypto.encryptAsSearchable(type.getBytes(), keys.getTypeKey(), keys.getItemHmacKey());
 
-        List<Item> items = itemDao.queryForType(encryptedType);
-        for(Item item : items) {
-            records.add(new WalletRecord().decrypt(item, keys));
+        lock.readLock().lock();
+        try {
+            ensureOpen();
+            for (Keys candidate : generations()) {
+                byte[] encryptedType = type == null ? new byte[0]
+                        : Crypto.encryptAsSearchable(type.getBytes(), candidate.getTypeKey(), candidate.getItemHmacKey());
+
+                List<Item> items = itemDao.queryForType(encryptedType);
+                for (Item item : items) {
+                    if (keysFor(item) == candidate) {
+                        records.add(new WalletRecord().decrypt(item, candidate));
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
         }
         return records;
     }
 
 
-    public void addRecordTags(WalletRecord record, Map<String, String> tags) throws SodiumException {
+    /**
+     * Adds {@code tags} to the stored record, replacing tags with the same name and
+     * keeping all others.
+     *
+     * @return false when the record does not exist
+     */
+    public boolean addRecordTags(WalletRecord record, Map<String, String> tags) throws SodiumException {
 
-        Item item = findItem(record.getType(), record.getName());
+        lock.writeLock().lock();
+        try {
+            ensureOpen();
+            Item item = findItem(record.getType(), record.getName());
 
-        if(item == null){
-            return;
-        }
+            if (item == null) {
+                return false;
+            }
 
-        ItemTags itemTags = new ItemTags();
-        itemTags.encrypt(item, tags, keys.getTagNameKey(), keys.getTagValueKey(), keys.getTagsHmacKey());
-        encryptedDao.create(itemTags.getEncrypted());
-        plaintextDao.create(itemTags.getPlaintext());
+            Keys itemKeys = keysFor(item);
+            ItemTags itemTags = new ItemTags();
+            itemTags.encrypt(item, tags, itemKeys.getTagNameKey(), itemKeys.getTagValueKey(), itemKeys.getTagsHmacKey());
+            encryptedDao.replace(itemTags.getEncrypted());
+            plaintextDao.replace(itemTags.getPlaintext());
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
     }
 
     public void deleteRecordTags(WalletRecord record, Map<String, String> tags) throws SodiumException {
 
-        Item item = findItem(record.getType(), record.getName());
+        lock.writeLock().lock();
+        try {
+            ensureOpen();
+            Item item = findItem(record.getType(), record.getName());
+
+            if (item == null) {
+                return;
+            }
 
-        if(item == null){
-            return;
+            Keys itemKeys = keysFor(item);
+            ItemTags itemTags = new ItemTags();
+            itemTags.encrypt(item, tags, itemKeys.getTagNameKey(), itemKeys.getTagValueKey(), itemKeys.getTagsHmacKey());
+            encryptedDao.delete(itemTags.getEncrypted());
+            plaintextDao.delete(itemTags.getPlaintext());
+        } finally {
+            lock.writeLock().unlock();
         }
-
-        ItemTags itemTags = new ItemTags();
-        itemTags.encrypt(item, tags, keys.getTagNameKey(), keys.getTagValueKey(), keys.getTagsHmacKey());
-        encryptedDao.delete(itemTags.getEncrypted());
-        plaintextDao.delete(itemTags.getPlaintext());
     }
 
 
     public Item addRecord(WalletRecord record) throws SodiumException, PreexistingEntityException {
-        Item item = record.encrypt(keys);
-        long result = itemDao.create(item);
 
-        if(result == 0){
-            throw new PreexistingEntityException("Item already exists");
+        lock.writeLock().lock();
+        try {
+            ensureOpen();
+            if (previous != null && findItem(record.getType(), record.getName()) != null) {
+                throw new PreexistingEntityException("Item already exists");
+            }
+
+            Item item = encrypt(record);
+            long result = itemDao.create(item);
+
+            if (result == -1) {
+                throw new PreexistingEntityException("Item already exists");
+            }
+            return item;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Stores a batch of records in one transaction. Which records already exist is
+     * resolved with a single query per batch, duplicates are then handled according
+     * to {@code mode}. In {@link ImportMode#FAIL} mode the whole batch is rolled back.
+     *
+     * @return the number of records inserted or updated
+     */
+    public int importRecords(List<WalletRecord> records, ImportMode mode) throws SodiumException, PreexistingEntityException {
+
+        int result = 0;
+
+        for (int from = 0; from < records.size(); from += BATCH_SIZE) {
+            List<WalletRecord> batch = records.subList(from, Math.min(records.size(), from + BATCH_SIZE));
+
+            lock.writeLock().lock();
+            try {
+                ensureOpen();
+                SQLiteDatabase database = helper.getWritableDatabase();
+                database.beginTransaction();
+
+                try {
+                    List<Item> items = new ArrayList<>(batch.size());
+                    for (WalletRecord record : batch) {
+                        items.add(encrypt(record));
+                    }
+
+                    Map<ItemDao.Key, Item> existing = itemDao.queryForExisting(items);
+                    if (previous != null) {
+                        existing.putAll(existingInPrevious(batch));
+                    }
+
+                    for (int i = 0; i < items.size(); i++) {
+                        Item item = items.get(i);
+                        ItemDao.Key key = new ItemDao.Key(item.getType(), item.getName());
+                        Item stored = existing.get(key);
+
+                        if (stored == null) {
+                            if (itemDao.create(item) == -1) {
+                                throw new PreexistingEntityException(String.format("Item %s could not be stored", batch.get(i).getName()));
+                            }
+                            // a later duplicate in the same batch must see this one
+                            existing.put(key, item);
+                            result++;
+                            continue;
+                        }
+
+                        if (keysFor(stored) != keys) {
+                            // bring it to the current generation before touching it
+                            stored = rotate(itemDao.queryForFirst(stored.getType(), stored.getName()));
+                        }
+
+                        switch (mode) {
+                            case SKIP:
+                                break;
+                            case OVERWRITE:
+                                itemDao.overwrite(stored.getId(), item);
+                                result++;
+                                break;
+                            case MERGE_TAGS:
+                                itemDao.mergeTags(stored.getId(), item);
+                                result++;
+                                break;
+                            case FAIL:
+                            default:
+                                throw new PreexistingEntityException(String.format("Item %s already exists", batch.get(i).getName()));
+                        }
+                    }
+                    database.setTransactionSuccessful();
+                } finally {
+                    database.endTransaction();
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
         }
+        return result;
+    }
 
-        encryptedDao.create(item.getEncrypted());
-        plaintextDao.create(item.getPlaintext());
-        return item;
+    /*
+     * Items of the batch stored with the previous key generation, keyed by their
+     * current generation encoding so they are matched like any other duplicate.
+     */
+    private Map<ItemDao.Key, Item> existingInPrevious(List<WalletRecord> batch) throws SodiumException {
+        Map<ItemDao.Key, ItemDao.Key> encodings = new HashMap<>();
+        List<Item> searched = new ArrayList<>(batch.size());
+
+        for (WalletRecord record : batch) {
+            Item current = new Item(searchable(record.getType(), keys.getTypeKey(), keys),
+                    searchable(record.getName(), keys.getNameKey(), keys), null, null);
+            Item old = new Item(searchable(record.getType(), previous.getTypeKey(), previous),
+                    searchable(record.getName(), previous.getNameKey(), previous), null, null);
+            encodings.put(new ItemDao.Key(old.getType(), old.getName()), new ItemDao.Key(current.getType(), current.getName()));
+            searched.add(old);
+        }
+
+        Map<ItemDao.Key, Item> existing = new HashMap<>();
+        for (Map.Entry<ItemDao.Key, Item> entry : itemDao.queryForExisting(searched).entrySet()) {
+            if (entry.getValue().getGeneration() != generation) {
+                existing.put(encodings.get(entry.getKey()), entry.getValue());
+            }
+        }
+        return existing;
     }
     
     public long count() {
-        return itemDao.getCount();
+        lock.readLock().lock();
+        try {
+            ensureOpen();
+            return itemDao.getCount();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Re-encrypts up to {@code limit} items still stored with the previous key
+     * generation, in one transaction. Progress is kept in the items themselves, so
+     * an interrupted rotation resumes where it stopped.
+     *
+     * @return the number of items rotated, 0 once none is left
+     */
+    public int rotateBatch(int limit) throws SodiumException {
+
+        lock.writeLock().lock();
+        try {
+            ensureOpen();
+            if (previous == null) {
+                return 0;
+            }
+
+            SQLiteDatabase database = helper.getWritableDatabase();
+            database.beginTransaction();
+
+            try {
+                List<Item> items = itemDao.queryForOtherGeneration(generation, limit);
+                for (Item item : items) {
+                    rotate(item);
+                }
+
+                database.setTransactionSuccessful();
+                return items.size();
+            } finally {
+                database.endTransaction();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /*
+     * Switches writes to `next`, the current keys are kept to read items not yet
+     * rotated. The metadata must hold both generations before this is called.
+     */
+    void beginRotation(Keys next) {
+        lock.writeLock().lock();
+        try {
+            ensureOpen();
+            if (previous != null) {
+                throw new IllegalStateException("Key rotation already in progress");
+            }
+            previous = keys;
+            keys = next;
+            generation++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /*
+     * Called once no item of the previous generation is left and the metadata no
+     * longer holds its keys.
+     */
+    void finishRotation() {
+        lock.writeLock().lock();
+        try {
+            if (previous != null) {
+                previous.clear();
+                previous = null;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean isRotating() {
+        lock.readLock().lock();
+        try {
+            ensureOpen();
+            return previous != null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int getGeneration() {
+        lock.readLock().lock();
+        try {
+            ensureOpen();
+            return generation;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /*
+     * Zeroizes every key generation held by the wallet and closes it, so a caller
+     * still holding the instance cannot write rows under the cleared keys.
+     */
+    void clearKeys() {
+        lock.writeLock().lock();
+        try {
+            closed = true;
+            keys.clear();
+            if (previous != null) {
+                previous.clear();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
     }
 
     public void deleteRecord(WalletRecord record) {
@@ -144,68 +443,127 @@ public class Wallet {
     
     public void deleteRecord(String type, String name) {
 
-        Item item = findItem(type, name);
+        lock.writeLock().lock();
+        try {
+            ensureOpen();
+            Item item = findItem(type, name);
 
-        if(item == null){
-            return;
-        }
+            if (item == null) {
+                return;
+            }
 
-        encryptedDao.delete(item.getEncrypted());
-        plaintextDao.delete(item.getPlaintext());
-        itemDao.delete(item);
+            encryptedDao.delete(item.getEncrypted());
+            plaintextDao.delete(item.getPlaintext());
+            itemDao.delete(item);
+        } finally {
+            lock.writeLock().unlock();
+        }
     }
 
     public void updateRecordValue(WalletRecord record, String value) throws SodiumException {
 
-        Item item = findItem(record.getType(), record.getName());
+        lock.writeLock().lock();
+        try {
+            ensureOpen();
+            Item item = findItem(record.getType(), record.getName());
+
+            if (item == null) {
+                return;
+            }
 
-        if(item == null){
-            return;
+            ItemValue itemValue = new ItemValue(item);
+            itemValue = itemValue.encrypt(value.getBytes(), keysFor(item).getValueKey());
+            item.setValue(itemValue.getValue());
+            item.setKey(itemValue.getKey());
+            itemDao.update(item);
+        } finally {
+            lock.writeLock().unlock();
         }
-
-        ItemValue itemValue = new ItemValue(item);
-        itemValue = itemValue.encrypt(value.getBytes(), keys.getValueKey());
-        item.setValue(itemValue.getValue());
-        item.setKey(itemValue.getKey());
-        itemDao.update(item);
     }
 
     public void updateRecordTags(WalletRecord record, Map<String, String> tags) throws SodiumException {
 
-        Item item = findItem(record.getType(), record.getName());
-        if(item == null){
-            return;
-        }
+        lock.writeLock().lock();
+        try {
+            ensureOpen();
+            Item item = findItem(record.getType(), record.getName());
+            if (item == null) {
+                return;
+            }
 
-        Map<String, String> aggregated = new HashMap<>();
-        for(String element : tags.keySet()){
-            if(record.getTags().keySet().contains(element)){
-                aggregated.put(element, tags.get(element));
+            Map<String, String> aggregated = new HashMap<>();
+            for (String element : tags.keySet()) {
+                if (record.getTags().keySet().contains(element)) {
+                    aggregated.put(element, tags.get(element));
+                }
             }
-        }
 
-        ItemTags itemTags = new ItemTags();
-        itemTags.encrypt(item, aggregated, keys.getTagNameKey(), keys.getTagValueKey(), keys.getTagsHmacKey());
-        encryptedDao.update(itemTags.getEncrypted());
-        plaintextDao.update(itemTags.getPlaintext());
+            Keys itemKeys = keysFor(item);
+            ItemTags itemTags = new ItemTags();
+            itemTags.encrypt(item, aggregated, itemKeys.getTagNameKey(), itemKeys.getTagValueKey(), itemKeys.getTagsHmacKey());
+            encryptedDao.update(itemTags.getEncrypted());
+            plaintextDao.update(itemTags.getPlaintext());
+        } finally {
+            lock.writeLock().unlock();
+        }
     }
 
     public String getId() {
         return id;
     }
 
+    /* Callers hold the lock */
+    private void ensureOpen() {
+        if (closed) {
+            throw new IllegalStateException(String.format("Wallet %s is closed", id));
+        }
+    }
+
+    /*
+     * Looks the item up with every key generation in use, callers hold the lock.
+     */
     private Item findItem(String type, String name){
         Item item = null;
         try {
-            byte[] encryptedType = type == null ? new byte[0]
-                    : Crypto.encryptAsSearchable(type.getBytes(), keys.getTypeKey(), keys.getItemHmacKey());
-            byte[] encryptedName = name == null ? new byte[0]
-                    : Crypto.encryptAsSearchable(name.getBytes(), keys.getNameKey(), keys.getItemHmacKey());
-
-            item = itemDao.queryForFirst(encryptedType, encryptedName);
+            for (Keys candidate : generations()) {
+                byte[] encryptedType = searchable(type, candidate.getTypeKey(), candidate);
+                byte[] encryptedName = searchable(name, candidate.getNameKey(), candidate);
+
+                item = itemDao.queryForFirst(encryptedType, encryptedName);
+                if (item != null && keysFor(item) == candidate) {
+                    return item;
+                }
+                item = null;
+            }
         } catch (SodiumException e){
             Log.e(TAG, String.format("Error: %s", e.getMessage()));
         }
         return item;
     }
+
+    private static byte[] searchable(String text, byte[] key, Keys keys) throws SodiumException {
+        return text == null ? new byte[0] : Crypto.encryptAsSearchable(text.getBytes(), key, keys.getItemHmacKey());
+    }
+
+    private Item encrypt(WalletRecord record) throws SodiumException {
+        Item item = record.encrypt(keys);
+        item.setGeneration(generation);
+        return item;
+    }
+
+    /* Stored item, with its tags, encrypted again with the current keys */
+    private Item rotate(Item item) throws SodiumException {
+        WalletRecord record = new WalletRecord().decrypt(item, previous);
+        Item rotated = encrypt(record);
+        itemDao.rewrite(item.getId(), rotated);
+        return rotated;
+    }
+
+    private Keys keysFor(Item item) {
+        return previous != null && item.getGeneration() != generation ? previous : keys;
+    }
+
+    private List<Keys> generations() {
+        return previous == null ? Collections.singletonList(keys) : Arrays.asList(keys, previous);
+    }
 }
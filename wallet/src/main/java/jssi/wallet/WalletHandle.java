@@ -0,0 +1,77 @@
+/*
+ *
+ *  * Copyright 2021 UBICUA.
+ *  *
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  *
+ *  *      http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ *
+ */
+
+package jssi.wallet;
+
+import java.io.Closeable;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Reference to an open wallet obtained from {@link WalletRegistry}. The wallet
+ * stays open while any handle on it is open; closing a handle twice is harmless.
+ * A handle is invalidated when the registry is closed under it.
+ *
+ * @author UBICUA
+ */
+public class WalletHandle implements Closeable {
+
+    private final WalletRegistry registry;
+    private final WalletRegistry.Entry entry;
+    private final Wallet wallet;
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    WalletHandle(WalletRegistry registry, WalletRegistry.Entry entry, Wallet wallet) {
+        this.registry = registry;
+        this.entry = entry;
+        this.wallet = wallet;
+    }
+
+    public String getId() {
+        return wallet.getId();
+    }
+
+    public Wallet getWallet() {
+        ensureValid();
+        return wallet;
+    }
+
+    public WalletService getService() {
+        ensureValid();
+        return entry.service;
+    }
+
+    public boolean isClosed() {
+        return closed.get() || entry.evicted;
+    }
+
+    private void ensureValid() {
+        if (closed.get()) {
+            throw new IllegalStateException(String.format("Handle on wallet %s closed", wallet.getId()));
+        }
+        if (entry.evicted) {
+            throw new IllegalStateException(String.format("Wallet %s closed by its registry", wallet.getId()));
+        }
+    }
+
+    @Override
+    public void close() {
+        if (closed.compareAndSet(false, true)) {
+            registry.release(entry);
+        }
+    }
+}
@@ -20,8 +20,8 @@ package jssi.wallet;
 import jssi.wallet.io.IOConfig;
 import jssi.wallet.io.Reader;
 
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 
 import io.reactivex.Observable;
 import io.reactivex.ObservableEmitter;
@@ -35,15 +35,16 @@ class WalletImport {
     private static final String TAG = WalletImport.class.getName();
     
     private final Wallet wallet;
+    private final Executor executor;
     
-    WalletImport(final Wallet wallet){
+    WalletImport(final Wallet wallet, final Executor executor){
         this.wallet = wallet;
+        this.executor = executor;
     }
 
     private class Emitter implements ObservableOnSubscribe<Integer> {
 
         IOConfig config;
-        ExecutorService executor = Executors.newSingleThreadExecutor();
 
         Emitter(IOConfig config) {
             this.config = config;
@@ -51,7 +52,12 @@ class WalletImport {
 
         @Override
         public void subscribe(ObservableEmitter<Integer> emitter) {
-            executor.execute(new Reader(wallet, config, emitter));
+            try {
+                executor.execute(new Reader(wallet, config, emitter));
+            } catch (RejectedExecutionException e) {
+                /* Wallet pools already shut down */
+                emitter.onError(e);
+            }
         }
     }
 
@@ -0,0 +1,77 @@
+/*
+ *
+ *  * Copyright 2021 UBICUA.
+ *  *
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  *
+ *  *      http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ *
+ */
+
+package jssi.wallet;
+
+/**
+ * Point-in-time snapshot of the use of one wallet in a {@link WalletRegistry}.
+ *
+ * @author UBICUA
+ */
+public class WalletMetrics {
+
+    private final String id;
+    private final String database;
+    private final int references;
+    private final long acquires;
+    private final long opens;
+    private final long idleMillis;
+
+    WalletMetrics(String id, String database, int references, long acquires, long opens, long idleMillis) {
+        this.id = id;
+        this.database = database;
+        this.references = references;
+        this.acquires = acquires;
+        this.opens = opens;
+        this.idleMillis = idleMillis;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getDatabase() {
+        return database;
+    }
+
+    /** Handles currently open. */
+    public int getReferences() {
+        return references;
+    }
+
+    /** Handles requested since the wallet was registered. */
+    public long getAcquires() {
+        return acquires;
+    }
+
+    /** Acquires that had to open the wallet, the rest were served by the open one. */
+    public long getOpens() {
+        return opens;
+    }
+
+    /** Time since the last handle was closed, 0 while in use. */
+    public long getIdleMillis() {
+        return idleMillis;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("WalletMetrics: { id: %s, database: %s, references: %d, acquires: %d, opens: %d, idle: %d ms}",
+                id, database, references, acquires, opens, idleMillis);
+    }
+}
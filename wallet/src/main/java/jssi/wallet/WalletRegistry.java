@@ -0,0 +1,259 @@
+/*
+ *
+ *  * Copyright 2021 UBICUA.
+ *  *
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  *
+ *  *      http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ *
+ */
+
+package jssi.wallet;
+
+import android.content.Context;
+import android.util.Log;
+
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import io.reactivex.Observable;
+import jssi.store.DatabaseHelper;
+import jssi.wallet.crypto.SessionCache;
+import jssi.wallet.scheduler.WalletSchedulers;
+
+/**
+ * Open wallets of the process, by wallet id. Every subscriber gets a
+ * {@link WalletHandle} on the same {@link Wallet}, so a wallet is opened, and its
+ * key derived, once however many users it has. Wallets nobody holds a handle on
+ * are locked after the idle timeout.
+ *
+ * <p>A database holds a single wallet: metadata and items are not scoped by wallet
+ * id, so a second id on a database already in use is rejected. Each database is
+ * opened with write-ahead logging, so readers use the connection pool of SQLite and
+ * do not wait for writers. All wallets share one set of {@link WalletSchedulers}.
+ *
+ * @author UBICUA
+ */
+public class WalletRegistry {
+
+    private static final String TAG = WalletRegistry.class.getName();
+
+    public static final long DEFAULT_IDLE_TIMEOUT = TimeUnit.MINUTES.toMillis(5);
+
+    private final Context context;
+    private final long idleTimeout;
+    private final WalletSchedulers schedulers = new WalletSchedulers();
+    private final ScheduledExecutorService sweeper;
+    private final Map<String, Entry> wallets = new HashMap<>();
+    /* database name to the id of the wallet stored in it */
+    private final Map<String, String> databases = new HashMap<>();
+    private boolean closed;
+
+    public WalletRegistry(Context context) {
+        this(context, DEFAULT_IDLE_TIMEOUT, TimeUnit.MILLISECONDS);
+    }
+
+    public WalletRegistry(Context context, long idleTimeout, TimeUnit unit) {
+        this.context = context;
+        this.idleTimeout = unit.toNanos(idleTimeout);
+        this.sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "wallet-registry");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        long period = Math.max(TimeUnit.SECONDS.toNanos(1), this.idleTimeout / 2);
+        sweeper.scheduleWithFixedDelay(this::evictIdle, period, period, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Handle on the wallet stored in database {@code <id>.db}.
+     */
+    public Observable<WalletHandle> acquire(WalletCredential credential) {
+        return acquire(credential, credential.id + ".db", null);
+    }
+
+    /**
+     * Handle on the wallet {@code credential.id} stored in {@code database}, opened on
+     * first use. Every subscription takes its own reference and emits its own handle,
+     * which must be closed once the caller is done with the wallet. A subscription
+     * disposed before the handle is emitted gives its reference back.
+     *
+     * @param sessionCache used when the wallet is opened, see {@link WalletService}
+     */
+    public Observable<WalletHandle> acquire(WalletCredential credential, String database, SessionCache sessionCache) {
+        return Observable.defer(() -> {
+
+            final Entry entry;
+            final boolean cold;
+
+            synchronized (this) {
+                if (closed) {
+                    return Observable.error(new IllegalStateException("Wallet registry closed"));
+                }
+
+                Entry existing = wallets.get(credential.id);
+                if (existing == null) {
+                    String owner = databases.get(database);
+                    if (owner != null) {
+                        return Observable.error(new IllegalArgumentException(String.format("Database %s holds wallet %s", database, owner)));
+                    }
+                    DatabaseHelper helper = connect(database);
+                    existing = new Entry(credential, database, helper, new WalletService(context, credential, helper, sessionCache, schedulers));
+                    wallets.put(credential.id, existing);
+                    databases.put(database, credential.id);
+                } else if (!existing.database.equals(database)) {
+                    return Observable.error(new IllegalArgumentException(String.format("Wallet %s is open in %s", credential.id, existing.database)));
+                } else if (!MessageDigest.isEqual(existing.credential.key.getBytes(), credential.key.getBytes())) {
+                    return Observable.error(new IllegalArgumentException(String.format("Invalid credential for wallet %s", credential.id)));
+                }
+
+                entry = existing;
+                entry.references++;
+                entry.acquires++;
+                cold = entry.service.getWallet() == null;
+                if (cold) {
+                    entry.opens++;
+                }
+            }
+
+            Log.d(TAG, String.format("Acquire wallet %s, %s", credential.id, cold ? "opening" : "open"));
+
+            /* Once emitted the reference belongs to the handle */
+            AtomicBoolean owned = new AtomicBoolean(true);
+            return entry.service.open()
+                    .map(wallet -> {
+                        if (entry.evicted) {
+                            throw new IllegalStateException(String.format("Wallet %s closed while opening", credential.id));
+                        }
+                        return new WalletHandle(this, entry, wallet);
+                    })
+                    .doOnNext(handle -> owned.set(false))
+                    .doOnError(e -> {
+                        if (owned.compareAndSet(true, false)) {
+                            release(entry);
+                        }
+                    })
+                    .doOnDispose(() -> {
+                        if (owned.compareAndSet(true, false)) {
+                            release(entry);
+                        }
+                    });
+        });
+    }
+
+    synchronized void release(Entry entry) {
+        if (entry.references > 0 && --entry.references == 0) {
+            entry.idleSince = System.nanoTime();
+        }
+    }
+
+    public synchronized WalletMetrics metrics(String id) {
+        Entry entry = wallets.get(id);
+        return entry == null ? null : entry.metrics();
+    }
+
+    public synchronized List<WalletMetrics> metrics() {
+        List<WalletMetrics> result = new ArrayList<>();
+        for (Entry entry : wallets.values()) {
+            result.add(entry.metrics());
+        }
+        return result;
+    }
+
+    public WalletSchedulers getSchedulers() {
+        return schedulers;
+    }
+
+    /**
+     * Locks every wallet, whether or not handles are still open, and releases the
+     * databases and pools. Handles still open are invalidated, their
+     * {@link WalletHandle#getWallet()} then throws.
+     */
+    public void close() {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+
+            for (Iterator<Entry> iterator = wallets.values().iterator(); iterator.hasNext(); ) {
+                evict(iterator.next());
+                iterator.remove();
+            }
+        }
+        sweeper.shutdownNow();
+        schedulers.shutdown();
+    }
+
+    private synchronized void evictIdle() {
+        long now = System.nanoTime();
+
+        for (Iterator<Entry> iterator = wallets.values().iterator(); iterator.hasNext(); ) {
+            Entry entry = iterator.next();
+            if (entry.references == 0 && now - entry.idleSince > idleTimeout) {
+                Log.d(TAG, String.format("Evict idle wallet %s", entry.credential.id));
+                evict(entry);
+                iterator.remove();
+            }
+        }
+    }
+
+    private void evict(Entry entry) {
+        entry.evicted = true;
+        entry.service.lock().subscribe();
+        entry.helper.close();
+        databases.remove(entry.database);
+    }
+
+    private DatabaseHelper connect(String database) {
+        DatabaseHelper helper = new DatabaseHelper(database, context);
+        helper.setWriteAheadLoggingEnabled(true);
+        return helper;
+    }
+
+    static class Entry {
+
+        final WalletCredential credential;
+        final String database;
+        final DatabaseHelper helper;
+        final WalletService service;
+
+        /* set once the wallet is locked and its database closed, outstanding handles are then invalid */
+        volatile boolean evicted;
+
+        /* guarded by the registry */
+        int references;
+        long acquires;
+        long opens;
+        long idleSince = System.nanoTime();
+
+        Entry(WalletCredential credential, String database, DatabaseHelper helper, WalletService service) {
+            this.credential = credential;
+            this.database = database;
+            this.helper = helper;
+            this.service = service;
+        }
+
+        WalletMetrics metrics() {
+            long idle = references > 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - idleSince);
+            return new WalletMetrics(credential.id, database, references, acquires, opens, idle);
+        }
+    }
+}
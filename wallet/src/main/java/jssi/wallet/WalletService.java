@@ -25,11 +25,19 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import jssi.store.DatabaseHelper;
 import jssi.store.MetadataDao;
 import jssi.store.model.Metadata;
+import jssi.wallet.crypto.KdfCalibrator;
+import jssi.wallet.crypto.KdfParams;
 import jssi.wallet.crypto.KeyDerivationData;
 import jssi.wallet.crypto.Keys;
 import jssi.wallet.crypto.KeysMetadata;
+import jssi.wallet.crypto.SessionCache;
 import jssi.wallet.io.IOConfig;
+import jssi.wallet.scheduler.WalletSchedulers;
 import org.libsodium.api.Crypto_randombytes;
+import org.libsodium.jni.SodiumException;
+
+import java.io.IOException;
+import java.util.Arrays;
 
 import io.reactivex.Observable;
 import io.reactivex.functions.Function;
@@ -50,40 +58,162 @@ public class WalletService {
     private final Context context;
     private final DatabaseHelper helper;
     private Wallet wallet;
+    private WalletSchedulers schedulers;
+    private final boolean sharedSchedulers;
+    private final SessionCache sessionCache;
+    private Observable<Wallet> pending;
+    /* Bumped by close() and lock(), an open started under an older epoch is dropped */
+    private long epoch;
+    private final Object rekeyLock = new Object();
     
     public WalletService(final Context context, final WalletCredential credential, DatabaseHelper helper) {
+        this(context, credential, helper, null);
+    }
+
+    public WalletService(final Context context, final WalletCredential credential, DatabaseHelper helper, SessionCache sessionCache) {
+        this(context, credential, helper, sessionCache, null);
+    }
+
+    /**
+     * @param schedulers pools shared with other services, left running by {@link #close()};
+     *                   null to create and own them
+     */
+    public WalletService(final Context context, final WalletCredential credential, DatabaseHelper helper,
+                         SessionCache sessionCache, WalletSchedulers schedulers) {
         this.credential = credential;
         this.context = context;
         this.helper = helper;
+        this.sessionCache = sessionCache;
+        this.schedulers = schedulers;
+        this.sharedSchedulers = schedulers != null;
     }
     
-    public Observable<Wallet> open(){
-        if(wallet == null) {
-            Log.d(TAG, "Open wallet");
-            return Observable.fromCallable(() -> {
-                Metadata metadata = new MetadataDao(helper).getMetadata(1);
-                keysMetadata = new ObjectMapper()
-                        .readerFor(KeysMetadata.class)
-                        .readValue(metadata.getValue());
-                keyDerivationData = new KeyDerivationData(credential.key, keysMetadata);
-                keys = new Keys().deserialize(keysMetadata.getKeys(), keyDerivationData.deriveMasterKey());
-                wallet = new Wallet(credential.id, keys, helper);
-                return wallet;
-            });
-        } else {
+    /**
+     * Concurrent callers while the wallet is being opened share a single key
+     * derivation. With a {@link SessionCache} the master key is taken from the
+     * cache when still valid. An open overtaken by {@link #close()} or
+     * {@link #lock()} fails with an {@link IllegalStateException}.
+     */
+    public synchronized Observable<Wallet> open(){
+        if(wallet != null) {
             Log.d(TAG, "Wallet already open");
             return Observable.just(wallet);
         }
+
+        if(pending == null) {
+            Log.d(TAG, "Open wallet");
+            final long started = epoch;
+            pending = Observable.fromCallable(() -> openWallet(started))
+                    .subscribeOn(getSchedulers().computation())
+                    .doOnError(e -> {
+                        synchronized (WalletService.this) {
+                            if (epoch == started) {
+                                pending = null;
+                            }
+                        }
+                    })
+                    .cache();
+        }
+        return pending;
+    }
+
+    private Wallet openWallet(long started) throws IOException, SodiumException {
+        Metadata metadata = new MetadataDao(helper).getMetadata(1);
+        keysMetadata = new ObjectMapper()
+                .readerFor(KeysMetadata.class)
+                .readValue(metadata.getValue());
+        keyDerivationData = new KeyDerivationData(credential.key, keysMetadata);
+
+        Wallet opened = null;
+        byte[] masterKey = sessionCache == null ? null : sessionCache.get(credential.id);
+
+        if (masterKey != null) {
+            try {
+                opened = unlock(keysMetadata, masterKey);
+                Log.d(TAG, "Wallet key restored from session cache");
+            } catch (SodiumException e) {
+                Log.e(TAG, String.format("Cached key rejected: %s", e.getMessage()));
+                sessionCache.clear();
+            } finally {
+                Arrays.fill(masterKey, (byte) 0);
+            }
+        }
+
+        byte[] derived = opened == null ? keyDerivationData.deriveMasterKey() : null;
+        try {
+            if (opened == null) {
+                opened = unlock(keysMetadata, derived);
+            }
+
+            synchronized (this) {
+                if (epoch != started) {
+                    /* closed or locked meanwhile, neither publish the wallet nor cache its key */
+                    opened.clearKeys();
+                    throw new IllegalStateException(String.format("Wallet %s closed while opening", credential.id));
+                }
+                if (derived != null && sessionCache != null) {
+                    sessionCache.put(credential.id, derived);
+                }
+                this.wallet = opened;
+                this.pending = null;
+                return wallet;
+            }
+        } finally {
+            if (derived != null) {
+                Arrays.fill(derived, (byte) 0);
+            }
+        }
+    }
+
+    /* Wallet with the keys of the metadata, both generations while a rotation is in progress */
+    private Wallet unlock(KeysMetadata metadata, byte[] masterKey) throws IOException, SodiumException {
+        Keys current = new Keys().deserialize(metadata.getKeys(), masterKey);
+
+        if (metadata.getNextKeys() == null) {
+            return new Wallet(credential.id, current, metadata.getGeneration(), null, helper);
+        }
+
+        Keys next = new Keys().deserialize(metadata.getNextKeys(), masterKey);
+        return new Wallet(credential.id, next, metadata.getGeneration() + 1, current, helper);
     }
 
     public Observable<Boolean> close(){
-        wallet = null;
+        synchronized (this) {
+            epoch++;
+            wallet = null;
+            pending = null;
+            if (schedulers != null && !sharedSchedulers) {
+                schedulers.shutdown();
+                schedulers = null;
+            }
+        }
         return Observable.just(Boolean.TRUE);
     }
+
+    /**
+     * Closes the wallet and zeroizes its keys and the session cache, so the next
+     * open derives the master key from the passphrase again.
+     */
+    public Observable<Boolean> lock(){
+        synchronized (this) {
+            epoch++;
+            if (wallet != null) {
+                wallet.clearKeys();
+            }
+            if (keys != null) {
+                keys.clear();
+                keys = null;
+            }
+            if (sessionCache != null) {
+                sessionCache.clear();
+            }
+        }
+        return close();
+    }
     
     public Observable<Integer> export(final IOConfig config) {
         return open().flatMap((Function<Wallet, Observable<Integer>>) wallet -> {
-            WalletExport export = new WalletExport(wallet);
+            WalletExport export = new WalletExport(wallet, getSchedulers().ioExecutor());
             return export.export(config);
         });
     }
@@ -91,28 +221,199 @@ public class WalletService {
     public Observable<Integer> restore(final IOConfig config) {
         
         return open().flatMap((Function<Wallet, Observable<Integer>>) wallet -> {
-            WalletImport restore = new WalletImport(wallet);
+            WalletImport restore = new WalletImport(wallet, getSchedulers().ioExecutor());
             return restore.restore(config);
         });
     }
     
     public Observable<Boolean> create() {
+        return create(KdfParams.ARGON2I_MOD);
+    }
+
+    /**
+     * Creates the wallet with the given derivation limits, see {@link KdfCalibrator}.
+     * They are stored with the keys and used by every later open.
+     */
+    public Observable<Boolean> create(final KdfParams params) {
         return Observable.fromCallable(() -> {
 
             byte[] salt = new byte[CRYPTO_AEAD_CHACHA20POLY1305_IETF_KEYBYTES];
             Crypto_randombytes.buf(salt);
-            keyDerivationData = new KeyDerivationData(credential.key, salt);
+            keyDerivationData = new KeyDerivationData(credential.key, salt, params);
             keys = new Keys().init();
-            keysMetadata = new KeysMetadata(keys.serialize(keyDerivationData.deriveMasterKey()), salt);
 
-            Metadata metadata = new Metadata(keysMetadata.toString().getBytes());
-            DatabaseHelper helper = new DatabaseHelper("backup", context);
+            byte[] masterKey = keyDerivationData.deriveMasterKey();
+            try {
+                keysMetadata = new KeysMetadata(keys.serialize(masterKey), salt, params.isLegacy() ? null : params);
+            } finally {
+                Arrays.fill(masterKey, (byte) 0);
+            }
+
+            Metadata metadata = new Metadata(new ObjectMapper().writeValueAsBytes(keysMetadata));
             new MetadataDao(helper).create(metadata);
             return Boolean.TRUE;
-        });
+        }).subscribeOn(getSchedulers().computation());
+    }
+
+    /**
+     * Changes the wallet passphrase. The keys blob is unlocked with the old
+     * passphrase and wrapped again under a key derived from the new one with a
+     * fresh salt and the same limits; records are not touched.
+     */
+    public Observable<Boolean> rekey(final String oldPassphrase, final String newPassphrase) {
+        return Observable.fromCallable(() -> {
+            synchronized (rekeyLock) {
+                MetadataDao dao = new MetadataDao(helper);
+                Metadata metadata = dao.getMetadata(1);
+                KeysMetadata current = new ObjectMapper()
+                        .readerFor(KeysMetadata.class)
+                        .readValue(metadata.getValue());
+
+                Keys unlocked;
+                Keys next = null;
+                byte[] oldKey = new KeyDerivationData(oldPassphrase, current).deriveMasterKey();
+                try {
+                    unlocked = new Keys().deserialize(current.getKeys(), oldKey);
+                    if (current.getNextKeys() != null) {
+                        next = new Keys().deserialize(current.getNextKeys(), oldKey);
+                    }
+                } catch (SodiumException e) {
+                    throw new SodiumException("Invalid wallet passphrase");
+                } finally {
+                    Arrays.fill(oldKey, (byte) 0);
+                }
+
+                byte[] salt = new byte[CRYPTO_AEAD_CHACHA20POLY1305_IETF_KEYBYTES];
+                Crypto_randombytes.buf(salt);
+                KdfParams params = current.getKdf() == null ? KdfParams.ARGON2I_MOD : current.getKdf();
+                KeyDerivationData data = new KeyDerivationData(newPassphrase, salt, params);
+
+                KeysMetadata updated;
+                byte[] newKey = data.deriveMasterKey();
+                try {
+                    updated = new KeysMetadata(unlocked.serialize(newKey), salt, current.getKdf(),
+                            current.getGeneration(), next == null ? null : next.serialize(newKey));
+
+                    if (dao.update(metadata.getId(), new Metadata(new ObjectMapper().writeValueAsBytes(updated))) != 1) {
+                        throw new IOException("Wallet metadata not updated");
+                    }
+                    if (sessionCache != null) {
+                        sessionCache.put(credential.id, newKey);
+                    }
+                } finally {
+                    Arrays.fill(newKey, (byte) 0);
+                    unlocked.clear();
+                    if (next != null) {
+                        next.clear();
+                    }
+                }
+
+                synchronized (this) {
+                    keysMetadata = updated;
+                    keyDerivationData = data;
+                    credential.key = newPassphrase;
+                }
+                Log.d(TAG, "Wallet passphrase changed");
+                return Boolean.TRUE;
+            }
+        }).subscribeOn(getSchedulers().computation());
+    }
+
+    /**
+     * Rotates the record keys: a new key generation is stored next to the current
+     * one, then items are re-encrypted in the background while the wallet stays
+     * usable, see {@link KeyRotation}. A rotation interrupted earlier is resumed.
+     *
+     * @return the running count of items rotated
+     */
+    public Observable<Integer> rotateKeys() {
+        return open()
+                .observeOn(getSchedulers().computation())
+                .map(this::beginRotation)
+                .flatMap(rotation -> rotation.run(getSchedulers().io()));
+    }
+
+    private KeyRotation beginRotation(Wallet wallet) throws IOException, SodiumException {
+        synchronized (rekeyLock) {
+            MetadataDao dao = new MetadataDao(helper);
+            Metadata metadata = dao.getMetadata(1);
+            KeysMetadata current = new ObjectMapper()
+                    .readerFor(KeysMetadata.class)
+                    .readValue(metadata.getValue());
+
+            if (current.getNextKeys() == null) {
+                byte[] masterKey = sessionCache == null ? null : sessionCache.get(credential.id);
+                if (masterKey == null) {
+                    masterKey = new KeyDerivationData(credential.key, current).deriveMasterKey();
+                }
+
+                Keys next = new Keys().init();
+                KeysMetadata updated;
+                try {
+                    /* fails if the master key does not match the stored keys */
+                    new Keys().deserialize(current.getKeys(), masterKey).clear();
+                    updated = new KeysMetadata(current.getKeys(), current.getMasterKeySalt(), current.getKdf(),
+                            current.getGeneration(), next.serialize(masterKey));
+                } finally {
+                    Arrays.fill(masterKey, (byte) 0);
+                }
+
+                if (dao.update(metadata.getId(), new Metadata(new ObjectMapper().writeValueAsBytes(updated))) != 1) {
+                    throw new IOException("Wallet metadata not updated");
+                }
+
+                synchronized (this) {
+                    keysMetadata = updated;
+                }
+                wallet.beginRotation(next);
+                Log.d(TAG, String.format("Key rotation to generation %d started", updated.getGeneration() + 1));
+            }
+
+            return new KeyRotation(wallet, () -> finishRotation(wallet));
+        }
+    }
+
+    /* Promotes the next key generation once every item has been rotated */
+    private void finishRotation(Wallet wallet) throws IOException {
+        synchronized (rekeyLock) {
+            MetadataDao dao = new MetadataDao(helper);
+            Metadata metadata = dao.getMetadata(1);
+            KeysMetadata current = new ObjectMapper()
+                    .readerFor(KeysMetadata.class)
+                    .readValue(metadata.getValue());
+
+            if (current.getNextKeys() != null) {
+                KeysMetadata updated = new KeysMetadata(current.getNextKeys(), current.getMasterKeySalt(), current.getKdf(),
+                        current.getGeneration() + 1, null);
+
+                if (dao.update(metadata.getId(), new Metadata(new ObjectMapper().writeValueAsBytes(updated))) != 1) {
+                    throw new IOException("Wallet metadata not updated");
+                }
+
+                synchronized (this) {
+                    keysMetadata = updated;
+                }
+            }
+            wallet.finishRotation();
+        }
+    }
+
+    public String getId() {
+        return credential.id;
     }
 
     public Wallet getWallet() {
         return wallet;
     }
+
+    /**
+     * Pools shared by every wallet operation. Unless given to the constructor they
+     * are created on first use and shut down by {@link #close()}.
+     */
+    public synchronized WalletSchedulers getSchedulers() {
+        if (!sharedSchedulers && (schedulers == null || schedulers.isShutdown())) {
+            schedulers = new WalletSchedulers();
+        }
+        return schedulers;
+    }
 }
@@ -0,0 +1,105 @@
+/*
+ *
+ *  * Copyright 2021 UBICUA.
+ *  *
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  *
+ *  *      http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ *
+ */
+
+package jssi.wallet.crypto;
+
+import android.security.keystore.KeyGenParameterSpec;
+import android.security.keystore.KeyProperties;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+
+import javax.crypto.Cipher;
+import javax.crypto.KeyGenerator;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+
+/**
+ * AES-GCM key kept in the AndroidKeyStore. The key material never leaves the
+ * keystore; wrapped output is {@code iv || ciphertext || tag}.
+ *
+ * @author UBICUA
+ */
+public class AndroidDeviceKey implements DeviceKey {
+
+    private static final String KEYSTORE = "AndroidKeyStore";
+    private static final String TRANSFORMATION = "AES/GCM/NoPadding";
+    private static final int KEY_SIZE = 256;
+    private static final int IV_SIZE = 12;
+    private static final int TAG_SIZE = 128;
+
+    private final String alias;
+    private SecretKey key;
+
+    public AndroidDeviceKey(String alias) {
+        this.alias = alias;
+    }
+
+    @Override
+    public byte[] wrap(byte[] plain) throws GeneralSecurityException {
+        Cipher cipher = Cipher.getInstance(TRANSFORMATION);
+        cipher.init(Cipher.ENCRYPT_MODE, getKey());
+
+        byte[] iv = cipher.getIV();
+        byte[] encrypted = cipher.doFinal(plain);
+
+        return ByteBuffer.allocate(iv.length + encrypted.length)
+                .put(iv)
+                .put(encrypted)
+                .array();
+    }
+
+    @Override
+    public byte[] unwrap(byte[] wrapped) throws GeneralSecurityException {
+        if (wrapped.length <= IV_SIZE) {
+            throw new GeneralSecurityException("Invalid wrapped key size");
+        }
+        Cipher cipher = Cipher.getInstance(TRANSFORMATION);
+        cipher.init(Cipher.DECRYPT_MODE, getKey(), new GCMParameterSpec(TAG_SIZE, wrapped, 0, IV_SIZE));
+        return cipher.doFinal(wrapped, IV_SIZE, wrapped.length - IV_SIZE);
+    }
+
+    private synchronized SecretKey getKey() throws GeneralSecurityException {
+        if (key != null) {
+            return key;
+        }
+
+        try {
+            KeyStore store = KeyStore.getInstance(KEYSTORE);
+            store.load(null);
+
+            if (store.containsAlias(alias)) {
+                key = (SecretKey) store.getKey(alias, null);
+                return key;
+            }
+        } catch (IOException e) {
+            throw new GeneralSecurityException(e);
+        }
+
+        KeyGenerator generator = KeyGenerator.getInstance(KeyProperties.KEY_ALGORITHM_AES, KEYSTORE);
+        generator.init(new KeyGenParameterSpec.Builder(alias, KeyProperties.PURPOSE_ENCRYPT | KeyProperties.PURPOSE_DECRYPT)
+                .setBlockModes(KeyProperties.BLOCK_MODE_GCM)
+                .setEncryptionPaddings(KeyProperties.ENCRYPTION_PADDING_NONE)
+                .setKeySize(KEY_SIZE)
+                .build());
+        key = generator.generateKey();
+        return key;
+    }
+}
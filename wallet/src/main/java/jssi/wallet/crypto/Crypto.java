@@ -19,15 +19,13 @@ package jssi.wallet.crypto;
 
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
 import org.libsodium.api.Crypto_aead_chacha20poly1305_ietf;
 import org.libsodium.api.Crypto_auth_hmacsha256;
 import org.libsodium.api.Crypto_pwhash;
-import org.libsodium.api.Crypto_randombytes;
+import org.libsodium.api.RandomSource;
+import static org.libsodium.jni.SodiumConstants.CRYPTO_AEAD_CHACHA20POLY1305_IETF_ABYTES;
 import static org.libsodium.jni.SodiumConstants.CRYPTO_AEAD_CHACHA20POLY1305_IETF_NONCEBYTES;
-import static org.libsodium.jni.SodiumConstants.CRYPTO_PWHASH_MEMLIMIT_INTERACTIVE;
-import static org.libsodium.jni.SodiumConstants.CRYPTO_PWHASH_MEMLIMIT_MODERATE;
-import static org.libsodium.jni.SodiumConstants.CRYPTO_PWHASH_OPSLIMIT_INTERACTIVE;
-import static org.libsodium.jni.SodiumConstants.CRYPTO_PWHASH_OPSLIMIT_MODERATE;
 import org.libsodium.jni.SodiumException;
 
 /**
@@ -39,25 +37,19 @@ public class Crypto {
     public static byte[] encryptAsSearchable(byte[] data, byte[] key, byte[] hmac_key) throws SodiumException{
         
         byte[] out = Crypto_auth_hmacsha256.hmacsha256(data, hmac_key);
-        byte[] nonce = new byte[CRYPTO_AEAD_CHACHA20POLY1305_IETF_NONCEBYTES];
-        System.arraycopy(out, 0, nonce, 0, nonce.length);
-        byte[] cipher = encrypt(data, nonce, key);
-        
-        byte[] merged = new byte[nonce.length + cipher.length];
-        System.arraycopy(nonce, 0, merged, 0, nonce.length);
-        System.arraycopy(cipher, 0, merged, nonce.length, cipher.length);
-        
+        byte[] merged = new byte[CRYPTO_AEAD_CHACHA20POLY1305_IETF_NONCEBYTES + data.length + CRYPTO_AEAD_CHACHA20POLY1305_IETF_ABYTES];
+        System.arraycopy(out, 0, merged, 0, CRYPTO_AEAD_CHACHA20POLY1305_IETF_NONCEBYTES);
+        /* Nonce read and cipher written in place, no intermediate arrays */
+        Crypto_aead_chacha20poly1305_ietf.encrypt(merged, CRYPTO_AEAD_CHACHA20POLY1305_IETF_NONCEBYTES, data, 0, data.length, null, merged, 0, key);
         return merged;
     }
     
     public static byte[] encryptAsNotSearchable(byte[] data, byte[] key) throws SodiumException {
         
-        byte[] nonce = new byte[CRYPTO_AEAD_CHACHA20POLY1305_IETF_NONCEBYTES];
-        Crypto_randombytes.buf(nonce);
-        byte[] cipher = encrypt(data, nonce, key);
-        byte[] merged = new byte[nonce.length + cipher.length];
-        System.arraycopy(nonce, 0, merged, 0, nonce.length);
-        System.arraycopy(cipher, 0, merged, nonce.length, cipher.length);
+        byte[] merged = new byte[CRYPTO_AEAD_CHACHA20POLY1305_IETF_NONCEBYTES + data.length + CRYPTO_AEAD_CHACHA20POLY1305_IETF_ABYTES];
+        /* Buffered nonce written straight into place */
+        RandomSource.buf(merged, 0, CRYPTO_AEAD_CHACHA20POLY1305_IETF_NONCEBYTES);
+        Crypto_aead_chacha20poly1305_ietf.encrypt(merged, CRYPTO_AEAD_CHACHA20POLY1305_IETF_NONCEBYTES, data, 0, data.length, null, merged, 0, key);
         return merged;
     }
     
@@ -66,21 +58,12 @@ public class Crypto {
     }
     
     static byte[] deriveKey(String passphrase, byte[] salt, Method key_derivation_method) throws SodiumException{
-        
-        int opslimit;
-        int memlimit;
-        
-        byte[] credentials = passphrase.getBytes();
-
-        if (key_derivation_method == Method.ARGON2I_INT) {
-            opslimit = CRYPTO_PWHASH_OPSLIMIT_INTERACTIVE;
-            memlimit = CRYPTO_PWHASH_MEMLIMIT_INTERACTIVE;
-        } else {
-            opslimit = CRYPTO_PWHASH_OPSLIMIT_MODERATE;
-            memlimit = CRYPTO_PWHASH_MEMLIMIT_MODERATE;
-        }
+        return deriveKey(passphrase, salt, KdfParams.forMethod(key_derivation_method));
+    }
 
-        return Crypto_pwhash.pwhash(credentials, salt, opslimit, memlimit);
+    static byte[] deriveKey(String passphrase, byte[] salt, KdfParams params) throws SodiumException{
+        byte[] credentials = passphrase.getBytes();
+        return Crypto_pwhash.pwhash(credentials, salt, params.getOpslimit(), params.getMemlimit(), params.getAlg());
     }
     
     public static byte[] decrypt(byte[] cipher, byte[] nonce, byte[] key) throws SodiumException{
@@ -88,11 +71,58 @@ public class Crypto {
     }
     
     public static byte[] decryptMerged(byte[] data, byte[] key) throws SodiumException{
-        byte[] nonce = new byte[CRYPTO_AEAD_CHACHA20POLY1305_IETF_NONCEBYTES];
-        System.arraycopy( data, 0, nonce, 0, nonce.length );
-        byte[] cipher  = new byte[data.length - nonce.length];
-        System.arraycopy(data, nonce.length, cipher, 0, cipher.length );
-        return decrypt(cipher, nonce, key);
+        if (data.length < CRYPTO_AEAD_CHACHA20POLY1305_IETF_NONCEBYTES + CRYPTO_AEAD_CHACHA20POLY1305_IETF_ABYTES) {
+            throw new SodiumException("decryptMerged");
+        }
+        int length = data.length - CRYPTO_AEAD_CHACHA20POLY1305_IETF_NONCEBYTES;
+        byte[] plain = new byte[length - CRYPTO_AEAD_CHACHA20POLY1305_IETF_ABYTES];
+        Crypto_aead_chacha20poly1305_ietf.decrypt(plain, 0, data, CRYPTO_AEAD_CHACHA20POLY1305_IETF_NONCEBYTES, length, null, data, 0, key);
+        return plain;
+    }
+    
+    /* Decrypts nonce prefixed ciphers in one batch call, data[i] with keys[i] */
+    public static byte[][] decryptMerged(byte[][] data, byte[][] keys) throws SodiumException{
+        int count = data.length;
+        int[] inOffsets = new int[count];
+        int[] inLengths = new int[count];
+        int[] nonceOffsets = new int[count];
+        int[] outOffsets = new int[count];
+        int inSize = 0;
+        int outSize = 0;
+        for (int i = 0; i < count; i++) {
+            if (data[i].length < CRYPTO_AEAD_CHACHA20POLY1305_IETF_NONCEBYTES + CRYPTO_AEAD_CHACHA20POLY1305_IETF_ABYTES) {
+                throw new SodiumException("decryptMerged");
+            }
+            nonceOffsets[i] = inSize;
+            inOffsets[i] = inSize + CRYPTO_AEAD_CHACHA20POLY1305_IETF_NONCEBYTES;
+            inLengths[i] = data[i].length - CRYPTO_AEAD_CHACHA20POLY1305_IETF_NONCEBYTES;
+            outOffsets[i] = outSize;
+            inSize += data[i].length;
+            outSize += inLengths[i] - CRYPTO_AEAD_CHACHA20POLY1305_IETF_ABYTES;
+        }
+
+        /* One packed input and output so the batch pins two arrays */
+        byte[] in = new byte[inSize];
+        for (int i = 0; i < count; i++) {
+            System.arraycopy(data[i], 0, in, nonceOffsets[i], data[i].length);
+        }
+        byte[] out = new byte[outSize];
+        int[] results = new int[count];
+        /* out holds every plaintext, value keys included, and is zeroized on all paths */
+        try {
+            if (Crypto_aead_chacha20poly1305_ietf.decrypt_batch(out, outOffsets, in, inOffsets, inLengths, in, nonceOffsets, keys, results) != 0) {
+                throw new SodiumException("decryptMerged");
+            }
+
+            byte[][] plain = new byte[count][];
+            for (int i = 0; i < count; i++) {
+                plain[i] = new byte[inLengths[i] - CRYPTO_AEAD_CHACHA20POLY1305_IETF_ABYTES];
+                System.arraycopy(out, outOffsets[i], plain[i], 0, plain[i].length);
+            }
+            return plain;
+        } finally {
+            Arrays.fill(out, (byte) 0);
+        }
     }
     
     public static byte[] hash256(byte[] bytes) {
@@ -0,0 +1,34 @@
+/*
+ *
+ *  * Copyright 2021 UBICUA.
+ *  *
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  *
+ *  *      http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ *
+ */
+
+package jssi.wallet.crypto;
+
+import java.security.GeneralSecurityException;
+
+/**
+ * Key bound to the device, used to keep wallet secrets wrapped while they are
+ * cached in memory.
+ *
+ * @author UBICUA
+ */
+public interface DeviceKey {
+
+    byte[] wrap(byte[] plain) throws GeneralSecurityException;
+
+    byte[] unwrap(byte[] wrapped) throws GeneralSecurityException;
+}
@@ -0,0 +1,87 @@
+/*
+ *
+ *  * Copyright 2021 UBICUA.
+ *  *
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  *
+ *  *      http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ *
+ */
+
+package jssi.wallet.crypto;
+
+import android.util.Log;
+
+import org.libsodium.api.Crypto_pwhash;
+import org.libsodium.api.Crypto_randombytes;
+import org.libsodium.jni.SodiumException;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.libsodium.jni.SodiumConstants.CRYPTO_PWHASH_ALG_ARGON2ID13;
+import static org.libsodium.jni.SodiumConstants.CRYPTO_PWHASH_ARGON2I_SALTBYTES;
+
+/**
+ * Picks Argon2id limits that take about a target time on the current device.
+ * Memory is raised first, up to {@link #MAX_MEMLIMIT}, then passes fill the
+ * remaining budget. The result never goes below the given floor, so slow
+ * devices get the floor and a longer open rather than weaker parameters.
+ *
+ * @author UBICUA
+ */
+public class KdfCalibrator {
+
+    private static final String TAG = KdfCalibrator.class.getName();
+
+    public static final long DEFAULT_TARGET_MILLIS = 500;
+    public static final int MAX_MEMLIMIT = 256 * 1024 * 1024;
+    public static final int MAX_OPSLIMIT = 32;
+
+    private static final byte[] PASSWORD = "calibration".getBytes();
+
+    public static KdfParams calibrate() throws SodiumException {
+        return calibrate(DEFAULT_TARGET_MILLIS, KdfParams.ARGON2ID_FLOOR);
+    }
+
+    public static KdfParams calibrate(long targetMillis, KdfParams floor) throws SodiumException {
+
+        long target = TimeUnit.MILLISECONDS.toNanos(targetMillis);
+        int opslimit = Math.max(floor.getOpslimit(), KdfParams.minOpslimit(Method.ARGON2ID));
+        int memlimit = floor.getMemlimit();
+
+        long elapsed = measure(opslimit, memlimit);
+
+        /* Argon2 time is roughly linear in memory, keep doubling while it fits */
+        while (elapsed * 2 <= target && memlimit <= MAX_MEMLIMIT / 2) {
+            memlimit *= 2;
+            elapsed = measure(opslimit, memlimit);
+        }
+
+        /* and linear in passes for the remaining budget */
+        if (elapsed < target) {
+            long scaled = opslimit * target / Math.max(elapsed, 1);
+            opslimit = (int) Math.min(Math.max(scaled, opslimit), MAX_OPSLIMIT);
+        }
+
+        KdfParams params = new KdfParams(Method.ARGON2ID, opslimit, memlimit);
+        Log.d(TAG, String.format("Calibrated %s for %d ms, last run %d ms", params, targetMillis, TimeUnit.NANOSECONDS.toMillis(elapsed)));
+        return params;
+    }
+
+    private static long measure(int opslimit, int memlimit) throws SodiumException {
+        byte[] salt = new byte[CRYPTO_PWHASH_ARGON2I_SALTBYTES];
+        Crypto_randombytes.buf(salt);
+
+        long start = System.nanoTime();
+        Crypto_pwhash.pwhash(PASSWORD, salt, opslimit, memlimit, CRYPTO_PWHASH_ALG_ARGON2ID13);
+        return System.nanoTime() - start;
+    }
+}
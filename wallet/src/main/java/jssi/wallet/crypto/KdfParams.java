@@ -0,0 +1,133 @@
+/*
+ *
+ *  * Copyright 2021 UBICUA.
+ *  *
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  *
+ *  *      http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ *
+ */
+
+package jssi.wallet.crypto;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import static org.libsodium.jni.SodiumConstants.CRYPTO_PWHASH_ALG_ARGON2I;
+import static org.libsodium.jni.SodiumConstants.CRYPTO_PWHASH_ALG_ARGON2ID13;
+import static org.libsodium.jni.SodiumConstants.CRYPTO_PWHASH_ARGON2ID_OPSLIMIT_MIN;
+import static org.libsodium.jni.SodiumConstants.CRYPTO_PWHASH_ARGON2I_OPSLIMIT_MIN;
+import static org.libsodium.jni.SodiumConstants.CRYPTO_PWHASH_MEMLIMIT_INTERACTIVE;
+import static org.libsodium.jni.SodiumConstants.CRYPTO_PWHASH_MEMLIMIT_MIN;
+import static org.libsodium.jni.SodiumConstants.CRYPTO_PWHASH_MEMLIMIT_MODERATE;
+import static org.libsodium.jni.SodiumConstants.CRYPTO_PWHASH_OPSLIMIT_INTERACTIVE;
+import static org.libsodium.jni.SodiumConstants.CRYPTO_PWHASH_OPSLIMIT_MODERATE;
+
+/**
+ * Argon2 cost parameters of a key derivation. Wallets created before these were
+ * stored use the fixed limits of {@link Method#ARGON2I_MOD}.
+ *
+ * @author UBICUA
+ */
+public class KdfParams {
+
+    public static final KdfParams ARGON2I_MOD = new KdfParams(Method.ARGON2I_MOD, CRYPTO_PWHASH_OPSLIMIT_MODERATE, CRYPTO_PWHASH_MEMLIMIT_MODERATE);
+    public static final KdfParams ARGON2I_INT = new KdfParams(Method.ARGON2I_INT, CRYPTO_PWHASH_OPSLIMIT_INTERACTIVE, CRYPTO_PWHASH_MEMLIMIT_INTERACTIVE);
+
+    /**
+     * Lowest cost accepted by {@link KdfCalibrator}, same memory as the
+     * libsodium interactive profile.
+     */
+    public static final KdfParams ARGON2ID_FLOOR = new KdfParams(Method.ARGON2ID, 2, CRYPTO_PWHASH_MEMLIMIT_INTERACTIVE);
+
+    private final Method method;
+    private final int opslimit;
+    private final int memlimit;
+
+    @JsonCreator
+    public KdfParams(@JsonProperty("method") Method method, @JsonProperty("opslimit") int opslimit, @JsonProperty("memlimit") int memlimit) {
+        if (method == Method.RAW) {
+            throw new IllegalArgumentException("RAW keys are not derived");
+        }
+        if (opslimit < minOpslimit(method) || memlimit < CRYPTO_PWHASH_MEMLIMIT_MIN) {
+            throw new IllegalArgumentException(String.format("Invalid %s limits ops %d, mem %d", method, opslimit, memlimit));
+        }
+        this.method = method;
+        this.opslimit = opslimit;
+        this.memlimit = memlimit;
+    }
+
+    /**
+     * Fixed limits for the legacy methods; {@link Method#ARGON2ID} has no fixed
+     * limits and maps to {@link #ARGON2ID_FLOOR}.
+     */
+    public static KdfParams forMethod(Method method) {
+        switch (method) {
+            case ARGON2I_INT:
+                return ARGON2I_INT;
+            case ARGON2ID:
+                return ARGON2ID_FLOOR;
+            case ARGON2I_MOD:
+            default:
+                return ARGON2I_MOD;
+        }
+    }
+
+    static int minOpslimit(Method method) {
+        return method == Method.ARGON2ID ? CRYPTO_PWHASH_ARGON2ID_OPSLIMIT_MIN : CRYPTO_PWHASH_ARGON2I_OPSLIMIT_MIN;
+    }
+
+    public Method getMethod() {
+        return method;
+    }
+
+    public int getOpslimit() {
+        return opslimit;
+    }
+
+    public int getMemlimit() {
+        return memlimit;
+    }
+
+    @JsonIgnore
+    public int getAlg() {
+        return method == Method.ARGON2ID ? CRYPTO_PWHASH_ALG_ARGON2ID13 : CRYPTO_PWHASH_ALG_ARGON2I;
+    }
+
+    /**
+     * @return true if the limits are the fixed ones of the method, which older
+     * readers assume when no limits are stored
+     */
+    @JsonIgnore
+    public boolean isLegacy() {
+        return method != Method.ARGON2ID && equals(forMethod(method));
+    }
+
+    @Override
+    public boolean equals(Object object) {
+        if (!(object instanceof KdfParams)) {
+            return false;
+        }
+        KdfParams other = (KdfParams) object;
+        return method == other.method && opslimit == other.opslimit && memlimit == other.memlimit;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * (31 * method.hashCode() + opslimit) + memlimit;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("KdfParams: { method %s, opslimit: %d, memlimit: %d}", method, opslimit, memlimit);
+    }
+}
@@ -33,6 +33,7 @@ public class KeyDerivationData {
     private final String passphrase;
     private byte[] salt;
     private final Method method;
+    private final KdfParams params;
     
     
     public KeyDerivationData(final String passphrase, byte[] salt){
@@ -40,8 +41,17 @@ public class KeyDerivationData {
     }
 
     public KeyDerivationData(final String passphrase, byte[] salt, Method method){
+        this(passphrase, salt, method, method == Method.RAW ? null : KdfParams.forMethod(method));
+    }
+
+    public KeyDerivationData(final String passphrase, byte[] salt, KdfParams params){
+        this(passphrase, salt, params.getMethod(), params);
+    }
+
+    private KeyDerivationData(final String passphrase, byte[] salt, Method method, KdfParams params){
         this.method = method;
         this.passphrase = passphrase;
+        this.params = params;
         
         if(method != Method.RAW){
             this.salt = salt;
@@ -53,8 +63,17 @@ public class KeyDerivationData {
     }
 
     public KeyDerivationData(final String passphrase, final Method method) throws SodiumException{
+        this(passphrase, method, method == Method.RAW ? null : KdfParams.forMethod(method));
+    }
+
+    public KeyDerivationData(final String passphrase, final KdfParams params) throws SodiumException{
+        this(passphrase, params.getMethod(), params);
+    }
+
+    private KeyDerivationData(final String passphrase, final Method method, final KdfParams params) throws SodiumException{
         this.method = method;
         this.passphrase = passphrase;
+        this.params = params;
         
         if(method != Method.RAW){
             salt = new byte[CRYPTO_PWHASH_ARGON2I_SALTBYTES];
@@ -62,17 +81,12 @@ public class KeyDerivationData {
         }
     }
     
+    /**
+     * Uses the limits stored in the metadata, or those of {@link Method#ARGON2I_MOD}
+     * for wallets that predate them.
+     */
     public KeyDerivationData(final String passphrase, final KeysMetadata metadata){
-        this(passphrase, metadata, Method.ARGON2I_MOD);
-    }
-    
-    private KeyDerivationData(final String passphrase, final KeysMetadata metadata, Method method){
-        this.method = method;
-        this.passphrase = passphrase;
-        
-        if(method != Method.RAW){
-            salt = metadata.getMasterKeySalt();
-        }
+        this(passphrase, metadata.getMasterKeySalt(), metadata.getKdf() == null ? KdfParams.ARGON2I_MOD : metadata.getKdf());
     }
     
     public byte[] deriveMasterKey() throws SodiumException{
@@ -87,7 +101,7 @@ public class KeyDerivationData {
             }
             
         } else {
-            masterKey = Crypto.deriveKey(passphrase, salt, method);
+            masterKey = Crypto.deriveKey(passphrase, salt, params);
         }
         return masterKey;
     }
@@ -96,6 +110,10 @@ public class KeyDerivationData {
         return method;
     }
 
+    public KdfParams getKdfParams() {
+        return params;
+    }
+
     public byte[] getSalt() {
         return salt;
     }
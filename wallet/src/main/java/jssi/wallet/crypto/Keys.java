@@ -18,8 +18,10 @@
 package jssi.wallet.crypto;
 
 import java.io.IOException;
-import org.libsodium.api.Crypto_aead_chacha20poly1305_ietf;
-import org.libsodium.api.Crypto_auth_hmacsha256;
+import java.util.Arrays;
+import org.libsodium.api.RandomSource;
+import static org.libsodium.jni.SodiumConstants.CRYPTO_AEAD_CHACHA20POLY1305_IETF_KEYBYTES;
+import static org.libsodium.jni.SodiumConstants.CRYPTO_AUTH_HMACSHA256_KEYBYTES;
 import org.libsodium.jni.SodiumException;
 import org.msgpack.core.MessageBufferPacker;
 import org.msgpack.core.MessagePack;
@@ -48,13 +50,14 @@ public class Keys {
     
     public Keys init() throws SodiumException{
 
-        typeKey = Crypto_aead_chacha20poly1305_ietf.keygen();
-        nameKey = Crypto_aead_chacha20poly1305_ietf.keygen();
-        valueKey = Crypto_aead_chacha20poly1305_ietf.keygen();
-        itemHmacKey = Crypto_auth_hmacsha256.keygen();
-        tagNameKey = Crypto_aead_chacha20poly1305_ietf.keygen();
-        tagValueKey = Crypto_aead_chacha20poly1305_ietf.keygen();
-        tagsHmacKey = Crypto_auth_hmacsha256.keygen();
+        /* Seven keys from one buffered source instead of seven native calls */
+        typeKey = RandomSource.key(CRYPTO_AEAD_CHACHA20POLY1305_IETF_KEYBYTES);
+        nameKey = RandomSource.key(CRYPTO_AEAD_CHACHA20POLY1305_IETF_KEYBYTES);
+        valueKey = RandomSource.key(CRYPTO_AEAD_CHACHA20POLY1305_IETF_KEYBYTES);
+        itemHmacKey = RandomSource.key(CRYPTO_AUTH_HMACSHA256_KEYBYTES);
+        tagNameKey = RandomSource.key(CRYPTO_AEAD_CHACHA20POLY1305_IETF_KEYBYTES);
+        tagValueKey = RandomSource.key(CRYPTO_AEAD_CHACHA20POLY1305_IETF_KEYBYTES);
+        tagsHmacKey = RandomSource.key(CRYPTO_AUTH_HMACSHA256_KEYBYTES);
         return this;
     }
     
@@ -112,6 +115,17 @@ public class Keys {
         return this;
     }
 
+    /**
+     * Overwrites every key with zeros. The instance is unusable afterwards.
+     */
+    public void clear() {
+        for (byte[] key : new byte[][]{typeKey, nameKey, valueKey, itemHmacKey, tagNameKey, tagValueKey, tagsHmacKey}) {
+            if (key != null) {
+                Arrays.fill(key, (byte) 0);
+            }
+        }
+    }
+
     public byte[] getValueKey() {
         return valueKey;
     }
@@ -18,6 +18,7 @@
 package jssi.wallet.crypto;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.databind.PropertyNamingStrategy;
 import com.fasterxml.jackson.databind.annotation.JsonNaming;
@@ -40,10 +41,38 @@ public class KeysMetadata {
     @JsonSerialize(using = KeysSerializer.class)
     private byte[] masterKeySalt;
 
+    @JsonProperty("kdf")
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private KdfParams kdf;
+
+    @JsonProperty("generation")
+    @JsonInclude(JsonInclude.Include.NON_DEFAULT)
+    private int generation;
+
+    @JsonProperty("next_keys")
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    @JsonSerialize(using = KeysSerializer.class)
+    private byte[] nextKeys;
+
+    public KeysMetadata(byte[] keys, byte[] masterKeySalt) {
+        this(keys, masterKeySalt, null);
+    }
+
+    public KeysMetadata(byte[] keys, byte[] masterKeySalt, KdfParams kdf) {
+        this(keys, masterKeySalt, kdf, 0, null);
+    }
+
     @JsonCreator
-    public KeysMetadata(@JsonProperty("keys") byte[] keys,  @JsonProperty("master_key_salt") byte[] masterKeySalt) {
+    public KeysMetadata(@JsonProperty("keys") byte[] keys,
+                        @JsonProperty("master_key_salt") byte[] masterKeySalt,
+                        @JsonProperty("kdf") KdfParams kdf,
+                        @JsonProperty("generation") int generation,
+                        @JsonProperty("next_keys") byte[] nextKeys) {
         this.keys = keys;
         this.masterKeySalt = masterKeySalt;
+        this.kdf = kdf;
+        this.generation = generation;
+        this.nextKeys = nextKeys;
     }
 
     public byte[] getKeys() {
@@ -54,12 +83,36 @@ public class KeysMetadata {
         return masterKeySalt;
     }
 
+    /**
+     * @return the derivation limits, null for wallets created with the fixed
+     * {@link Method#ARGON2I_MOD} limits
+     */
+    public KdfParams getKdf() {
+        return kdf;
+    }
+
+    /**
+     * @return generation of {@link #getKeys()}, 0 for wallets never rotated
+     */
+    public int getGeneration() {
+        return generation;
+    }
+
+    /**
+     * @return keys of the next generation while a rotation is in progress, null otherwise
+     */
+    public byte[] getNextKeys() {
+        return nextKeys;
+    }
+
     @Override
     public boolean equals(Object object){
         if(!(object instanceof KeysMetadata)){
             return false;
         }
         KeysMetadata other = (KeysMetadata) object;
-        return Arrays.equals(keys, other.keys) && Arrays.equals(masterKeySalt, other.masterKeySalt);
+        return Arrays.equals(keys, other.keys) && Arrays.equals(masterKeySalt, other.masterKeySalt)
+                && (kdf == null ? other.kdf == null : kdf.equals(other.kdf))
+                && generation == other.generation && Arrays.equals(nextKeys, other.nextKeys);
     }
 }
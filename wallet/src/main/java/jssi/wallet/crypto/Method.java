@@ -24,7 +24,8 @@ package jssi.wallet.crypto;
 public enum Method {
     ARGON2I_MOD(0),
     ARGON2I_INT(1),
-    RAW(2);
+    RAW(2),
+    ARGON2ID(3);
 
     private final int id;
 
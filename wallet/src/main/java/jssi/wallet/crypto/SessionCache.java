@@ -0,0 +1,105 @@
+/*
+ *
+ *  * Copyright 2021 UBICUA.
+ *  *
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  *
+ *  *      http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ *
+ */
+
+package jssi.wallet.crypto;
+
+import android.util.Log;
+
+import java.security.GeneralSecurityException;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the derived master key of a single wallet, wrapped by a {@link DeviceKey},
+ * so that re-opening the wallet within the idle timeout skips key derivation.
+ * Every successful {@link #get(String)} restarts the timeout; {@link #clear()}
+ * zeroizes the cached material.
+ *
+ * @author UBICUA
+ */
+public class SessionCache {
+
+    private static final String TAG = SessionCache.class.getName();
+
+    public static final long DEFAULT_IDLE_TIMEOUT = TimeUnit.MINUTES.toMillis(5);
+
+    private final DeviceKey deviceKey;
+    private final long idleTimeout;
+
+    private String id;
+    private byte[] wrapped;
+    private long lastAccess;
+
+    public SessionCache(DeviceKey deviceKey) {
+        this(deviceKey, DEFAULT_IDLE_TIMEOUT, TimeUnit.MILLISECONDS);
+    }
+
+    public SessionCache(DeviceKey deviceKey, long idleTimeout, TimeUnit unit) {
+        this.deviceKey = deviceKey;
+        this.idleTimeout = unit.toNanos(idleTimeout);
+    }
+
+    public synchronized void put(String id, byte[] masterKey) {
+        clear();
+        try {
+            this.wrapped = deviceKey.wrap(masterKey);
+            this.id = id;
+            this.lastAccess = System.nanoTime();
+        } catch (GeneralSecurityException e) {
+            Log.e(TAG, String.format("Master key not cached: %s", e.getMessage()));
+        }
+    }
+
+    /**
+     * @return a fresh copy of the master key the caller must zeroize, or null if
+     * nothing valid is cached for the wallet
+     */
+    public synchronized byte[] get(String id) {
+        if (wrapped == null || !id.equals(this.id)) {
+            return null;
+        }
+
+        if (isExpired()) {
+            Log.d(TAG, "Session expired");
+            clear();
+            return null;
+        }
+
+        try {
+            byte[] masterKey = deviceKey.unwrap(wrapped);
+            lastAccess = System.nanoTime();
+            return masterKey;
+        } catch (GeneralSecurityException e) {
+            Log.e(TAG, String.format("Cached master key unusable: %s", e.getMessage()));
+            clear();
+            return null;
+        }
+    }
+
+    public synchronized boolean isExpired() {
+        return System.nanoTime() - lastAccess > idleTimeout;
+    }
+
+    public synchronized void clear() {
+        if (wrapped != null) {
+            Arrays.fill(wrapped, (byte) 0);
+        }
+        wrapped = null;
+        id = null;
+    }
+}
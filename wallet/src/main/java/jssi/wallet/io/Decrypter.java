@@ -17,10 +17,9 @@
  */
 package jssi.wallet.io;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.nio.ByteBuffer;
-import jssi.wallet.crypto.Crypto;
+import org.libsodium.api.Crypto_aead_chacha20poly1305_ietf;
 import org.libsodium.api.Crypto_randombytes;
 import static org.libsodium.jni.SodiumConstants.CRYPTO_AEAD_CHACHA20POLY1305_IETF_TAGBYTES;
 import org.libsodium.jni.SodiumException;
@@ -45,16 +44,20 @@ class Decrypter {
      
     ByteBuffer decrypt(ByteBuffer buffer) throws IOException, SodiumException{
         
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        int sealed = chunkSize + CRYPTO_AEAD_CHACHA20POLY1305_IETF_TAGBYTES;
+        int chunks = (buffer.remaining() + sealed - 1) / sealed;
+        ByteBuffer data = ByteBuffer.allocate(Math.max(0, buffer.remaining() - chunks * CRYPTO_AEAD_CHACHA20POLY1305_IETF_TAGBYTES));
+        ByteBuffer chunk = buffer.duplicate();
 
+        /* Each chunk is opened straight into the output buffer */
         while (buffer.position() < buffer.limit()) {
-            int read = Math.min(chunkSize + CRYPTO_AEAD_CHACHA20POLY1305_IETF_TAGBYTES, buffer.limit() - buffer.position());
-            byte[] data = new byte[read];
-            buffer.get(data);
-            byte[] decrypted = Crypto.decrypt(data, nonce, key);
-            baos.write(decrypted);
+            chunk.limit(buffer.position() + Math.min(sealed, buffer.remaining()));
+            chunk.position(buffer.position());
+            Crypto_aead_chacha20poly1305_ietf.decrypt(data, chunk, null, nonce, key);
+            buffer.position(chunk.limit());
             Crypto_randombytes.increment(nonce);
         }
-        return ByteBuffer.wrap(baos.toByteArray());
+        data.flip();
+        return data;
     }
 }
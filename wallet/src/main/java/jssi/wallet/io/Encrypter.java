@@ -17,11 +17,11 @@
  */
 package jssi.wallet.io;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.nio.ByteBuffer;
-import jssi.wallet.crypto.Crypto;
+import org.libsodium.api.Crypto_aead_chacha20poly1305_ietf;
 import org.libsodium.api.Crypto_randombytes;
+import static org.libsodium.jni.SodiumConstants.CRYPTO_AEAD_CHACHA20POLY1305_IETF_TAGBYTES;
 import org.libsodium.jni.SodiumException;
 
 /**
@@ -43,15 +43,19 @@ class Encrypter {
     
     byte [] encrypt(ByteBuffer buffer) throws IOException, SodiumException{
 
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        
+        int chunks = (buffer.remaining() + chunkSize - 1) / chunkSize;
+        byte[] out = new byte[buffer.remaining() + chunks * CRYPTO_AEAD_CHACHA20POLY1305_IETF_TAGBYTES];
+        ByteBuffer cipher = ByteBuffer.wrap(out);
+        ByteBuffer chunk = buffer.duplicate();
+
+        /* Each chunk is sealed straight into the output array */
         while(buffer.position() < buffer.limit()){
-            byte[] chunk = new byte[Math.min(chunkSize, buffer.limit() - buffer.position())];
-            buffer.get(chunk);
-            byte[] cipher = Crypto.encrypt(chunk, nonce, key);
-            baos.write(cipher);
+            chunk.limit(buffer.position() + Math.min(chunkSize, buffer.remaining()));
+            chunk.position(buffer.position());
+            Crypto_aead_chacha20poly1305_ietf.encrypt(cipher, chunk, null, nonce, key);
+            buffer.position(chunk.limit());
             Crypto_randombytes.increment(nonce);
         }
-        return baos.toByteArray();
+        return out;
     }
 }
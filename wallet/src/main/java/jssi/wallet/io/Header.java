@@ -19,6 +19,7 @@ package jssi.wallet.io;
 
 import java.io.IOException;
 import java.util.Date;
+import jssi.wallet.crypto.KdfParams;
 import jssi.wallet.crypto.KeyDerivationData;
 import jssi.wallet.crypto.Method;
 import static org.libsodium.jni.SodiumConstants.CRYPTO_AEAD_CHACHA20POLY1305_IETF_KEYBYTES;
@@ -49,13 +50,15 @@ public class Header {
     byte[] serialize(KeyDerivationData data) throws IOException{
         
         this.data = data;
+        KdfParams params = data.getKdfParams();
+        boolean limits = params != null && !params.isLegacy();
         
         MessageBufferPacker packer = MessagePack.newDefaultBufferPacker();
         
         packer.packArrayHeader(3);
             packer.packArrayHeader(2);
                 packer.packInt(data.getDerivationMethod().getId());
-                packer.packArrayHeader(3);
+                packer.packArrayHeader(limits ? 5 : 3);
                     packer.packArrayHeader(data.getSalt().length);
                     for(byte item : data.getSalt()){
                         packer.packInt(item & 0xFF);
@@ -66,6 +69,11 @@ public class Header {
                     }
                     
                     packer.packInt(chunkSize);
+                    /* limits only when they differ from the fixed ones of the method */
+                    if (limits) {
+                        packer.packInt(params.getOpslimit());
+                        packer.packInt(params.getMemlimit());
+                    }
        
             packer.packLong(date.getTime() / 1000);
             packer.packInt(version);    
@@ -81,16 +89,21 @@ public class Header {
 
                 Method method = Method.values()[unpacker.unpackInt()];
                 
-                unpacker.unpackArrayHeader();
+                int size = unpacker.unpackArrayHeader();
                 byte[] salt  = new byte[CRYPTO_AEAD_CHACHA20POLY1305_IETF_KEYBYTES];
                 toBytes(unpacker.unpackValue().asArrayValue(), salt);
                 toBytes(unpacker.unpackValue().asArrayValue(), nonce);
 
                 chunkSize = unpacker.unpackInt();
-                data = new KeyDerivationData(passphrase, salt, method);
+
+                if (size >= 5) {
+                    data = new KeyDerivationData(passphrase, salt, new KdfParams(method, unpacker.unpackInt(), unpacker.unpackInt()));
+                } else {
+                    data = new KeyDerivationData(passphrase, salt, method);
+                }
            
 
-        date = new Date(unpacker.unpackInt() * 1000);
+        date = new Date(unpacker.unpackLong() * 1000L);
         version = unpacker.unpackInt();
         
         return this;
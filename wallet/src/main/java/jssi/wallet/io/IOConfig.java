@@ -21,6 +21,8 @@ package jssi.wallet.io;
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
+import jssi.wallet.crypto.KdfParams;
+
 /**
  *
  * @author ITON Solutions
@@ -29,15 +31,23 @@ public class IOConfig {
 
     public String path;
     public String key;
+    public ImportMode mode;
+    /* derivation limits of the export key, legacy ARGON2I_MOD when null */
+    public KdfParams kdf;
+
+    public IOConfig(String path, String key){
+        this(path, key, null);
+    }
 
     @JsonCreator
-    public IOConfig(@JsonProperty("path") String path, @JsonProperty("key") String key){
+    public IOConfig(@JsonProperty("path") String path, @JsonProperty("key") String key, @JsonProperty("mode") ImportMode mode){
         this.path = path;
         this.key = key;
+        this.mode = mode == null ? ImportMode.FAIL : mode;
     }
 
     @Override
     public String toString(){
-        return String.format("IOConfig: { path %s, key: %s}", path, key);
+        return String.format("IOConfig: { path %s, key: %s, mode: %s}", path, key, mode);
     }
 }
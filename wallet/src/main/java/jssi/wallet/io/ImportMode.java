@@ -0,0 +1,35 @@
+/*
+ *
+ *  * Copyright 2021 UBICUA.
+ *  *
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  *
+ *  *      http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ *
+ */
+
+package jssi.wallet.io;
+
+/**
+ * How an import treats a record whose (type, name) already exists in the wallet.
+ *
+ * @author UBICUA
+ */
+public enum ImportMode {
+    /** Keep the stored record, ignore the incoming one. */
+    SKIP,
+    /** Replace value and tags of the stored record. */
+    OVERWRITE,
+    /** Abort the import; the batch holding the duplicate is rolled back. */
+    FAIL,
+    /** Keep the stored value, add the incoming tags, replacing tags with the same name. */
+    MERGE_TAGS
+}
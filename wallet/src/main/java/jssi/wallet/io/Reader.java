@@ -78,6 +78,7 @@ public class Reader implements Runnable {
             if (header.getVersion() != 0) {
                 IOException e = new IOException(String.format("Invalid version %d, mus be 0", header.getVersion()));
                 emitter.onError(e);
+                return;
             }
 
             buffer = new Decrypter(header.getDerivationData().deriveMasterKey(),
@@ -92,6 +93,7 @@ public class Reader implements Runnable {
             if (!Arrays.equals(hashBytes, hash)) {
                 IOException e = new IOException(String.format("Invalid hash %s, expected %s", Utils.toHex(hash), Utils.toHex(hashBytes)));
                 emitter.onError(e);
+                return;
             }
 
             List<WalletRecord> records = new ArrayList<>();
@@ -105,10 +107,14 @@ public class Reader implements Runnable {
             }
 
             int count = 0;
-            for (WalletRecord record : records) {
-                wallet.addRecord(record);
-                emitter.onNext(++count);
+            int stored = 0;
+            for (int from = 0; from < records.size(); from += Wallet.BATCH_SIZE) {
+                List<WalletRecord> batch = records.subList(from, Math.min(records.size(), from + Wallet.BATCH_SIZE));
+                stored += wallet.importRecords(batch, config.mode);
+                count += batch.size();
+                emitter.onNext(count);
             }
+            Log.d(TAG, String.format("Imported %d of %d records, mode %s", stored, count, config.mode));
             emitter.onComplete();
 
         } catch (IOException | PreexistingEntityException | SodiumException e) {
@@ -0,0 +1,125 @@
+/*
+ *
+ *  * Copyright 2021 UBICUA.
+ *  *
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  *
+ *  *      http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ *
+ */
+
+package jssi.wallet.io;
+
+import java.util.Date;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Outcome of verifying one export file with {@link Verifier}.
+ *
+ * @author UBICUA
+ */
+public class VerificationReport {
+
+    private final String path;
+    private final Map<String, Integer> types = new TreeMap<>();
+    private boolean valid;
+    private String error;
+    private Header header;
+    private int chunks;
+    private int records;
+    private long bytes;
+
+    VerificationReport(String path) {
+        this.path = path;
+    }
+
+    void addRecord(String type) {
+        Integer count = types.get(type);
+        types.put(type, count == null ? 1 : count + 1);
+        records++;
+    }
+
+    void addChunk(int size) {
+        chunks++;
+        bytes += size;
+    }
+
+    void setHeader(Header header) {
+        this.header = header;
+    }
+
+    VerificationReport success() {
+        this.valid = true;
+        return this;
+    }
+
+    VerificationReport failure(String error) {
+        this.valid = false;
+        this.error = error;
+        return this;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public boolean isValid() {
+        return valid;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public int getVersion() {
+        return header == null ? -1 : header.getVersion();
+    }
+
+    public Date getDate() {
+        return header == null ? null : header.getDate();
+    }
+
+    public int getChunkSize() {
+        return header == null ? 0 : header.getChunkSize();
+    }
+
+    public int getChunks() {
+        return chunks;
+    }
+
+    public long getBytes() {
+        return bytes;
+    }
+
+    public int getRecords() {
+        return records;
+    }
+
+    public Map<String, Integer> getTypes() {
+        return types;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append(String.format("%s: %s", path, valid ? "OK" : "FAILED (" + error + ")"));
+        if (header != null) {
+            builder.append(String.format("%n  version %d, method %s, date %s, chunk size %d",
+                    header.getVersion(), header.getMethod(), header.getDate(), header.getChunkSize()));
+        }
+        builder.append(String.format("%n  %d chunks, %d bytes, %d records", chunks, bytes, records));
+        for (Map.Entry<String, Integer> entry : types.entrySet()) {
+            builder.append(String.format("%n    %s: %d", entry.getKey(), entry.getValue()));
+        }
+        return builder.toString();
+    }
+}
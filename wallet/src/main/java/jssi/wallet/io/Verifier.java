@@ -0,0 +1,321 @@
+/*
+ *
+ *  * Copyright 2021 UBICUA.
+ *  *
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  *
+ *  *      http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ *
+ */
+
+package jssi.wallet.io;
+
+import jssi.wallet.crypto.Crypto;
+import org.libsodium.api.Crypto_aead_chacha20poly1305_ietf;
+import org.libsodium.api.Crypto_randombytes;
+import org.libsodium.jni.NaCl;
+import org.libsodium.jni.SodiumException;
+import org.msgpack.core.MessagePack;
+import org.msgpack.core.MessageUnpacker;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.libsodium.jni.SodiumConstants.CRYPTO_AEAD_CHACHA20POLY1305_IETF_TAGBYTES;
+
+/**
+ * Checks an export file without importing it. The file is read one encrypted chunk
+ * at a time: every chunk is authenticated, the header hash is compared and records
+ * are counted per type, so memory use is bounded by the chunk size and the largest
+ * record rather than by the size of the backup.
+ *
+ * <p>Runs on a plain JVM, see {@link #main(String[])} and the {@code verifyExport} and
+ * {@code verifierJar} tasks of the wallet build.
+ *
+ * @author UBICUA
+ */
+public class Verifier {
+
+    static final int MAX_HEADER_SIZE = 0x10000;
+    static final int MAX_CHUNK_SIZE = 0x100000;
+    static final int MAX_RECORD_SIZE = 0x1000000;
+
+    private static final int HASH_SIZE = 0x20;
+
+    private final String path;
+    private final String passphrase;
+
+    public Verifier(String path, String passphrase) {
+        this.path = path;
+        this.passphrase = passphrase;
+    }
+
+    /**
+     * Integrity problems are reported in the result; only I/O failures are thrown.
+     */
+    public VerificationReport verify() throws IOException {
+
+        VerificationReport report = new VerificationReport(path);
+
+        try (FileInputStream fis = new FileInputStream(new File(path));
+             FileChannel channel = fis.getChannel()) {
+
+            ByteBuffer length = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+            if (!fill(channel, length)) {
+                return report.failure("File too short");
+            }
+
+            int headerSize = length.getInt(0);
+            if (headerSize <= 0 || headerSize > MAX_HEADER_SIZE) {
+                return report.failure(String.format("Invalid header size %d", headerSize));
+            }
+
+            ByteBuffer headerBuffer = ByteBuffer.allocate(headerSize);
+            if (!fill(channel, headerBuffer)) {
+                return report.failure("Truncated header");
+            }
+
+            byte[] headerBytes = headerBuffer.array();
+            Header header;
+            try {
+                header = new Header().deserialize(headerBytes, passphrase);
+            } catch (IOException | RuntimeException e) {
+                return report.failure(String.format("Invalid header: %s", e.getMessage()));
+            }
+            report.setHeader(header);
+
+            if (header.getChunkSize() <= 0 || header.getChunkSize() > MAX_CHUNK_SIZE) {
+                return report.failure(String.format("Invalid chunk size %d", header.getChunkSize()));
+            }
+
+            if (header.getVersion() != 0) {
+                return report.failure(String.format("Invalid version %d, must be 0", header.getVersion()));
+            }
+
+            byte[] key = header.getDerivationData().deriveMasterKey();
+            byte[] nonce = header.getNonce().clone();
+            RecordParser parser = new RecordParser(Crypto.hash256(headerBytes), report);
+
+            ByteBuffer chunk = ByteBuffer.allocate(header.getChunkSize() + CRYPTO_AEAD_CHACHA20POLY1305_IETF_TAGBYTES);
+            ByteBuffer data = ByteBuffer.allocate(header.getChunkSize());
+
+            while (true) {
+                chunk.clear();
+                boolean full = fill(channel, chunk);
+                if (chunk.position() == 0) {
+                    break;
+                }
+                if (chunk.position() <= CRYPTO_AEAD_CHACHA20POLY1305_IETF_TAGBYTES) {
+                    return report.failure(String.format("Truncated chunk %d", report.getChunks()));
+                }
+
+                chunk.flip();
+                data.clear();
+                try {
+                    Crypto_aead_chacha20poly1305_ietf.decrypt(data, chunk, null, nonce, key);
+                } catch (SodiumException e) {
+                    return report.failure(String.format("Chunk %d failed authentication", report.getChunks()));
+                }
+                data.flip();
+                Crypto_randombytes.increment(nonce);
+                report.addChunk(data.remaining());
+
+                String error = parser.feed(data);
+                if (error != null) {
+                    return report.failure(error);
+                }
+                if (!full) {
+                    break;
+                }
+            }
+
+            if (!parser.isComplete()) {
+                return report.failure("Truncated file, end of records marker missing");
+            }
+            return report.success();
+
+        } catch (SodiumException e) {
+            return report.failure(String.format("Key derivation failed: %s", e.getMessage()));
+        }
+    }
+
+    /*
+     * Reads until `buffer` is full or the channel is exhausted.
+     */
+    private static boolean fill(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /*
+     * Incremental parser of the decrypted stream: header hash, then length-prefixed
+     * records terminated by a zero length. Chunk boundaries may fall anywhere.
+     */
+    static class RecordParser {
+
+        private enum State { HASH, LENGTH, RECORD, END }
+
+        private final byte[] expectedHash;
+        private final VerificationReport report;
+        private final ByteBuffer length = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+        private final ByteBuffer hash = ByteBuffer.allocate(HASH_SIZE);
+        private ByteBuffer record = ByteBuffer.allocate(0x400);
+        private State state = State.HASH;
+
+        RecordParser(byte[] expectedHash, VerificationReport report) {
+            this.expectedHash = expectedHash;
+            this.report = report;
+        }
+
+        boolean isComplete() {
+            return state == State.END;
+        }
+
+        String feed(ByteBuffer input) {
+            while (input.hasRemaining()) {
+                switch (state) {
+                    case HASH:
+                        transfer(input, hash);
+                        if (!hash.hasRemaining()) {
+                            if (!MessageDigest.isEqual(hash.array(), expectedHash)) {
+                                return "Header hash mismatch";
+                            }
+                            state = State.LENGTH;
+                        }
+                        break;
+
+                    case LENGTH:
+                        transfer(input, length);
+                        if (!length.hasRemaining()) {
+                            int size = length.getInt(0);
+                            length.clear();
+
+                            if (size == 0) {
+                                state = State.END;
+                            } else if (size < 0 || size > MAX_RECORD_SIZE) {
+                                return String.format("Invalid record size %d", size);
+                            } else {
+                                if (record.capacity() < size) {
+                                    record = ByteBuffer.allocate(size);
+                                }
+                                record.clear();
+                                record.limit(size);
+                                state = State.RECORD;
+                            }
+                        }
+                        break;
+
+                    case RECORD:
+                        transfer(input, record);
+                        if (!record.hasRemaining()) {
+                            String error = count();
+                            if (error != null) {
+                                return error;
+                            }
+                            state = State.LENGTH;
+                        }
+                        break;
+
+                    case END:
+                    default:
+                        return String.format("%d bytes of trailing data after end of records", input.remaining());
+                }
+            }
+            return null;
+        }
+
+        private String count() {
+            try (MessageUnpacker unpacker = MessagePack.newDefaultUnpacker(record.array(), 0, record.limit())) {
+                unpacker.unpackArrayHeader();
+                report.addRecord(unpacker.unpackString());
+                return null;
+            } catch (IOException | RuntimeException e) {
+                return String.format("Malformed record %d: %s", report.getRecords(), e.getMessage());
+            }
+        }
+
+        private static void transfer(ByteBuffer src, ByteBuffer dst) {
+            int count = Math.min(src.remaining(), dst.remaining());
+            int limit = src.limit();
+            src.limit(src.position() + count);
+            dst.put(src);
+            src.limit(limit);
+        }
+    }
+
+    /**
+     * Usage: {@code Verifier [-j threads] file...}. The export passphrase is read from the
+     * {@code WALLET_EXPORT_KEY} environment variable so it does not show up in process
+     * listings. Exits with 0 when every file verifies, 1 otherwise.
+     */
+    public static void main(String[] args) throws Exception {
+
+        int threads = 1;
+        List<String> files = new ArrayList<>();
+
+        for (int i = 0; i < args.length; i++) {
+            if ("-j".equals(args[i]) && i + 1 < args.length) {
+                threads = Integer.parseInt(args[++i]);
+            } else {
+                files.add(args[i]);
+            }
+        }
+
+        String passphrase = System.getenv("WALLET_EXPORT_KEY");
+        if (files.isEmpty() || passphrase == null) {
+            System.err.println("Usage: WALLET_EXPORT_KEY=<passphrase> Verifier [-j threads] file...");
+            System.exit(2);
+        }
+
+        NaCl.sodium();
+
+        // key derivation dominates and needs tens of MB per file, keep parallelism explicit
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, threads));
+        List<Future<VerificationReport>> results = new ArrayList<>();
+        for (String file : files) {
+            results.add(executor.submit(() -> new Verifier(file, passphrase).verify()));
+        }
+
+        int failed = 0;
+        for (int i = 0; i < results.size(); i++) {
+            VerificationReport report;
+            try {
+                report = results.get(i).get();
+            } catch (Exception e) {
+                Throwable cause = e.getCause() == null ? e : e.getCause();
+                report = new VerificationReport(files.get(i)).failure(cause instanceof EOFException ? "Truncated file" : cause.toString());
+            }
+            if (!report.isValid()) {
+                failed++;
+            }
+            System.out.println(report);
+        }
+        executor.shutdown();
+
+        System.out.println(String.format("%d files, %d failed", files.size(), failed));
+        System.exit(failed == 0 ? 0 : 1);
+    }
+}
@@ -61,7 +61,9 @@ public class Writer implements Runnable {
             int count = (int) wallet.count();
             Log.d(TAG, String.format("Total registers in database %d", count));
 
-            KeyDerivationData data = new KeyDerivationData(config.key);
+            KeyDerivationData data = config.kdf == null
+                    ? new KeyDerivationData(config.key)
+                    : new KeyDerivationData(config.key, config.kdf);
             Header header = new Header();
             byte[] header_bytes = header.serialize(data);
             List<WalletRecord> records = wallet.findAllRecords();
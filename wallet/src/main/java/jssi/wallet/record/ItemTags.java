@@ -56,17 +56,20 @@ public class ItemTags {
 
     public void encrypt(Item item, Map<String, String> tags, byte[] tagNameKey, byte[] tagValueKey, byte[] tagsHmacKey) throws SodiumException{
 
+        // items not stored yet have no id, ItemDao assigns it on insert
+        int itemId = item.getId() == null ? 0 : item.getId();
+
         for(String name : tags.keySet()) {
             if(name.startsWith("~")){
                 byte[] encryptedValue = tags.get(name).getBytes();
                 name = name.substring(1);
                 byte[] encryptedName  = Crypto.encryptAsSearchable(name.getBytes(), tagNameKey, tagsHmacKey);
-                plaintext.add(new Plaintext(item.getId(), encryptedName, encryptedValue));
+                plaintext.add(new Plaintext(itemId, encryptedName, encryptedValue));
             } else {
                 String value = tags.get(name);
                 byte[] encryptedName  = Crypto.encryptAsSearchable(name.getBytes(), tagNameKey, tagsHmacKey);
                 byte[] encryptedValue = Crypto.encryptAsSearchable(value.getBytes(), tagValueKey, tagsHmacKey);
-                encrypted.add(new Encrypted(item.getId(), encryptedName, encryptedValue));
+                encrypted.add(new Encrypted(itemId, encryptedName, encryptedValue));
             }
         }
     }
@@ -19,7 +19,7 @@ package jssi.wallet.record;
 
 import jssi.wallet.crypto.Crypto;
 import jssi.store.model.Item;
-import org.libsodium.api.Crypto_randombytes;
+import org.libsodium.api.RandomSource;
 import static org.libsodium.jni.SodiumConstants.CRYPTO_AEAD_CHACHA20POLY1305_IETF_KEYBYTES;
 import org.libsodium.jni.SodiumException;
 
@@ -42,8 +42,7 @@ public class ItemValue {
     }
     
     public ItemValue encrypt(byte[] value, byte[] value_key) throws SodiumException{
-        byte[] encrypt_key = new byte[CRYPTO_AEAD_CHACHA20POLY1305_IETF_KEYBYTES];
-        Crypto_randombytes.buf(encrypt_key);
+        byte[] encrypt_key = RandomSource.key(CRYPTO_AEAD_CHACHA20POLY1305_IETF_KEYBYTES);
         this.value = Crypto.encryptAsNotSearchable(value, encrypt_key);
         this.key   = Crypto.encryptAsNotSearchable(encrypt_key, value_key);
         return this;
@@ -18,11 +18,15 @@
 package jssi.wallet.record;
 
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
 import jssi.wallet.crypto.Crypto;
 import jssi.wallet.crypto.Keys;
+import jssi.store.model.Encrypted;
 import jssi.store.model.Item;
+import jssi.store.model.Plaintext;
 import org.libsodium.jni.SodiumException;
 import org.msgpack.core.MessageBufferPacker;
 import org.msgpack.core.MessagePack;
@@ -53,13 +57,49 @@ public class WalletRecord {
     }
 
     public WalletRecord decrypt(final Item item, final Keys keys) throws SodiumException{
-  
-        name = new String(Crypto.decryptMerged(item.getName(), keys.getNameKey()));
-        type = new String(Crypto.decryptMerged(item.getType(), keys.getTypeKey()));
-        value = new ItemValue(item).decrypt(keys.getValueKey());
-        
+
+        ItemValue itemValue = new ItemValue(item);
         ItemTags itemTags = new ItemTags(item);
-        tags = itemTags.decrypt(keys.getTagNameKey(), keys.getTagValueKey());
+        Collection<Encrypted> encrypted = itemTags.getEncrypted();
+        Collection<Plaintext> plaintext = itemTags.getPlaintext();
+
+        /* Name, type, value key and tag names and values share one native call */
+        int count = 3 + 2 * encrypted.size() + plaintext.size();
+        byte[][] data = new byte[count][];
+        byte[][] dataKeys = new byte[count][];
+        data[0] = item.getName();
+        dataKeys[0] = keys.getNameKey();
+        data[1] = item.getType();
+        dataKeys[1] = keys.getTypeKey();
+        data[2] = itemValue.getKey();
+        dataKeys[2] = keys.getValueKey();
+        int index = 3;
+        for (Encrypted tag : encrypted) {
+            data[index] = tag.getName();
+            dataKeys[index++] = keys.getTagNameKey();
+            data[index] = tag.getValue();
+            dataKeys[index++] = keys.getTagValueKey();
+        }
+        for (Plaintext tag : plaintext) {
+            data[index] = tag.getName();
+            dataKeys[index++] = keys.getTagNameKey();
+        }
+
+        byte[][] plain = Crypto.decryptMerged(data, dataKeys);
+        name = new String(plain[0]);
+        type = new String(plain[1]);
+        value = new String(Crypto.decryptMerged(itemValue.getValue(), plain[2]));
+        Arrays.fill(plain[2], (byte) 0);
+
+        tags = new HashMap<>();
+        index = 3;
+        for (int i = 0; i < encrypted.size(); i++) {
+            tags.put(new String(plain[index]), new String(plain[index + 1]));
+            index += 2;
+        }
+        for (Plaintext tag : plaintext) {
+            tags.put(String.format("~%s", new String(plain[index++])), new String(tag.getValue()));
+        }
         return this;
     }
     
@@ -0,0 +1,74 @@
+/*
+ *
+ *  * Copyright 2021 UBICUA.
+ *  *
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  *
+ *  *      http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ *
+ */
+package jssi.wallet.scheduler;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * Point-in-time snapshot of a wallet thread pool.
+ *
+ * @author UBICUA
+ */
+public class PoolMetrics {
+
+    private final String name;
+    private final int poolSize;
+    private final int activeCount;
+    private final int queueDepth;
+    private final int largestPoolSize;
+    private final long completedTaskCount;
+
+    PoolMetrics(String name, ThreadPoolExecutor executor) {
+        this.name = name;
+        this.poolSize = executor.getPoolSize();
+        this.activeCount = executor.getActiveCount();
+        this.queueDepth = executor.getQueue().size();
+        this.largestPoolSize = executor.getLargestPoolSize();
+        this.completedTaskCount = executor.getCompletedTaskCount();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getPoolSize() {
+        return poolSize;
+    }
+
+    public int getActiveCount() {
+        return activeCount;
+    }
+
+    public int getQueueDepth() {
+        return queueDepth;
+    }
+
+    public int getLargestPoolSize() {
+        return largestPoolSize;
+    }
+
+    public long getCompletedTaskCount() {
+        return completedTaskCount;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("PoolMetrics: { name: %s, pool: %d, active: %d, queued: %d, largest: %d, completed: %d}",
+                name, poolSize, activeCount, queueDepth, largestPoolSize, completedTaskCount);
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ *
+ *  * Copyright 2021 UBICUA.
+ *  *
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  *
+ *  *      http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ *
+ */
+package jssi.wallet.scheduler;
+
+import android.util.Log;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.reactivex.Scheduler;
+import io.reactivex.schedulers.Schedulers;
+
+/**
+ * Wallet-wide thread pools. SQLite and file work goes to a fixed size I/O pool,
+ * key derivation and record encryption go to a CPU pool sized to the cores.
+ * Both pools are exposed as RxJava schedulers and are shut down together.
+ * <p>
+ * Work submitted after {@link #shutdown()} is rejected with a
+ * {@link java.util.concurrent.RejectedExecutionException}, never run on the
+ * caller's thread or dropped silently.
+ *
+ * @author UBICUA
+ */
+public class WalletSchedulers {
+
+    private static final String TAG = WalletSchedulers.class.getName();
+
+    public static final int IO_POOL_SIZE = 4;
+    public static final long KEEP_ALIVE_SECONDS = 30;
+
+    private final ThreadPoolExecutor ioExecutor;
+    private final ThreadPoolExecutor cpuExecutor;
+    private final Scheduler io;
+    private final Scheduler computation;
+
+    public WalletSchedulers() {
+        this(IO_POOL_SIZE, Runtime.getRuntime().availableProcessors());
+    }
+
+    public WalletSchedulers(int ioThreads, int cpuThreads) {
+        // The I/O queue is unbounded: export and import are long file jobs, and a
+        // full queue would otherwise have to run them on the subscribing thread,
+        // which may be the UI thread.
+        ioExecutor = new ThreadPoolExecutor(
+                ioThreads, ioThreads,
+                KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(),
+                new NamedThreadFactory("wallet-io"),
+                new ThreadPoolExecutor.AbortPolicy());
+        ioExecutor.allowCoreThreadTimeOut(true);
+
+        cpuExecutor = new ThreadPoolExecutor(
+                Math.max(1, cpuThreads), Math.max(1, cpuThreads),
+                KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(),
+                new NamedThreadFactory("wallet-cpu"));
+        cpuExecutor.allowCoreThreadTimeOut(true);
+
+        io = Schedulers.from(ioExecutor);
+        computation = Schedulers.from(cpuExecutor);
+    }
+
+    public Scheduler io() {
+        return io;
+    }
+
+    public Scheduler computation() {
+        return computation;
+    }
+
+    public ExecutorService ioExecutor() {
+        return ioExecutor;
+    }
+
+    public ExecutorService cpuExecutor() {
+        return cpuExecutor;
+    }
+
+    public PoolMetrics ioMetrics() {
+        return new PoolMetrics("io", ioExecutor);
+    }
+
+    public PoolMetrics cpuMetrics() {
+        return new PoolMetrics("cpu", cpuExecutor);
+    }
+
+    public boolean isShutdown() {
+        return ioExecutor.isShutdown() || cpuExecutor.isShutdown();
+    }
+
+    /**
+     * Stops accepting new work. Tasks already queued, for example a running export,
+     * are allowed to finish.
+     */
+    public void shutdown() {
+        Log.d(TAG, String.format("Shutdown %s, %s", ioMetrics(), cpuMetrics()));
+        ioExecutor.shutdown();
+        cpuExecutor.shutdown();
+    }
+
+    /**
+     * Waits for queued work to finish and interrupts whatever is still running
+     * once the timeout expires.
+     */
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        boolean terminated = ioExecutor.awaitTermination(timeout, unit)
+                && cpuExecutor.awaitTermination(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+
+        if (!terminated) {
+            Log.e(TAG, "Wallet pools did not terminate in time, interrupting");
+            ioExecutor.shutdownNow();
+            cpuExecutor.shutdownNow();
+        }
+        return terminated;
+    }
+
+    private static class NamedThreadFactory implements ThreadFactory {
+
+        private final String prefix;
+        private final AtomicInteger counter = new AtomicInteger();
+
+        NamedThreadFactory(String prefix) {
+            this.prefix = prefix;
+        }
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, String.format("%s-%d", prefix, counter.incrementAndGet()));
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,296 @@
+/*
+ *
+ *  * Copyright 2021 UBICUA.
+ *  *
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  *
+ *  *      http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ *
+ */
+
+package jssi.wallet.io;
+
+import jssi.wallet.crypto.Crypto;
+import jssi.wallet.crypto.KeyDerivationData;
+import jssi.wallet.crypto.KdfParams;
+import jssi.wallet.crypto.Method;
+import jssi.wallet.record.WalletRecord;
+import jssi.wallet.util.Utils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.libsodium.jni.NaCl;
+import org.libsodium.jni.SodiumException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+import static org.libsodium.jni.SodiumConstants.CRYPTO_AEAD_CHACHA20POLY1305_IETF_TAGBYTES;
+import static org.libsodium.jni.SodiumConstants.CRYPTO_PWHASH_ARGON2ID_OPSLIMIT_MIN;
+import static org.libsodium.jni.SodiumConstants.CRYPTO_PWHASH_MEMLIMIT_MIN;
+
+/**
+ * {@link Verifier} over small generated exports, and its record parser fed the
+ * decrypted stream split at every offset. The export tests need the host
+ * libsodiumjni, see build-native.sh; they are skipped without it.
+ *
+ * @author UBICUA
+ */
+public class VerifierTest {
+
+    private static final String KEY = "export passphrase";
+    /* Smallest Argon2id limits, so the tests do not wait on key derivation */
+    private static final KdfParams KDF = new KdfParams(Method.ARGON2ID, CRYPTO_PWHASH_ARGON2ID_OPSLIMIT_MIN, CRYPTO_PWHASH_MEMLIMIT_MIN);
+    private static final byte[] SALT = filled(32, 3);
+    private static final int CHUNK = Header.CHUNK_SIZE + CRYPTO_AEAD_CHACHA20POLY1305_IETF_TAGBYTES;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final Random random = new Random(42);
+
+    @Test
+    public void parsesEverySplit() throws IOException {
+        byte[] header = filled(64, 1);
+        byte[] stream = stream(Crypto.hash256(header), records());
+
+        for (int split = 1; split <= stream.length; split++) {
+            VerificationReport report = new VerificationReport("split");
+            Verifier.RecordParser parser = new Verifier.RecordParser(Crypto.hash256(header), report);
+
+            for (int from = 0; from < stream.length; from += split) {
+                int to = Math.min(stream.length, from + split);
+                assertNull(parser.feed(ByteBuffer.wrap(stream, from, to - from)));
+            }
+            assertTrue(parser.isComplete());
+            assertEquals(3, report.getRecords());
+            assertEquals(Integer.valueOf(2), report.getTypes().get("Indy::Did"));
+            assertEquals(Integer.valueOf(1), report.getTypes().get("Indy::Key"));
+        }
+    }
+
+    @Test
+    public void parserRejectsHeaderHash() throws IOException {
+        byte[] stream = stream(Crypto.hash256(filled(64, 1)), records());
+        Verifier.RecordParser parser = new Verifier.RecordParser(Crypto.hash256(filled(64, 2)), new VerificationReport("hash"));
+
+        assertEquals("Header hash mismatch", parser.feed(ByteBuffer.wrap(stream)));
+    }
+
+    @Test
+    public void parserNeedsEndMarker() throws IOException {
+        byte[] hash = Crypto.hash256(filled(64, 1));
+        byte[] stream = stream(hash, records());
+        Verifier.RecordParser parser = new Verifier.RecordParser(hash, new VerificationReport("end"));
+
+        assertNull(parser.feed(ByteBuffer.wrap(stream, 0, stream.length - 4)));
+        assertFalse(parser.isComplete());
+    }
+
+    @Test
+    public void parserRejectsTrailingData() throws IOException {
+        byte[] hash = Crypto.hash256(filled(64, 1));
+        byte[] stream = stream(hash, records());
+        byte[] trailing = Arrays.copyOf(stream, stream.length + 5);
+        Verifier.RecordParser parser = new Verifier.RecordParser(hash, new VerificationReport("trailing"));
+
+        assertEquals("5 bytes of trailing data after end of records", parser.feed(ByteBuffer.wrap(trailing)));
+    }
+
+    @Test
+    public void parserRejectsRecordSize() throws IOException {
+        byte[] hash = Crypto.hash256(filled(64, 1));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(hash);
+        out.write(Utils.toBytes(Verifier.MAX_RECORD_SIZE + 1));
+        Verifier.RecordParser parser = new Verifier.RecordParser(hash, new VerificationReport("size"));
+
+        assertEquals(String.format("Invalid record size %d", Verifier.MAX_RECORD_SIZE + 1), parser.feed(ByteBuffer.wrap(out.toByteArray())));
+    }
+
+    @Test
+    public void parserRejectsMalformedRecord() throws IOException {
+        byte[] hash = Crypto.hash256(filled(64, 1));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(hash);
+        out.write(Utils.toBytes(3));
+        out.write(new byte[]{(byte) 0xc1, 0, 0});
+        Verifier.RecordParser parser = new Verifier.RecordParser(hash, new VerificationReport("malformed"));
+
+        assertTrue(parser.feed(ByteBuffer.wrap(out.toByteArray())).startsWith("Malformed record 0"));
+    }
+
+    @Test
+    public void verifiesExport() throws IOException, SodiumException {
+        File file = export(KEY, null, records());
+
+        VerificationReport report = new Verifier(file.getPath(), KEY).verify();
+
+        assertTrue(report.getError(), report.isValid());
+        assertEquals(3, report.getRecords());
+        assertEquals(Header.CHUNK_SIZE, report.getChunkSize());
+        assertTrue("records span several chunks", report.getChunks() > 2);
+        assertEquals(0, report.getVersion());
+    }
+
+    @Test
+    public void verifiesEmptyExport() throws IOException, SodiumException {
+        File file = export(KEY, null, new WalletRecord[0]);
+
+        VerificationReport report = new Verifier(file.getPath(), KEY).verify();
+
+        assertTrue(report.getError(), report.isValid());
+        assertEquals(0, report.getRecords());
+        assertEquals(1, report.getChunks());
+    }
+
+    @Test
+    public void rejectsWrongPassphrase() throws IOException, SodiumException {
+        File file = export(KEY, null, records());
+
+        VerificationReport report = new Verifier(file.getPath(), "wrong passphrase").verify();
+
+        assertFalse(report.isValid());
+        assertEquals("Chunk 0 failed authentication", report.getError());
+    }
+
+    @Test
+    public void rejectsHeaderHash() throws IOException, SodiumException {
+        File file = export(KEY, filled(32, 0), records());
+
+        VerificationReport report = new Verifier(file.getPath(), KEY).verify();
+
+        assertFalse(report.isValid());
+        assertEquals("Header hash mismatch", report.getError());
+    }
+
+    @Test
+    public void rejectsTamperedChunk() throws IOException, SodiumException {
+        File file = export(KEY, null, records());
+        byte[] bytes = Files.readAllBytes(file.toPath());
+        bytes[headerEnd(bytes) + CHUNK + 10] ^= 1;
+        Files.write(file.toPath(), bytes);
+
+        VerificationReport report = new Verifier(file.getPath(), KEY).verify();
+
+        assertFalse(report.isValid());
+        assertEquals("Chunk 1 failed authentication", report.getError());
+    }
+
+    @Test
+    public void rejectsTruncatedChunk() throws IOException, SodiumException {
+        File file = export(KEY, null, records());
+        byte[] bytes = Files.readAllBytes(file.toPath());
+        Files.write(file.toPath(), Arrays.copyOf(bytes, headerEnd(bytes) + CHUNK + 20));
+
+        VerificationReport report = new Verifier(file.getPath(), KEY).verify();
+
+        assertFalse(report.isValid());
+        assertEquals("Chunk 1 failed authentication", report.getError());
+    }
+
+    @Test
+    public void rejectsMissingChunks() throws IOException, SodiumException {
+        File file = export(KEY, null, records());
+        byte[] bytes = Files.readAllBytes(file.toPath());
+        Files.write(file.toPath(), Arrays.copyOf(bytes, headerEnd(bytes) + 2 * CHUNK));
+
+        VerificationReport report = new Verifier(file.getPath(), KEY).verify();
+
+        assertFalse(report.isValid());
+        assertEquals("Truncated file, end of records marker missing", report.getError());
+    }
+
+    @Test
+    public void rejectsTruncatedHeader() throws IOException, SodiumException {
+        File file = export(KEY, null, records());
+        byte[] bytes = Files.readAllBytes(file.toPath());
+        Files.write(file.toPath(), Arrays.copyOf(bytes, 10));
+
+        VerificationReport report = new Verifier(file.getPath(), KEY).verify();
+
+        assertFalse(report.isValid());
+        assertEquals("Truncated header", report.getError());
+    }
+
+    /* Two DIDs, one over a chunk long so records and lengths straddle chunk boundaries */
+    private WalletRecord[] records() {
+        return new WalletRecord[]{
+                new WalletRecord("Indy::Did", "did1", text(1500), Collections.singletonMap("~role", "onboarding")),
+                new WalletRecord("Indy::Key", "key1", text(700)),
+                new WalletRecord("Indy::Did", "did2", text(300))
+        };
+    }
+
+    /* Decrypted export stream as Writer builds it */
+    private static byte[] stream(byte[] hash, WalletRecord... records) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(hash);
+        for (WalletRecord record : records) {
+            byte[] serialized = record.serialize();
+            out.write(Utils.toBytes(serialized.length));
+            out.write(serialized);
+        }
+        out.write(Utils.toBytes(0));
+        return out.toByteArray();
+    }
+
+    /* Export file as Writer writes it, with the header hash replaced when `hash` is given */
+    private File export(String key, byte[] hash, WalletRecord... records) throws IOException, SodiumException {
+        assumeTrue("libsodiumjni not available", NaCl.isAvailable());
+        NaCl.sodium();
+
+        Header header = new Header();
+        byte[] headerBytes = header.serialize(new KeyDerivationData(key, SALT, KDF));
+        byte[] stream = stream(hash == null ? Crypto.hash256(headerBytes) : hash, records);
+        byte[] encrypted = new Encrypter(header.getDerivationData().deriveMasterKey(), header.getNonce().clone(),
+                header.getChunkSize()).encrypt(ByteBuffer.wrap(stream));
+
+        File file = folder.newFile();
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(Utils.toBytes(headerBytes.length));
+            out.write(headerBytes);
+            out.write(encrypted);
+        }
+        return file;
+    }
+
+    private static int headerEnd(byte[] export) {
+        return 4 + ByteBuffer.wrap(export, 0, 4).order(ByteOrder.LITTLE_ENDIAN).getInt();
+    }
+
+    private String text(int length) {
+        StringBuilder builder = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            builder.append((char) ('a' + random.nextInt(26)));
+        }
+        return builder.toString();
+    }
+
+    private static byte[] filled(int length, int value) {
+        byte[] bytes = new byte[length];
+        Arrays.fill(bytes, (byte) value);
+        return bytes;
+    }
+}